@@ -4,36 +4,236 @@
 package battleship;
 
 import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.PrintStream;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.util.Map;
+import java.util.function.IntConsumer;
 
 public class App {
 
+    /**
+     * The default port of the game server
+     */
+    public static final int PORT = 12349;
+
+    /**
+     * The default size of the boards
+     */
+    public static final int WIDTH = 10;
+    public static final int HEIGHT = 20;
+
     private TextPlayer player1;
     private TextPlayer player2;
 
+    /**
+     * Where the game records its timings and counts
+     */
+    private GameMetrics metrics;
+
+    /**
+     * What is told, after every turn that did not end the game, which player plays next
+     */
+    private IntConsumer turnObserver;
+
+    /**
+     * Where every change to both boards is recorded, null if it is not
+     */
+    private MoveJournal journal;
+
+    /**
+     * How long the players may take, null if they have all the time
+     */
+    private TurnLimit turnLimit;
+
     /**
      * Constructs a battleship program with two players
      */
     public App(TextPlayer player1, TextPlayer player2) {
         this.player1 = player1;
         this.player2 = player2;
+        this.metrics = GameMetrics.GLOBAL;
+        this.turnObserver = null;
+        this.journal = null;
+        this.turnLimit = null;
+    }
+
+    /**
+     * This time every placement and turn of a player with its TurnDeadline,
+     * see TurnLimit; players without a deadline have all the time
+     */
+    public void setTurnLimit(TurnLimit turnLimit) {
+        this.turnLimit = turnLimit;
+    }
+
+    /**
+     * This get player1 (0) or player2 (1), a computer once it took over for a player who ran out of time
+     */
+    public TextPlayer getPlayer(int index) {
+        return index == 0 ? player1 : player2;
+    }
+
+    /**
+     * This record every change to both boards and every scan in the journal from now on
+     */
+    public void setJournal(MoveJournal journal) {
+        this.journal = journal;
+        journal.watch(0, player1.getBoard());
+        journal.watch(1, player2.getBoard());
+        player1.setJournal(journal);
+        player2.setJournal(journal);
+    }
+
+    /**
+     * This set what is told which player plays next after every turn that
+     * did not end the game, 0 for player1 and 1 for player2, e.g. to save the match
+     */
+    public void setTurnObserver(IntConsumer turnObserver) {
+        this.turnObserver = turnObserver;
+    }
+
+    private void turnPlayed(int nextPlayer) throws IOException {
+        if (journal != null) { // one write per turn, the journal is forced to disk periodically
+            journal.flush();
+        }
+        if (turnObserver != null) {
+            turnObserver.accept(nextPlayer);
+        }
+    }
+
+    /**
+     * This change where the game and both players record their timings and counts
+     */
+    public void setMetrics(GameMetrics metrics) {
+        this.metrics = metrics;
+        player1.setMetrics(metrics);
+        player2.setMetrics(metrics);
     }
 
     /**
      * This generate the make placement phase for players during the battleship game
      */
     public void doPlacementPhase() throws IOException {
-        player1.doPlacementPhase();
+        long start = System.nanoTime();
+        placeShips(player1);
+        metrics.placement.record(System.nanoTime() - start);
         System.out.print("\n");
-        player2.doPlacementPhase();
+        start = System.nanoTime();
+        placeShips(player2);
+        metrics.placement.record(System.nanoTime() - start);
         System.out.print("\n");
+        if (journal != null) {
+            journal.flush();
+        }
+        flushOutput();
+    }
+
+    /**
+     * This let a player place the ships, within the setup time if there is a turn limit
+     *
+     * @throws TurnTimeoutException if the player ran out of time
+     */
+    private void placeShips(TextPlayer player) throws IOException {
+        TurnDeadline deadline = turnLimit == null ? null : player.getTurnDeadline();
+        if (deadline != null) {
+            deadline.start(turnLimit.getSetupMillis());
+        }
+        try {
+            player.doPlacementPhase();
+        }
+        finally {
+            if (deadline != null) {
+                deadline.cancel();
+            }
+        }
+    }
+
+    /**
+     * This send both players what is pending, once per turn when the output is batched (see TurnOutputStream)
+     */
+    private void flushOutput() {
+        player1.out.flush();
+        player2.out.flush();
+    }
+
+    /**
+     * This play one turn of player1 (0) or player2 (1), within the turn
+     * time if there is a turn limit, and record how long it took and how
+     * much of it was spent waiting for input. A player who runs out of
+     * time forfeits, or a computer takes over and plays the turn.
+     *
+     * @return false if the player forfeited
+     */
+    private boolean timeTurn(int index, Board<Character> enemyBoard, BoardTextView enemyView, String enemyName) throws IOException {
+        TextPlayer player = getPlayer(index);
+        TurnDeadline deadline = turnLimit == null ? null : player.getTurnDeadline();
+        long waited = player.getInputWaitNanos();
+        long start = System.nanoTime();
+        try {
+            if (deadline != null) {
+                deadline.start(turnLimit.getTurnMillis());
+            }
+            player.playOneTurn(enemyBoard, enemyView, enemyName);
+        }
+        catch (TurnTimeoutException e) {
+            metrics.turnTimeouts.increment();
+            if (turnLimit.getOnExpiry() == TurnLimit.OnExpiry.FORFEIT) {
+                return false;
+            }
+            takeOver(index, enemyBoard).playOneTurn(enemyBoard, enemyView, enemyName);
+        }
+        finally {
+            if (deadline != null) {
+                deadline.cancel();
+            }
+        }
+        long took = System.nanoTime() - start;
+        metrics.turn.record(took);
+        metrics.serverCompute.record(took - (player.getInputWaitNanos() - waited));
+        flushOutput(); // the result of the turn, and the changes to the other player's board
+        return true;
+    }
+
+    /**
+     * This have a computer play the rest of the match for a player who ran out of time
+     */
+    private ComputerPlayer takeOver(int index, Board<Character> enemyBoard) {
+        TextPlayer player = getPlayer(index);
+        ComputerPlayer computer = ComputerPlayer.takeOver(player, enemyBoard);
+        if (index == 0) {
+            player1 = computer;
+        }
+        else {
+            player2 = computer;
+        }
+        String notice = "Player " + player.getName() + " ran out of time, the computer plays for " + player.getName() + " from now on";
+        player1.out.println(notice);
+        player2.out.println(notice);
+        return computer;
+    }
+
+    /**
+     * This end the game won by the other player, since player1 (0) or player2 (1) ran out of time
+     */
+    private void forfeit(int loser) throws IOException {
+        TextPlayer player = getPlayer(loser);
+        String notice = "Player " + player.getName() + " ran out of time. Player " + getPlayer(1 - loser).getName() + " win!";
+        player1.out.println(notice);
+        player2.out.println(notice);
+        flushOutput();
+        gameOver(1 - loser);
     }
 
     public static TextPlayer playerIdentification(String name, BufferedReader inputSource, PrintStream out, V2ShipFactory factory) throws IOException {
+        return playerIdentification(name, inputSource, out, factory, WIDTH, HEIGHT);
+    }
+
+    /**
+     * This ask for the type of a player and make it, on a board of the given size
+     */
+    public static TextPlayer playerIdentification(String name, BufferedReader inputSource, PrintStream out, V2ShipFactory factory,
+                                                  int width, int height) throws IOException {
         String prompt = "Please select the player type for " + name + ":\n" +
                 "1. People player\n" +
                 "2. Computer player\n";
@@ -43,15 +243,19 @@ public class App {
         String choice = getValidChoice(inputSource);
 
         if (choice.equals("1")) {
-            return createTextPlayer(name, inputSource, out, factory);
+            return createTextPlayer(name, inputSource, out, factory, width, height);
         } else {
-            return createComputerPlayer(name, inputSource, out, factory);
+            return createComputerPlayer(name, inputSource, out, factory, width, height);
         }
     }
 
     public static String getValidChoice(BufferedReader inputSource) throws IOException {
         while (true) {
-            String choice = inputSource.readLine().toUpperCase();
+            String line = inputSource.readLine();
+            if (line == null) {
+                throw new EOFException("The player left before choosing a player type");
+            }
+            String choice = line.toUpperCase();
             if (choice.equals("1") || choice.equals("2")) {
                 return choice;
             } else {
@@ -61,31 +265,131 @@ public class App {
     }
 
     public static TextPlayer createTextPlayer(String name, BufferedReader inputSource, PrintStream out, V2ShipFactory factory) {
-        Board<Character> b = new BattleShipBoard<>(10, 20, 'X');
-        return new TextPlayer(name, b, inputSource, out, factory);
+        return createTextPlayer(name, inputSource, out, factory, WIDTH, HEIGHT);
+    }
+
+    public static TextPlayer createTextPlayer(String name, BufferedReader inputSource, PrintStream out, V2ShipFactory factory,
+                                              int width, int height) {
+        return new TextPlayer(name, newBoard(width, height), inputSource, out, factory);
     }
 
     public static ComputerPlayer createComputerPlayer(String name, BufferedReader inputSource, PrintStream out, V2ShipFactory factory) {
-        Board<Character> b = new BattleShipBoard<>(10, 20, 'X');
-        return new ComputerPlayer(name, b, inputSource, out, factory);
+        return createComputerPlayer(name, inputSource, out, factory, WIDTH, HEIGHT);
+    }
+
+    public static ComputerPlayer createComputerPlayer(String name, BufferedReader inputSource, PrintStream out, V2ShipFactory factory,
+                                                      int width, int height) {
+        return new ComputerPlayer(name, newBoard(width, height), inputSource, out, factory);
+    }
+
+    /**
+     * This make an empty board of the given size: a grid, or a sparse
+     * board for a large one, see SparseBattleShipBoard.isLarge
+     */
+    public static Board<Character> newBoard(int width, int height) {
+        if (SparseBattleShipBoard.isLarge(width, height)) {
+            return new SparseBattleShipBoard<Character>(width, height, 'X');
+        }
+        return new GridBattleShipBoard<Character>(width, height, 'X');
     }
 
+    /**
+     * This start the game server. With "delta", clients get board changes
+     * and render the boards themselves, see BoardDeltaWriter. The metrics
+     * are registered over JMX and printed every dump period, 0 to never.
+     * Given a snapshot file, every match is saved there after each turn and
+     * the matches found there on start wait for their players to reconnect.
+     * Given a journal directory, every move of every match is recorded
+     * there, see MoveJournal; "-" skips the snapshot file. Every turn must
+     * be played within the turn seconds, 0 for no limit, or the player
+     * forfeits or a computer takes over, see TurnLimit. At most max matches
+     * run at once, the other clients wait in the queue, and a client
+     * waiting alone plays a computer after the computer seconds, 0 for
+     * never, see Matchmaker. The boards are 10x20 unless given as WxH;
+     * boards larger than 10x26 are shown through a window, see BoardTextView.
+     * Sonar scans reach 3 squares from their center unless given, see
+     * ScanEngine; larger boards may want a larger radius.
+     * In ffa mode the clients play free-for-alls of the given players, 4
+     * unless given, see FreeForAllServer; only the board size and scan
+     * radius apply to them.
+     * Usage: App [port] [nio|platform|virtual|ffa] [text|delta] [dump seconds] [snapshot file|-] [journal directory|-]
+     *            [turn seconds] [forfeit|computer] [max matches] [computer seconds] [board size] [ffa players] [scan radius]
+     */
     public static void main(String[] args) throws IOException {
-        int PORT = 12349;
-        ServerSocket serverSocket = new ServerSocket(PORT);
-        Socket clientSocket1 = serverSocket.accept();
-        Socket clientSocket2 = serverSocket.accept();
-        V2ShipFactory factory = new V2ShipFactory();
-        PrintStream printStream1 = new PrintStream(clientSocket1.getOutputStream());
-        PrintStream printStream2 = new PrintStream(clientSocket2.getOutputStream());
-        TextPlayer player1 = playerIdentification("A", new BufferedReader(new InputStreamReader(clientSocket1.getInputStream())), printStream1, factory);
-        TextPlayer player2 = playerIdentification("B", new BufferedReader(new InputStreamReader(clientSocket2.getInputStream())), printStream2, factory);
-        App app = new App(player1, player2);
-        app.doPlacementPhase();
-        app.doAttackingPhase(printStream1, printStream2);
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : PORT;
+        String mode = args.length > 1 ? args[1].toLowerCase() : "nio";
+        boolean delta = args.length > 2 && args[2].equalsIgnoreCase("delta");
+        long dumpSeconds = args.length > 3 ? Long.parseLong(args[3]) : 60;
+        SnapshotStore store = args.length > 4 && !args[4].equals("-") ? new SnapshotStore(new File(args[4])) : null;
+        File journals = args.length > 5 && !args[5].equals("-") ? new File(args[5]) : null;
+        long turnSeconds = args.length > 6 ? Long.parseLong(args[6]) : TurnLimit.DEFAULT_TURN_MILLIS / 1000;
+        TurnLimit.OnExpiry onExpiry = args.length > 7 ? TurnLimit.OnExpiry.valueOf(args[7].toUpperCase()) : TurnLimit.OnExpiry.FORFEIT;
+        TurnLimit turnLimit = turnSeconds > 0 ? new TurnLimit(turnSeconds * 1000, onExpiry) : null;
+        int maxMatches = args.length > 8 ? Integer.parseInt(args[8]) : Matchmaker.DEFAULT_MAX_MATCHES;
+        long computerSeconds = args.length > 9 ? Long.parseLong(args[9]) : Matchmaker.DEFAULT_COMPUTER_AFTER_MILLIS / 1000;
+        String[] size = args.length > 10 ? args[10].toLowerCase().split("x", 2) : new String[]{"" + WIDTH, "" + HEIGHT};
+        int width = Integer.parseInt(size[0]);
+        int height = size.length > 1 ? Integer.parseInt(size[1]) : width;
+        int ffaPlayers = args.length > 11 ? Integer.parseInt(args[11]) : FreeForAll.MIN_PLAYERS;
+        int scanRadius = args.length > 12 ? Integer.parseInt(args[12]) : ScanEngine.DEFAULT_RADIUS;
+        if (mode.equals("ffa") && delta) {
+            throw new IllegalArgumentException("A free-for-all sends rendered boards, it cannot use the delta protocol");
+        }
+        if (journals != null && !journals.isDirectory() && !journals.mkdirs()) {
+            throw new IOException("Cannot create the journal directory " + journals);
+        }
+        Map<Long, byte[]> saved = store == null ? null : store.recover();
+        GameMetrics.GLOBAL.registerMBean();
+        if (dumpSeconds > 0) {
+            GameMetrics.GLOBAL.startDump(dumpSeconds, System.out);
+        }
+        if (mode.equals("ffa")) {
+            FreeForAllServer server = new FreeForAllServer(port, ffaPlayers);
+            server.setBoardSize(width, height);
+            server.setScanRadius(scanRadius);
+            System.out.println("Server is running on port " + server.getPort() + " with free-for-alls of " + ffaPlayers + " players");
+            server.run();
+        }
+        else if (mode.equals("nio")) {
+            NioGameServer server = new NioGameServer(port, delta, store);
+            if (saved != null) {
+                server.offerResumes(saved);
+            }
+            server.setJournalDirectory(journals);
+            server.setTurnLimit(turnLimit);
+            server.setMaxMatches(maxMatches);
+            server.getMatchmaker().setComputerAfterMillis(computerSeconds * 1000);
+            server.setBoardSize(width, height);
+            server.setScanRadius(scanRadius);
+            System.out.println("Server is running on port " + server.getPort());
+            server.run();
+        }
+        else {
+            ThreadedGameServer.Mode threadMode = ThreadedGameServer.Mode.valueOf(mode.toUpperCase());
+            ThreadedGameServer server = new ThreadedGameServer(port, threadMode, delta, store);
+            if (saved != null) {
+                server.offerResumes(saved);
+            }
+            server.setJournalDirectory(journals);
+            server.setTurnLimit(turnLimit);
+            server.getMatchmaker().setMaxMatches(maxMatches);
+            server.getMatchmaker().setComputerAfterMillis(computerSeconds * 1000);
+            server.setBoardSize(width, height);
+            server.setScanRadius(scanRadius);
+            System.out.println("Server is running on port " + server.getPort() + " with " + mode + " threads");
+            server.run();
+        }
     }
 
     public void doAttackingPhase(PrintStream printStream1, PrintStream printStream2) throws IOException {
+        doAttackingPhase(printStream1, printStream2, 0);
+    }
+
+    /**
+     * This play the attacking phase from the given player's turn, 0 for
+     * player1 and 1 for player2, e.g. to resume a saved match
+     */
+    public void doAttackingPhase(PrintStream printStream1, PrintStream printStream2, int firstPlayer) throws IOException {
         // name of two palyers
         String name1 = player1.getName();
         String name2 = player2.getName();
@@ -98,17 +402,64 @@ public class App {
         // winning prompt of two players
         String win1 = "Player " + name1 + " win!";
         String win2 = "Player " + name2 + " win!";
+        ShotCounter shots = new ShotCounter();
+        board1.addListener(shots);
+        board2.addListener(shots);
+        boolean skipFirst = firstPlayer == 1;
         while (true) { // take turns to attack
-            player1.playOneTurn(board2, view2, name2);
-            if (player2.checkLose()) {
-                printStream1.println(win1);
+            if (!skipFirst) {
+                if (!timeTurn(0, board2, view2, name2)) {
+                    forfeit(0);
+                    break;
+                }
+                if (player2.checkLose()) {
+                    printStream1.println(win1);
+                    gameOver(0);
+                    break;
+                }
+                turnPlayed(1);
+            }
+            skipFirst = false;
+            if (!timeTurn(1, board1, view1, name1)) {
+                forfeit(1);
                 break;
             }
-            player2.playOneTurn(board1, view1, name1);
             if (player1.checkLose()) {
                 printStream2.println(win2);
+                gameOver(1);
                 break;
             }
+            turnPlayed(0);
+        }
+        board1.removeListener(shots);
+        board2.removeListener(shots);
+        metrics.shotsPerGame.record(shots.shots);
+    }
+
+    private void gameOver(int winner) throws IOException {
+        if (journal != null) {
+            journal.recordEnd(winner);
+            journal.flush();
+        }
+    }
+
+    /**
+     * This counts the shots fired at the boards it listens to
+     */
+    private static class ShotCounter implements BoardListener<Character> {
+        int shots;
+
+        @Override
+        public void onShipAdded(Ship<Character> ship) {
+        }
+
+        @Override
+        public void onFire(Coordinate where, Ship<Character> target, boolean newHit) {
+            shots += 1;
+        }
+
+        @Override
+        public void onShipMoved(Ship<Character> oldShip, Ship<Character> newShip) {
         }
     }
 
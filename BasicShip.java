@@ -1,14 +1,24 @@
 package battleship;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Arrays;
 
-public abstract class BasicShip<T> implements Ship<T> {
+public abstract class BasicShip<T> implements TemplateShip<T> {
 
     /**
-     * The coordinates that made up the ship together
+     * The coordinates that made up the ship together, in the canonical piece order of its shape
      */
-    protected HashMap<Coordinate, Boolean> myPieces;
+    protected Coordinate[] myPieces;
+
+    /**
+     * The bit i is set when piece i has been hit
+     */
+    protected long hitPieces;
+
+    /**
+     * The value of hitPieces once every piece is hit
+     */
+    private final long allPieces;
 
     /**
      * The display information of my ships
@@ -22,33 +32,60 @@ public abstract class BasicShip<T> implements Ship<T> {
 
     /**
      * This make a basic ship from an Iterable
-     * @param where is an interable data structure
+     * @param where is an interable data structure, in the piece order of the ship's shape
      * @param myDisplayInfo is the display information of the ship
+     * @throws IllegalArgumentException if the ship has more than 64 pieces
      */
     public BasicShip(Iterable<Coordinate> where,  ShipDisplayInfo<T> myDisplayInfo, ShipDisplayInfo<T> enemyDisplayInfo) {
-        this.myPieces = new HashMap<Coordinate, Boolean>();
+        ArrayList<Coordinate> pieces = new ArrayList<Coordinate>();
         for (Coordinate c: where) {
-            this.myPieces.put(c, false);
+            if (!pieces.contains(c)) { // a coordinate is one piece however often it is listed
+                pieces.add(c);
+            }
         }
+        if (pieces.size() > 64) {
+            throw new IllegalArgumentException("A ship has at most 64 pieces, but this one has " + pieces.size());
+        }
+        this.myPieces = pieces.toArray(new Coordinate[pieces.size()]);
+        this.hitPieces = 0;
+        this.allPieces = myPieces.length == 64 ? -1L : (1L << myPieces.length) - 1;
         this.myDisplayInfo = myDisplayInfo;
         this.enemyDisplayInfo = enemyDisplayInfo;
     }
 
+    /**
+     * This get the piece index of a coordinate
+     *
+     * @return the index, -1 if the coordinate is not part of this ship
+     */
+    protected int pieceOf(Coordinate c) {
+        for (int i = 0; i < myPieces.length; i++) { // a handful of pieces, faster than hashing
+            if (myPieces[i].equals(c)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     /**
      * This check whether there is a ship at the coordinate
      */
     @Override
     public boolean occupiesCoordinates(Coordinate where) {
-        return myPieces.containsKey(where);
+        return pieceOf(where) >= 0;
     }
 
     /**
      * This check whether the coordinate is part of the ship
+     *
+     * @return the piece index of the coordinate
      */
-    protected void checkCoordinateInThisShip(Coordinate c) {
-        if (myPieces.get(c)==null){
+    protected int checkCoordinateInThisShip(Coordinate c) {
+        int piece = pieceOf(c);
+        if (piece < 0){
             throw new IllegalArgumentException("Coordinate "+ c.toString() +" is not part of this ship");
         }
+        return piece;
     }
 
     /**
@@ -57,12 +94,7 @@ public abstract class BasicShip<T> implements Ship<T> {
      */
     @Override
     public boolean isSunk() {
-        for(Map.Entry<Coordinate, Boolean> entry: myPieces.entrySet()) { // the ship is sunk if all of its coordinates are hit
-            if(entry.getValue() == false) {
-                return false;
-            }
-        }
-        return true;
+        return hitPieces == allPieces;
     }
 
     /**
@@ -71,8 +103,7 @@ public abstract class BasicShip<T> implements Ship<T> {
      */
     @Override
     public void recordHitAt(Coordinate where) {
-        checkCoordinateInThisShip(where);
-        myPieces.put(where, true);
+        hitPieces |= 1L << checkCoordinateInThisShip(where);
     }
 
     /**
@@ -81,8 +112,7 @@ public abstract class BasicShip<T> implements Ship<T> {
      */
     @Override
     public boolean wasHitAt(Coordinate where) {
-        checkCoordinateInThisShip(where);
-        return myPieces.get(where);
+        return (hitPieces & (1L << checkCoordinateInThisShip(where))) != 0;
     }
 
     /**
@@ -90,12 +120,12 @@ public abstract class BasicShip<T> implements Ship<T> {
      */
     @Override
     public T getDisplayInfoAt(Coordinate where, boolean myShip) {
-        checkCoordinateInThisShip(where);
+        boolean hit = wasHitAt(where);
         if (myShip){
-            return myDisplayInfo.getInfo(where, myPieces.get(where));
+            return myDisplayInfo.getInfo(where, hit);
         }
         else {
-            return enemyDisplayInfo.getInfo(where, myPieces.get(where));
+            return enemyDisplayInfo.getInfo(where, hit);
         }
     }
 
@@ -105,7 +135,49 @@ public abstract class BasicShip<T> implements Ship<T> {
      */
     @Override
     public Iterable<Coordinate> getCoordinates(){
-        return myPieces.keySet();
+        return Arrays.asList(myPieces);
+    }
+
+    @Override
+    public int getPieceCount() {
+        return myPieces.length;
+    }
+
+    @Override
+    public long getHitPieces() {
+        return hitPieces;
+    }
+
+    @Override
+    public void recordHitPieces(long hitPieces) {
+        if ((hitPieces & ~allPieces) != 0) {
+            throw new IllegalArgumentException("The " + getName() + " has only " + myPieces.length + " pieces");
+        }
+        this.hitPieces |= hitPieces;
+    }
+
+    /**
+     * This generate the coordinates of every piece of a same-typed ship at
+     * the given placement, in the same piece order as this ship's
+     */
+    protected abstract Coordinate[] piecesAt(Placement p);
+
+    /**
+     * Move all hit coordinates on this ship to a new same-typed ship at the given placement
+     *
+     * @param p is the placement of the new ship
+     * @return a list of coordinates on the new ship that are corresponding to be hit
+     */
+    @Override
+    public ArrayList<Coordinate> moveHitCoordinate(Placement p) {
+        Coordinate[] moved = piecesAt(p);
+        ArrayList<Coordinate> hits = new ArrayList<Coordinate>();
+        for (int i = 0; i < moved.length; i++) {
+            if ((hitPieces & (1L << i)) != 0) { // piece i keeps its hit
+                hits.add(moved[i]);
+            }
+        }
+        return hits;
     }
 
 }
@@ -37,6 +37,11 @@ public class BattleShipBoard<T> implements Board<T> {
      */
     private HashMap<Coordinate,Ship<T>> boardHits;
 
+    /**
+     * The listeners notified of every change to the board
+     */
+    private final BoardListenerList<T> listeners;
+
     /**
      * This get the width of the newly constructed board
      *
@@ -86,6 +91,7 @@ public class BattleShipBoard<T> implements Board<T> {
         this.enemyMisses =  new HashSet<Coordinate>();
         this.missInfo = missInfo;
         this.boardHits = new HashMap<Coordinate, Ship<T>>();
+        this.listeners = new BoardListenerList<T>();
     }
 
     /**
@@ -95,7 +101,7 @@ public class BattleShipBoard<T> implements Board<T> {
      * @param h is the height of the newly constructed board.
      */
     public BattleShipBoard(int w, int h, T missInfo) {
-        this(w, h, new InBoundsRuleChecker<T>(new NoCollisionRuleChecker<T>(null)), missInfo);
+        this(w, h, new CompiledPlacementChecker<T>(null), missInfo);
     }
 
     /**
@@ -109,6 +115,7 @@ public class BattleShipBoard<T> implements Board<T> {
             return s;
         }
         myShips.add(toAdd);
+        listeners.onShipAdded(toAdd);
         return null;
     }
 
@@ -168,31 +175,65 @@ public class BattleShipBoard<T> implements Board<T> {
             if (ship.occupiesCoordinates(c)) { // a ship is hit
                 boardHits.put(c, ship);
                 enemyMisses.remove(c); // remove past miss if exists
+                boolean newHit = !ship.wasHitAt(c);
                 ship.recordHitAt(c); // record the hit
+                listeners.onFire(c, ship, newHit);
                 return ship;
             }
         }
         enemyMisses.add(c); // no hit, record the miss
         boardHits.remove(c); // remove past hit if exists
+        listeners.onFire(c, null, false);
         return null;
     }
 
+    public void restoreShot(Coordinate where, Ship<T> shown, boolean miss) {
+        if (shown != null) {
+            boardHits.put(where, shown);
+        }
+        else {
+            boardHits.remove(where);
+        }
+        if (miss) {
+            enemyMisses.add(where);
+        }
+        else {
+            enemyMisses.remove(where);
+        }
+        listeners.onFire(where, shown, false);
+    }
+
     /**
      * This move ship on the board to a new location
      */
     public void moveShip(Ship<T> toMove, Ship<T> newShip, Placement p) {
-        myShips.remove(toMove);
+        int index = myShips.indexOf(toMove);
+        if (index < 0) {
+            throw new IllegalArgumentException("The " + toMove.getName() + " to move is not on this board");
+        }
+        myShips.remove(index); // the old location does not collide with the new one
         String s = placementChecker.checkPlacement(newShip, this);
-        myShips.add(toMove);
         if (s != null) { // invalid placement
+            myShips.add(index, toMove);
             throw new IllegalArgumentException(s);
         }
-        ArrayList<Coordinate> hits = toMove.moveHitCoordinate(p); // get all the hit coordinates on the ship to move
-        for (Coordinate hit : hits) { // record all the hit
-            newShip.recordHitAt(hit);
-        }
+        TemplateShip.moveHits(toMove, newShip, p);
         myShips.add(newShip); // add the new ship to the board
-        myShips.remove(toMove); // remove the ship to move from the board
+        listeners.onShipMoved(toMove, newShip);
+    }
+
+    /**
+     * This register a listener notified of every change to the board
+     */
+    public void addListener(BoardListener<T> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * This unregister a listener
+     */
+    public void removeListener(BoardListener<T> listener) {
+        listeners.remove(listener);
     }
 
     /**
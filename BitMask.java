@@ -0,0 +1,159 @@
+package battleship;
+
+/**
+ * This class is a fixed size set of bits packed in long words, used to
+ * hold one bit per board cell (row * width + column).
+ */
+public class BitMask {
+
+    /**
+     * The words holding the bits, bit i is in word i / 64
+     */
+    private final long[] words;
+
+    /**
+     * The number of bits of the mask
+     */
+    private final int size;
+
+    /**
+     * Constructs an empty mask of the given number of bits
+     */
+    public BitMask(int size) {
+        this.size = size;
+        this.words = new long[(size + 63) >>> 6];
+    }
+
+    /**
+     * Constructs a copy of another mask
+     */
+    public BitMask(BitMask other) {
+        this.size = other.size;
+        this.words = other.words.clone();
+    }
+
+    /**
+     * This get the number of bits of the mask
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean get(int i) {
+        return (words[i >>> 6] & (1L << i)) != 0;
+    }
+
+    public void set(int i) {
+        words[i >>> 6] |= 1L << i;
+    }
+
+    public void clear(int i) {
+        words[i >>> 6] &= ~(1L << i);
+    }
+
+    /**
+     * This clear every bit
+     */
+    public void clearAll() {
+        for (int w = 0; w < words.length; w++) {
+            words[w] = 0;
+        }
+    }
+
+    /**
+     * This set every bit that is set in other
+     */
+    public void or(BitMask other) {
+        for (int w = 0; w < words.length; w++) {
+            words[w] |= other.words[w];
+        }
+    }
+
+    /**
+     * This clear every bit that is set in other
+     */
+    public void andNot(BitMask other) {
+        for (int w = 0; w < words.length; w++) {
+            words[w] &= ~other.words[w];
+        }
+    }
+
+    /**
+     * This check whether the two masks share a set bit
+     */
+    public boolean intersects(BitMask other) {
+        for (int w = 0; w < words.length; w++) {
+            if ((words[w] & other.words[w]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * This check whether every bit set in other is also set in this mask
+     */
+    public boolean containsAll(BitMask other) {
+        for (int w = 0; w < words.length; w++) {
+            if ((other.words[w] & ~words[w]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * This count the bits that are set in both masks
+     */
+    public int andCardinality(BitMask other) {
+        int n = 0;
+        for (int w = 0; w < words.length; w++) {
+            n += Long.bitCount(words[w] & other.words[w]);
+        }
+        return n;
+    }
+
+    /**
+     * This count the set bits
+     */
+    public int cardinality() {
+        int n = 0;
+        for (long word : words) {
+            n += Long.bitCount(word);
+        }
+        return n;
+    }
+
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * This get the index of the first set bit at or after from
+     *
+     * @return the index, -1 if there is none
+     */
+    public int nextSetBit(int from) {
+        if (from >= size) {
+            return -1;
+        }
+        int w = from >>> 6;
+        long word = words[w] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(word);
+                return i < size ? i : -1;
+            }
+            w += 1;
+            if (w == words.length) {
+                return -1;
+            }
+            word = words[w];
+        }
+    }
+}
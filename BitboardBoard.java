@@ -0,0 +1,381 @@
+package battleship;
+
+import java.util.ArrayList;
+
+/**
+ * This class is a board kept as bitboards: one bit per cell for ship
+ * occupancy, hits on ships and enemy misses. Collision and loss checks
+ * are a few AND/OR/popcount operations over a handful of long words.
+ */
+public class BitboardBoard<T> implements Board<T>, OccupancyIndex {
+
+    /**
+     * The width of the newly constructed board
+     */
+    private final int width;
+
+    /**
+     * The height of the newly constructed board
+     */
+    private final int height;
+
+    /**
+     * The arraylist of ships to our board
+     */
+    private final ArrayList<Ship<T>> myShips;
+
+    /**
+     * The cells covered by each ship, in the same order as myShips
+     */
+    private final ArrayList<BitMask> shipMasks;
+
+    private final PlacementRuleChecker<T> placementChecker;
+
+    /**
+     * The information represents a miss
+     */
+    private final T missInfo;
+
+    /**
+     * The cells covered by a ship
+     */
+    private final BitMask occupancy;
+
+    /**
+     * The cells of the current ships that have been hit
+     */
+    private final BitMask shipHits;
+
+    /**
+     * The cells where the enemy missed
+     */
+    private final BitMask misses;
+
+    /**
+     * The ship that was hit at each cell, as shown to the enemy
+     */
+    private final Ship<T>[] hitRecords;
+
+    /**
+     * The listeners notified of every change to the board
+     */
+    private final BoardListenerList<T> listeners;
+
+    /**
+     * This get the width of the newly constructed board
+     *
+     * @return the Board width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * This get the height of the newly constructed board
+     *
+     * @return the Board height
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * This get the list of ships on the board
+     *
+     * @return the list of ships on the Board
+     */
+    public ArrayList<Ship<T>> getShips() {
+        return myShips;
+    }
+
+    /**
+     * Constructs a BitboardBoard with the specified width,
+     * height and palcement checker
+     * @param w is the width of the newly constructed board.
+     * @param h is the height of the newly constructed board.
+     * @param placementChecker is the placement validity checker
+     * @throws IllegalArgumentException if the width or height are less than or equal to zero.
+     */
+    public BitboardBoard(int w, int h, PlacementRuleChecker<T> placementChecker, T missInfo) {
+        if (w <= 0) {
+            throw new IllegalArgumentException("BitboardBoard's width must be positive but is " + w);
+        }
+        if (h <= 0) {
+            throw new IllegalArgumentException("BitboardBoard's height must be positive but is " + h);
+        }
+        this.width = w;
+        this.height = h;
+        this.myShips = new ArrayList<Ship<T>>();
+        this.shipMasks = new ArrayList<BitMask>();
+        this.placementChecker = placementChecker;
+        this.missInfo = missInfo;
+        this.occupancy = new BitMask(w * h);
+        this.shipHits = new BitMask(w * h);
+        this.misses = new BitMask(w * h);
+        @SuppressWarnings("unchecked") // the array only ever holds ships of this board
+        Ship<T>[] records = (Ship<T>[]) new Ship<?>[w * h];
+        this.hitRecords = records;
+        this.listeners = new BoardListenerList<T>();
+    }
+
+    /**
+     * Constructs a BitboardBoard with the specified width
+     * and height
+     * @param w is the width of the newly constructed board.
+     * @param h is the height of the newly constructed board.
+     */
+    public BitboardBoard(int w, int h, T missInfo) {
+        this(w, h, new CompiledPlacementChecker<T>(null), missInfo);
+    }
+
+    /**
+     * This get the cell index of a coordinate
+     *
+     * @return the index, -1 if the coordinate is off the board
+     */
+    private int cellOf(Coordinate c) {
+        int row = c.getRow();
+        int column = c.getColumn();
+        if (row < 0 || row >= height || column < 0 || column >= width) {
+            return -1;
+        }
+        return row * width + column;
+    }
+
+    @Override
+    public boolean isOccupied(int row, int column) {
+        if (row < 0 || row >= height || column < 0 || column >= width) {
+            return false;
+        }
+        return occupancy.get(row * width + column);
+    }
+
+    /**
+     * This get the cells of a ship on this board, without copying
+     * when the ship is a BitboardShip laid out for this board size
+     */
+    private BitMask maskOf(Ship<T> ship) {
+        if (ship instanceof BitboardShip) {
+            BitMask mask = ((BitboardShip<T>) ship).getCellMask();
+            if (mask.size() == width * height) {
+                return mask;
+            }
+        }
+        BitMask mask = new BitMask(width * height);
+        for (Coordinate c : ship.getCoordinates()) {
+            int cell = cellOf(c);
+            if (cell >= 0) {
+                mask.set(cell);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * This get the index in myShips of the ship covering a cell
+     *
+     * @return the index, -1 for open water
+     */
+    private int shipIndexAt(int cell) {
+        if (!occupancy.get(cell)) {
+            return -1;
+        }
+        for (int i = 0; i < shipMasks.size(); i++) {
+            if (shipMasks.get(i).get(cell)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * This check whether a ship would overlap a ship already on the board
+     */
+    public boolean collides(Ship<T> ship) {
+        return maskOf(ship).intersects(occupancy);
+    }
+
+    /**
+     * This check whether every cell covered by a ship has been hit
+     */
+    public boolean allShipsSunk() {
+        return shipHits.containsAll(occupancy);
+    }
+
+    /**
+     * This add ships to the arraylist of ships to our board
+     *
+     * @return null if the ship is placed, the error message otherwise
+     */
+    public String tryAddShip(Ship<T> toAdd) {
+        String s = placementChecker.checkPlacement(toAdd, this);
+        if (s != null) {
+            return s;
+        }
+        BitMask mask = maskOf(toAdd);
+        myShips.add(toAdd);
+        shipMasks.add(mask);
+        occupancy.or(mask);
+        for (Coordinate c : toAdd.getCoordinates()) { // a restored ship may come with hits
+            int cell = cellOf(c);
+            if (cell >= 0 && toAdd.wasHitAt(c)) {
+                shipHits.set(cell);
+            }
+        }
+        listeners.onShipAdded(toAdd);
+        return null;
+    }
+
+    /**
+     * This takes a Coordinate, and sees which (if any)
+     * Ship occupies that coordinate in our own board
+     *
+     * @return displayInfo if a ship is at the Coordinate, null if not
+     */
+    public T whatIsAtForSelf(Coordinate where) {
+        return whatIsAt(where, true);
+    }
+
+    /**
+     * This takes a Coordinate, and sees which (if any)
+     * Ship occupies that coordinate in the enemy's board
+     *
+     * @return displayInfo if a ship is at the Coordinate, null if not
+     */
+    public T whatIsAtForEnemy(Coordinate where) {
+        return whatIsAt(where, false);
+    }
+
+    /**
+     * This takes a Coordinate, and sees which (if any)
+     * Ship occupies that coordinate
+     *
+     * @return displayInfo if a ship is at the Coordinate, null if not
+     */
+    protected T whatIsAt(Coordinate where, boolean isSelf) {
+        int cell = cellOf(where);
+        if (cell < 0) { // nothing lives off the board
+            return null;
+        }
+        if (!isSelf && misses.get(cell)) { // if missed record exists, return it
+            return missInfo;
+        }
+        if (!isSelf && hitRecords[cell] != null) { // if hit record exists. return it
+            return hitRecords[cell].getDisplayInfoAt(where, false);
+        }
+        int i = shipIndexAt(cell);
+        if (i < 0) { // no ship at the coordinate
+            return null;
+        }
+        Ship<T> s = myShips.get(i);
+        if (!isSelf && s.wasHitAt(where)) {
+            return null;
+        }
+        return s.getDisplayInfoAt(where, isSelf);
+    }
+
+    /**
+     * This takes a Coordinate, and check whether a ship
+     * would be hit at that coordinate or not
+     *
+     * @return ship if it is hit at the coordinate, null if not
+     */
+    public Ship<T> fireAt(Coordinate c) {
+        int cell = cellOf(c);
+        if (cell < 0) { // nothing to hit off the board
+            return null;
+        }
+        int i = shipIndexAt(cell);
+        if (i >= 0) { // a ship is hit
+            Ship<T> ship = myShips.get(i);
+            hitRecords[cell] = ship;
+            misses.clear(cell); // remove past miss if exists
+            shipHits.set(cell);
+            boolean newHit = !ship.wasHitAt(c);
+            ship.recordHitAt(c); // record the hit
+            listeners.onFire(c, ship, newHit);
+            return ship;
+        }
+        misses.set(cell); // no hit, record the miss
+        hitRecords[cell] = null; // remove past hit if exists
+        listeners.onFire(c, null, false);
+        return null;
+    }
+
+    /**
+     * This set what the enemy has seen at a coordinate without firing, see
+     * Board.restoreShot; a coordinate off the board is ignored
+     */
+    public void restoreShot(Coordinate where, Ship<T> shown, boolean miss) {
+        int cell = cellOf(where);
+        if (cell < 0) {
+            return;
+        }
+        hitRecords[cell] = shown;
+        if (miss) {
+            misses.set(cell);
+        }
+        else {
+            misses.clear(cell);
+        }
+        listeners.onFire(where, shown, false);
+    }
+
+    /**
+     * This move ship on the board to a new location
+     */
+    public void moveShip(Ship<T> toMove, Ship<T> newShip, Placement p) {
+        int index = myShips.indexOf(toMove);
+        BitMask oldMask = shipMasks.get(index);
+        occupancy.andNot(oldMask); // the old location does not collide with the new one
+        String s = placementChecker.checkPlacement(newShip, this);
+        if (s != null) { // invalid placement
+            occupancy.or(oldMask);
+            throw new IllegalArgumentException(s);
+        }
+        TemplateShip.moveHits(toMove, newShip, p);
+        BitMask newMask = maskOf(newShip);
+        shipHits.andNot(oldMask);
+        for (Coordinate c : newShip.getCoordinates()) {
+            int cell = cellOf(c);
+            if (cell >= 0 && newShip.wasHitAt(c)) {
+                shipHits.set(cell);
+            }
+        }
+        myShips.remove(index); // remove the ship to move from the board
+        shipMasks.remove(index);
+        myShips.add(newShip); // add the new ship to the board
+        shipMasks.add(newMask);
+        occupancy.or(newMask);
+        listeners.onShipMoved(toMove, newShip);
+    }
+
+    /**
+     * This register a listener notified of every change to the board
+     */
+    public void addListener(BoardListener<T> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * This unregister a listener
+     */
+    public void removeListener(BoardListener<T> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * This takes a Coordinate, and get the ship at there
+     *
+     * @return ship at the coordinate, null if no ship is found there
+     */
+    public Ship<T> getShipAt(Coordinate where) {
+        int cell = cellOf(where);
+        if (cell < 0) {
+            return null;
+        }
+        int i = shipIndexAt(cell);
+        return i < 0 ? null : myShips.get(i); // null if no ship found
+    }
+
+}
@@ -0,0 +1,230 @@
+package battleship;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * This class is a ship stored as bits: the cells it covers are a mask
+ * over the board, and its hits are a mask over its pieces, so occupancy
+ * is a bit test and sinking is a single comparison.
+ */
+public class BitboardShip<T> implements TemplateShip<T> {
+
+    /**
+     * The shape of the ship
+     */
+    private final ShipTemplate template;
+
+    /**
+     * The width of the board the cell mask is laid out for
+     */
+    private final int boardWidth;
+
+    /**
+     * The height of the board the cell mask is laid out for
+     */
+    private final int boardHeight;
+
+    /**
+     * The coordinates of the pieces, in the template's piece order
+     */
+    private final Coordinate[] pieces;
+
+    /**
+     * The board cells covered by the ship (pieces off the board are not in it)
+     */
+    private final BitMask cells;
+
+    /**
+     * The side of its board the ship goes off, null if it fits
+     */
+    private final PlacementViolation outOfBounds;
+
+    /**
+     * The bit i is set when piece i has been hit
+     */
+    private long hitPieces;
+
+    /**
+     * The value of hitPieces once every piece is hit
+     */
+    private final long allPieces;
+
+    /**
+     * The display information of my ships
+     */
+    private final ShipDisplayInfo<T> myDisplayInfo;
+
+    /**
+     * The display information of the enemy's ships
+     */
+    private final ShipDisplayInfo<T> enemyDisplayInfo;
+
+    /**
+     * Constructs a ship of the template's shape at the given placement
+     *
+     * @throws IllegalArgumentException if the template does not accept the orientation or the board is large
+     */
+    public BitboardShip(ShipTemplate template, Placement where, int boardWidth, int boardHeight,
+                        ShipDisplayInfo<T> myDisplayInfo, ShipDisplayInfo<T> enemyDisplayInfo) {
+        if (template.size() > 64) {
+            throw new IllegalArgumentException("A BitboardShip has at most 64 pieces, but " + template.getName() + " has " + template.size());
+        }
+        if (SparseBattleShipBoard.isLarge(boardWidth, boardHeight)) { // the placement table keeps no masks for it
+            throw new IllegalArgumentException("A BitboardShip needs a board of at most " + SparseBattleShipBoard.LARGE_AREA
+                    + " squares, but the board is " + boardWidth + "x" + boardHeight);
+        }
+        this.template = template;
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        PlacementTable.Entry entry = PlacementTable.forBoard(boardWidth, boardHeight).get(template, where);
+        this.pieces = entry.pieces; // shared with every ship at this placement, never modified
+        this.cells = entry.mask;
+        this.outOfBounds = entry.outOfBounds;
+        this.hitPieces = 0;
+        this.allPieces = pieces.length == 64 ? -1L : (1L << pieces.length) - 1;
+        this.myDisplayInfo = myDisplayInfo;
+        this.enemyDisplayInfo = enemyDisplayInfo;
+    }
+
+    /**
+     * Constructs a ship showing data on my board, onHit once hit, and data to the enemy once hit
+     */
+    public BitboardShip(ShipTemplate template, Placement where, int boardWidth, int boardHeight, T data, T onHit) {
+        this(template, where, boardWidth, boardHeight, new SimpleShipDisplayInfo<T>(data, onHit), new SimpleShipDisplayInfo<T>(null, data));
+    }
+
+    /**
+     * This get the cell index of a coordinate on the ship's board
+     *
+     * @return the index, -1 if the coordinate is off the board
+     */
+    private int cellOf(Coordinate c) {
+        int row = c.getRow();
+        int column = c.getColumn();
+        if (row < 0 || row >= boardHeight || column < 0 || column >= boardWidth) {
+            return -1;
+        }
+        return row * boardWidth + column;
+    }
+
+    /**
+     * This get the piece index of a coordinate
+     *
+     * @throws IllegalArgumentException if the coordinate is not part of this ship
+     */
+    private int pieceOf(Coordinate c) {
+        for (int i = 0; i < pieces.length; i++) {
+            if (pieces[i].equals(c)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Coordinate " + c.toString() + " is not part of this ship");
+    }
+
+    /**
+     * This get the shape of the ship
+     */
+    public ShipTemplate getTemplate() {
+        return template;
+    }
+
+    /**
+     * This get the board cells covered by the ship; callers must not modify it
+     */
+    public BitMask getCellMask() {
+        return cells;
+    }
+
+    /**
+     * This check whether the cell mask is laid out for a board of the given size
+     */
+    public boolean isLaidOutFor(int width, int height) {
+        return boardWidth == width && boardHeight == height;
+    }
+
+    /**
+     * This get the side of the board it is laid out for the ship goes off
+     *
+     * @return the violation of its first piece off the board, null if the ship fits
+     */
+    public PlacementViolation getOutOfBounds() {
+        return outOfBounds;
+    }
+
+    @Override
+    public int getPieceCount() {
+        return pieces.length;
+    }
+
+    @Override
+    public long getHitPieces() {
+        return hitPieces;
+    }
+
+    @Override
+    public void recordHitPieces(long hitPieces) {
+        if ((hitPieces & ~allPieces) != 0) {
+            throw new IllegalArgumentException("The " + getName() + " has only " + pieces.length + " pieces");
+        }
+        this.hitPieces |= hitPieces;
+    }
+
+    @Override
+    public String getName() {
+        return template.getName();
+    }
+
+    @Override
+    public boolean occupiesCoordinates(Coordinate where) {
+        int cell = cellOf(where);
+        return cell >= 0 && cells.get(cell);
+    }
+
+    @Override
+    public boolean isSunk() {
+        return hitPieces == allPieces;
+    }
+
+    @Override
+    public void recordHitAt(Coordinate where) {
+        hitPieces |= 1L << pieceOf(where);
+    }
+
+    @Override
+    public boolean wasHitAt(Coordinate where) {
+        return (hitPieces & (1L << pieceOf(where))) != 0;
+    }
+
+    @Override
+    public T getDisplayInfoAt(Coordinate where, boolean myShip) {
+        boolean hit = wasHitAt(where);
+        if (myShip) {
+            return myDisplayInfo.getInfo(where, hit);
+        }
+        return enemyDisplayInfo.getInfo(where, hit);
+    }
+
+    @Override
+    public Iterable<Coordinate> getCoordinates() {
+        return Arrays.asList(pieces);
+    }
+
+    /**
+     * Move all hit coordinates on this ship to a new same-typed ship at the given placement
+     *
+     * @param p is the placement of the new ship
+     * @return a list of coordinates on the new ship that are corresponding to be hit
+     */
+    @Override
+    public ArrayList<Coordinate> moveHitCoordinate(Placement p) {
+        Coordinate[] moved = template.cells(p);
+        ArrayList<Coordinate> hits = new ArrayList<Coordinate>();
+        for (int i = 0; i < moved.length; i++) {
+            if ((hitPieces & (1L << i)) != 0) { // piece i keeps its hit
+                hits.add(moved[i]);
+            }
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,57 @@
+package battleship;
+
+/**
+ * This class makes the same ships as V2ShipFactory, but as BitboardShips
+ * laid out for a board of a given size.
+ */
+public class BitboardShipFactory extends V2ShipFactory {
+
+    /**
+     * The width of the board the ships are made for
+     */
+    private final int boardWidth;
+
+    /**
+     * The height of the board the ships are made for
+     */
+    private final int boardHeight;
+
+    /**
+     * Constructs a factory for boards of the given size
+     */
+    public BitboardShipFactory(int boardWidth, int boardHeight) {
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+    }
+
+    /**
+     * This make a bitboard ship of the named type
+     */
+    protected Ship<Character> createBitboardShip(Placement where, char letter, String name) {
+        return new BitboardShip<Character>(ShipTemplate.forName(name), where, boardWidth, boardHeight, letter, '*');
+    }
+
+    /**
+     * This make a rectangle ship, the template fixes the size
+     */
+    @Override
+    protected Ship<Character> createShip(Placement where, int w, int h, char letter, String name) {
+        return createBitboardShip(where, letter, name);
+    }
+
+    /**
+     * This make a 'T' shaped ship, which is regarded as a battleship
+     */
+    @Override
+    protected Ship<Character> createBattleship(Placement where, char letter, String name) {
+        return createBitboardShip(where, letter, name);
+    }
+
+    /**
+     * This make a 'Z' shaped ship, which is regarded as a carrier
+     */
+    @Override
+    protected Ship<Character> createCarrier(Placement where, char letter, String name) {
+        return createBitboardShip(where, letter, name);
+    }
+}
@@ -1,6 +1,7 @@
 package battleship;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 public interface Board<T> {
     /**
@@ -48,4 +49,44 @@ public interface Board<T> {
      */
     public void moveShip(Ship<T> toMove, Ship<T> newShip, Placement p);
 
+    /**
+     * This set what the enemy has seen at a coordinate, without firing at it,
+     * e.g. to restore a saved board; listeners get it as a shot that is not a new hit
+     *
+     * @param shown is the ship whose hit the enemy sees there, null for none
+     * @param miss is true if the enemy sees a miss there, shown must then be null
+     */
+    public void restoreShot(Coordinate where, Ship<T> shown, boolean miss);
+
+    /**
+     * This get every cell the enemy sees something at, as packed coordinates
+     * (see Coordinate.pack) in no particular order. This looks at every cell;
+     * boards that keep their shots apart list them instead.
+     */
+    public default int[] getShotCells() {
+        int[] cells = new int[16];
+        int n = 0;
+        for (int row = 0; row < getHeight(); row++) {
+            for (int column = 0; column < getWidth(); column++) {
+                if (whatIsAtForEnemy(Coordinate.of(row, column)) != null) {
+                    if (n == cells.length) {
+                        cells = Arrays.copyOf(cells, 2 * n);
+                    }
+                    cells[n++] = Coordinate.pack(row, column);
+                }
+            }
+        }
+        return Arrays.copyOf(cells, n);
+    }
+
+    /**
+     * This register a listener notified of every change to the board
+     */
+    public void addListener(BoardListener<T> listener);
+
+    /**
+     * This unregister a listener
+     */
+    public void removeListener(BoardListener<T> listener);
+
 }
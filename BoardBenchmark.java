@@ -0,0 +1,114 @@
+package battleship;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class compares BattleShipBoard against GridBattleShipBoard on a
+ * 10x20 board holding the full fleet: full two-board renders, per-cell
+ * lookups, shot resolution and placement checks.
+ */
+public class BoardBenchmark {
+
+    /**
+     * The full fleet, in the order of ComputerPlayer's placements
+     */
+    static final String[] FLEET = {"Submarine", "Submarine", "Destroyer", "Destroyer", "Destroyer",
+            "Battleship", "Battleship", "Battleship", "Carrier", "Carrier"};
+
+    static final String[] PLACEMENTS = {"a0v", "o2v", "a1h", "a6h", "d7v", "b1u", "J5U", "M5U", "c0u", "O7U"};
+
+    /**
+     * This place the full fleet on a board
+     */
+    static void placeFleet(Board<Character> board, AbstractShipFactory<Character> factory) {
+        for (int i = 0; i < FLEET.length; i++) {
+            Placement p = new Placement(PLACEMENTS[i]);
+            Ship<Character> s;
+            if (FLEET[i].equals("Submarine")) {
+                s = factory.makeSubmarine(p);
+            }
+            else if (FLEET[i].equals("Destroyer")) {
+                s = factory.makeDestroyer(p);
+            }
+            else if (FLEET[i].equals("Battleship")) {
+                s = factory.makeBattleship(p);
+            }
+            else {
+                s = factory.makeCarrier(p);
+            }
+            String err = board.tryAddShip(s);
+            if (err != null) {
+                throw new IllegalStateException(PLACEMENTS[i] + ": " + err);
+            }
+        }
+    }
+
+    static List<MicroBenchmark.Result> measure(String label, Board<Character> mine, Board<Character> enemy,
+                                               AbstractShipFactory<Character> factory) {
+        List<MicroBenchmark.Result> results = new ArrayList<MicroBenchmark.Result>();
+        BoardTextView myView = new BoardTextView(mine);
+        BoardTextView enemyView = new BoardTextView(enemy);
+        int cells = mine.getWidth() * mine.getHeight();
+        Coordinate[] all = new Coordinate[cells];
+        for (int i = 0; i < cells; i++) {
+            all[i] = Coordinate.of(i / mine.getWidth(), i % mine.getWidth());
+        }
+        // fire at half of the enemy cells so the enemy view has hits and misses
+        for (int i = 0; i < cells; i += 2) {
+            enemy.fireAt(all[i]);
+        }
+        results.add(MicroBenchmark.run(label + " render both boards", 2000, 5000, 1,
+                () -> myView.displayMyBoardWithEnemyNextToIt(enemyView, "Your ocean", "Player B's ocean")));
+        int[] next = new int[1];
+        results.add(MicroBenchmark.run(label + " whatIsAtForSelf", 200000, 2000000, 1,
+                () -> mine.whatIsAtForSelf(all[next[0]++ % cells])));
+        results.add(MicroBenchmark.run(label + " whatIsAtForEnemy", 200000, 2000000, 1,
+                () -> enemy.whatIsAtForEnemy(all[next[0]++ % cells])));
+        results.add(MicroBenchmark.run(label + " fireAt", 200000, 2000000, 1,
+                () -> enemy.fireAt(all[next[0]++ % cells])));
+        Ship<Character> candidate = factory.makeCarrier(new Placement("k0u"));
+        PlacementRuleChecker<Character> collision = new NoCollisionRuleChecker<Character>(null);
+        results.add(MicroBenchmark.run(label + " no-collision check", 200000, 2000000, 1,
+                () -> collision.checkPlacement(candidate, mine)));
+        PlacementRuleChecker<Character> chained = new InBoundsRuleChecker<Character>(new NoCollisionRuleChecker<Character>(null));
+        PlacementRuleChecker<Character> compiled = new CompiledPlacementChecker<Character>(null);
+        results.add(MicroBenchmark.run(label + " chained placement check", 200000, 2000000, 1,
+                () -> chained.checkPlacement(candidate, mine)));
+        results.add(MicroBenchmark.run(label + " compiled placement check", 200000, 2000000, 1,
+                () -> compiled.checkPlacement(candidate, mine)));
+        EasyCompletionRules<Character> completion = new EasyCompletionRules<Character>(mine);
+        results.add(MicroBenchmark.run(label + " checkCompletion", 200000, 2000000, 1,
+                () -> completion.checkCompletion() ? label : null));
+        IncrementalCompletionRules<Character> incremental = new IncrementalCompletionRules<Character>(mine);
+        results.add(MicroBenchmark.run(label + " incremental checkCompletion", 200000, 2000000, 1,
+                () -> incremental.checkCompletion() ? label : null));
+        return results;
+    }
+
+    public static void main(String[] args) {
+        V2ShipFactory factory = new V2ShipFactory();
+        BitboardShipFactory bitFactory = new BitboardShipFactory(10, 20);
+        Board<Character> list1 = new BattleShipBoard<Character>(10, 20, 'X');
+        Board<Character> list2 = new BattleShipBoard<Character>(10, 20, 'X');
+        Board<Character> grid1 = new GridBattleShipBoard<Character>(10, 20, 'X');
+        Board<Character> grid2 = new GridBattleShipBoard<Character>(10, 20, 'X');
+        Board<Character> bits1 = new BitboardBoard<Character>(10, 20, 'X');
+        Board<Character> bits2 = new BitboardBoard<Character>(10, 20, 'X');
+        placeFleet(list1, factory);
+        placeFleet(list2, factory);
+        placeFleet(grid1, factory);
+        placeFleet(grid2, factory);
+        placeFleet(bits1, bitFactory);
+        placeFleet(bits2, bitFactory);
+        for (MicroBenchmark.Result r : measure("BattleShipBoard", list1, list2, factory)) {
+            System.out.println(r);
+        }
+        for (MicroBenchmark.Result r : measure("GridBattleShipBoard", grid1, grid2, factory)) {
+            System.out.println(r);
+        }
+        for (MicroBenchmark.Result r : measure("BitboardBoard", bits1, bits2, bitFactory)) {
+            System.out.println(r);
+        }
+    }
+}
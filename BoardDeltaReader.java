@@ -0,0 +1,108 @@
+package battleship;
+
+/**
+ * This class is the client side of the delta protocol: it applies the
+ * cell changes sent by BoardDeltaWriter to local copies of both boards
+ * and renders them when asked, giving the same text the server would
+ * have sent in full.
+ */
+public class BoardDeltaReader {
+
+    /**
+     * The player's board and the enemy board as the player sees it, null before "@B"
+     */
+    private RemoteBoard myBoard;
+    private RemoteBoard enemyBoard;
+
+    private BoardTextView myView;
+    private BoardTextView enemyView;
+
+    /**
+     * This check whether a line from the server belongs to the delta protocol
+     */
+    public static boolean isDelta(String line) {
+        return line.startsWith("@");
+    }
+
+    /**
+     * This read one line from the server
+     *
+     * @return the text to show the player, with its line breaks, possibly empty
+     * @throws IllegalArgumentException if a delta line is malformed
+     */
+    public String read(String line) {
+        if (!isDelta(line)) {
+            return line + "\n";
+        }
+        if (line.startsWith("@B ")) {
+            String[] size = line.substring(3).split(" ");
+            if (size.length != 2) {
+                throw new IllegalArgumentException("That board size is invalid: " + line);
+            }
+            int w = Integer.parseInt(size[0]);
+            int h = Integer.parseInt(size[1]);
+            myBoard = new RemoteBoard(w, h);
+            enemyBoard = new RemoteBoard(w, h);
+            myView = new BoardTextView(myBoard);
+            enemyView = new BoardTextView(enemyBoard);
+            return "";
+        }
+        if (myBoard == null) {
+            throw new IllegalArgumentException("Got " + line + " before the board size");
+        }
+        if (line.startsWith("@M")) {
+            applyCells(myBoard, line);
+            return "";
+        }
+        if (line.startsWith("@E")) {
+            applyCells(enemyBoard, line);
+            return "";
+        }
+        if (line.equals("@O")) {
+            return myView.displayMyOwnBoard();
+        }
+        if (line.startsWith("@T ")) {
+            String[] names = line.substring(3).split("\t", -1);
+            if (names.length != 2) {
+                throw new IllegalArgumentException("That turn is invalid: " + line);
+            }
+            return TextPlayer.turnLine(names[0]) + "\n"
+                    + myView.displayMyBoardWithEnemyNextToIt(enemyView, "Your ocean", TextPlayer.oceanHeader(names[1])) + "\n";
+        }
+        if (line.startsWith("@A ")) {
+            String[] menu = line.substring(3).split(" ");
+            if (menu.length != 3) {
+                throw new IllegalArgumentException("That action menu is invalid: " + line);
+            }
+            return TextPlayer.actionPrompt(menu[0], Integer.parseInt(menu[1]), Integer.parseInt(menu[2])) + "\n";
+        }
+        if (line.equals("@F")) {
+            return TextPlayer.FIRE_PROMPT + "\n";
+        }
+        throw new IllegalArgumentException("Unknown delta line: " + line);
+    }
+
+    /**
+     * This set the cells of a line like "@MA0sA1s" on a board; on a large
+     * board the rows and columns take more letters and digits, e.g. "AB123s"
+     */
+    private void applyCells(RemoteBoard board, String line) {
+        int i = 2;
+        while (i < line.length()) {
+            int row = 0;
+            int column = 0;
+            int start = i;
+            while (i < line.length() && line.charAt(i) >= 'A' && line.charAt(i) <= 'Z') {
+                row = row * 26 + (line.charAt(i++) - 'A' + 1);
+            }
+            int digits = i;
+            while (i < line.length() && line.charAt(i) >= '0' && line.charAt(i) <= '9') {
+                column = column * 10 + (line.charAt(i++) - '0');
+            }
+            if (digits == start || i == digits || i >= line.length()) { // a row, a column and what is shown
+                throw new IllegalArgumentException("That cell list is invalid: " + line);
+            }
+            board.setCell(Coordinate.of(row - 1, column), line.charAt(i++));
+        }
+    }
+}
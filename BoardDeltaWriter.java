@@ -0,0 +1,199 @@
+package battleship;
+
+import java.io.PrintStream;
+
+/**
+ * This class is the server side of the delta protocol: instead of the
+ * rendered boards, a player gets one short line per board change with the
+ * cells that now look different, and short codes for the text repeated
+ * every turn. The lines are read back by BoardDeltaReader:
+ *
+ *   @B width height       the size of both boards, sent first
+ *   @MA0sA1s              cells of my board, as row letters, column digits, character
+ *   @EC4X                 cells of the enemy board, as I see it
+ *   @O                    print my board
+ *   @T name\tenemyName    print whose turn it is and both boards next to each other
+ *   @A name moves scans   print the menu of actions
+ *   @F                    print the prompt for a coordinate to fire at
+ */
+public class BoardDeltaWriter {
+
+    /**
+     * The output to the player
+     */
+    private final PrintStream out;
+
+    /**
+     * The player's own board
+     */
+    private final Board<Character> myBoard;
+
+    /**
+     * The enemy board being watched, null before the first turn
+     */
+    private Board<Character> enemyBoard;
+
+    /**
+     * Constructs a writer sending the changes of the player's board
+     */
+    public BoardDeltaWriter(Board<Character> myBoard, PrintStream out) {
+        this.out = out;
+        this.myBoard = myBoard;
+        this.enemyBoard = null;
+        out.println("@B " + myBoard.getWidth() + " " + myBoard.getHeight());
+        CellListener mine = new CellListener(myBoard, true, "@M");
+        mine.sendChanges(); // ships placed before the protocol was turned on
+        myBoard.addListener(mine);
+    }
+
+    /**
+     * This start sending the changes of the enemy board, as the player sees it
+     *
+     * @throws IllegalArgumentException if the enemy board is not the size of my board
+     */
+    public void watchEnemy(Board<Character> enemy) {
+        if (enemy == enemyBoard) {
+            return;
+        }
+        if (enemyBoard != null) {
+            throw new IllegalArgumentException("The player is already watching another enemy board");
+        }
+        if (enemy.getWidth() != myBoard.getWidth() || enemy.getHeight() != myBoard.getHeight()) {
+            throw new IllegalArgumentException("The enemy board must be " + myBoard.getWidth() + "x" + myBoard.getHeight()
+                    + ", but is " + enemy.getWidth() + "x" + enemy.getHeight());
+        }
+        enemyBoard = enemy;
+        CellListener theirs = new CellListener(enemy, false, "@E");
+        theirs.sendChanges(); // shots fired before we started watching
+        enemy.addListener(theirs);
+    }
+
+    /**
+     * This ask the client to print my board
+     */
+    public void showMyBoard() {
+        out.println("@O");
+    }
+
+    /**
+     * This ask the client to print whose turn it is and both boards next to each other
+     */
+    public void showTurn(String name, String enemyName) {
+        out.println("@T " + name + "\t" + enemyName);
+    }
+
+    /**
+     * This ask the client to print the menu of actions
+     */
+    public void showActionPrompt(String name, int moveCounts, int scanCounts) {
+        out.println("@A " + name + " " + moveCounts + " " + scanCounts);
+    }
+
+    /**
+     * This ask the client to print the prompt for a coordinate to fire at
+     */
+    public void showFirePrompt() {
+        out.println("@F");
+    }
+
+    /**
+     * This class sends the cells of one board that no longer look the
+     * way the client last saw them.
+     */
+    private class CellListener implements BoardListener<Character> {
+
+        private final Board<Character> board;
+
+        /**
+         * Whether the board is shown as its owner sees it
+         */
+        private final boolean isSelf;
+
+        /**
+         * The line prefix, "@M" or "@E"
+         */
+        private final String prefix;
+
+        /**
+         * The characters the client shows, by packed coordinate, only those
+         * that are not blank, so a large board costs what it shows
+         */
+        private final PackedCellMap<Character> shown;
+
+        CellListener(Board<Character> board, boolean isSelf, String prefix) {
+            this.board = board;
+            this.isSelf = isSelf;
+            this.prefix = prefix;
+            this.shown = new PackedCellMap<Character>();
+        }
+
+        /**
+         * This append the cell to the line if it changed
+         */
+        private void appendIfChanged(StringBuilder line, int row, int column) {
+            if (row < 0 || row >= board.getHeight() || column < 0 || column >= board.getWidth()) {
+                return;
+            }
+            Coordinate c = Coordinate.of(row, column);
+            Character cur = isSelf ? board.whatIsAtForSelf(c) : board.whatIsAtForEnemy(c);
+            char now = cur == null ? ' ' : cur;
+            Character before = shown.get(c.getPacked());
+            if ((before == null ? ' ' : before) != now) {
+                if (now == ' ') {
+                    shown.remove(c.getPacked());
+                }
+                else {
+                    shown.put(c.getPacked(), now);
+                }
+                line.append(Coordinate.rowLabel(row)).append(column).append(now);
+            }
+        }
+
+        private void appendShip(StringBuilder line, Ship<Character> ship) {
+            for (Coordinate c : ship.getCoordinates()) {
+                appendIfChanged(line, c.getRow(), c.getColumn());
+            }
+        }
+
+        private void send(StringBuilder line) {
+            if (line.length() > prefix.length()) {
+                out.println(line);
+            }
+        }
+
+        /**
+         * This send every cell that changed, used once when the listener starts
+         */
+        void sendChanges() {
+            StringBuilder line = new StringBuilder(prefix);
+            for (int row = 0; row < board.getHeight(); row++) {
+                for (int column = 0; column < board.getWidth(); column++) {
+                    appendIfChanged(line, row, column);
+                }
+            }
+            send(line);
+        }
+
+        @Override
+        public void onShipAdded(Ship<Character> ship) {
+            StringBuilder line = new StringBuilder(prefix);
+            appendShip(line, ship);
+            send(line);
+        }
+
+        @Override
+        public void onFire(Coordinate where, Ship<Character> target, boolean newHit) {
+            StringBuilder line = new StringBuilder(prefix);
+            appendIfChanged(line, where.getRow(), where.getColumn());
+            send(line);
+        }
+
+        @Override
+        public void onShipMoved(Ship<Character> oldShip, Ship<Character> newShip) {
+            StringBuilder line = new StringBuilder(prefix);
+            appendShip(line, oldShip);
+            appendShip(line, newShip);
+            send(line);
+        }
+    }
+}
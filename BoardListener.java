@@ -0,0 +1,32 @@
+package battleship;
+
+/**
+ * This interface receives the changes made to a Board, so state derived
+ * from the board can be updated as it happens instead of recomputed.
+ */
+public interface BoardListener<T> {
+
+    /**
+     * This is called after a ship has been added to the board
+     *
+     * @param ship is the ship added
+     */
+    public void onShipAdded(Ship<T> ship);
+
+    /**
+     * This is called after a shot at the board has been resolved
+     *
+     * @param where is the coordinate fired at
+     * @param target is the ship hit, null for a miss
+     * @param newHit is false when that piece of the ship had already been hit
+     */
+    public void onFire(Coordinate where, Ship<T> target, boolean newHit);
+
+    /**
+     * This is called after a ship has been moved, the new ship already carries the old ship's hits
+     *
+     * @param oldShip is the ship removed from the board
+     * @param newShip is the ship that replaced it
+     */
+    public void onShipMoved(Ship<T> oldShip, Ship<T> newShip);
+}
@@ -0,0 +1,54 @@
+package battleship;
+
+import java.util.ArrayList;
+
+/**
+ * This class forwards every board change to a list of listeners,
+ * boards use it to publish their changes.
+ */
+public class BoardListenerList<T> implements BoardListener<T> {
+
+    /**
+     * The listeners to notify, in registration order
+     */
+    private final ArrayList<BoardListener<T>> listeners;
+
+    public BoardListenerList() {
+        this.listeners = new ArrayList<BoardListener<T>>();
+    }
+
+    /**
+     * This add a listener to notify
+     */
+    public void add(BoardListener<T> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * This remove a listener
+     */
+    public void remove(BoardListener<T> listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public void onShipAdded(Ship<T> ship) {
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onShipAdded(ship);
+        }
+    }
+
+    @Override
+    public void onFire(Coordinate where, Ship<T> target, boolean newHit) {
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onFire(where, target, newHit);
+        }
+    }
+
+    @Override
+    public void onShipMoved(Ship<T> oldShip, Ship<T> newShip) {
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onShipMoved(oldShip, newShip);
+        }
+    }
+}
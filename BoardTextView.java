@@ -9,27 +9,320 @@ import java.util.function.Function;
  * It supports two ways to display the Board:
  * one for the player's own board, and one for the
  * enemy's board.
+ * A board larger than 10x26 is shown through a window of at most
+ * WINDOW_ROWS x WINDOW_COLUMNS squares, which follows the last shot or
+ * ship placed outside it, and can be moved with setViewport.
  */
 public class BoardTextView {
+    /**
+     * The largest board shown whole
+     */
+    public static final int FULL_COLUMNS = 10;
+    public static final int FULL_ROWS = 26;
+
+    /**
+     * The size of the window a larger board is shown through
+     */
+    public static final int WINDOW_COLUMNS = 20;
+    public static final int WINDOW_ROWS = 20;
+
     /**
      * The Board to display
      */
     private final Board<Character> toDisplay;
 
+    /**
+     * The squares of my own board and of the board as the enemy sees it
+     */
+    private final Function<Coordinate, Character> selfSquares;
+    private final Function<Coordinate, Character> enemySquares;
+
+    /**
+     * The squares shown, a window of the board from (top, left)
+     */
+    private final int viewRows;
+    private final int viewColumns;
+    private int top;
+    private int left;
+
+    /**
+     * The characters of a row label, e.g. 2 for "AB", and of a column number
+     */
+    private final int labelWidth;
+    private final int cellWidth;
+
+    /**
+     * The length of a rendered row, without "\n"
+     */
+    private final int rowLength;
+
+    /**
+     * This changes every time the window moves, so the two-board view is laid out again
+     */
+    private int layout;
+
+    /**
+     * The rendered rows of my own board, e.g. "A s| |  A", without "\n"
+     */
+    private final char[][] selfRows;
+
+    /**
+     * The rendered rows of the board as the enemy sees it
+     */
+    private final char[][] enemyRows;
+
+    /**
+     * The rows of selfRows that the board has changed since they were rendered
+     */
+    private final boolean[] selfDirty;
+
+    /**
+     * The rows of enemyRows that the board has changed since they were rendered
+     */
+    private final boolean[] enemyDirty;
+
+    /**
+     * The header line, e.g. "  0|1|2\n", null until needed after the window moved
+     */
+    private String header;
+
+    /**
+     * The last two-board view, reused while the enemy view and headers stay the same
+     */
+    private char[] sideBySide;
+
+    /**
+     * The enemy view, my header and enemy header sideBySide was laid out for
+     */
+    private BoardTextView sideBySideEnemy;
+    private String sideBySideMyHeader;
+    private String sideBySideEnemyHeader;
+    private int sideBySideLayout;
+    private int sideBySideEnemyLayout;
+
+    /**
+     * The offset in sideBySide of the first board row
+     */
+    private int sideBySideBody;
+
     /**
      * Constructs a BoardView, given the board it will display.
      *
      * @param toDisplay is the Board to display
-     * @throws IllegalArgumentException if the board is larger than 10x26.
      */
     public BoardTextView(Board<Character> toDisplay) {
         this.toDisplay = toDisplay;
-        if (toDisplay.getWidth() > 10 || toDisplay.getHeight() > 26) {
-            throw new IllegalArgumentException(
-                    "Board must be no larger than 10x26, but is " + toDisplay.getWidth() + "x" + toDisplay.getHeight());
+        this.selfSquares = toDisplay::whatIsAtForSelf;
+        this.enemySquares = toDisplay::whatIsAtForEnemy;
+        int width = toDisplay.getWidth();
+        int height = toDisplay.getHeight();
+        boolean whole = width <= FULL_COLUMNS && height <= FULL_ROWS;
+        this.viewRows = whole ? height : Math.min(height, WINDOW_ROWS);
+        this.viewColumns = whole ? width : Math.min(width, WINDOW_COLUMNS);
+        this.top = 0;
+        this.left = 0;
+        this.labelWidth = Coordinate.rowLabel(Math.max(height - 1, 0)).length();
+        this.cellWidth = Integer.toString(Math.max(width - 1, 0)).length();
+        this.rowLength = 2 * labelWidth + 1 + viewColumns * (cellWidth + 1);
+        this.layout = 0;
+        this.selfRows = new char[viewRows][rowLength];
+        this.enemyRows = new char[viewRows][rowLength];
+        this.selfDirty = new boolean[viewRows];
+        this.enemyDirty = new boolean[viewRows];
+        invalidate();
+        this.header = makeHeader();
+        toDisplay.addListener(new BoardListener<Character>() {
+            @Override
+            public void onShipAdded(Ship<Character> ship) {
+                follow(ship.getCoordinates().iterator().next());
+                markRows(ship);
+            }
+
+            @Override
+            public void onFire(Coordinate where, Ship<Character> target, boolean newHit) {
+                follow(where);
+                markRow(where.getRow());
+            }
+
+            @Override
+            public void onShipMoved(Ship<Character> oldShip, Ship<Character> newShip) {
+                follow(newShip.getCoordinates().iterator().next());
+                markRows(oldShip);
+                markRows(newShip);
+            }
+        });
+    }
+
+    /**
+     * This move the window so its upper left square is (row, column), as
+     * close as the board allows; the next display renders the whole window
+     */
+    public void setViewport(int row, int column) {
+        int newTop = Math.max(0, Math.min(row, toDisplay.getHeight() - viewRows));
+        int newLeft = Math.max(0, Math.min(column, toDisplay.getWidth() - viewColumns));
+        if (newTop == top && newLeft == left) {
+            return;
+        }
+        top = newTop;
+        left = newLeft;
+        header = null; // a shot may move the window every turn, the header is made on the next display
+        layout++;
+        invalidate();
+    }
+
+    /**
+     * This move the window so a square is at its center
+     */
+    public void centerOn(Coordinate where) {
+        setViewport(where.getRow() - viewRows / 2, where.getColumn() - viewColumns / 2);
+    }
+
+    public int getViewportRow() {
+        return top;
+    }
+
+    public int getViewportColumn() {
+        return left;
+    }
+
+    /**
+     * This center the window on a square that is outside it
+     */
+    private void follow(Coordinate where) {
+        int row = where.getRow() - top;
+        int column = where.getColumn() - left;
+        if (row < 0 || row >= viewRows || column < 0 || column >= viewColumns) {
+            centerOn(where);
         }
     }
 
+    /**
+     * This get the header line of the window
+     */
+    private String header() {
+        if (header == null) {
+            header = makeHeader();
+        }
+        return header;
+    }
+
+    /**
+     * This mark every row as changed, so the next display renders the whole board
+     */
+    public void invalidate() {
+        for (int row = 0; row < selfDirty.length; row++) {
+            selfDirty[row] = true;
+            enemyDirty[row] = true;
+        }
+    }
+
+    /**
+     * This mark a row of the board as changed in both the views of the board
+     */
+    private void markRow(int row) {
+        row -= top;
+        if (row >= 0 && row < selfDirty.length) {
+            selfDirty[row] = true;
+            enemyDirty[row] = true;
+        }
+    }
+
+    /**
+     * This mark the rows a ship lies on as changed
+     */
+    private void markRows(Ship<Character> ship) {
+        for (Coordinate c : ship.getCoordinates()) {
+            markRow(c.getRow());
+        }
+    }
+
+    /**
+     * This render a row of the window into a buffer, e.g. "A s| |  A"
+     */
+    private void renderRow(char[] buffer, int viewRow, Function<Coordinate, Character> getSquareFn) {
+        int row = top + viewRow;
+        int length = labelLength(row);
+        int at = 0;
+        for (int i = length; i < labelWidth; i++) { // right-aligned on the left
+            buffer[at++] = ' ';
+        }
+        writeLabel(buffer, at, length, row);
+        at += length;
+        buffer[at++] = ' ';
+        for (int column = 0; column < viewColumns; column++) {
+            for (int i = 1; i < cellWidth; i++) {
+                buffer[at++] = ' ';
+            }
+            Character cur = getSquareFn.apply(Coordinate.of(row, left + column));
+            buffer[at++] = cur == null ? ' ' : cur;
+            buffer[at++] = '|';
+        }
+        buffer[at - 1] = ' '; // replaces the separator after the last column
+        writeLabel(buffer, at, length, row);
+        for (at += length; at < rowLength; at++) { // left-aligned on the right
+            buffer[at] = ' ';
+        }
+    }
+
+    /**
+     * This get the number of letters of a row label, see Coordinate.rowLabel
+     */
+    private static int labelLength(int row) {
+        int length = 1;
+        for (int r = row / 26; r > 0; r = (r - 1) / 26) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * This write the label of a row into a buffer without making a String, e.g. "AB"
+     */
+    private static void writeLabel(char[] buffer, int at, int length, int row) {
+        int r = row + 1;
+        for (int i = at + length - 1; i >= at; i--) {
+            buffer[i] = (char) ('A' + (r - 1) % 26);
+            r = (r - 1) / 26;
+        }
+    }
+
+    /**
+     * This get a row of my own board, rendering it again only if it has changed
+     */
+    private char[] selfRow(int row) {
+        if (selfDirty[row]) {
+            renderRow(selfRows[row], row, selfSquares);
+            selfDirty[row] = false;
+        }
+        return selfRows[row];
+    }
+
+    /**
+     * This get a row of the board as the enemy sees it, rendering it again only if it has changed
+     */
+    private char[] enemyRow(int row) {
+        if (enemyDirty[row]) {
+            renderRow(enemyRows[row], row, enemySquares);
+            enemyDirty[row] = false;
+        }
+        return enemyRows[row];
+    }
+
+    /**
+     * Display the board from the cached rows
+     */
+    private String displayCachedBoard(boolean isSelf) {
+        String header = header();
+        StringBuilder board = new StringBuilder(2 * header.length() + selfRows.length * (rowLength + 1));
+        board.append(header);
+        for (int row = 0; row < selfRows.length; row++) {
+            board.append(isSelf ? selfRow(row) : enemyRow(row));
+            board.append('\n');
+        }
+        board.append(header);
+        return board.toString();
+    }
+
     /**
      * Display the board
      */
@@ -47,14 +340,14 @@ public class BoardTextView {
      * Display my own board
      */
     public String displayMyOwnBoard() {
-        return displayAnyBoard((c)->toDisplay.whatIsAtForSelf(c));
+        return displayCachedBoard(true);
     }
 
     /**
      * Display the enemy's board
      */
     public String displayEnemyBoard() {
-        return displayAnyBoard((c)->toDisplay.whatIsAtForEnemy(c));
+        return displayCachedBoard(false);
     }
 
     /**
@@ -64,7 +357,7 @@ public class BoardTextView {
      */
     public Character makeDot(int row, int column, Function<Coordinate, Character> getSquareFn) {
         // get the display information at the coordinate
-        Character cur = getSquareFn.apply(new Coordinate(row, column));
+        Character cur = getSquareFn.apply(Coordinate.of(row, column));
         if (cur != null) {
             return cur;
         }
@@ -72,47 +365,34 @@ public class BoardTextView {
     }
 
     /**
-     * This makes the body part, e.g. A  |  A\n
+     * This makes the body part of the window, e.g. A  |  A\n
      *
      * @return the String that is the body part for the given board
      */
     public String makeBody(Function<Coordinate, Character> getSquareFn) {
-        int rows = toDisplay.getHeight(); // the rows
-        int columns = toDisplay.getWidth(); // the columns
-        StringBuilder ans = new StringBuilder("");
-        String sep = "|"; // the seperation symbol
-        char letter = 'A'; // letter start from 'A'
-        for (int row = 0; row < rows; row++) { // go throuth each letter in the range of rows
-            StringBuilder curRow = new StringBuilder("");
-            curRow.append(letter); // add the letter of this line
-            curRow.append(" ");
-            for(int column = 0; column < columns - 1; column++) { // go through the current line
-                Character cur = makeDot(row, column, getSquareFn); // get the display information at the coordinate
-                curRow.append(cur); // add the display information at the coordinate
-                curRow.append(sep); // add seperation symbol
-            }
-            Character cur = makeDot(row, columns - 1, getSquareFn);
-            curRow.append(cur); // add the display information at the last coordinate of current row
-            curRow.append(" ");
-            curRow.append(letter); // add the letter of this line
-            curRow.append("\n");
+        StringBuilder ans = new StringBuilder(viewRows * (rowLength + 1));
+        char[] curRow = new char[rowLength];
+        for (int row = 0; row < viewRows; row++) { // go throuth each row of the window
+            renderRow(curRow, row, getSquareFn);
             ans.append(curRow); // add the current line to the body part
-            letter += 1; // move to the next letter
+            ans.append('\n');
         }
         return ans.toString();
     }
 
     /**
-     * This makes the header line, e.g. 0|1|2|3|4\n
+     * This makes the header line of the window, e.g. 0|1|2|3|4\n
      *
      * @return the String that is the header line for the given board
      */
     public String makeHeader() {
-        StringBuilder ans = new StringBuilder("  "); // README shows two spaces at
+        StringBuilder ans = new StringBuilder(makeSpace(labelWidth + 1)); // README shows two spaces at
         String sep=""; //start with nothing to separate, then switch to | to separate
-        for (int column = 0; column < toDisplay.getWidth(); column++) {
+        for (int column = left; column < left + viewColumns; column++) {
             ans.append(sep);
-            ans.append(column);
+            String number = Integer.toString(column);
+            ans.append(makeSpace(cellWidth - number.length())); // right-aligned like the squares
+            ans.append(number);
             sep = "|";
         }
         ans.append("\n");
@@ -133,19 +413,48 @@ public class BoardTextView {
     }
 
     /**
-     * This makes the display view of two boards together
+     * This makes the display view of two boards together. The layout is
+     * kept between calls, only the board rows are copied in again, and
+     * only the rows changed since the last call are rendered.
      *
      * @return the String that is the header line for the given board
      */
     public String displayMyBoardWithEnemyNextToIt(BoardTextView enemyView, String myHeader, String enemyHeader) {
+        if (sideBySide == null || sideBySideEnemy != enemyView
+                || sideBySideLayout != layout || sideBySideEnemyLayout != enemyView.layout
+                || !myHeader.equals(sideBySideMyHeader) || !enemyHeader.equals(sideBySideEnemyHeader)) {
+            layOutSideBySide(enemyView, myHeader, enemyHeader);
+        }
+        int height = Math.max(viewRows, enemyView.viewRows); // rows of the taller window
+        int lineLength = rowLength + BODY_SPACE + enemyView.rowLength + 1; // two boards, the space between and "\n"
+        for (int i = 0; i < height; i++) {
+            int start = sideBySideBody + i * lineLength;
+            if (i < viewRows) {
+                System.arraycopy(selfRow(i), 0, sideBySide, start, rowLength);
+            }
+            if (i < enemyView.viewRows) {
+                System.arraycopy(enemyView.enemyRow(i), 0, sideBySide, start + rowLength + BODY_SPACE, enemyView.rowLength);
+            }
+        }
+        return new String(sideBySide);
+    }
+
+    /**
+     * The number of spaces between the two boards of the two-board view
+     */
+    private static final int BODY_SPACE = 16;
+
+    /**
+     * This lay out the headers, number lines and spaces of the two-board view
+     */
+    private void layOutSideBySide(BoardTextView enemyView, String myHeader, String enemyHeader) {
 
         StringBuilder view = new StringBuilder(); // string to represent the  whole view of two boards
 
-        int width = toDisplay.getWidth(); // width of the board
-        int height = toDisplay.getHeight(); // height of the board
+        int height = Math.max(viewRows, enemyView.viewRows); // rows of the taller window
         int headerStart = 5; // the first header start at column 5
         int myHeaderLength = myHeader.length(); // length of the first header
-        int headerDistance = 2 * width + 22; // start position of the second header
+        int headerDistance = rowLength + 19; // start position of the second header
         int headerSpace = headerDistance - myHeaderLength - headerStart; // number of space between two headers
         String spaceBeforeHeader = makeSpace(headerStart); // space before the first header
         String spaceBetweenHeader = makeSpace(headerSpace); // space between two headers
@@ -157,36 +466,40 @@ public class BoardTextView {
         view.append(enemyHeader);
         view.append("\n");
 
-        String[] myBoard = this.displayMyOwnBoard().split("\n"); // split my board by "\n"
-        String[] enemyBoard = enemyView.displayEnemyBoard().split("\n"); // split the enemy's board by "\n"
+        String myNumberLine = header().substring(0, header().length() - 1); // the header without "\n"
+        String enemyNumberLine = enemyView.header().substring(0, enemyView.header().length() - 1);
 
-        int bodyDistance = 2 * width + 19; // start position of the second board
-        int bodyOccupied = 2 * width + 3; // width of the first board
-        int bodySpace = bodyDistance - bodyOccupied; // number of space between two boards
-        String spaceBetweenBoard = makeSpace(bodySpace); // space between two boards
-        String spaceBetweenFirstLine = makeSpace(bodySpace + 2); // space between the number line of two boards
+        String spaceBetweenBoard = makeSpace(BODY_SPACE); // space between two boards
+        String spaceBetweenFirstLine = makeSpace(rowLength + BODY_SPACE - myNumberLine.length()); // space between the number line of two boards
 
         // add the number line in the body part
-        view.append(myBoard[0]);
+        view.append(myNumberLine);
         view.append(spaceBetweenFirstLine);
-        view.append(enemyBoard[0]);
+        view.append(enemyNumberLine);
         view.append("\n");
+        int body = view.length();
 
-        // add the board in the body part
+        // leave room for the boards, the rows are copied in on every display
         for(int i = 1; i < height + 1; i++) {
-            view.append(myBoard[i]);
+            view.append(makeSpace(rowLength));
             view.append(spaceBetweenBoard);
-            view.append(enemyBoard[i]);
+            view.append(makeSpace(enemyView.rowLength));
             view.append("\n");
         }
 
         // add the number line in the body part
-        view.append(myBoard[0]);
+        view.append(myNumberLine);
         view.append(spaceBetweenFirstLine);
-        view.append(enemyBoard[0]);
+        view.append(enemyNumberLine);
         view.append("\n");
 
-        return view.toString();
+        sideBySide = view.toString().toCharArray();
+        sideBySideBody = body;
+        sideBySideEnemy = enemyView;
+        sideBySideMyHeader = myHeader;
+        sideBySideEnemyHeader = enemyHeader;
+        sideBySideLayout = layout;
+        sideBySideEnemyLayout = enemyView.layout;
     }
 
 }
@@ -0,0 +1,31 @@
+package battleship;
+
+/**
+ * This interface is a placement rule checked one ship cell at a time,
+ * so CompiledPlacementChecker can check every rule in one walk over the
+ * ship's cells. The cell is always on the board.
+ */
+public interface CellRule {
+
+    /**
+     * The ship must not cover a cell holding another ship
+     */
+    public static final CellRule NO_COLLISION = (row, column, occupied) ->
+            occupied.isOccupied(row, column) ? PlacementViolation.OVERLAP : null;
+
+    /**
+     * The ship must not touch another ship side by side
+     */
+    public static final CellRule NO_ADJACENCY = (row, column, occupied) ->
+            occupied.isOccupied(row - 1, column) || occupied.isOccupied(row + 1, column)
+                    || occupied.isOccupied(row, column - 1) || occupied.isOccupied(row, column + 1)
+                    ? PlacementViolation.ADJACENT : null;
+
+    /**
+     * This check one cell of the ship
+     *
+     * @param occupied tells which cells of the board already hold a ship
+     * @return the violation, null if the cell is fine
+     */
+    public PlacementViolation check(int row, int column, OccupancyIndex occupied);
+}
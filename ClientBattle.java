@@ -7,6 +7,12 @@ import java.io.PrintWriter;
 import java.net.Socket;
 
 public class ClientBattle {
+    /**
+     * This connect to the game server. Given a match id, a player, A or B,
+     * and the resume token the match showed that player, it asks the server
+     * to resume that match instead of starting a new one.
+     * Usage: ClientBattle [match id] [A|B] [token]
+     */
     public static void main(String[] args) {
         final String SERVER_ADDRESS = "localhost";
         final int PORT = 12349;
@@ -16,15 +22,20 @@ public class ClientBattle {
 
             BufferedReader userInput = new BufferedReader(new InputStreamReader(System.in));
             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+            if (args.length > 2) { // must be the first line, before the server queues the client for a match
+                out.println(ResumeRegistry.PREFIX + args[0] + " " + args[1].toUpperCase() + " " + args[2]);
+            }
 
             new Thread(() -> {
                 try {
                     BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-                    while (true) {
-                        System.out.println(reader.readLine());
+                    BoardDeltaReader boards = new BoardDeltaReader(); // renders the boards when the server sends changes only
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        System.out.print(boards.read(line));
                     }
-                } catch (IOException exception) {
-
+                } catch (IOException | IllegalArgumentException exception) { // a lost connection or a malformed delta line
+                    System.err.println("Lost the connection to the server: " + exception.getMessage());
                 }
             }).start();
 
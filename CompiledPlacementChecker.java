@@ -0,0 +1,89 @@
+package battleship;
+
+import java.util.ArrayList;
+
+/**
+ * This class checks the in-bounds rule, the no-collision rule and any
+ * registered CellRule in a single walk over the ship's cells, asking the
+ * board's OccupancyIndex when it has one. It reports the same violation
+ * as chaining one checker per rule in registration order would: the
+ * first cell breaking the earliest rule, bounds before every other rule.
+ */
+public class CompiledPlacementChecker<T> extends PlacementRuleChecker<T> {
+
+    /**
+     * The rules checked after the in-bounds rule, in order
+     */
+    private final ArrayList<CellRule> rules;
+
+    /**
+     * Constructs a checker of the in-bounds and no-collision rules
+     *
+     * @param next is the next placement rule checker
+     */
+    public CompiledPlacementChecker(PlacementRuleChecker<T> next) {
+        super(next);
+        this.rules = new ArrayList<CellRule>();
+        rules.add(CellRule.NO_COLLISION);
+    }
+
+    /**
+     * This add a rule checked after the rules already registered
+     *
+     * @return this checker
+     */
+    public CompiledPlacementChecker<T> addRule(CellRule rule) {
+        rules.add(rule);
+        return this;
+    }
+
+    /**
+     * This check every rule on the ship's cells
+     *
+     * @return the violation, null if the ship can be placed
+     */
+    public PlacementViolation check(Ship<T> theShip, Board<T> theBoard) {
+        int width = theBoard.getWidth();
+        int height = theBoard.getHeight();
+        if (rules.size() == 1 && theShip instanceof BitboardShip && theBoard instanceof BitboardBoard) { // both rules are precomputed masks
+            BitboardShip<T> ship = (BitboardShip<T>) theShip;
+            if (ship.isLaidOutFor(width, height)) {
+                PlacementViolation v = ship.getOutOfBounds();
+                if (v != null) {
+                    return v;
+                }
+                return ((BitboardBoard<T>) theBoard).collides(theShip) ? PlacementViolation.OVERLAP : null;
+            }
+        }
+        OccupancyIndex occupied = theBoard instanceof OccupancyIndex ? (OccupancyIndex) theBoard
+                : (row, column) -> PlacementViolation.outOfBounds(row, column, width, height) == null
+                        && theBoard.whatIsAtForSelf(Coordinate.of(row, column)) != null;
+        PlacementViolation found = null;
+        int foundRule = rules.size(); // only rules before it can still change the answer
+        for (Coordinate c : theShip.getCoordinates()) {
+            int row = c.getRow();
+            int column = c.getColumn();
+            if (row < 0 || row >= height || column < 0 || column >= width) { // the in-bounds rule comes first
+                return PlacementViolation.outOfBounds(row, column, width, height);
+            }
+            for (int i = 0; i < foundRule; i++) {
+                CellRule rule = rules.get(i);
+                PlacementViolation v = rule == CellRule.NO_COLLISION // the usual rule, asked directly
+                        ? (occupied.isOccupied(row, column) ? PlacementViolation.OVERLAP : null)
+                        : rule.check(row, column, occupied);
+                if (v != null) {
+                    found = v;
+                    foundRule = i;
+                    break;
+                }
+            }
+        }
+        return found;
+    }
+
+    @Override
+    protected String checkMyRule(Ship<T> theShip, Board<T> theBoard) {
+        PlacementViolation v = check(theShip, theBoard);
+        return v == null ? null : v.getMessage();
+    }
+}
@@ -4,28 +4,46 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
 import java.util.function.Function;
 
 public class ComputerPlayer extends TextPlayer {
     /**
-     * The row of the coordinate to fire at
+     * The most random placements tried for a ship to add or move
+     */
+    public static final int MAX_TRIES = 1000;
+
+    /**
+     * The row of the last coordinate fired at, where scans are centered
      */
     private int row;
 
     /**
-     * The column of the coordinate to fire at
+     * The column of the last coordinate fired at
      */
     private int column;
 
     /**
-     * The number of ships on the board
+     * The strategy set for the first enemy board fired at, null to make one on the first shot
      */
-    private int shipNum;
+    private FiringStrategy strategy;
 
     /**
-     * The list of positions of ships on the board
+     * The strategy firing at every enemy board, one per enemy in a free-for-all (see FreeForAll)
      */
-    private ArrayList<Placement> shipPositions;
+    private final IdentityHashMap<Board<Character>, FiringStrategy> strategies;
+
+    /**
+     * The name of the opponent attacked last, attacked again while it is in the game
+     */
+    private String target;
+
+    /**
+     * Where the ships are placed and moved to
+     */
+    private final Random random;
 
     /**
      * Constructs a computer of the battleship game
@@ -34,40 +52,147 @@ public class ComputerPlayer extends TextPlayer {
         super(name, theBoard, inputSource, out, factory);
         this.row = 0;
         this.column = 0;
-        this.shipNum = 0;
-        this.shipPositions = new ArrayList<Placement>();
-    }
-
-    private void fillShipPositions() {
-        shipPositions.add(new Placement("a0v"));
-        shipPositions.add(new Placement("o2v"));
-        shipPositions.add(new Placement("a1h"));
-        shipPositions.add(new Placement("a6h"));
-        shipPositions.add(new Placement("d7v"));
-        shipPositions.add(new Placement("b1u"));
-        shipPositions.add(new Placement("J5U"));
-        shipPositions.add(new Placement("M5U"));
-        shipPositions.add(new Placement("c0u"));
-        shipPositions.add(new Placement("O7U"));
+        this.random = new Random();
+        this.strategy = null;
+        this.strategies = new IdentityHashMap<Board<Character>, FiringStrategy>();
+        this.target = null;
     }
+
+    /**
+     * This make a computer playing on for a player, e.g. one who ran out of
+     * time: the same name, board, output, moves and scans left, firing as
+     * if it had seen every shot the player fired at the enemy board
+     */
+    public static ComputerPlayer takeOver(TextPlayer player, Board<Character> enemyBoard) {
+        ComputerPlayer computer = new ComputerPlayer(player.name, player.theBoard, player.inputReader, player.out, new V2ShipFactory());
+        if (player.myStatus instanceof IncrementalCompletionRules) { // the computer counts the ships afloat from now on
+            player.theBoard.removeListener((IncrementalCompletionRules<Character>) player.myStatus);
+        }
+        computer.moveCounts = player.moveCounts;
+        computer.scanCounts = player.scanCounts;
+        computer.scanRadius = player.scanRadius;
+        computer.enemyScan = player.enemyScan; // already listening to the enemy board
+        computer.setMetrics(player.metrics);
+        computer.setJournal(player.journal);
+        computer.setFiringStrategy(MatchSnapshot.replayShots(enemyBoard, player.shipsToPlace));
+        return computer;
+    }
+
+    /**
+     * This change the strategy choosing where to fire
+     */
+    public void setFiringStrategy(FiringStrategy strategy) {
+        this.strategy = strategy;
+        strategies.clear(); // the next enemy board fired at gets this one
+    }
+
+    /**
+     * The computer never shows its boards, so there are no board changes to send
+     */
     @Override
-    public void doPlacementPhase() throws IOException {
-        this.fillShipPositions();
-        for (String s : this.shipsToPlace) { // call doOnePlacement iteratively from the list of ships for creation
-            doOnePlacement(s, shipCreationFns.get(s));
+    public void useDeltaProtocol() {
+    }
+
+    /**
+     * This place every ship on the board at random without any output; on
+     * a large board, where the layouts are not listed, one ship at a time
+     */
+    public void placeFleet() {
+        if (!SparseBattleShipBoard.isLarge(theBoard.getWidth(), theBoard.getHeight())) {
+            placeFleetRandomly(random);
+            return;
+        }
+        for (String s : shipsToPlace) {
+            addRandomShip(s, shipCreationFns.get(s));
+        }
+    }
+
+    /**
+     * This add a ship at random spots until the board takes it, at most MAX_TRIES
+     *
+     * @throws IllegalStateException if the board took none of them
+     */
+    private void addRandomShip(String shipName, Function<Placement, Ship<Character>> createFn) {
+        for (int tries = 0; tries < MAX_TRIES; tries++) {
+            if (theBoard.tryAddShip(createFn.apply(randomPlacement(shipName))) == null) {
+                return;
+            }
+        }
+        throw new IllegalStateException("The board took no random " + shipName + " in " + MAX_TRIES + " tries");
+    }
+
+    /**
+     * This make the strategy a computer fires at a board of the given size
+     * with: the probability density one, or a hunt on a large board
+     */
+    public static FiringStrategy strategyFor(int width, int height, List<String> fleet, long seed) {
+        if (SparseBattleShipBoard.isLarge(width, height)) {
+            return new HuntStrategy(width, height, seed);
+        }
+        return new ProbabilityDensityStrategy(width, height, fleet, seed);
+    }
+
+    /**
+     * This replace the ships to place, e.g. to play with every ship type,
+     * the enemy is expected to place the same ships
+     */
+    public void useFleet(List<String> fleet) {
+        shipsToPlace.clear();
+        shipsToPlace.addAll(fleet);
+        shipCreationFns.put("Submarine", (p) -> shipFactory.makeSubmarine(p));
+        shipCreationFns.put("Destroyer", (p) -> shipFactory.makeDestroyer(p));
+        shipCreationFns.put("Battleship", (p) -> shipFactory.makeBattleship(p));
+        shipCreationFns.put("Carrier", (p) -> shipFactory.makeCarrier(p));
+    }
+
+    /**
+     * This place every ship on the empty board, every legal layout being
+     * equally likely (see RandomFleetGenerator); the ships still go through
+     * the board's placement rules
+     *
+     * @throws IllegalStateException if the board rejects a ship of the layout
+     */
+    public void placeFleetRandomly(Random random) {
+        RandomFleetGenerator generator = new RandomFleetGenerator(theBoard.getWidth(), theBoard.getHeight(), shipsToPlace);
+        List<Placement> layout = generator.generate(random);
+        for (int i = 0; i < layout.size(); i++) {
+            String s = shipsToPlace.get(i);
+            String res = theBoard.tryAddShip(shipCreationFns.get(s).apply(layout.get(i)));
+            if (res != null) {
+                throw new IllegalStateException("The board rejected a random " + s + " at " + layout.get(i) + ": " + res);
+            }
         }
+    }
+
+    /**
+     * This get a random placement of a ship type that fits the board; on a
+     * large board, a random anchor and orientation, which may not fit
+     */
+    private Placement randomPlacement(String shipName) {
+        if (SparseBattleShipBoard.isLarge(theBoard.getWidth(), theBoard.getHeight())) {
+            char[] orientations = ShipTemplate.forName(shipName).getOrientations();
+            Coordinate where = Coordinate.of(random.nextInt(theBoard.getHeight()), random.nextInt(theBoard.getWidth()));
+            return new Placement(where, orientations[random.nextInt(orientations.length)]);
+        }
+        List<PlacementTable.Entry> fitting = PlacementTable.forBoard(theBoard.getWidth(), theBoard.getHeight())
+                .fitting(ShipTemplate.forName(shipName));
+        return fitting.get(random.nextInt(fitting.size())).placement;
+    }
+
+    @Override
+    public void doPlacementPhase() throws IOException {
+        placeFleet();
         out.println("Player " + name + " has placed all ships on the board!");
     }
 
     /**
-     * This add one ship to the borad
+     * This add one ship to the borad at a random spot, trying again until it fits
+     *
+     * @throws IllegalStateException if it fit nowhere in MAX_TRIES tries
      */
     @Override
     public void doOnePlacement(String shipName, Function<Placement, Ship<Character>> createFn) throws IOException {
-        Placement p = shipPositions.get(shipNum);
-        shipNum += 1;
-        Ship<Character> s = createFn.apply(p);
-        theBoard.tryAddShip(s);
+        addRandomShip(shipName, createFn);
     }
 
     /**
@@ -75,24 +200,8 @@ public class ComputerPlayer extends TextPlayer {
      */
     @Override
     public void doFire(Board<Character> enemyBoard) throws IOException {
-        int width = enemyBoard.getWidth();
-        int height = enemyBoard.getHeight();
-        Coordinate c = new Coordinate(row, column);
-        Ship<Character> target = enemyBoard.fireAt(c); // find what is located att the coordinate
-
-        // fire at coordinates on the board in order (from top-left to bottom-right)
-        if (column == width - 1) {
-            column = 0;
-            if (row == height - 1) {
-                row = 0;
-            }
-            else {
-                row += 1;
-            }
-        }
-        else {
-            column += 1;
-        }
+        Ship<Character> target = fireShot(enemyBoard);
+        Coordinate c = Coordinate.of(row, column);
 
         if (target == null) { // a miss
             String missResult = "Player " + name + " missed at " + c + "!";
@@ -104,6 +213,41 @@ public class ComputerPlayer extends TextPlayer {
         }
     }
 
+    /**
+     * This fire at the coordinate the strategy chooses, without any output
+     *
+     * @return the ship hit, null for a miss
+     */
+    public Ship<Character> fireShot(Board<Character> enemyBoard) {
+        FiringStrategy firing = strategies.get(enemyBoard);
+        if (firing == null) { // the first shot at this board
+            firing = strategy != null ? strategy // the enemy is expected to place the same ships
+                    : strategyFor(enemyBoard.getWidth(), enemyBoard.getHeight(), shipsToPlace, System.nanoTime());
+            strategy = null;
+            strategies.put(enemyBoard, firing);
+        }
+        Coordinate c = firing.nextShot();
+        row = c.getRow();
+        column = c.getColumn();
+        Ship<Character> target = enemyBoard.fireAt(c); // find what is located att the coordinate
+        firing.recordShot(c, target);
+        return target;
+    }
+
+    /**
+     * This choose the opponent attacked last while it is in the game, and
+     * a random one after, so one fleet is sunk before the next is fired at
+     */
+    @Override
+    public int chooseTarget(List<String> opponents) throws IOException {
+        int i = target == null ? -1 : opponents.indexOf(target);
+        if (i < 0) {
+            i = random.nextInt(opponents.size());
+            target = opponents.get(i);
+        }
+        return i;
+    }
+
     /**
      * This perform a one-turn action of a player
      */
@@ -117,69 +261,7 @@ public class ComputerPlayer extends TextPlayer {
     @Override
     public void doScan(Board<Character> enemyBoard) throws IOException {
         if (scanCounts > 0) {
-            int width = enemyBoard.getWidth();
-            int height = enemyBoard.getHeight();
-            Integer submairneNum = 0; // number of submarines in range
-            Integer destroyerNum = 0; // number of destroyers in range
-            Integer battleshipNum = 0; // number of battleships in range
-            Integer carrierNum = 0; // number of carriers in rage
-            // use a list to store all the vaild coordinates to take sonar scan
-            ArrayList<Coordinate> scanCoordinates= new ArrayList<Coordinate>();
-            for (int j = column - 3; j <= column + 3; j++) {
-                int i = row;
-                if (0 <= i && i <= height - 1 && 0 <= j && j <= width - 1) {
-                    scanCoordinates.add(new Coordinate(i, j));
-                }
-            }
-            if (0 <= row + 3 && row + 3 <= height - 1 && 0 <= column && column <= width - 1) {
-                scanCoordinates.add(new Coordinate(row + 3, column));
-            }
-            if (0 <= row - 3 && row - 3 <= height - 1 && 0 <= column && column <= width - 1) {
-                scanCoordinates.add(new Coordinate(row - 3, column));
-            }
-            for (int j = column - 1; j <= column + 1; j++) {
-                int i = row + 2;
-                if (0 <= i && i <= height - 1 && 0 <= j && j <= width - 1) {
-                    scanCoordinates.add(new Coordinate(i, j));
-                }
-            }
-            for (int j = column - 1; j <= column + 1; j++) {
-                int i = row - 2;
-                if (0 <= i && i <= height - 1 && 0 <= j && j <= width - 1) {
-                    scanCoordinates.add(new Coordinate(i, j));
-                }
-            }
-            for (int j = column - 2; j <= column + 2; j++) {
-                int i = row + 1;
-                if (0 <= i && i <= height - 1 && 0 <= j && j <= width - 1) {
-                    scanCoordinates.add(new Coordinate(i, j));
-                }
-            }
-            for (int j = column - 2; j <= column + 2; j++) {
-                int i = row - 1;
-                if (0 <= i && i <= height - 1 && 0 <= j && j <= width - 1) {
-                    scanCoordinates.add(new Coordinate(i, j));
-                }
-            }
-
-            // count ships in range
-            for (Coordinate scanCoordinate : scanCoordinates) {
-                Ship<Character> ship = enemyBoard.getShipAt(scanCoordinate);
-                if (ship != null) {
-                    if (ship.getName().equals("Carrier")) {
-                        carrierNum += 1;
-                    }
-                    if (ship.getName().equals("Destroyer")) {
-                        destroyerNum += 1;
-                    }
-                    if (ship.getName().equals("Submarine")) {
-                        submairneNum += 1;
-                    }
-                    if (ship.getName().equals("Battleship")) {
-                        battleshipNum += 1;
-                    }
-                }
-            }
+            scanEngineFor(enemyBoard).scan(Coordinate.of(row, column), sonarCounts); // count ships in range
             scanCounts -= 1;
             String prompt = "Player " + name + " used a special action!";
             out.println(prompt);
@@ -188,31 +270,50 @@ public class ComputerPlayer extends TextPlayer {
     }
 
     /**
-     * This perform a one-turn move action of a player
+     * This perform the action chosen, firing instead when no spot was
+     * found to move a ship to
+     */
+    @Override
+    public void chooseOneAction(Board<Character> enemyBoard, Character choice) throws IOException {
+        if (choice != 'M') {
+            super.chooseOneAction(enemyBoard, choice);
+            return;
+        }
+        try {
+            doMove(); // counts the move once it is made
+        }
+        catch (IllegalArgumentException e) {
+            doFire(enemyBoard);
+        }
+    }
+
+    /**
+     * This perform a one-turn move action of a player: a random ship to a
+     * random spot, trying again until the board accepts it, at most MAX_TRIES
+     *
+     * @throws IllegalArgumentException if the board accepted none of them
      */
     @Override
     public void doMove() throws IOException {
-        Ship<Character> toMove = null;
-        Placement p = null;
-        // choose the ship and placement in each turn
-        if (moveCounts == 3) {
-            toMove = theBoard.getShipAt(new Coordinate("a0"));
-            p = new Placement("I1V");
-        }
-        if (moveCounts == 2) {
-            toMove = theBoard.getShipAt(new Coordinate("a1"));
-            p = new Placement("i2V");
-        }
-        if (moveCounts == 1) {
-            toMove = theBoard.getShipAt(new Coordinate("a6"));
-            p = new Placement("o8v");
-        }
-        moveCounts -= 1 ;
-        Ship<Character> newShip = shipFactory.makeSubmarine(p);
-        theBoard.moveShip(toMove, newShip, p); // move the ship
-        out.println("Move Successfully!");
-        String prompt = "Player " + name + " used a special action!";
-        out.println(prompt);
+        ArrayList<Ship<Character>> ships = theBoard.getShips();
+        Ship<Character> toMove = ships.get(random.nextInt(ships.size())); // choose the ship and placement in each turn
+        Function<Placement, Ship<Character>> createFn = shipCreationFns.get(toMove.getName());
+        for (int tries = 0; tries < MAX_TRIES; tries++) {
+            Placement p = randomPlacement(toMove.getName());
+            Ship<Character> newShip = createFn.apply(p);
+            try {
+                theBoard.moveShip(toMove, newShip, p); // move the ship
+            }
+            catch (IllegalArgumentException e) { // taken or off the board, try another spot
+                continue;
+            }
+            moveCounts -= 1 ;
+            out.println("Move Successfully!");
+            String prompt = "Player " + name + " used a special action!";
+            out.println(prompt);
+            return;
+        }
+        throw new IllegalArgumentException("No spot was found to move the " + toMove.getName() + " to in " + MAX_TRIES + " tries");
     }
 
 }
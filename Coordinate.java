@@ -1,6 +1,31 @@
 package battleship;
 
 public class Coordinate {
+    /**
+     * The number of rows and columns of the pre-allocated coordinates,
+     * enough for every board of the standard sizes, larger ones allocate
+     * their coordinates
+     */
+    private static final int CACHE_SIZE = 64;
+
+    /**
+     * The shared instances for 0 <= row, column < CACHE_SIZE, indexed by row * CACHE_SIZE + column
+     */
+    private static final Coordinate[] CACHE = new Coordinate[CACHE_SIZE * CACHE_SIZE];
+
+    /**
+     * The largest row or column, so both fit the 16 bits of the packed coordinate
+     */
+    public static final int MAX_INDEX = Short.MAX_VALUE;
+
+    static {
+        for (int r = 0; r < CACHE_SIZE; r++) {
+            for (int c = 0; c < CACHE_SIZE; c++) {
+                CACHE[r * CACHE_SIZE + c] = new Coordinate(r, c);
+            }
+        }
+    }
+
     /**
      * The row of the coordinate
      */
@@ -11,6 +36,11 @@ public class Coordinate {
      */
     private final int column;
 
+    /**
+     * The row in the high 16 bits and the column in the low 16 bits
+     */
+    private final int packed;
+
     /**
      * This get the row of the coordinate
      *
@@ -40,32 +70,117 @@ public class Coordinate {
     public Coordinate(int r, int c) {
         this.row = r;
         this.column = c;
+        this.packed = pack(r, c);
+    }
+
+    /**
+     * This get the shared coordinate of a row and column,
+     * allocating only when it is outside the pre-allocated range
+     *
+     * @param r is the row of the coordinate.
+     * @param c is the column of the coordinate.
+     * @return the coordinate
+     */
+    public static Coordinate of(int r, int c) {
+        if (r >= 0 && r < CACHE_SIZE && c >= 0 && c < CACHE_SIZE) {
+            return CACHE[r * CACHE_SIZE + c];
+        }
+        return new Coordinate(r, c);
+    }
+
+    /**
+     * This get the coordinate of a packed row and column
+     *
+     * @param packed is the value returned by pack or getPacked
+     * @return the coordinate
+     */
+    public static Coordinate of(int packed) {
+        return of(packed >> 16, (short) packed);
     }
 
     /**
-     * Constructs a Coordinate with the described string
+     * This pack a row and column into one int, the row in the high 16 bits
+     * and the column in the low 16 bits (both in -32768..32767)
+     *
+     * @return the packed value
+     */
+    public static int pack(int r, int c) {
+        return (r << 16) | (c & 0xFFFF);
+    }
+
+    /**
+     * This get the packed representation of the coordinate
+     *
+     * @return the row in the high 16 bits and the column in the low 16 bits
+     */
+    public int getPacked() {
+        return packed;
+    }
+
+    /**
+     * Constructs a Coordinate with the described string, the row letters
+     * then the column digits, e.g. "A0", or "AB123" on a large board
      *
      * @param descr is the string that describes the row and column of the Coordinate.
      * @throws IllegalArgumentException if the row or column are out of valid range.
      */
     public Coordinate(String descr) {
-        if (descr.length() != 2) { // descr should be a string of length 2
-            throw new IllegalArgumentException("That coordinate is invalid: it does not have the correct format.");
+        int digits = 0; // where the column digits start
+        while (digits < descr.length() && Character.isLetter(descr.charAt(digits))) {
+            digits++;
         }
-        char rowletter = descr.charAt(0); // row letter at index 0
-        char rowletterUp = Character.toUpperCase(rowletter);  // convert letters from lower case to upper case
-        if (rowletterUp < 'A' || rowletterUp > 'Z') { // the range of row letter should be from 'A' to 'Z'
+        if (digits == 0 || digits == descr.length()) { // at least one row letter and one column digit
             throw new IllegalArgumentException("That coordinate is invalid: it does not have the correct format.");
         }
-        int row = rowletterUp - 'A';
-        char columnletter = descr.charAt(1); // column letter at index 1
-        String c = descr.substring(1);
-        if (columnletter < '0' || columnletter > '9') {  // the column should be a single digit
-            throw new IllegalArgumentException("That coordinate is invalid: it does not have the correct format.");
+        int row = parseRow(descr.substring(0, digits));
+        int column = 0;
+        for (int i = digits; i < descr.length(); i++) {
+            char columnletter = descr.charAt(i);
+            if (columnletter < '0' || columnletter > '9') { // the column should be digits only
+                throw new IllegalArgumentException("That coordinate is invalid: it does not have the correct format.");
+            }
+            column = column * 10 + (columnletter - '0');
+            if (column > MAX_INDEX) {
+                throw new IllegalArgumentException("That coordinate is invalid: it is out of the board.");
+            }
         }
-        int column = Integer.parseInt(c);
         this.row = row;
         this.column = column;
+        this.packed = pack(row, column);
+    }
+
+    /**
+     * This get the row of row letters, "A" to "Z" then "AA", "AB" and so on
+     *
+     * @throws IllegalArgumentException if the letters are not A to Z or the row is too large
+     */
+    public static int parseRow(String letters) {
+        int row = 0;
+        for (int i = 0; i < letters.length(); i++) {
+            char rowletterUp = Character.toUpperCase(letters.charAt(i)); // convert letters from lower case to upper case
+            if (rowletterUp < 'A' || rowletterUp > 'Z') { // the range of row letter should be from 'A' to 'Z'
+                throw new IllegalArgumentException("That coordinate is invalid: it does not have the correct format.");
+            }
+            row = row * 26 + (rowletterUp - 'A' + 1);
+            if (row - 1 > MAX_INDEX) {
+                throw new IllegalArgumentException("That coordinate is invalid: it is out of the board.");
+            }
+        }
+        return row - 1;
+    }
+
+    /**
+     * This get the letters of a row, "A" to "Z" then "AA", "AB" and so on
+     */
+    public static String rowLabel(int row) {
+        if (row < 26) { // the usual board, no allocation beyond the string
+            return String.valueOf((char) ('A' + row));
+        }
+        StringBuilder label = new StringBuilder();
+        for (int r = row + 1; r > 0; r = (r - 1) / 26) {
+            label.append((char) ('A' + (r - 1) % 26));
+        }
+        return label.reverse().toString();
     }
 
     /**
@@ -73,7 +188,10 @@ public class Coordinate {
      */
     @Override
     public boolean equals(Object o) {
-        if (o.getClass().equals(getClass())) {
+        if (o == this) { // shared instances compare by identity
+            return true;
+        }
+        if (o != null && o.getClass().equals(getClass())) {
             Coordinate c = (Coordinate) o;
             return row == c.row && column == c.column;
         }
@@ -81,11 +199,12 @@ public class Coordinate {
     }
 
     /**
-     * This transforms the coordinate string to hashcode
+     * This get the hashcode of the coordinate, the packed value
+     * multiplied by the golden ratio so rows and columns both spread
      */
     @Override
     public int hashCode() {
-        return toString().hashCode();
+        return packed * 0x9E3779B9;
     }
 
     /**
@@ -21,6 +21,9 @@ public class EasyCompletionRules<T> implements CompletionRules<T> {
      * This check whether the player has lost the game
      */
     public boolean checkCompletion() {
+        if (myBoard instanceof BitboardBoard) { // every occupied cell is a hit cell
+            return ((BitboardBoard<T>) myBoard).allShipsSunk();
+        }
         ArrayList<Ship<T>> myShips = myBoard.getShips();
         for (Ship<T> ship : myShips) {
             if(!ship.isSunk()) {
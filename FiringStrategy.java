@@ -0,0 +1,23 @@
+package battleship;
+
+/**
+ * This interface chooses where a computer player fires. A strategy only
+ * learns what a human would: whether each shot hit, and the name of the
+ * ship it hit and whether that sank it.
+ */
+public interface FiringStrategy {
+
+    /**
+     * This choose the next coordinate to fire at
+     */
+    public Coordinate nextShot();
+
+    /**
+     * This tell the strategy the result of a shot
+     *
+     * @param where is the coordinate fired at
+     * @param target is the ship hit, null for a miss; only its name and
+     *               whether it is sunk may be looked at
+     */
+    public void recordShot(Coordinate where, Ship<Character> target);
+}
@@ -0,0 +1,22 @@
+package battleship;
+
+import java.util.Random;
+
+/**
+ * This class measures how fast RandomFleetGenerator makes layouts of the
+ * full fleet on the real board, and how many draws it takes per layout
+ * kept. The uniformity of the layouts is checked by RandomFleetGeneratorTest.
+ *
+ * Usage: FleetLayoutBenchmark
+ */
+public class FleetLayoutBenchmark {
+
+    public static void main(String[] args) {
+        RandomFleetGenerator full = new RandomFleetGenerator(10, 20, SimulationEngine.FLEET);
+        Random random = new Random(1);
+        MicroBenchmark.Result r = MicroBenchmark.run("full fleet layout, 10x20", 20000, 200000, 1, () -> full.generateEntries(random));
+        System.out.println(r);
+        System.out.println(String.format("%.0f layouts/s, %.1f draws per kept layout",
+                1e9 / r.nanosPerOp, (double) full.getAttempts() / 220000));
+    }
+}
@@ -0,0 +1,334 @@
+package battleship;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * This class plays a free-for-all of MIN_PLAYERS to MAX_PLAYERS players,
+ * each on their own board: in turn, every player still in the game
+ * chooses an opponent (see TextPlayer.chooseTarget) and plays one turn
+ * against the opponent's board, a player whose fleet is sunk is out of
+ * the game, and the last player afloat wins. Every player is told the
+ * result of every turn, and the player attacked is sent their own board.
+ * A turn changes a board the next turn may read, so turns are played one
+ * after another; the placement phase, and what every player is sent
+ * after a turn (rendered, written and flushed), run for all players at
+ * once on the fan-out executor.
+ */
+public class FreeForAll {
+
+    /**
+     * The fewest and the most players of a free-for-all
+     */
+    public static final int MIN_PLAYERS = 4;
+    public static final int MAX_PLAYERS = 16;
+
+    private final List<TextPlayer> players;
+
+    /**
+     * The board of every player, as the opponents see it
+     */
+    private final BoardTextView[] enemyViews;
+
+    /**
+     * What happened to the board of every player during the turn being played
+     */
+    private final TurnRecorder[] recorders;
+
+    /**
+     * Whether every player is still in the game
+     */
+    private final boolean[] afloat;
+
+    private int playersLeft;
+
+    /**
+     * Where the work for every player runs, null to run it on the calling thread
+     */
+    private final ExecutorService fanOut;
+
+    /**
+     * Where the game records its timings and counts
+     */
+    private GameMetrics metrics;
+
+    /**
+     * This interface is the work done for one player, given the player's index
+     */
+    private interface PlayerTask {
+        void run(int index) throws IOException;
+    }
+
+    /**
+     * Constructs a free-for-all between the players, in the order they play
+     *
+     * @param fanOut runs the work for every player at once, null to run it on the calling thread
+     * @throws IllegalArgumentException if there are too few or too many players, two share a name or one uses the delta protocol
+     */
+    public FreeForAll(List<TextPlayer> players, ExecutorService fanOut) {
+        if (players.size() < MIN_PLAYERS || players.size() > MAX_PLAYERS) {
+            throw new IllegalArgumentException("A free-for-all must have between " + MIN_PLAYERS + " and " + MAX_PLAYERS
+                    + " players, but has " + players.size());
+        }
+        HashSet<String> names = new HashSet<String>();
+        for (TextPlayer player : players) {
+            if (!names.add(player.getName().toUpperCase())) {
+                throw new IllegalArgumentException("Two players of a free-for-all are named " + player.getName());
+            }
+            if (player.deltas != null) { // the delta protocol follows a single enemy board
+                throw new IllegalArgumentException("Player " + player.getName() + " uses the delta protocol, "
+                        + "but a free-for-all sends rendered boards");
+            }
+        }
+        this.players = new ArrayList<TextPlayer>(players);
+        this.enemyViews = new BoardTextView[players.size()];
+        this.recorders = new TurnRecorder[players.size()];
+        this.afloat = new boolean[players.size()];
+        for (int i = 0; i < players.size(); i++) {
+            enemyViews[i] = new BoardTextView(players.get(i).getBoard());
+            recorders[i] = new TurnRecorder();
+            afloat[i] = true;
+        }
+        this.playersLeft = players.size();
+        this.fanOut = fanOut;
+        this.metrics = GameMetrics.GLOBAL;
+    }
+
+    /**
+     * This change where the game and every player record their timings and counts
+     */
+    public void setMetrics(GameMetrics metrics) {
+        this.metrics = metrics;
+        for (TextPlayer player : players) {
+            player.setMetrics(metrics);
+        }
+    }
+
+    public TextPlayer getPlayer(int index) {
+        return players.get(index);
+    }
+
+    /**
+     * This check whether a player is still in the game
+     */
+    public boolean isAfloat(int index) {
+        return afloat[index];
+    }
+
+    /**
+     * This play the whole game, placement then attacks
+     *
+     * @return the index of the winner
+     */
+    public int play() throws IOException {
+        doPlacementPhase();
+        return doAttackingPhase();
+    }
+
+    /**
+     * This let every player place the ships, all at once
+     */
+    public void doPlacementPhase() throws IOException {
+        forEachPlayer(index -> {
+            TextPlayer player = players.get(index);
+            long start = System.nanoTime();
+            player.doPlacementPhase();
+            metrics.placement.record(System.nanoTime() - start);
+            player.out.flush();
+        });
+    }
+
+    /**
+     * This play turns in order until one player is left
+     *
+     * @return the index of the winner
+     */
+    public int doAttackingPhase() throws IOException {
+        for (int i = 0; i < players.size(); i++) {
+            players.get(i).getBoard().addListener(recorders[i]);
+        }
+        int shots = 0;
+        int turn = 0;
+        while (playersLeft > 1) {
+            if (afloat[turn]) {
+                shots += playTurn(turn);
+            }
+            turn = (turn + 1) % players.size();
+        }
+        for (int i = 0; i < players.size(); i++) {
+            players.get(i).getBoard().removeListener(recorders[i]);
+        }
+        metrics.shotsPerGame.record(shots);
+        int winner = 0;
+        while (!afloat[winner]) {
+            winner++;
+        }
+        String win = "Player " + players.get(winner).getName() + " win!";
+        forEachPlayer(index -> {
+            players.get(index).out.println(win);
+            players.get(index).out.flush();
+        });
+        return winner;
+    }
+
+    /**
+     * This play one turn of a player against the opponent the player
+     * chooses, then tell every player the result
+     *
+     * @return the number of shots fired
+     */
+    private int playTurn(int index) throws IOException {
+        TextPlayer player = players.get(index);
+        long waited = player.getInputWaitNanos();
+        long start = System.nanoTime();
+        ArrayList<String> names = new ArrayList<String>(playersLeft - 1);
+        int[] opponents = new int[playersLeft - 1];
+        for (int i = 0; i < players.size(); i++) {
+            if (afloat[i] && i != index) {
+                opponents[names.size()] = i;
+                names.add(players.get(i).getName());
+            }
+        }
+        int t = opponents.length == 1 ? opponents[0] : opponents[player.chooseTarget(names)];
+        TextPlayer target = players.get(t);
+        TurnRecorder shot = recorders[t];
+        shot.reset();
+        player.playOneTurn(target.getBoard(), enemyViews[t], target.getName());
+        boolean sunk = target.checkLose();
+        if (sunk) {
+            afloat[t] = false;
+            playersLeft--;
+        }
+
+        String attacker = "Player " + player.getName();
+        String toTarget;
+        String toOthers;
+        if (shot.where == null) { // a move or a sonar scan
+            toTarget = attacker + " used a special action!";
+            toOthers = toTarget;
+        }
+        else if (shot.ship == null) {
+            toTarget = attacker + " missed at " + shot.where + "!";
+            toOthers = attacker + " missed Player " + target.getName() + " at " + shot.where + "!";
+        }
+        else {
+            toTarget = attacker + " hit your " + shot.ship.getName() + " at " + shot.where + "!";
+            toOthers = attacker + " hit Player " + target.getName() + "'s " + shot.ship.getName() + " at " + shot.where + "!";
+        }
+        String out = sunk ? "Player " + target.getName() + " is out of the game, sunk by " + player.getName() + "! "
+                + playersLeft + (playersLeft == 1 ? " player" : " players") + " left." : null;
+        forEachPlayer(i -> {
+            TextPlayer p = players.get(i);
+            if (i == t) {
+                p.out.println(toTarget);
+                if (shot.where != null) { // show the player what the shot did
+                    long rendering = System.nanoTime();
+                    String board = p.view.displayMyOwnBoard();
+                    metrics.render.record(System.nanoTime() - rendering);
+                    p.out.println(board);
+                }
+            }
+            else if (i != index) {
+                p.out.println(toOthers);
+            }
+            if (out != null) {
+                p.out.println(out);
+            }
+            p.out.flush(); // one write per player per turn when the output is batched
+        });
+        long took = System.nanoTime() - start;
+        metrics.turn.record(took);
+        metrics.serverCompute.record(took - (player.getInputWaitNanos() - waited));
+        return shot.where == null ? 0 : 1;
+    }
+
+    /**
+     * This run a task for every player on the fan-out executor and wait for
+     * them all, so no task still runs when the next turn changes the boards
+     *
+     * @throws IOException the first exception a task threw
+     */
+    private void forEachPlayer(PlayerTask task) throws IOException {
+        if (fanOut == null) {
+            for (int i = 0; i < players.size(); i++) {
+                task.run(i);
+            }
+            return;
+        }
+        ArrayList<Future<Void>> done = new ArrayList<Future<Void>>(players.size());
+        for (int i = 0; i < players.size(); i++) {
+            int index = i;
+            done.add(fanOut.submit(() -> {
+                task.run(index);
+                return null;
+            }));
+        }
+        Throwable failed = null;
+        boolean interrupted = false;
+        for (Future<Void> future : done) {
+            while (true) { // wait for every task, even after one failed
+                try {
+                    future.get();
+                    break;
+                }
+                catch (InterruptedException e) {
+                    interrupted = true;
+                }
+                catch (ExecutionException e) {
+                    if (failed == null) {
+                        failed = e.getCause();
+                    }
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            if (failed == null) {
+                throw new InterruptedIOException("Interrupted while waiting for the players' tasks");
+            }
+        }
+        if (failed instanceof IOException) {
+            throw (IOException) failed;
+        }
+        if (failed instanceof RuntimeException) {
+            throw (RuntimeException) failed;
+        }
+        if (failed != null) {
+            throw new IOException(failed);
+        }
+    }
+
+    /**
+     * This records the last shot at the board it listens to, since the last reset
+     */
+    private static class TurnRecorder implements BoardListener<Character> {
+        Coordinate where;
+        Ship<Character> ship;
+
+        void reset() {
+            where = null;
+            ship = null;
+        }
+
+        @Override
+        public void onShipAdded(Ship<Character> ship) {
+        }
+
+        @Override
+        public void onFire(Coordinate where, Ship<Character> target, boolean newHit) {
+            this.where = where;
+            this.ship = target;
+        }
+
+        @Override
+        public void onShipMoved(Ship<Character> oldShip, Ship<Character> newShip) {
+        }
+    }
+}
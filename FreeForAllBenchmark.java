@@ -0,0 +1,98 @@
+package battleship;
+
+import java.io.BufferedReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class measures how the turn latency of a FreeForAll grows with
+ * its players: games of computers are played to the end with 4, 8 and 16
+ * players, each player's output batched by a TurnOutputStream over a
+ * simulated connection whose every write takes the given microseconds,
+ * as a socket write does. Every player count is played with the work
+ * for the players run one after another on the match thread, then fanned
+ * out on a pool of threads, and the turn latency of both is reported.
+ *
+ * Usage: FreeForAllBenchmark [games] [write micros] [threads]
+ */
+public class FreeForAllBenchmark {
+
+    private static final int[] PLAYERS = {4, 8, 16};
+
+    /**
+     * The connection of a player: every write takes a fixed time, the bytes are counted and dropped
+     */
+    private static class Link extends OutputStream {
+        final long writeNanos;
+        final LongAdder bytes;
+
+        Link(long writeNanos, LongAdder bytes) {
+            this.writeNanos = writeNanos;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes.add(len);
+            if (writeNanos > 0) {
+                LockSupport.parkNanos(writeNanos);
+            }
+        }
+    }
+
+    /**
+     * This play games of the given number of computers and report their turns
+     *
+     * @param fanOut runs the work for every player, null for the match thread
+     */
+    private static void measure(int count, int games, long writeNanos, ExecutorService fanOut, String mode) throws Exception {
+        GameMetrics metrics = new GameMetrics();
+        LongAdder bytes = new LongAdder();
+        long start = System.nanoTime();
+        for (int game = 0; game < games; game++) {
+            List<TextPlayer> players = new ArrayList<TextPlayer>(count);
+            for (int i = 0; i < count; i++) {
+                PrintStream out = new PrintStream(new TurnOutputStream(new Link(writeNanos, bytes)), false);
+                players.add(App.createComputerPlayer("P" + (i + 1), new BufferedReader(new StringReader("")), out, new V2ShipFactory()));
+            }
+            FreeForAll match = new FreeForAll(players, fanOut);
+            match.setMetrics(metrics);
+            match.play();
+        }
+        long took = System.nanoTime() - start;
+        long turns = metrics.turn.getCount();
+        System.out.println(String.format("%2d players %-8s turn %s", count, mode, metrics.turn.describe(1000, "us")));
+        System.out.println(String.format("%2d players %-8s %d turns in %.2f s, %.1f turns per game, %.0f bytes sent per turn, placement mean %.1f us",
+                count, mode, turns, took / 1e9, (double) turns / games, (double) bytes.sum() / turns, metrics.placement.getMean() / 1000));
+    }
+
+    public static void main(String[] args) throws Exception {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        long writeMicros = args.length > 1 ? Long.parseLong(args[1]) : 20;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        System.out.println(String.format("%d games per player count, %d us per write, %d fan-out threads", games, writeMicros, threads));
+        ExecutorService fanOut = Executors.newFixedThreadPool(threads);
+        try {
+            measure(PLAYERS[0], games, writeMicros * 1000, fanOut, "warmup");
+            for (int count : PLAYERS) {
+                measure(count, games, writeMicros * 1000, null, "serial");
+                measure(count, games, writeMicros * 1000, fanOut, "parallel");
+            }
+        }
+        finally {
+            fanOut.shutdown();
+        }
+    }
+}
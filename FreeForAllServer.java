@@ -0,0 +1,213 @@
+package battleship;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class is a thread-per-session game server for free-for-alls:
+ * every accepted connection chooses its player type on a thread of its
+ * own, then waits for its group to fill; once the given number of players
+ * are there, they play a FreeForAll on the thread of the last to join,
+ * the work for every player fanned out on a pool of a thread per
+ * processor. Players are named by their arrival order, so the names in
+ * a group differ.
+ * Matches are not saved, journaled or timed, and use rendered boards.
+ */
+public class FreeForAllServer implements Runnable {
+
+    /**
+     * The listening socket
+     */
+    private final ServerSocket serverSocket;
+
+    /**
+     * The executor creating one thread per session and per free-for-all
+     */
+    private final ExecutorService sessionExecutor;
+
+    /**
+     * The executor running the work for every player of a free-for-all
+     */
+    private final ExecutorService fanOut;
+
+    /**
+     * The number of players of every free-for-all
+     */
+    private final int players;
+
+    /**
+     * The players waiting for their group to fill, and their connections
+     */
+    private List<TextPlayer> waiting;
+    private List<Socket> waitingSockets;
+
+    /**
+     * The number of players named so far
+     */
+    private final AtomicLong named;
+
+    /**
+     * The size of the boards of the free-for-alls started from now on
+     */
+    private volatile int boardWidth = App.WIDTH;
+    private volatile int boardHeight = App.HEIGHT;
+
+    /**
+     * The radius of the sonar scans of the players of the free-for-alls started from now on
+     */
+    private volatile int scanRadius = ScanEngine.DEFAULT_RADIUS;
+
+    /**
+     * Constructs a server listening on the given port whose free-for-alls have the given number of players
+     *
+     * @throws IllegalArgumentException if players is not between FreeForAll.MIN_PLAYERS and FreeForAll.MAX_PLAYERS
+     */
+    public FreeForAllServer(int port, int players) throws IOException {
+        if (players < FreeForAll.MIN_PLAYERS || players > FreeForAll.MAX_PLAYERS) {
+            throw new IllegalArgumentException("A free-for-all must have between " + FreeForAll.MIN_PLAYERS + " and "
+                    + FreeForAll.MAX_PLAYERS + " players, but has " + players);
+        }
+        this.players = players;
+        this.waiting = new ArrayList<TextPlayer>(players);
+        this.waitingSockets = new ArrayList<Socket>(players);
+        this.named = new AtomicLong(0);
+        this.sessionExecutor = Executors.newCachedThreadPool();
+        this.fanOut = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        this.serverSocket = new ServerSocket(port, 1024);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getPlayers() {
+        return players;
+    }
+
+    /**
+     * This get the number of players waiting for their group to fill
+     */
+    public synchronized int getWaitingPlayers() {
+        return waiting.size();
+    }
+
+    /**
+     * This change the size of the boards of the free-for-alls started from now on, see Match.setBoardSize
+     */
+    public void setBoardSize(int width, int height) {
+        Match.checkBoardSize(width, height);
+        this.boardWidth = width;
+        this.boardHeight = height;
+    }
+
+    /**
+     * This change the radius of the sonar scans of the players of the free-for-alls started from now on, see Match.setScanRadius
+     */
+    public void setScanRadius(int scanRadius) {
+        Match.checkScanRadius(scanRadius);
+        this.scanRadius = scanRadius;
+    }
+
+    /**
+     * This stop accepting connections and interrupt the running sessions
+     */
+    public void shutdown() throws IOException {
+        serverSocket.close();
+        sessionExecutor.shutdownNow();
+        fanOut.shutdownNow();
+    }
+
+    /**
+     * This accept connections until the server is shut down
+     */
+    @Override
+    public void run() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                socket.setKeepAlive(true); // a client gone without closing is eventually reset
+                sessionExecutor.execute(() -> handleSession(socket));
+            }
+            catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * This ask the connection for its player type and add the player to the
+     * waiting group, starting the free-for-all once the group is full
+     */
+    private void handleSession(Socket socket) {
+        TextPlayer player;
+        try {
+            QueuedOutputStream queued = new QueuedOutputStream(socket.getOutputStream(), sessionExecutor, socket); // a client not reading cannot block the others
+            PrintStream out = new PrintStream(new TurnOutputStream(new TimedOutputStream(queued, GameMetrics.GLOBAL)));
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            player = App.playerIdentification(String.valueOf(named.incrementAndGet()), in, out, new V2ShipFactory(),
+                    boardWidth, boardHeight);
+            player.setScanRadius(scanRadius);
+        }
+        catch (IOException e) {
+            closeQuietly(socket);
+            return;
+        }
+        List<TextPlayer> group;
+        List<Socket> sockets;
+        synchronized (this) {
+            waiting.add(player);
+            waitingSockets.add(socket);
+            if (waiting.size() < players) {
+                int missing = players - waiting.size();
+                player.out.println("Waiting for " + missing + (missing == 1 ? " more player" : " more players"));
+                player.out.flush();
+                return;
+            }
+            group = waiting;
+            sockets = waitingSockets;
+            waiting = new ArrayList<TextPlayer>(players);
+            waitingSockets = new ArrayList<Socket>(players);
+        }
+        play(group, sockets); // on this thread, the last to join
+    }
+
+    /**
+     * This play a free-for-all to the end and close its connections
+     */
+    private void play(List<TextPlayer> group, List<Socket> sockets) {
+        try {
+            new FreeForAll(group, fanOut).play();
+        }
+        catch (IOException e) {
+            // a player left, the free-for-all is over
+        }
+        finally {
+            for (int i = 0; i < group.size(); i++) {
+                group.get(i).out.close(); // after its pending output is written
+                closeQuietly(sockets.get(i));
+            }
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        }
+        catch (IOException e) {
+            // already closed
+        }
+    }
+}
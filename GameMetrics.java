@@ -0,0 +1,253 @@
+package battleship;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * This class collects what the server does: how long placements, turns,
+ * renders and socket writes take, how much of a turn is spent waiting
+ * for the player rather than computing, shots per game, rejected inputs
+ * and running matches. Every counter is a LongAdder or a Histogram, so
+ * the turn path records without taking a lock. The metrics can be read
+ * over JMX (see GameMetricsMBean) or dumped as plain text periodically.
+ */
+public class GameMetrics implements GameMetricsMBean {
+
+    /**
+     * The metrics of every match of this JVM, unless a match is given others
+     */
+    public static final GameMetrics GLOBAL = new GameMetrics();
+
+    /**
+     * The nanoseconds a player takes to place the whole fleet, input included
+     */
+    public final Histogram placement = new Histogram();
+
+    /**
+     * The nanoseconds of one turn, from showing the boards to the end of the action
+     */
+    public final Histogram turn = new Histogram();
+
+    /**
+     * The nanoseconds to render boards as text
+     */
+    public final Histogram render = new Histogram();
+
+    /**
+     * The nanoseconds to hand bytes to a client connection
+     */
+    public final Histogram socketWrite = new Histogram();
+
+    /**
+     * The nanoseconds spent waiting for each line of player input
+     */
+    public final Histogram inputWait = new Histogram();
+
+    /**
+     * The nanoseconds of a turn not spent waiting for input
+     */
+    public final Histogram serverCompute = new Histogram();
+
+    /**
+     * The nanoseconds to write the snapshot of a match after a turn
+     */
+    public final Histogram snapshot = new Histogram();
+
+    /**
+     * The shots both players fired in a finished game
+     */
+    public final Histogram shotsPerGame = new Histogram();
+
+    /**
+     * The nanoseconds a player waits in the matchmaking queue until the match starts
+     */
+    public final Histogram pairing = new Histogram();
+
+    public final LongAdder invalidInputs = new LongAdder();
+    public final LongAdder bytesWritten = new LongAdder();
+    public final LongAdder matchesFinished = new LongAdder();
+    public final LongAdder matchesAbandoned = new LongAdder();
+    public final LongAdder turnTimeouts = new LongAdder();
+    public final LongAdder computerMatches = new LongAdder();
+    public final LongAdder shipsSunk = new LongAdder();
+    private final AtomicInteger activeMatches = new AtomicInteger();
+
+    /**
+     * This record that a match has started
+     */
+    public void matchStarted() {
+        activeMatches.incrementAndGet();
+    }
+
+    /**
+     * This record that a match has ended
+     *
+     * @param finished is true if a player won, false if the match was abandoned
+     */
+    public void matchEnded(boolean finished) {
+        activeMatches.decrementAndGet();
+        if (finished) {
+            matchesFinished.increment();
+        }
+        else {
+            matchesAbandoned.increment();
+        }
+    }
+
+    /**
+     * This register the metrics with the platform MBean server as battleship:type=GameMetrics
+     *
+     * @throws IllegalStateException if they cannot be registered, e.g. they already are
+     */
+    public void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("battleship:type=GameMetrics"));
+        }
+        catch (JMException e) {
+            throw new IllegalStateException("The game metrics cannot be registered: " + e.getMessage());
+        }
+    }
+
+    /**
+     * This print the dump of the metrics every period on a daemon thread
+     *
+     * @return the executor printing them, to shut down to stop
+     */
+    public ScheduledExecutorService startDump(long periodSeconds, PrintStream out) {
+        if (periodSeconds <= 0) {
+            throw new IllegalArgumentException("The dump period must be positive but is " + periodSeconds);
+        }
+        ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-dump");
+            t.setDaemon(true);
+            return t;
+        });
+        dumper.scheduleAtFixedRate(() -> out.print(getDump()), periodSeconds, periodSeconds, TimeUnit.SECONDS);
+        return dumper;
+    }
+
+    @Override
+    public String getDump() {
+        StringBuilder ans = new StringBuilder();
+        ans.append("matches: active ").append(getActiveMatches())
+                .append(" finished ").append(getMatchesFinished())
+                .append(" abandoned ").append(getMatchesAbandoned()).append("\n");
+        ans.append("invalid inputs: ").append(getInvalidInputs()).append("\n");
+        ans.append("turn timeouts: ").append(getTurnTimeouts()).append("\n");
+        ans.append("computer matches: ").append(getComputerMatches()).append("\n");
+        ans.append("ships sunk: ").append(getShipsSunk()).append("\n");
+        ans.append("bytes written: ").append(getBytesWritten()).append("\n");
+        ans.append("shots per game: ").append(shotsPerGame.describe(1, "shots")).append("\n");
+        ans.append("placement: ").append(placement.describe(1e6, "ms")).append("\n");
+        ans.append("turn: ").append(turn.describe(1e6, "ms")).append("\n");
+        ans.append("input wait: ").append(inputWait.describe(1e6, "ms")).append("\n");
+        ans.append("server compute: ").append(serverCompute.describe(1e3, "us")).append("\n");
+        ans.append("render: ").append(render.describe(1e3, "us")).append("\n");
+        ans.append("socket write: ").append(socketWrite.describe(1e3, "us")).append("\n");
+        ans.append("snapshot: ").append(snapshot.describe(1e3, "us")).append("\n");
+        ans.append("pairing: ").append(pairing.describe(1e6, "ms")).append("\n");
+        return ans.toString();
+    }
+
+    @Override
+    public int getActiveMatches() {
+        return activeMatches.get();
+    }
+
+    @Override
+    public long getMatchesFinished() {
+        return matchesFinished.sum();
+    }
+
+    @Override
+    public long getMatchesAbandoned() {
+        return matchesAbandoned.sum();
+    }
+
+    @Override
+    public long getInvalidInputs() {
+        return invalidInputs.sum();
+    }
+
+    @Override
+    public long getTurnTimeouts() {
+        return turnTimeouts.sum();
+    }
+
+    @Override
+    public long getComputerMatches() {
+        return computerMatches.sum();
+    }
+
+    @Override
+    public long getShipsSunk() {
+        return shipsSunk.sum();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    @Override
+    public double getMeanShotsPerGame() {
+        return shotsPerGame.getMean();
+    }
+
+    @Override
+    public double getPlacementMillisP50() {
+        return placement.getPercentile(50) / 1e6;
+    }
+
+    @Override
+    public double getTurnMillisP50() {
+        return turn.getPercentile(50) / 1e6;
+    }
+
+    @Override
+    public double getTurnMillisP99() {
+        return turn.getPercentile(99) / 1e6;
+    }
+
+    @Override
+    public double getInputWaitMillisP50() {
+        return inputWait.getPercentile(50) / 1e6;
+    }
+
+    @Override
+    public double getServerComputeMicrosP50() {
+        return serverCompute.getPercentile(50) / 1e3;
+    }
+
+    @Override
+    public double getServerComputeMicrosP99() {
+        return serverCompute.getPercentile(99) / 1e3;
+    }
+
+    @Override
+    public double getRenderMicrosP50() {
+        return render.getPercentile(50) / 1e3;
+    }
+
+    @Override
+    public double getSocketWriteMicrosP99() {
+        return socketWrite.getPercentile(99) / 1e3;
+    }
+
+    @Override
+    public double getSnapshotMicrosP99() {
+        return snapshot.getPercentile(99) / 1e3;
+    }
+
+    @Override
+    public double getPairingMillisP99() {
+        return pairing.getPercentile(99) / 1e6;
+    }
+}
@@ -0,0 +1,69 @@
+package battleship;
+
+/**
+ * This interface is the JMX view of GameMetrics, what jconsole and other
+ * JMX clients show under battleship:type=GameMetrics.
+ */
+public interface GameMetricsMBean {
+
+    public int getActiveMatches();
+
+    public long getMatchesFinished();
+
+    /**
+     * The matches that ended because a player left or failed
+     */
+    public long getMatchesAbandoned();
+
+    public long getInvalidInputs();
+
+    /**
+     * The times a player ran out of time for a turn, see TurnLimit
+     */
+    public long getTurnTimeouts();
+
+    /**
+     * The players the matchmaker gave a computer opponent, see Matchmaker
+     */
+    public long getComputerMatches();
+
+    /**
+     * The ships sunk in every match, pushed by the players' completion rules
+     */
+    public long getShipsSunk();
+
+    public double getMeanShotsPerGame();
+
+    public double getPlacementMillisP50();
+
+    public double getTurnMillisP50();
+
+    public double getTurnMillisP99();
+
+    /**
+     * The time a turn spends waiting for the player's input
+     */
+    public double getInputWaitMillisP50();
+
+    /**
+     * The time a turn spends on the server, its duration less the input wait
+     */
+    public double getServerComputeMicrosP50();
+
+    public double getServerComputeMicrosP99();
+
+    public double getRenderMicrosP50();
+
+    public double getSocketWriteMicrosP99();
+
+    public double getSnapshotMicrosP99();
+
+    public double getPairingMillisP99();
+
+    public long getBytesWritten();
+
+    /**
+     * Every metric as plain text, one per line
+     */
+    public String getDump();
+}
@@ -0,0 +1,376 @@
+package battleship;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * This class is a BattleShipBoard indexed by a flat cell array: every
+ * cell stores the id of the ship occupying it, so lookups, shots and
+ * rendering cost O(1) per cell instead of a scan over all ships.
+ */
+public class GridBattleShipBoard<T> implements Board<T>, OccupancyIndex {
+
+    /**
+     * The width of the newly constructed board
+     */
+    private final int width;
+
+    /**
+     * The height of the newly constructed board
+     */
+    private final int height;
+
+    /**
+     * The arraylist of ships to our board
+     */
+    private final ArrayList<Ship<T>> myShips;
+
+    /**
+     * Every ship ever placed on the board, its index is the ship id
+     */
+    private final ArrayList<Ship<T>> shipsById;
+
+    private final PlacementRuleChecker<T> placementChecker;
+
+    /**
+     * The information represents a miss
+     */
+    private final T missInfo;
+
+    /**
+     * The id + 1 of the ship occupying each cell, 0 for open water
+     */
+    private final short[] cellShip;
+
+    /**
+     * The id + 1 of the ship that was hit at each cell, 0 if no hit is recorded
+     */
+    private final short[] hitShip;
+
+    /**
+     * The bitset of cells where the enemy missed
+     */
+    private final long[] misses;
+
+    /**
+     * The listeners notified of every change to the board
+     */
+    private final BoardListenerList<T> listeners;
+
+    /**
+     * This get the width of the newly constructed board
+     *
+     * @return the Board width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * This get the height of the newly constructed board
+     *
+     * @return the Board height
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * This get the list of ships on the board
+     *
+     * @return the list of ships on the Board
+     */
+    public ArrayList<Ship<T>> getShips() {
+        return myShips;
+    }
+
+    /**
+     * Constructs a GridBattleShipBoard with the specified width,
+     * height and palcement checker
+     * @param w is the width of the newly constructed board.
+     * @param h is the height of the newly constructed board.
+     * @param placementChecker is the placement validity checker
+     * @throws IllegalArgumentException if the width or height are less than or equal to zero.
+     */
+    public GridBattleShipBoard(int w, int h, PlacementRuleChecker<T> placementChecker, T missInfo) {
+        if (w <= 0) {
+            throw new IllegalArgumentException("GridBattleShipBoard's width must be positive but is " + w);
+        }
+        if (h <= 0) {
+            throw new IllegalArgumentException("GridBattleShipBoard's height must be positive but is " + h);
+        }
+        this.width = w;
+        this.height = h;
+        this.myShips = new ArrayList<Ship<T>>();
+        this.shipsById = new ArrayList<Ship<T>>();
+        this.placementChecker = placementChecker;
+        this.missInfo = missInfo;
+        this.cellShip = new short[w * h];
+        this.hitShip = new short[w * h];
+        this.misses = new long[(w * h + 63) >>> 6];
+        this.listeners = new BoardListenerList<T>();
+    }
+
+    /**
+     * Constructs a GridBattleShipBoard with the specified width
+     * and height
+     * @param w is the width of the newly constructed board.
+     * @param h is the height of the newly constructed board.
+     */
+    public GridBattleShipBoard(int w, int h, T missInfo) {
+        this(w, h, new CompiledPlacementChecker<T>(null), missInfo);
+    }
+
+    /**
+     * This get the cell index of a coordinate
+     *
+     * @return the index, -1 if the coordinate is off the board
+     */
+    private int cellOf(Coordinate c) {
+        int row = c.getRow();
+        int column = c.getColumn();
+        if (row < 0 || row >= height || column < 0 || column >= width) {
+            return -1;
+        }
+        return row * width + column;
+    }
+
+    @Override
+    public boolean isOccupied(int row, int column) {
+        if (row < 0 || row >= height || column < 0 || column >= width) {
+            return false;
+        }
+        return cellShip[row * width + column] != 0;
+    }
+
+    private boolean isMiss(int cell) {
+        return (misses[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    private void setMiss(int cell, boolean miss) {
+        if (miss) {
+            misses[cell >>> 6] |= 1L << cell;
+        }
+        else {
+            misses[cell >>> 6] &= ~(1L << cell);
+        }
+    }
+
+    /**
+     * This write the ship's id + 1 (or 0 to clear it) into every in-bounds cell of the ship
+     */
+    private void index(Ship<T> ship, short value) {
+        for (Coordinate c : ship.getCoordinates()) {
+            int cell = cellOf(c);
+            if (cell >= 0) {
+                cellShip[cell] = value;
+            }
+        }
+    }
+
+    /**
+     * This give the ship a new id and index its cells
+     */
+    private void register(Ship<T> ship) {
+        if (shipsById.size() >= Short.MAX_VALUE) {
+            throw new IllegalStateException("Too many ships placed on this board");
+        }
+        shipsById.add(ship);
+        index(ship, (short) shipsById.size());
+    }
+
+    /**
+     * This check whether a hit on the ship with the given id is still recorded in one of its cells
+     */
+    private boolean isShownAsHit(Ship<T> ship, short id) {
+        for (Coordinate c : ship.getCoordinates()) {
+            int cell = cellOf(c);
+            if (cell >= 0 && hitShip[cell] == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * This add ships to the arraylist of ships to our board
+     *
+     * @return null if the ship is placed, the error message otherwise
+     */
+    public String tryAddShip(Ship<T> toAdd) {
+        String s = placementChecker.checkPlacement(toAdd, this);
+        if (s != null) {
+            return s;
+        }
+        myShips.add(toAdd);
+        register(toAdd);
+        listeners.onShipAdded(toAdd);
+        return null;
+    }
+
+    /**
+     * This takes a Coordinate, and sees which (if any)
+     * Ship occupies that coordinate in our own board
+     *
+     * @return displayInfo if a ship is at the Coordinate, null if not
+     */
+    public T whatIsAtForSelf(Coordinate where) {
+        return whatIsAt(where, true);
+    }
+
+    /**
+     * This takes a Coordinate, and sees which (if any)
+     * Ship occupies that coordinate in the enemy's board
+     *
+     * @return displayInfo if a ship is at the Coordinate, null if not
+     */
+    public T whatIsAtForEnemy(Coordinate where) {
+        return whatIsAt(where, false);
+    }
+
+    /**
+     * This takes a Coordinate, and sees which (if any)
+     * Ship occupies that coordinate
+     *
+     * @return displayInfo if a ship is at the Coordinate, null if not
+     */
+    protected T whatIsAt(Coordinate where, boolean isSelf) {
+        int cell = cellOf(where);
+        if (cell < 0) { // nothing lives off the board
+            return null;
+        }
+        if (!isSelf && isMiss(cell)) { // if missed record exists, return it
+            return missInfo;
+        }
+        if (!isSelf && hitShip[cell] != 0) { // if hit record exists. return it
+            return shipsById.get(hitShip[cell] - 1).getDisplayInfoAt(where, false);
+        }
+        int id = cellShip[cell];
+        if (id == 0) { // no ship at the coordinate
+            return null;
+        }
+        Ship<T> s = shipsById.get(id - 1);
+        if (!isSelf && s.wasHitAt(where)) {
+            return null;
+        }
+        return s.getDisplayInfoAt(where, isSelf);
+    }
+
+    /**
+     * This takes a Coordinate, and check whether a ship
+     * would be hit at that coordinate or not
+     *
+     * @return ship if it is hit at the coordinate, null if not
+     */
+    public Ship<T> fireAt(Coordinate c) {
+        int cell = cellOf(c);
+        if (cell < 0) { // nothing to hit off the board
+            return null;
+        }
+        int id = cellShip[cell];
+        if (id != 0) { // a ship is hit
+            Ship<T> ship = shipsById.get(id - 1);
+            hitShip[cell] = (short) id;
+            setMiss(cell, false); // remove past miss if exists
+            boolean newHit = !ship.wasHitAt(c);
+            ship.recordHitAt(c); // record the hit
+            listeners.onFire(c, ship, newHit);
+            return ship;
+        }
+        setMiss(cell, true); // no hit, record the miss
+        hitShip[cell] = 0; // remove past hit if exists
+        listeners.onFire(c, null, false);
+        return null;
+    }
+
+    public void restoreShot(Coordinate where, Ship<T> shown, boolean miss) {
+        int cell = cellOf(where);
+        if (cell < 0) {
+            return;
+        }
+        short id = 0;
+        if (shown != null) {
+            id = (short) (shipsById.indexOf(shown) + 1);
+            if (id == 0) { // a ship no longer on the board, give it an id without covering any cell
+                if (shipsById.size() >= Short.MAX_VALUE) {
+                    throw new IllegalStateException("Too many ships placed on this board");
+                }
+                shipsById.add(shown);
+                id = (short) shipsById.size();
+            }
+        }
+        hitShip[cell] = id;
+        setMiss(cell, miss);
+        listeners.onFire(where, shown, false);
+    }
+
+    /**
+     * This list the cells with a hit or miss recorded, from the shot arrays
+     */
+    @Override
+    public int[] getShotCells() {
+        int[] cells = new int[16];
+        int n = 0;
+        for (int cell = 0; cell < hitShip.length; cell++) {
+            if (hitShip[cell] != 0 || isMiss(cell)) {
+                if (n == cells.length) {
+                    cells = Arrays.copyOf(cells, 2 * n);
+                }
+                cells[n++] = Coordinate.pack(cell / width, cell % width);
+            }
+        }
+        return Arrays.copyOf(cells, n);
+    }
+
+    /**
+     * This move ship on the board to a new location
+     */
+    public void moveShip(Ship<T> toMove, Ship<T> newShip, Placement p) {
+        short oldId = (short) (shipsById.indexOf(toMove) + 1);
+        index(toMove, (short) 0); // the old location does not collide with the new one
+        String s = placementChecker.checkPlacement(newShip, this);
+        if (s != null) { // invalid placement
+            index(toMove, oldId);
+            throw new IllegalArgumentException(s);
+        }
+        TemplateShip.moveHits(toMove, newShip, p);
+        myShips.remove(toMove); // remove the ship to move from the board
+        myShips.add(newShip); // add the new ship to the board
+        if (isShownAsHit(toMove, oldId)) { // the enemy still sees the old ship, keep its id
+            register(newShip);
+        }
+        else { // nothing refers to the old id any more, the new ship takes it over
+            shipsById.set(oldId - 1, newShip);
+            index(newShip, oldId);
+        }
+        listeners.onShipMoved(toMove, newShip);
+    }
+
+    /**
+     * This register a listener notified of every change to the board
+     */
+    public void addListener(BoardListener<T> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * This unregister a listener
+     */
+    public void removeListener(BoardListener<T> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * This takes a Coordinate, and get the ship at there
+     *
+     * @return ship at the coordinate, null if no ship is found there
+     */
+    public Ship<T> getShipAt(Coordinate where) {
+        int cell = cellOf(where);
+        if (cell < 0 || cellShip[cell] == 0) {
+            return null; // no ship found
+        }
+        return shipsById.get(cellShip[cell] - 1);
+    }
+
+}
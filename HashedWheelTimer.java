@@ -0,0 +1,161 @@
+package battleship;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * This class runs tasks after a delay, for many timers that are almost
+ * always cancelled, like the deadline of every turn of every match. The
+ * timeouts are kept in a wheel of slots, one per tick: scheduling and
+ * cancelling only add to a queue, and one thread moves the queued
+ * timeouts to their slot and runs the slot of the current tick, so the
+ * cost does not depend on how many timeouts are pending. Tasks run on
+ * that thread, up to one tick late, and must be short.
+ */
+public class HashedWheelTimer {
+
+    /**
+     * The length of a tick of the shared timer
+     */
+    public static final long TICK_MILLIS = 100;
+
+    /**
+     * The slots of the shared timer, one turn of its wheel is about 51 seconds
+     */
+    public static final int SLOTS = 512;
+
+    private static HashedWheelTimer shared;
+
+    /**
+     * A task waiting in the wheel
+     */
+    public static class Timeout {
+        private final Runnable task;
+
+        /**
+         * The tick the task runs at
+         */
+        private final long deadlineTick;
+
+        private volatile boolean cancelled;
+
+        Timeout(Runnable task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+            this.cancelled = false;
+        }
+
+        /**
+         * This keep the task from running, it is dropped from the wheel on its tick
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private final long tickMillis;
+
+    /**
+     * The timeouts of every slot, touched by the timer thread only
+     */
+    private final ArrayList<ArrayList<Timeout>> wheel;
+
+    /**
+     * The timeouts scheduled since the last tick
+     */
+    private final ConcurrentLinkedQueue<Timeout> added;
+
+    /**
+     * When the timer started, ticks count from there
+     */
+    private final long startNanos;
+
+    /**
+     * The tick the timer thread runs next
+     */
+    private long tick;
+
+    /**
+     * Constructs a timer of the given tick and number of slots and starts its thread
+     */
+    public HashedWheelTimer(String name, long tickMillis, int slots) {
+        if (tickMillis <= 0 || slots <= 0) {
+            throw new IllegalArgumentException("The tick and the number of slots must be positive, but are "
+                    + tickMillis + " and " + slots);
+        }
+        this.tickMillis = tickMillis;
+        this.wheel = new ArrayList<ArrayList<Timeout>>(slots);
+        for (int i = 0; i < slots; i++) {
+            wheel.add(new ArrayList<Timeout>());
+        }
+        this.added = new ConcurrentLinkedQueue<Timeout>();
+        this.startNanos = System.nanoTime();
+        this.tick = 0;
+        Thread t = new Thread(this::run, name);
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * This get the timer shared by all the matches of the process
+     */
+    public static synchronized HashedWheelTimer shared() {
+        if (shared == null) {
+            shared = new HashedWheelTimer("turn-timer", TICK_MILLIS, SLOTS);
+        }
+        return shared;
+    }
+
+    /**
+     * This run the task once delayMillis have passed, unless cancelled before
+     */
+    public Timeout schedule(Runnable task, long delayMillis) {
+        long elapsed = (System.nanoTime() - startNanos) / 1000000;
+        Timeout t = new Timeout(task, (elapsed + Math.max(delayMillis, 0) + tickMillis - 1) / tickMillis);
+        added.add(t);
+        return t;
+    }
+
+    private void run() {
+        while (true) {
+            long wake = startNanos + (tick + 1) * tickMillis * 1000000;
+            long sleep = (wake - System.nanoTime()) / 1000000;
+            if (sleep > 0) {
+                try {
+                    Thread.sleep(sleep);
+                }
+                catch (InterruptedException e) {
+                    return;
+                }
+            }
+            Timeout t;
+            while ((t = added.poll()) != null) {
+                if (!t.cancelled) {
+                    wheel.get((int) (Math.max(t.deadlineTick, tick) % wheel.size())).add(t);
+                }
+            }
+            Iterator<Timeout> it = wheel.get((int) (tick % wheel.size())).iterator();
+            while (it.hasNext()) {
+                t = it.next();
+                if (t.cancelled) {
+                    it.remove();
+                }
+                else if (t.deadlineTick <= tick) { // later ones wait for another turn of the wheel
+                    it.remove();
+                    try {
+                        t.task.run();
+                    }
+                    catch (RuntimeException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+            tick++;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package battleship;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class counts recorded values, e.g. nanoseconds, in power of two
+ * buckets. Every bucket is a LongAdder, which stripes its count over
+ * cells when threads collide, so recording from many matches at once
+ * takes no lock and costs a few nanoseconds. Percentiles are read from
+ * the buckets, so they are exact to within a factor of two.
+ */
+public class Histogram {
+
+    /**
+     * Bucket i counts the values v with 2^(i-1) <= v < 2^i, bucket 0 counts 0 and below
+     */
+    private final LongAdder[] buckets;
+
+    private final LongAdder count;
+    private final LongAdder sum;
+    private final LongAccumulator max;
+
+    /**
+     * Constructs an empty histogram
+     */
+    public Histogram() {
+        this.buckets = new LongAdder[64];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+        this.count = new LongAdder();
+        this.sum = new LongAdder();
+        this.max = new LongAccumulator(Math::max, 0);
+    }
+
+    /**
+     * This record one value
+     */
+    public void record(long value) {
+        int bucket = value <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(value);
+        buckets[Math.min(bucket, 63)].increment();
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * This get the mean of the recorded values, 0 if there are none
+     */
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * This get an upper bound of the given percentile of the recorded values
+     *
+     * @param percentile is between 0 and 100
+     * @return the top of the bucket holding that percentile, at most the max, 0 if there are no values
+     */
+    public long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("That percentile is invalid: " + percentile);
+        }
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) { // the buckets may be recorded to meanwhile, sum them once
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100 * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(rank, 1)) {
+                long top = i == 0 ? 0 : i >= 63 ? Long.MAX_VALUE : (1L << i) - 1;
+                return Math.min(top, getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * This describe the histogram on one line, values divided by scale, e.g. 1000 to show nanoseconds in microseconds
+     */
+    public String describe(double scale, String unit) {
+        return String.format("count %d mean %.1f p50 %.1f p90 %.1f p99 %.1f max %.1f %s",
+                getCount(), getMean() / scale, getPercentile(50) / scale, getPercentile(90) / scale,
+                getPercentile(99) / scale, getMax() / scale, unit);
+    }
+}
@@ -0,0 +1,271 @@
+package battleship;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * This class measures the game's hot paths on every board implementation,
+ * over several board sizes and fleet sizes: fireAt, whatIsAtForSelf and
+ * whatIsAtForEnemy, tryAddShip through the placement rule chain, moveShip
+ * of every ship shape, sonar scan counting and the two-board render. Results are printed and
+ * can be written as JMH style JSON to compare runs between releases.
+ * Like JMH, every board implementation is measured in a forked JVM.
+ *
+ * Usage: HotPathBenchmarks [results.json] [filter]
+ * where filter keeps only the benchmarks whose name or parameters contain it.
+ */
+public class HotPathBenchmarks {
+
+    /**
+     * The board sizes measured, as width x height
+     */
+    private static final int[][] SIZES = {{10, 10}, {10, 20}, {10, 26}};
+
+    /**
+     * The fleet sizes measured, the first ships of SimulationEngine.FLEET
+     */
+    private static final int[] SHIP_COUNTS = {2, 5, 10};
+
+    private static final String[] BOARDS = {"BattleShipBoard", "GridBattleShipBoard", "BitboardBoard"};
+
+    /**
+     * A ship placed on a benchmark board
+     */
+    private static class Placed {
+        final String name;
+        final Placement placement;
+
+        Placed(String name, Placement placement) {
+            this.name = name;
+            this.placement = placement;
+        }
+    }
+
+    private static Board<Character> newBoard(String kind, int w, int h) {
+        if (kind.equals("GridBattleShipBoard")) {
+            return new GridBattleShipBoard<Character>(w, h, 'X');
+        }
+        if (kind.equals("BitboardBoard")) {
+            return new BitboardBoard<Character>(w, h, 'X');
+        }
+        return new BattleShipBoard<Character>(w, h, 'X');
+    }
+
+    private static V2ShipFactory newFactory(String kind, int w, int h) {
+        return kind.equals("BitboardBoard") ? new BitboardShipFactory(w, h) : new V2ShipFactory();
+    }
+
+    private static Ship<Character> makeShip(V2ShipFactory factory, String name, Placement p) {
+        if (name.equals("Submarine")) {
+            return factory.makeSubmarine(p);
+        }
+        if (name.equals("Destroyer")) {
+            return factory.makeDestroyer(p);
+        }
+        if (name.equals("Battleship")) {
+            return factory.makeBattleship(p);
+        }
+        return factory.makeCarrier(p);
+    }
+
+    /**
+     * This list where the ships go; the layout only depends on the seed and the board size
+     */
+    private static List<Placed> layout(int w, int h, int ships, long seed) {
+        Board<Character> board = new GridBattleShipBoard<Character>(w, h, 'X');
+        V2ShipFactory factory = new V2ShipFactory();
+        Random random = new Random(seed);
+        List<Placed> placed = new ArrayList<Placed>();
+        for (String name : SimulationEngine.FLEET.subList(0, ships)) {
+            char[] orientations = ShipTemplate.forName(name).getOrientations();
+            while (true) {
+                Placement p = new Placement(Coordinate.of(random.nextInt(h), random.nextInt(w)),
+                        orientations[random.nextInt(orientations.length)]);
+                if (board.tryAddShip(makeShip(factory, name, p)) == null) {
+                    placed.add(new Placed(name, p));
+                    break;
+                }
+            }
+        }
+        return placed;
+    }
+
+    private static void place(Board<Character> board, V2ShipFactory factory, List<Placed> placed) {
+        for (Placed p : placed) {
+            board.tryAddShip(makeShip(factory, p.name, p.placement));
+        }
+    }
+
+    /**
+     * This measure one benchmark and record it under the given parameters if it passes the filter
+     */
+    private static void measure(List<MicroBenchmark.Result> results, String filter, Map<String, String> params,
+                                String name, int warmups, int iterations, Supplier<Object> op) {
+        String key = name + " " + params;
+        if (filter != null && !key.contains(filter)) {
+            return;
+        }
+        MicroBenchmark.Result r = MicroBenchmark.run(name, warmups, iterations, 1, op).withParams(params);
+        System.out.println(String.format("%-22s %-20s %5s %2s ships %12.1f ns/op %10.1f B/op", name,
+                params.get("board"), params.get("size"), params.get("ships"), r.nanosPerOp, r.bytesPerOp));
+        results.add(r);
+    }
+
+    /**
+     * This measure every hot path on one board implementation, size and fleet
+     */
+    private static void measureAll(List<MicroBenchmark.Result> results, String filter, String kind, int w, int h, int ships) {
+        Map<String, String> params = new LinkedHashMap<String, String>();
+        params.put("board", kind);
+        params.put("size", w + "x" + h);
+        params.put("ships", String.valueOf(ships));
+        List<Placed> placed = layout(w, h, ships, 7);
+        V2ShipFactory factory = newFactory(kind, w, h);
+        Board<Character> mine = newBoard(kind, w, h);
+        Board<Character> enemy = newBoard(kind, w, h);
+        place(mine, factory, placed);
+        place(enemy, factory, placed);
+        for (int row = 0; row < h; row++) { // shoot a checkerboard so the enemy view has hits and misses
+            for (int column = row % 2; column < w; column += 2) {
+                enemy.fireAt(Coordinate.of(row, column));
+            }
+        }
+        int cells = w * h;
+        Coordinate[] all = new Coordinate[cells];
+        for (int i = 0; i < cells; i++) {
+            all[i] = Coordinate.of(i / w, i % w);
+        }
+        int[] next = new int[1];
+
+        measure(results, filter, params, "fireAt", 50000, 500000,
+                () -> enemy.fireAt(all[next[0]++ % cells]));
+        measure(results, filter, params, "whatIsAtForSelf", 50000, 500000,
+                () -> mine.whatIsAtForSelf(all[next[0]++ % cells]));
+        measure(results, filter, params, "whatIsAtForEnemy", 50000, 500000,
+                () -> enemy.whatIsAtForEnemy(all[next[0]++ % cells]));
+
+        // a ship over the first placed one: rejected by the no-collision rule after passing the in-bounds rule
+        Placed first = placed.get(0);
+        Ship<Character> overlapping = makeShip(factory, first.name, first.placement);
+        measure(results, filter, params, "tryAddShip rejected", 50000, 500000,
+                () -> mine.tryAddShip(overlapping));
+        measure(results, filter, params, "tryAddShip fleet", 2000, 20000,
+                () -> {
+                    Board<Character> b = newBoard(kind, w, h); // every ship accepted
+                    place(b, factory, placed);
+                    return b;
+                });
+
+        // move the first ship of every shape onto its own cells, the whole move path with a valid
+        // placement, after hitting one of its pieces so the hits are carried over
+        Board<Character> moving = newBoard(kind, w, h);
+        place(moving, factory, placed);
+        Map<String, Placed> shapes = new LinkedHashMap<String, Placed>();
+        for (Placed p : placed) {
+            shapes.putIfAbsent(p.name, p);
+        }
+        for (Placed shape : shapes.values()) {
+            Coordinate piece = makeShip(factory, shape.name, shape.placement).getCoordinates().iterator().next();
+            List<Ship<Character>> current = new ArrayList<Ship<Character>>();
+            current.add(moving.getShipAt(piece));
+            moving.fireAt(piece);
+            measure(results, filter, params, "moveShip " + shape.name, 20000, 200000,
+                    () -> {
+                        Ship<Character> newShip = makeShip(factory, shape.name, shape.placement);
+                        moving.moveShip(current.get(0), newShip, shape.placement);
+                        current.set(0, newShip);
+                        return newShip;
+                    });
+        }
+
+        ScanEngine<Character> sonar = new ScanEngine<Character>(mine, ScanEngine.DEFAULT_RADIUS);
+        int[] counts = new int[ScanEngine.TYPE_COUNT];
+        measure(results, filter, params, "sonarScan", 20000, 200000,
+                () -> {
+                    Coordinate center = all[next[0]++ % cells];
+                    return sonar.scan(center.getRow(), center.getColumn(), counts);
+                });
+
+        BoardTextView myView = new BoardTextView(mine);
+        BoardTextView enemyView = new BoardTextView(enemy);
+        measure(results, filter, params, "render both boards", 2000, 10000,
+                () -> {
+                    myView.invalidate(); // a full render, not the row cache
+                    enemyView.invalidate();
+                    return myView.displayMyBoardWithEnemyNextToIt(enemyView, "Your ocean", "Player B's ocean");
+                });
+    }
+
+    /**
+     * This measure one board implementation in a JVM of its own, so the
+     * other implementations do not pollute the JIT profile of the shared
+     * call sites, and collect its JSON result lines
+     */
+    private static List<String> fork(String kind, String filter) throws IOException, InterruptedException {
+        File out = File.createTempFile("hotpath-" + kind, ".json");
+        try {
+            List<String> command = new ArrayList<String>();
+            command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(HotPathBenchmarks.class.getName());
+            command.add("--fork");
+            command.add(kind);
+            command.add(out.getPath());
+            if (filter != null) {
+                command.add(filter);
+            }
+            int status = new ProcessBuilder(command).inheritIO().start().waitFor();
+            if (status != 0) {
+                throw new IOException("The benchmark of " + kind + " failed with status " + status);
+            }
+            List<String> lines = new ArrayList<String>();
+            for (String line : Files.readAllLines(out.toPath(), StandardCharsets.UTF_8)) {
+                if (line.trim().startsWith("{")) {
+                    lines.add(line.trim().replaceAll(",$", ""));
+                }
+            }
+            return lines;
+        }
+        finally {
+            out.delete();
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length >= 3 && args[0].equals("--fork")) { // measure one board in this JVM
+            List<MicroBenchmark.Result> results = new ArrayList<MicroBenchmark.Result>();
+            String filter = args.length > 3 ? args[3] : null;
+            for (int[] size : SIZES) {
+                for (int ships : SHIP_COUNTS) {
+                    measureAll(results, filter, args[1], size[0], size[1], ships);
+                }
+            }
+            MicroBenchmark.writeJson(args[2], results);
+            return;
+        }
+        String json = args.length > 0 ? args[0] : null;
+        String filter = args.length > 1 ? args[1] : null;
+        List<String> lines = new ArrayList<String>();
+        for (String kind : BOARDS) {
+            lines.addAll(fork(kind, filter));
+        }
+        if (json != null) {
+            try (Writer out = new OutputStreamWriter(new FileOutputStream(json), StandardCharsets.UTF_8)) {
+                out.write("[\n  " + String.join(",\n  ", lines) + "\n]\n");
+            }
+            System.out.println("Wrote " + lines.size() + " results to " + json);
+        }
+    }
+}
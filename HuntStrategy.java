@@ -0,0 +1,86 @@
+package battleship;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+
+/**
+ * This class fires at random cells not fired at yet (hunt mode) and,
+ * after a hit on a ship still afloat, at the cells next to the hit
+ * (target mode). It keeps only the cells fired at and the cells queued
+ * next to hits, never anything per cell of the board, so it plays large
+ * boards that ProbabilityDensityStrategy could not keep in memory.
+ */
+public class HuntStrategy implements FiringStrategy {
+
+    private final int width;
+    private final int height;
+
+    private final Random random;
+
+    /**
+     * The packed coordinates fired at this round, all mapped to TRUE
+     */
+    private final PackedCellMap<Boolean> fired;
+
+    /**
+     * The cells next to hits, to fire at before hunting again
+     */
+    private final ArrayDeque<Coordinate> targets;
+
+    /**
+     * Constructs a hunt over a board of the given size
+     */
+    public HuntStrategy(int width, int height, long seed) {
+        this.width = width;
+        this.height = height;
+        this.random = new Random(seed);
+        this.fired = new PackedCellMap<Boolean>();
+        this.targets = new ArrayDeque<Coordinate>();
+    }
+
+    @Override
+    public Coordinate nextShot() {
+        while (!targets.isEmpty()) {
+            Coordinate c = targets.poll();
+            if (!fired.containsKey(c.getPacked())) {
+                return c;
+            }
+        }
+        if (fired.size() >= (long) width * height) { // start over once the whole board has been fired at
+            fired.clear();
+        }
+        while (true) { // the board is mostly not fired at, so this rarely draws twice
+            Coordinate c = Coordinate.of(random.nextInt(height), random.nextInt(width));
+            if (!fired.containsKey(c.getPacked())) {
+                return c;
+            }
+        }
+    }
+
+    @Override
+    public void recordShot(Coordinate where, Ship<Character> target) {
+        fired.put(where.getPacked(), Boolean.TRUE);
+        if (target == null) {
+            return;
+        }
+        if (target.isSunk()) { // the cells queued were most likely around this ship
+            targets.clear();
+            return;
+        }
+        int row = where.getRow();
+        int column = where.getColumn();
+        addTarget(row - 1, column);
+        addTarget(row + 1, column);
+        addTarget(row, column - 1);
+        addTarget(row, column + 1);
+    }
+
+    /**
+     * This queue a cell next to a hit, if it is on the board
+     */
+    private void addTarget(int row, int column) {
+        if (row >= 0 && row < height && column >= 0 && column < width) {
+            targets.add(Coordinate.of(row, column));
+        }
+    }
+}
@@ -14,21 +14,30 @@ public class InBoundsRuleChecker<T> extends PlacementRuleChecker<T> {
      */
     @Override
     protected String checkMyRule(Ship<T> theShip, Board<T> theBoard) {
+        if (theShip instanceof BitboardShip) { // looked up when the ship was made
+            BitboardShip<T> ship = (BitboardShip<T>) theShip;
+            if (ship.isLaidOutFor(theBoard.getWidth(), theBoard.getHeight())) {
+                PlacementViolation v = ship.getOutOfBounds();
+                return v == null ? null : v.getMessage();
+            }
+        }
         Iterable<Coordinate> shipSet = theShip.getCoordinates();
         for (Coordinate c: shipSet) {
-            if (c.getRow() < 0) {
-                return "That placement is invalid: the ship goes off the top of the board.";
-            }
-            if (c.getRow() >= theBoard.getHeight()) {
-                return "That placement is invalid: the ship goes off the bottom of the board.";
-            }
-            if (c.getColumn() < 0) {
-                return "That placement is invalid: the ship goes off the left of the board.";
-            }
-            if (c.getColumn() >= theBoard.getWidth()) {
-                return "That placement is invalid: the ship goes off the right of the board.";
+            String message = outOfBounds(c, theBoard.getWidth(), theBoard.getHeight());
+            if (message != null) {
+                return message;
             }
         }
         return null;
     }
+
+    /**
+     * This check a coordinate is on a board of the given size
+     *
+     * @return null if it is, the error message otherwise
+     */
+    public static String outOfBounds(Coordinate c, int width, int height) {
+        PlacementViolation v = PlacementViolation.outOfBounds(c.getRow(), c.getColumn(), width, height);
+        return v == null ? null : v.getMessage();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,104 @@
+package battleship;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.function.Consumer;
+
+/**
+ * This class decides whether the player has lost the game without looking
+ * at the ships: it listens to the board and keeps a count of the ships
+ * still afloat, so checking completion every turn is O(1).
+ */
+public class IncrementalCompletionRules<T> implements CompletionRules<T>, BoardListener<T> {
+
+    /**
+     * The number of pieces not yet hit of every ship on the board
+     */
+    private final IdentityHashMap<Ship<T>, int[]> remaining;
+
+    /**
+     * The number of ships on the board with at least one piece not hit
+     */
+    private int unsunkShips;
+
+    /**
+     * The callbacks run when a shot sinks a ship
+     */
+    private final ArrayList<Consumer<Ship<T>>> sunkListeners;
+
+    /**
+     * This initializes the counts from the ships already on the board,
+     * and listens to the board for every later change
+     */
+    public IncrementalCompletionRules(Board<T> myBoard) {
+        this.remaining = new IdentityHashMap<Ship<T>, int[]>();
+        this.unsunkShips = 0;
+        this.sunkListeners = new ArrayList<Consumer<Ship<T>>>();
+        for (Ship<T> ship : myBoard.getShips()) {
+            onShipAdded(ship);
+        }
+        myBoard.addListener(this);
+    }
+
+    /**
+     * This register a callback run with the ship every time a shot sinks one
+     */
+    public void addSunkListener(Consumer<Ship<T>> listener) {
+        sunkListeners.add(listener);
+    }
+
+    /**
+     * This get the number of ships still afloat
+     */
+    public int getUnsunkShips() {
+        return unsunkShips;
+    }
+
+    /**
+     * This check whether the player has lost the game
+     */
+    public boolean checkCompletion() {
+        return unsunkShips == 0;
+    }
+
+    @Override
+    public void onShipAdded(Ship<T> ship) {
+        int left = 0;
+        for (Coordinate c : ship.getCoordinates()) {
+            if (!ship.wasHitAt(c)) {
+                left++;
+            }
+        }
+        remaining.put(ship, new int[]{left});
+        if (left > 0) {
+            unsunkShips++;
+        }
+    }
+
+    @Override
+    public void onFire(Coordinate where, Ship<T> target, boolean newHit) {
+        if (target == null || !newHit) { // a miss, or a piece already counted
+            return;
+        }
+        int[] left = remaining.get(target);
+        if (left == null || left[0] == 0) {
+            return;
+        }
+        left[0]--;
+        if (left[0] == 0) {
+            unsunkShips--;
+            for (int i = 0; i < sunkListeners.size(); i++) {
+                sunkListeners.get(i).accept(target);
+            }
+        }
+    }
+
+    @Override
+    public void onShipMoved(Ship<T> oldShip, Ship<T> newShip) {
+        int[] left = remaining.remove(oldShip);
+        if (left != null && left[0] > 0) {
+            unsunkShips--;
+        }
+        onShipAdded(newShip);
+    }
+}
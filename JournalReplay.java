@@ -0,0 +1,226 @@
+package battleship;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.LongStream;
+
+/**
+ * This class rebuilds the boards of a match from its MoveJournal by doing
+ * every recorded action again on new boards: placing the ships, firing
+ * the shots, moving the ships and scanning. Every result is checked
+ * against the one recorded, so a journal that does not match the rules
+ * of the game is reported instead of silently giving other boards.
+ * Replay can stop after any number of actions, to get the boards as they
+ * were in the middle of a match.
+ *
+ * Usage: JournalReplay file-or-directory...
+ *        JournalReplay record games directory
+ */
+public class JournalReplay {
+
+    /**
+     * The boards of a match after replaying its journal
+     */
+    public static class Replay {
+        /**
+         * The boards of player A and player B
+         */
+        public final List<Board<Character>> boards;
+
+        /**
+         * The shots, moves and scans replayed
+         */
+        public int actions;
+
+        /**
+         * 0 if player A won, 1 if player B did, -1 if the journal does not say
+         */
+        public int winner;
+
+        Replay(int width, int height) {
+            this.boards = Arrays.asList(App.newBoard(width, height), App.newBoard(width, height));
+            this.actions = 0;
+            this.winner = -1;
+        }
+    }
+
+    /**
+     * This replay a whole journal
+     *
+     * @throws IllegalArgumentException if the journal is malformed or a result differs from the one recorded
+     */
+    public static Replay replay(byte[] journal) {
+        return replay(journal, Integer.MAX_VALUE);
+    }
+
+    /**
+     * This replay the ship placements of a journal and its first actions
+     *
+     * @param maxActions is the number of shots, moves and scans to replay
+     * @throws IllegalArgumentException if the journal is malformed or a result differs from the one recorded
+     */
+    public static Replay replay(byte[] journal, int maxActions) {
+        ByteBuffer in = ByteBuffer.wrap(journal);
+        V2ShipFactory factory = new V2ShipFactory();
+        try {
+            int length = in.getShort();
+            if (in.get() != MoveJournal.HEADER || in.getInt() != MoveJournal.MAGIC || in.get() != MoveJournal.VERSION) {
+                throw new IllegalArgumentException("Not a version " + MoveJournal.VERSION + " move journal");
+            }
+            int width = in.getShort() & 0xffff; // up to Coordinate.MAX_INDEX + 1
+            int height = in.getShort() & 0xffff;
+            Replay r = new Replay(width, height);
+            PlacementTable table = PlacementTable.forBoard(width, height);
+            int at = 2 + length;
+            while (at + 2 <= journal.length) {
+                in.position(at);
+                length = in.getShort();
+                at += 2 + length;
+                if (at > journal.length) { // the last record was cut short by a crash
+                    break;
+                }
+                byte type = in.get();
+                if (type == MoveJournal.END) {
+                    r.winner = in.get();
+                    continue;
+                }
+                if (type == MoveJournal.SAVED) { // a resumed match goes on from there
+                    continue;
+                }
+                if (type != MoveJournal.SHIP_ADDED && r.actions == maxActions) {
+                    break;
+                }
+                Board<Character> board = r.boards.get(in.get());
+                switch (type) {
+                    case MoveJournal.SHIP_ADDED: {
+                        String name = ShipTemplate.TYPES[in.get()].getName();
+                        Placement p = readPlacement(in);
+                        String res = board.tryAddShip(MatchSnapshot.makeShip(factory, name, p));
+                        if (res != null) {
+                            throw new IllegalArgumentException("The " + name + " at " + p + " cannot be placed: " + res);
+                        }
+                        break;
+                    }
+                    case MoveJournal.FIRE: {
+                        Coordinate c = Coordinate.of(in.getShort(), in.getShort());
+                        int hit = in.get();
+                        Ship<Character> target = board.fireAt(c);
+                        if ((target == null ? -1 : MatchSnapshot.typeIndex(target.getName())) != hit) {
+                            throw new IllegalArgumentException("The shot at " + c + " does not hit what was recorded");
+                        }
+                        r.actions += 1;
+                        break;
+                    }
+                    case MoveJournal.MOVE: {
+                        String name = ShipTemplate.TYPES[in.get()].getName();
+                        Placement from = readPlacement(in);
+                        Placement to = readPlacement(in);
+                        Ship<Character> old = board.getShipAt(table.get(ShipTemplate.forName(name), from).pieces[0]);
+                        if (old == null || !old.getName().equals(name)) {
+                            throw new IllegalArgumentException("No " + name + " to move at " + from);
+                        }
+                        board.moveShip(old, MatchSnapshot.makeShip(factory, name, to), to);
+                        r.actions += 1;
+                        break;
+                    }
+                    case MoveJournal.SCAN: {
+                        Coordinate c = Coordinate.of(in.getShort(), in.getShort());
+                        int radius = in.getShort();
+                        int[] recorded = new int[4];
+                        for (int i = 0; i < recorded.length; i++) {
+                            recorded[i] = in.getShort();
+                        }
+                        if (!Arrays.equals(recorded, TextPlayer.sonarScan(board, c, radius))) {
+                            throw new IllegalArgumentException("The scan at " + c + " does not count what was recorded");
+                        }
+                        r.actions += 1;
+                        break;
+                    }
+                    default:
+                        throw new IllegalArgumentException("Unknown journal record type: " + type);
+                }
+            }
+            return r;
+        }
+        catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Malformed move journal");
+        }
+    }
+
+    private static Placement readPlacement(ByteBuffer in) {
+        char orientation = (char) in.get();
+        int row = in.getShort();
+        return new Placement(Coordinate.of(row, in.getShort()), orientation);
+    }
+
+    /**
+     * This add the journal files of a path, every .journal file of a directory
+     */
+    private static void addJournals(File path, List<File> files) {
+        if (!path.isDirectory()) {
+            files.add(path);
+            return;
+        }
+        File[] children = path.listFiles((dir, name) -> name.endsWith(".journal"));
+        if (children != null) {
+            Arrays.sort(children);
+            files.addAll(Arrays.asList(children));
+        }
+    }
+
+    /**
+     * This play games between two computers, recording each in its own journal
+     */
+    private static void record(long games, File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        SimulationEngine engine = new SimulationEngine();
+        SimulationEngine.StrategyFactory density = (w, h, fleet, seed) -> new ProbabilityDensityStrategy(w, h, fleet, seed);
+        long start = System.nanoTime();
+        LongStream.range(0, games).parallel().forEach(seed -> {
+            try (MoveJournal journal = new MoveJournal(new File(dir, String.format("sim-%08d.journal", seed)), 10, 20)) {
+                engine.playGame(density, density, seed, journal);
+            }
+            catch (IOException e) {
+                throw new IllegalStateException("Cannot write the journal of game " + seed + ": " + e.getMessage());
+            }
+        });
+        System.out.println(String.format("recorded %d games in %.2f s", games, (System.nanoTime() - start) / 1e9));
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && args[0].equals("record")) {
+            record(Long.parseLong(args[1]), new File(args[2]));
+            return;
+        }
+        List<File> files = new ArrayList<File>();
+        for (String a : args) {
+            addJournals(new File(a), files);
+        }
+        long start = System.nanoTime();
+        long actions = 0;
+        long bytes = 0;
+        int failed = 0;
+        for (File f : files) {
+            byte[] journal = Files.readAllBytes(f.toPath());
+            bytes += journal.length;
+            try {
+                actions += replay(journal).actions;
+            }
+            catch (IllegalArgumentException e) {
+                failed += 1;
+                System.out.println(f + ": " + e.getMessage());
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("replayed %d games (%d failed), %d actions, %d bytes in %.2f s, %.0f games/s",
+                files.size(), failed, actions, bytes, seconds, files.size() / seconds));
+    }
+}
@@ -0,0 +1,117 @@
+package battleship;
+
+import java.util.Random;
+
+/**
+ * This class measures how the game scales with the board: the board the
+ * game plays a size on (see App.newBoard) is filled with the standard
+ * fleet at random, and getShipAt, whatIsAtForEnemy, fireAt, the sonar
+ * scan and the two-board render (a window of the board beyond 10x26) are
+ * measured at random coordinates, along with the heap the two boards,
+ * their views and a scan engine hold. None of them should grow with the
+ * board. Then SHOTS shots at distinct cells are recorded, and the heap
+ * they take per shot and the heap of the whole match are reported.
+ *
+ * Usage: LargeBoardBenchmark [WxH ...]
+ */
+public class LargeBoardBenchmark {
+
+    private static final String[] SIZES = {"10x20", "100x100", "1000x1000"};
+
+    /**
+     * The random coordinates an operation cycles through
+     */
+    private static final int COORDINATES = 4096;
+
+    /**
+     * The distinct cells fired at for a long game, at most half the board
+     */
+    private static final int SHOTS = 20000;
+
+    /**
+     * This place the standard fleet at random anchors and orientations
+     */
+    private static void placeFleet(Board<Character> board, V2ShipFactory factory, Random random) {
+        for (String type : SimulationEngine.FLEET) {
+            char[] orientations = ShipTemplate.forName(type).getOrientations();
+            while (true) { // try again until the board accepts the ship
+                Placement p = new Placement(Coordinate.of(random.nextInt(board.getHeight()), random.nextInt(board.getWidth())),
+                        orientations[random.nextInt(orientations.length)]);
+                if (board.tryAddShip(MatchSnapshot.makeShip(factory, type, p)) == null) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void measure(int width, int height) {
+        Random random = new Random(42);
+        V2ShipFactory factory = new V2ShipFactory();
+        long before = usedHeap();
+        Board<Character> mine = App.newBoard(width, height);
+        Board<Character> enemy = App.newBoard(width, height);
+        placeFleet(mine, factory, random);
+        placeFleet(enemy, factory, random);
+        BoardTextView myView = new BoardTextView(mine);
+        BoardTextView enemyView = new BoardTextView(enemy);
+        ScanEngine<Character> sonar = new ScanEngine<Character>(enemy, ScanEngine.DEFAULT_RADIUS);
+        String first = myView.displayMyBoardWithEnemyNextToIt(enemyView, "Your ocean", "Player B's ocean");
+        long held = usedHeap() - before;
+        int shots = (int) Math.min(SHOTS, (long) width * height / 2);
+        long beforeShots = usedHeap();
+        for (int fired = 0; fired < shots; ) {
+            Coordinate c = Coordinate.of(random.nextInt(height), random.nextInt(width));
+            if (enemy.whatIsAtForEnemy(c) == null) { // not fired at yet
+                enemy.fireAt(c);
+                fired++;
+            }
+        }
+        long afterShots = usedHeap();
+
+        Coordinate[] all = new Coordinate[COORDINATES];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = Coordinate.of(random.nextInt(height), random.nextInt(width));
+        }
+        int[] next = new int[1];
+        String size = width + "x" + height;
+        System.out.println(String.format("%s: %s, two boards, views and a scan engine hold %d KB, render %d chars",
+                size, mine.getClass().getSimpleName(), held / 1024, first.length()));
+        System.out.println(String.format("%s: %d shots take %.1f bytes per shot, the match holds %d KB",
+                size, shots, (double) (afterShots - beforeShots) / shots, (afterShots - before) / 1024));
+        System.out.println(MicroBenchmark.run("getShipAt " + size, 20000, 200000, 1,
+                () -> mine.getShipAt(all[next[0]++ & (COORDINATES - 1)])));
+        System.out.println(MicroBenchmark.run("whatIsAtForEnemy " + size, 20000, 200000, 1,
+                () -> enemy.whatIsAtForEnemy(all[next[0]++ & (COORDINATES - 1)])));
+        System.out.println(MicroBenchmark.run("fireAt " + size, 20000, 200000, 1,
+                () -> enemy.fireAt(all[next[0]++ & (COORDINATES - 1)])));
+        int[] counts = new int[ScanEngine.TYPE_COUNT];
+        System.out.println(MicroBenchmark.run("sonarScan " + size, 20000, 200000, 1,
+                () -> {
+                    Coordinate center = all[next[0]++ & (COORDINATES - 1)];
+                    return sonar.scan(center.getRow(), center.getColumn(), counts);
+                }));
+        System.out.println(MicroBenchmark.run("render both boards " + size, 2000, 10000, 1,
+                () -> {
+                    myView.invalidate(); // a full render, not the row cache
+                    enemyView.invalidate();
+                    return myView.displayMyBoardWithEnemyNextToIt(enemyView, "Your ocean", "Player B's ocean");
+                }));
+        sonar.close();
+    }
+
+    public static void main(String[] args) {
+        String[] sizes = args.length > 0 ? args : SIZES;
+        for (String size : sizes) {
+            String[] wh = size.toLowerCase().split("x", 2);
+            measure(Integer.parseInt(wh[0]), Integer.parseInt(wh[1]));
+        }
+    }
+}
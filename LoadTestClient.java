@@ -0,0 +1,182 @@
+package battleship;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class is a load test driver: it opens many ClientBattle style
+ * connections that play scripted human games against each other, and
+ * reports matches per second and turn latency percentiles.
+ *
+ * Usage: LoadTestClient [host] [port] [matches]
+ */
+public class LoadTestClient implements Runnable {
+
+    /**
+     * The placements tried in order, every one is a 1x2 submarine spot
+     */
+    private static final String[] PLACEMENTS = {"a0v", "a1v", "a2v", "a3v", "a4v", "a5v", "a6v", "a7v", "a8v", "a9v"};
+
+    private final String host;
+    private final int port;
+
+    /**
+     * The latencies between sending a fire coordinate and getting its result, in nanoseconds
+     */
+    private final ArrayList<Long> latencies;
+
+    private final CountDownLatch done;
+    private final AtomicInteger wins;
+    private final AtomicInteger failures;
+
+    public LoadTestClient(String host, int port, CountDownLatch done, AtomicInteger wins, AtomicInteger failures) {
+        this.host = host;
+        this.port = port;
+        this.latencies = new ArrayList<Long>();
+        this.done = done;
+        this.wins = wins;
+        this.failures = failures;
+    }
+
+    /**
+     * This play one scripted game until the server closes the connection
+     */
+    @Override
+    public void run() {
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+            int placement = 0;
+            int shot = 0;
+            long firedAt = 0;
+            BoardDeltaReader boards = new BoardDeltaReader(); // the server may send board changes only
+            String received;
+            while ((received = reader.readLine()) != null) {
+                String line = BoardDeltaReader.isDelta(received) ? boards.read(received).trim() : received;
+                if (firedAt != 0 && (line.startsWith("You missed!") || line.startsWith("You hit"))) {
+                    latencies.add(System.nanoTime() - firedAt);
+                    firedAt = 0;
+                }
+                if (line.equals("2. Computer player")) {
+                    out.println("1");
+                }
+                else if (line.contains("where do you want to place a")) {
+                    out.println(PLACEMENTS[placement % PLACEMENTS.length]);
+                    placement += 1;
+                }
+                else if (line.endsWith("what would you like to do?")) {
+                    out.println("F");
+                }
+                else if (line.equals("Please choose a coordinate to fire at:")) {
+                    char row = (char) ('A' + (shot / 10) % 20); // sweep the 10x20 board in row-major order
+                    int column = shot % 10;
+                    shot += 1;
+                    firedAt = System.nanoTime();
+                    out.println("" + row + column);
+                }
+                else if (line.endsWith(" win!")) {
+                    wins.incrementAndGet();
+                }
+            }
+        }
+        catch (IOException e) {
+            failures.incrementAndGet();
+        }
+        finally {
+            done.countDown();
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * The outcome of a load test run
+     */
+    public static class Result {
+        public final int matches;
+        public final int finished;
+        public final int failures;
+        public final double seconds;
+        public final long[] sortedLatencies;
+
+        Result(int matches, int finished, int failures, double seconds, long[] sortedLatencies) {
+            this.matches = matches;
+            this.finished = finished;
+            this.failures = failures;
+            this.seconds = seconds;
+            this.sortedLatencies = sortedLatencies;
+        }
+
+        public double matchesPerSecond() {
+            return finished / seconds;
+        }
+
+        /**
+         * This get the turn latency at the given percentile, in milliseconds
+         */
+        public double latencyMillis(double p) {
+            return percentile(sortedLatencies, p) / 1e6;
+        }
+    }
+
+    /**
+     * This play the given number of matches against a server and wait for all of them to end
+     */
+    public static Result runLoad(String host, int port, int matches) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(2 * matches);
+        AtomicInteger wins = new AtomicInteger(0);
+        AtomicInteger failures = new AtomicInteger(0);
+        LoadTestClient[] clients = new LoadTestClient[2 * matches];
+        long start = System.nanoTime();
+        for (int i = 0; i < clients.length; i++) {
+            clients[i] = new LoadTestClient(host, port, done, wins, failures);
+            Thread t = new Thread(clients[i], "load-client-" + i);
+            t.setDaemon(true);
+            t.start();
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+
+        int count = 0;
+        for (LoadTestClient c : clients) {
+            count += c.latencies.size();
+        }
+        long[] all = new long[count];
+        int k = 0;
+        for (LoadTestClient c : clients) {
+            for (Long l : c.latencies) {
+                all[k++] = l;
+            }
+        }
+        Arrays.sort(all);
+        return new Result(matches, wins.get(), failures.get(), elapsed / 1e9, all);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : App.PORT;
+        int matches = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+
+        Result r = runLoad(host, port, matches);
+        System.out.println("Matches:        " + r.matches + " (" + r.finished + " finished, " + r.failures + " failed connections)");
+        System.out.println("Elapsed:        " + String.format("%.2f", r.seconds) + " s");
+        System.out.println("Matches/sec:    " + String.format("%.1f", r.matchesPerSecond()));
+        System.out.println("Turns measured: " + r.sortedLatencies.length);
+        System.out.println("Turn p50:       " + String.format("%.3f", r.latencyMillis(0.50)) + " ms");
+        System.out.println("Turn p99:       " + String.format("%.3f", r.latencyMillis(0.99)) + " ms");
+    }
+}
@@ -0,0 +1,437 @@
+package battleship;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class plays one battleship game between two connected clients,
+ * whatever transport the streams come from.
+ */
+public class Match {
+
+    /**
+     * The journals of the matches not saved in a store, numbered in order
+     */
+    private static final AtomicLong JOURNALS = new AtomicLong();
+
+    /**
+     * The input and output of the first player
+     */
+    private final BufferedReader in1;
+    private final PrintStream out1;
+
+    /**
+     * The input and output of the second player
+     */
+    private final BufferedReader in2;
+    private final PrintStream out2;
+
+    /**
+     * Whether the players get board changes instead of rendered boards
+     */
+    private final boolean deltaProtocol;
+
+    /**
+     * Where the match records its timings and counts
+     */
+    private final GameMetrics metrics;
+
+    /**
+     * Where the match is saved after every turn, null if it is not
+     */
+    private final SnapshotStore store;
+
+    /**
+     * Where the match waits for its players if a connection drops, null if it does not
+     */
+    private final ResumeRegistry<?> registry;
+
+    /**
+     * The id of the match in the store, 0 if it is not saved
+     */
+    private long matchId;
+
+    /**
+     * The token player A and player B must show to resume the match, see ResumeRegistry
+     */
+    private String[] resumeTokens;
+
+    /**
+     * The writer of the snapshots of the match
+     */
+    private final MatchSnapshot snapshots;
+
+    /**
+     * The turns played so far
+     */
+    private int turns;
+
+    /**
+     * The latest snapshot of the match, null before the attacking phase
+     */
+    private byte[] lastSnapshot;
+
+    /**
+     * The directory where every move of the match is recorded, null if they are not
+     */
+    private File journalDirectory;
+
+    /**
+     * The journal of the match, null if its moves are not recorded
+     */
+    private MoveJournal journal;
+
+    /**
+     * How long the players may take, null if they have all the time
+     */
+    private TurnLimit turnLimit;
+
+    /**
+     * The clocks of the players' connections, null without a turn limit
+     */
+    private TurnDeadline deadline1;
+    private TurnDeadline deadline2;
+
+    /**
+     * The size of the boards of the players
+     */
+    private int boardWidth;
+    private int boardHeight;
+
+    /**
+     * The radius of the sonar scans of the players
+     */
+    private int scanRadius;
+
+    /**
+     * Constructs a match from the streams of two clients
+     */
+    public Match(InputStream in1, OutputStream out1, InputStream in2, OutputStream out2) {
+        this(in1, out1, in2, out2, false);
+    }
+
+    /**
+     * Constructs a match from the streams of two clients, sending them
+     * board changes (see BoardDeltaWriter) if deltaProtocol is true
+     */
+    public Match(InputStream in1, OutputStream out1, InputStream in2, OutputStream out2, boolean deltaProtocol) {
+        this(in1, out1, in2, out2, deltaProtocol, GameMetrics.GLOBAL);
+    }
+
+    /**
+     * Constructs a match recording into the given metrics
+     */
+    public Match(InputStream in1, OutputStream out1, InputStream in2, OutputStream out2, boolean deltaProtocol, GameMetrics metrics) {
+        this(in1, out1, in2, out2, deltaProtocol, metrics, null, null);
+    }
+
+    /**
+     * Constructs a match saved after every turn into the store, waiting in
+     * the registry for its players if a connection drops; either may be null
+     */
+    public Match(InputStream in1, OutputStream out1, InputStream in2, OutputStream out2, boolean deltaProtocol, GameMetrics metrics,
+                 SnapshotStore store, ResumeRegistry<?> registry) {
+        this.in1 = new BufferedReader(new InputStreamReader(in1));
+        this.out1 = new PrintStream(new TurnOutputStream(new TimedOutputStream(out1, metrics))); // one write per flush, see TurnOutputStream
+        this.in2 = new BufferedReader(new InputStreamReader(in2));
+        this.out2 = new PrintStream(new TurnOutputStream(new TimedOutputStream(out2, metrics)));
+        this.deltaProtocol = deltaProtocol;
+        this.metrics = metrics;
+        this.store = store;
+        this.registry = registry;
+        this.matchId = 0;
+        this.snapshots = new MatchSnapshot();
+        this.resumeTokens = new String[]{ResumeRegistry.newToken(), ResumeRegistry.newToken()};
+        this.turns = 0;
+        this.lastSnapshot = null;
+        this.journalDirectory = null;
+        this.journal = null;
+        this.turnLimit = null;
+        this.deadline1 = null;
+        this.deadline2 = null;
+        this.boardWidth = App.WIDTH;
+        this.boardHeight = App.HEIGHT;
+        this.scanRadius = ScanEngine.DEFAULT_RADIUS;
+    }
+
+    /**
+     * This change the size of the boards the players get, see App.newBoard
+     *
+     * @throws IllegalArgumentException if the width or height are not positive or too large for a Coordinate
+     */
+    public void setBoardSize(int width, int height) {
+        checkBoardSize(width, height);
+        this.boardWidth = width;
+        this.boardHeight = height;
+    }
+
+    /**
+     * This change the radius of the sonar scans of both players, see TextPlayer.setScanRadius
+     *
+     * @throws IllegalArgumentException if the radius is negative
+     */
+    public void setScanRadius(int scanRadius) {
+        checkScanRadius(scanRadius);
+        this.scanRadius = scanRadius;
+    }
+
+    /**
+     * This check that a scan radius can be played
+     *
+     * @throws IllegalArgumentException if the radius is negative
+     */
+    public static void checkScanRadius(int scanRadius) {
+        if (scanRadius < 0) {
+            throw new IllegalArgumentException("The scan radius cannot be negative, but is " + scanRadius);
+        }
+    }
+
+    /**
+     * This check that a board size can be played
+     *
+     * @throws IllegalArgumentException if the width or height are not positive or too large for a Coordinate
+     */
+    public static void checkBoardSize(int width, int height) {
+        if (width <= 0 || height <= 0 || width > Coordinate.MAX_INDEX + 1 || height > Coordinate.MAX_INDEX + 1) {
+            throw new IllegalArgumentException("The board must be between 1x1 and " + (Coordinate.MAX_INDEX + 1) + "x"
+                    + (Coordinate.MAX_INDEX + 1) + ", but is " + width + "x" + height);
+        }
+    }
+
+    /**
+     * This time the players with the turn limit, hanging up the input of a
+     * player's connection once the player runs out of time, see TurnDeadline
+     */
+    public void setTurnLimit(TurnLimit turnLimit, Runnable hangUp1, Runnable hangUp2) {
+        this.turnLimit = turnLimit;
+        this.deadline1 = new TurnDeadline(hangUp1);
+        this.deadline2 = new TurnDeadline(hangUp2);
+    }
+
+    /**
+     * This make a match between a client, player A, and a computer, player B
+     */
+    public static Match againstComputer(InputStream in, OutputStream out, boolean deltaProtocol, GameMetrics metrics) {
+        InputStream computerIn = new ByteArrayInputStream("2\n".getBytes(StandardCharsets.US_ASCII)); // choose a computer player
+        OutputStream computerOut = new OutputStream() { // nobody reads what the computer is told
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        };
+        return new Match(in, out, computerIn, computerOut, deltaProtocol, metrics);
+    }
+
+    /**
+     * This record every move of the match in a journal in the directory, see MoveJournal
+     */
+    public void setJournalDirectory(File journalDirectory) {
+        this.journalDirectory = journalDirectory;
+    }
+
+    /**
+     * This get the file of the journal of the match, named after its id in the store if it is saved
+     */
+    private File journalFile() {
+        String name = matchId != 0 ? "match-" + matchId
+                : "match-" + System.currentTimeMillis() + "-" + JOURNALS.incrementAndGet();
+        return new File(journalDirectory, name + ".journal");
+    }
+
+    /**
+     * This get the id of the match in the store, 0 if it is not saved
+     */
+    public long getMatchId() {
+        return matchId;
+    }
+
+    /**
+     * This play the game from player identification to the end of the attacking phase
+     */
+    public void play() throws IOException {
+        metrics.matchStarted();
+        boolean finished = false;
+        try {
+            V2ShipFactory factory = new V2ShipFactory();
+            TextPlayer player1 = identify("A", in1, out1, deadline1, factory);
+            TextPlayer player2 = identify("B", in2, out2, deadline2, factory);
+            player1.setScanRadius(scanRadius);
+            player2.setScanRadius(scanRadius);
+            if (deltaProtocol) {
+                player1.useDeltaProtocol();
+                player2.useDeltaProtocol();
+            }
+            if (store != null) {
+                matchId = store.nextMatchId();
+            }
+            App app = newApp(player1, player2);
+            if (journalDirectory != null) {
+                journal = new MoveJournal(journalFile(), player1.getBoard().getWidth(), player1.getBoard().getHeight());
+                app.setJournal(journal);
+            }
+            app.doPlacementPhase();
+            if (store != null) {
+                out1.println(resumeHint("A"));
+                out2.println(resumeHint("B"));
+                out1.flush();
+                out2.flush();
+            }
+            attack(app, 0);
+            finished = true;
+        }
+        catch (TurnTimeoutException e) { // the match is given up, only turns can be played by a computer
+            out1.println(e.getMessage() + ", the match is over");
+            out2.println(e.getMessage() + ", the match is over");
+            out1.flush();
+            out2.flush();
+            throw e;
+        }
+        finally {
+            metrics.matchEnded(finished); // not finished when a player left
+            if (journal != null) {
+                journal.close();
+            }
+        }
+    }
+
+    /**
+     * This play a saved match from the turn it was saved at
+     *
+     * @param snapshot is the latest snapshot of the match, see MatchSnapshot
+     * @throws IllegalArgumentException if the snapshot cannot be read
+     */
+    public void resume(byte[] snapshot) throws IOException {
+        MatchSnapshot.Saved saved = MatchSnapshot.read(snapshot);
+        metrics.matchStarted();
+        boolean finished = false;
+        try {
+            matchId = saved.matchId;
+            resumeTokens = saved.tokens; // the players keep the tokens they were shown
+            turns = saved.turns;
+            TextPlayer[] players = saved.restorePlayers(in1, out1, in2, out2, new V2ShipFactory());
+            players[0].setScanRadius(scanRadius);
+            players[1].setScanRadius(scanRadius);
+            if (deltaProtocol) { // after the ships are back, so the clients get the whole boards
+                players[0].useDeltaProtocol();
+                players[1].useDeltaProtocol();
+            }
+            out1.println("Match " + matchId + " resumed after " + turns + " turns");
+            out2.println("Match " + matchId + " resumed after " + turns + " turns");
+            out1.flush();
+            out2.flush();
+            App app = newApp(players[0], players[1]);
+            if (journalDirectory != null) { // the same journal, from the turn saved
+                Board<Character> board = players[0].getBoard();
+                journal = MoveJournal.resume(journalFile(), board.getWidth(), board.getHeight(), turns);
+                app.setJournal(journal);
+            }
+            attack(app, saved.nextPlayer);
+            finished = true;
+        }
+        finally {
+            metrics.matchEnded(finished);
+            if (journal != null) {
+                journal.close();
+            }
+        }
+    }
+
+    /**
+     * This ask a player for the player type, within the setup time if there is a turn limit
+     *
+     * @throws TurnTimeoutException if the player ran out of time
+     */
+    private TextPlayer identify(String name, BufferedReader in, PrintStream out, TurnDeadline deadline, V2ShipFactory factory)
+            throws IOException {
+        if (turnLimit != null) {
+            deadline.start(turnLimit.getSetupMillis());
+        }
+        try {
+            return App.playerIdentification(name, in, out, factory, boardWidth, boardHeight);
+        }
+        catch (EOFException e) {
+            if (deadline != null && deadline.hasExpired()) {
+                throw new TurnTimeoutException(name);
+            }
+            throw e;
+        }
+        finally {
+            if (deadline != null) {
+                deadline.cancel();
+            }
+        }
+    }
+
+    /**
+     * This make the game of the two players, with the metrics and the turn limit of the match
+     */
+    private App newApp(TextPlayer player1, TextPlayer player2) {
+        App app = new App(player1, player2);
+        app.setMetrics(metrics);
+        if (turnLimit != null) {
+            player1.setTurnDeadline(deadline1);
+            player2.setTurnDeadline(deadline2);
+            app.setTurnLimit(turnLimit);
+        }
+        return app;
+    }
+
+    /**
+     * This tell a player how to come back if the connection drops
+     */
+    private String resumeHint(String player) {
+        String token = resumeTokens[player.charAt(0) - 'A'];
+        return "This is match " + matchId + ". If the connection drops, reconnect with: "
+                + ResumeRegistry.PREFIX + matchId + " " + player + " " + token;
+    }
+
+    /**
+     * This play the attacking phase, saving the match after every turn;
+     * if a player leaves, the match waits in the registry for both to come back
+     */
+    private void attack(App app, int firstPlayer) throws IOException {
+        if (store != null) { // the current players, a computer may have taken over for one
+            app.setTurnObserver(next -> save(app.getPlayer(0), app.getPlayer(1), next));
+            save(app.getPlayer(0), app.getPlayer(1), firstPlayer);
+        }
+        try {
+            app.doAttackingPhase(out1, out2, firstPlayer);
+            out1.flush();
+            out2.flush();
+        }
+        catch (IOException e) {
+            if (registry != null && lastSnapshot != null) {
+                registry.offer(matchId, lastSnapshot);
+            }
+            throw e;
+        }
+        if (store != null) {
+            store.ended(matchId);
+        }
+    }
+
+    /**
+     * This save the match, the writer thread of the store writes it to disk later
+     */
+    private void save(TextPlayer player1, TextPlayer player2, int nextPlayer) {
+        if (journal != null) {
+            journal.recordSaved(turns);
+        }
+        long start = System.nanoTime();
+        lastSnapshot = snapshots.write(matchId, resumeTokens, turns++, nextPlayer, player1, player2);
+        metrics.snapshot.record(System.nanoTime() - start);
+        store.save(matchId, lastSnapshot);
+    }
+}
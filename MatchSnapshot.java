@@ -0,0 +1,416 @@
+package battleship;
+
+import java.io.BufferedReader;
+import java.io.PrintStream;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * This class saves a running match as a few hundred bytes and rebuilds it.
+ * A snapshot holds, for both players, the ships with their placement and
+ * hit pieces, what the enemy sees of the board (hits and misses), the
+ * special actions left, and whose turn is next. Ships are written as the
+ * index of their placement in PlacementTable plus a bit per piece hit; a
+ * writer remembers the placement of every ship it has seen, and the cells
+ * the enemy sees come from the shots the boards recorded (see
+ * Board.getShotCells), so a snapshot after a turn costs a pass over the
+ * shots, not over the cells of both boards. A writer belongs to one match
+ * and is not thread safe.
+ *
+ * Layout, big endian: magic, version, match id, the resume token of every
+ * seat (see ResumeRegistry), turns played, next player, then per player: name, computer flag, moves and scans left, width and
+ * height as ints, ships as (type, orientation, row, column, hit bits) and
+ * the count of cells the enemy sees as an int, then the cells as (packed
+ * coordinate as an int, character shown).
+ */
+public class MatchSnapshot {
+
+    /**
+     * The first bytes of every snapshot, "BSNP"
+     */
+    public static final int MAGIC = 0x42534e50;
+
+    public static final byte VERSION = 3;
+
+    /**
+     * The placement of every ship written so far
+     */
+    private final IdentityHashMap<Ship<Character>, PlacementTable.Entry> placements;
+
+    /**
+     * The buffer snapshots are written into, grown when a snapshot does not fit
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * Constructs a writer of the snapshots of one match
+     */
+    public MatchSnapshot() {
+        this.placements = new IdentityHashMap<Ship<Character>, PlacementTable.Entry>();
+        this.buffer = ByteBuffer.allocate(1024);
+    }
+
+    /**
+     * This write the snapshot of a match
+     *
+     * @param tokens is the resume token of player1 and player2
+     * @param turns is the number of turns played so far
+     * @param nextPlayer is 0 if player1 plays the next turn, 1 if player2 does
+     * @return the snapshot, see read to get the match back
+     * @throws IllegalArgumentException if a ship is not of a type made by V2ShipFactory
+     */
+    public byte[] write(long matchId, String[] tokens, int turns, int nextPlayer, TextPlayer player1, TextPlayer player2) {
+        while (true) {
+            buffer.clear();
+            try {
+                buffer.putInt(MAGIC);
+                buffer.put(VERSION);
+                buffer.putLong(matchId);
+                putString(tokens[0]);
+                putString(tokens[1]);
+                buffer.putInt(turns);
+                buffer.put((byte) nextPlayer);
+                writePlayer(player1);
+                writePlayer(player2);
+                return Arrays.copyOf(buffer.array(), buffer.position());
+            }
+            catch (BufferOverflowException e) { // a larger board than expected
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+            }
+        }
+    }
+
+    private void putString(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort() & 0xffff];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void writePlayer(TextPlayer player) {
+        putString(player.getName());
+        buffer.put((byte) (player instanceof ComputerPlayer ? 1 : 0));
+        buffer.putShort(player.moveCounts.shortValue());
+        buffer.putShort(player.scanCounts.shortValue());
+        Board<Character> board = player.getBoard();
+        int width = board.getWidth();
+        int height = board.getHeight();
+        buffer.putInt(width);
+        buffer.putInt(height);
+        ArrayList<Ship<Character>> ships = board.getShips();
+        buffer.putShort((short) ships.size());
+        for (Ship<Character> ship : ships) {
+            PlacementTable.Entry e = placements.get(ship);
+            if (e == null) { // a ship is never moved in place, so its placement stays valid
+                e = PlacementTable.forBoard(width, height).find(ShipTemplate.forName(ship.getName()), ship);
+                if (e == null) {
+                    throw new IllegalArgumentException("The " + ship.getName() + " does not have the shape of its type");
+                }
+                placements.put(ship, e);
+            }
+            long hits = 0;
+            for (int i = 0; i < e.pieces.length; i++) {
+                if (ship.wasHitAt(e.pieces[i])) {
+                    hits |= 1L << i;
+                }
+            }
+            buffer.put((byte) typeIndex(ship.getName()));
+            buffer.put((byte) e.placement.getOrientation());
+            buffer.putShort((short) e.placement.getWhere().getRow());
+            buffer.putShort((short) e.placement.getWhere().getColumn());
+            buffer.putLong(hits);
+        }
+        int[] cells = board.getShotCells();
+        buffer.putInt(cells.length);
+        for (int cell : cells) {
+            buffer.putInt(cell);
+            buffer.put((byte) board.whatIsAtForEnemy(Coordinate.of(cell)).charValue());
+        }
+    }
+
+    /**
+     * This get the index of a ship type written in snapshots and journals
+     *
+     * @throws IllegalArgumentException if the type is not made by V2ShipFactory
+     */
+    static int typeIndex(String name) {
+        int t = ShipTemplate.typeIndex(name);
+        if (t < 0) {
+            throw new IllegalArgumentException("Unknown ship type: " + name);
+        }
+        return t;
+    }
+
+    /**
+     * This read a snapshot
+     *
+     * @throws IllegalArgumentException if the bytes are not a snapshot of this version
+     */
+    public static Saved read(byte[] data) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        try {
+            if (in.getInt() != MAGIC || in.get() != VERSION) {
+                throw new IllegalArgumentException("Not a version " + VERSION + " match snapshot");
+            }
+            long matchId = in.getLong();
+            String[] tokens = {getString(in), getString(in)};
+            int turns = in.getInt();
+            int nextPlayer = in.get();
+            SavedPlayer player1 = readPlayer(in);
+            SavedPlayer player2 = readPlayer(in);
+            return new Saved(matchId, tokens, turns, nextPlayer, player1, player2);
+        }
+        catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("The match snapshot is cut short");
+        }
+    }
+
+    private static SavedPlayer readPlayer(ByteBuffer in) {
+        SavedPlayer p = new SavedPlayer(getString(in), in.get() != 0);
+        p.moveCounts = in.getShort();
+        p.scanCounts = in.getShort();
+        p.width = in.getInt();
+        p.height = in.getInt();
+        if (p.width <= 0 || p.width > Coordinate.MAX_INDEX + 1 || p.height <= 0 || p.height > Coordinate.MAX_INDEX + 1) {
+            throw new IllegalArgumentException("The saved board of " + p.name + " is " + p.width + "x" + p.height);
+        }
+        int ships = in.getShort();
+        p.types = new String[ships];
+        p.placements = new Placement[ships];
+        p.hits = new long[ships];
+        for (int i = 0; i < ships; i++) {
+            int t = in.get();
+            if (t < 0 || t >= ShipTemplate.TYPES.length) {
+                throw new IllegalArgumentException("Unknown ship type index: " + t);
+            }
+            p.types[i] = ShipTemplate.TYPES[t].getName();
+            char orientation = (char) in.get();
+            int row = in.getShort();
+            p.placements[i] = new Placement(Coordinate.of(row, in.getShort()), orientation);
+            p.hits[i] = in.getLong();
+        }
+        int records = in.getInt();
+        if (records < 0 || records > in.remaining() / 5) { // 5 bytes a cell
+            throw new IllegalArgumentException("The match snapshot is cut short");
+        }
+        p.cells = new int[records];
+        p.shown = new char[records];
+        for (int i = 0; i < records; i++) {
+            p.cells[i] = in.getInt();
+            p.shown[i] = (char) in.get();
+        }
+        return p;
+    }
+
+    /**
+     * This class is a match read back from a snapshot
+     */
+    public static class Saved {
+        public final long matchId;
+
+        /**
+         * The resume token of player1 and player2
+         */
+        public final String[] tokens;
+
+        public final int turns;
+
+        /**
+         * 0 if player1 plays the next turn, 1 if player2 does
+         */
+        public final int nextPlayer;
+
+        private final SavedPlayer player1;
+        private final SavedPlayer player2;
+
+        Saved(long matchId, String[] tokens, int turns, int nextPlayer, SavedPlayer player1, SavedPlayer player2) {
+            this.matchId = matchId;
+            this.tokens = tokens;
+            this.turns = turns;
+            this.nextPlayer = nextPlayer;
+            this.player1 = player1;
+            this.player2 = player2;
+        }
+
+        /**
+         * This rebuild both players of the match with their boards, talking over the given streams
+         *
+         * @return player1 and player2
+         * @throws IllegalArgumentException if a saved ship does not fit on its board any more
+         */
+        public TextPlayer[] restorePlayers(BufferedReader in1, PrintStream out1, BufferedReader in2, PrintStream out2, V2ShipFactory factory) {
+            TextPlayer first = player1.makePlayer(in1, out1, factory);
+            TextPlayer second = player2.makePlayer(in2, out2, factory);
+            player1.restoreShots(first.getBoard());
+            player2.restoreShots(second.getBoard());
+            if (first instanceof ComputerPlayer) {
+                ((ComputerPlayer) first).setFiringStrategy(player2.replayShots(second.getBoard(), first.shipsToPlace));
+            }
+            if (second instanceof ComputerPlayer) {
+                ((ComputerPlayer) second).setFiringStrategy(player1.replayShots(first.getBoard(), second.shipsToPlace));
+            }
+            return new TextPlayer[]{first, second};
+        }
+    }
+
+    /**
+     * This class is one player read back from a snapshot
+     */
+    private static class SavedPlayer {
+        final String name;
+        final boolean computer;
+        int moveCounts;
+        int scanCounts;
+        int width;
+        int height;
+        String[] types;
+        Placement[] placements;
+
+        /**
+         * The pieces hit of every ship, a bit per piece in the template's piece order
+         */
+        long[] hits;
+
+        /**
+         * The packed coordinates of the cells the enemy sees something at, and what
+         */
+        int[] cells;
+        char[] shown;
+
+        SavedPlayer(String name, boolean computer) {
+            this.name = name;
+            this.computer = computer;
+        }
+
+        /**
+         * This make the player with its ships on a new board
+         */
+        TextPlayer makePlayer(BufferedReader in, PrintStream out, V2ShipFactory factory) {
+            Board<Character> board = App.newBoard(width, height);
+            TextPlayer player = computer ? new ComputerPlayer(name, board, in, out, factory)
+                    : new TextPlayer(name, board, in, out, factory);
+            player.moveCounts = moveCounts;
+            player.scanCounts = scanCounts;
+            PlacementTable table = PlacementTable.forBoard(width, height);
+            for (int i = 0; i < types.length; i++) {
+                Ship<Character> ship = makeShip(factory, types[i], placements[i]);
+                Coordinate[] pieces = table.get(ShipTemplate.forName(types[i]), placements[i]).pieces;
+                for (int piece = 0; piece < pieces.length; piece++) {
+                    if ((hits[i] & (1L << piece)) != 0) {
+                        ship.recordHitAt(pieces[piece]);
+                    }
+                }
+                String res = board.tryAddShip(ship);
+                if (res != null) {
+                    throw new IllegalArgumentException("The saved " + types[i] + " at " + placements[i] + " cannot be placed: " + res);
+                }
+            }
+            return player;
+        }
+
+        /**
+         * This restore what the enemy sees of the board. A hit on a ship
+         * that has since moved away is shown by a one-piece stand-in.
+         */
+        void restoreShots(Board<Character> board) {
+            for (int i = 0; i < cells.length; i++) {
+                Coordinate c = Coordinate.of(cells[i]);
+                if (shown[i] == 'X') {
+                    board.restoreShot(c, null, true);
+                    continue;
+                }
+                Ship<Character> ship = board.getShipAt(c);
+                if (ship == null || !ship.wasHitAt(c) || ship.getDisplayInfoAt(c, false) != shown[i]) {
+                    ship = ghostShip(c, shown[i]);
+                }
+                board.restoreShot(c, ship, false);
+            }
+        }
+
+        /**
+         * This make the strategy of a computer firing at the board, see MatchSnapshot.replayShots
+         */
+        FiringStrategy replayShots(Board<Character> board, List<String> fleet) {
+            return MatchSnapshot.replayShots(board, cells, shown, fleet);
+        }
+    }
+
+    /**
+     * This make the strategy of a computer firing at a board, told every
+     * shot the enemy sees there, e.g. for a computer taking over a player
+     */
+    static FiringStrategy replayShots(Board<Character> board, List<String> fleet) {
+        int[] cells = board.getShotCells();
+        char[] shown = new char[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            shown[i] = board.whatIsAtForEnemy(Coordinate.of(cells[i]));
+        }
+        return replayShots(board, cells, shown, fleet);
+    }
+
+    /**
+     * This make the strategy of a computer firing at the board, told
+     * every shot the enemy sees. Hits are told first as if nothing was
+     * sunk, then once per sunk ship, so the strategy sees all of a sunk
+     * ship's hits when it is told the ship sank.
+     */
+    private static FiringStrategy replayShots(Board<Character> board, int[] cells, char[] shown, List<String> fleet) {
+        FiringStrategy strategy = ComputerPlayer.strategyFor(board.getWidth(), board.getHeight(), fleet, System.nanoTime());
+        IdentityHashMap<Ship<Character>, Coordinate> sunk = new IdentityHashMap<Ship<Character>, Coordinate>();
+        for (int i = 0; i < cells.length; i++) {
+            Coordinate c = Coordinate.of(cells[i]);
+            if (shown[i] == 'X') {
+                strategy.recordShot(c, null);
+                continue;
+            }
+            Ship<Character> ship = board.getShipAt(c);
+            if (ship != null && ship.isSunk()) {
+                sunk.put(ship, c);
+            }
+            int t = ShipTemplate.typeIndexOfLetter(shown[i]);
+            strategy.recordShot(c, new RectangleShip<Character>(t < 0 ? "" : ShipTemplate.TYPES[t].getName(), c, 1, 1, shown[i], '*')); // not sunk
+        }
+        for (Ship<Character> ship : sunk.keySet()) {
+            strategy.recordShot(sunk.get(ship), ship);
+        }
+        return strategy;
+    }
+
+    /**
+     * This make a ship of a type made by V2ShipFactory
+     */
+    static Ship<Character> makeShip(V2ShipFactory factory, String type, Placement p) {
+        switch (type) {
+            case "Submarine":
+                return factory.makeSubmarine(p);
+            case "Destroyer":
+                return factory.makeDestroyer(p);
+            case "Battleship":
+                return factory.makeBattleship(p);
+            default:
+                return factory.makeCarrier(p);
+        }
+    }
+
+    /**
+     * This make a one-piece ship hit at c, showing the enemy the given letter there
+     */
+    private static Ship<Character> ghostShip(Coordinate c, char letter) {
+        int t = ShipTemplate.typeIndexOfLetter(letter);
+        String name = t < 0 ? String.valueOf(letter) : ShipTemplate.TYPES[t].getName();
+        Ship<Character> ghost = new RectangleShip<Character>(name, c, 1, 1, letter, '*');
+        ghost.recordHitAt(c);
+        return ghost;
+    }
+}
@@ -0,0 +1,279 @@
+package battleship;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class queues incoming connections and starts their matches, in
+ * arrival order: two waiting players play each other, and a player left
+ * alone for computerAfterMillis plays a computer. At most maxMatches
+ * matches run at once, counting the resumed ones the server reports with
+ * matchResumed; beyond that, players wait in the queue
+ * and are told their position, on a check run every CHECK_MILLIS on the
+ * shared HashedWheelTimer, whenever it changed. Connections that are
+ * paired right away are told nothing.
+ */
+public class Matchmaker<S> {
+
+    /**
+     * The default bound of the matches running at once
+     */
+    public static final int DEFAULT_MAX_MATCHES = 10000;
+
+    /**
+     * The default time a player waits for a human opponent before playing a computer
+     */
+    public static final long DEFAULT_COMPUTER_AFTER_MILLIS = 30 * 1000;
+
+    /**
+     * How often the queue is checked for players to give a computer and positions to tell
+     */
+    public static final long CHECK_MILLIS = 250;
+
+    /**
+     * Where the matches are started and the waiting players are talked to, e.g. a game server
+     */
+    public interface Host<S> {
+        /**
+         * This start a match between two players; Matchmaker.matchEnded must be called once it ends
+         */
+        void startMatch(S first, S second);
+
+        /**
+         * This start a match between a player and a computer; Matchmaker.matchEnded must be called once it ends
+         */
+        void startComputerMatch(S player);
+
+        /**
+         * This tell a waiting player its position in the queue, 1 for the next to play
+         *
+         * @return false if the connection is gone, so it leaves the queue
+         */
+        boolean tellPosition(S player, int position);
+    }
+
+    /**
+     * A player waiting in the queue
+     */
+    private static class Waiting {
+        final long joinedNanos;
+
+        /**
+         * The position the player was last told, 0 if none
+         */
+        int told;
+
+        Waiting(long joinedNanos) {
+            this.joinedNanos = joinedNanos;
+            this.told = 0;
+        }
+    }
+
+    private final Host<S> host;
+
+    private final GameMetrics metrics;
+
+    private final HashedWheelTimer timer;
+
+    /**
+     * The waiting players in arrival order
+     */
+    private final LinkedHashMap<S, Waiting> queue;
+
+    private volatile int maxMatches;
+
+    private volatile long computerAfterMillis;
+
+    /**
+     * The matches started and not ended yet
+     */
+    private int running;
+
+    private volatile boolean closed;
+
+    /**
+     * Constructs a matchmaker with the default bounds, recording into the global metrics
+     */
+    public Matchmaker(Host<S> host) {
+        this(host, DEFAULT_MAX_MATCHES, DEFAULT_COMPUTER_AFTER_MILLIS, GameMetrics.GLOBAL, HashedWheelTimer.shared());
+    }
+
+    /**
+     * Constructs a matchmaker running at most maxMatches matches, starting
+     * computer matches after computerAfterMillis, 0 for never
+     */
+    public Matchmaker(Host<S> host, int maxMatches, long computerAfterMillis, GameMetrics metrics, HashedWheelTimer timer) {
+        this.host = host;
+        this.metrics = metrics;
+        this.timer = timer;
+        this.queue = new LinkedHashMap<S, Waiting>();
+        this.running = 0;
+        this.closed = false;
+        setMaxMatches(maxMatches);
+        setComputerAfterMillis(computerAfterMillis);
+        timer.schedule(this::check, CHECK_MILLIS);
+    }
+
+    /**
+     * This change the bound of the matches running at once
+     */
+    public void setMaxMatches(int maxMatches) {
+        if (maxMatches <= 0) {
+            throw new IllegalArgumentException("The maximum number of matches must be positive, but is " + maxMatches);
+        }
+        this.maxMatches = maxMatches;
+        dispatch();
+    }
+
+    /**
+     * This change how long a player waits for a human opponent, 0 to wait forever
+     */
+    public void setComputerAfterMillis(long computerAfterMillis) {
+        if (computerAfterMillis < 0) {
+            throw new IllegalArgumentException("The wait for a computer opponent cannot be negative, but is " + computerAfterMillis);
+        }
+        this.computerAfterMillis = computerAfterMillis;
+    }
+
+    /**
+     * This add a connection to the queue, starting its match if it can
+     */
+    public void join(S player) {
+        synchronized (this) {
+            queue.put(player, new Waiting(System.nanoTime()));
+        }
+        dispatch();
+    }
+
+    /**
+     * This remove a connection that disconnected before its match started
+     */
+    public synchronized void leave(S player) {
+        queue.remove(player);
+    }
+
+    /**
+     * This record that a saved match was resumed outside the queue: its
+     * players are already connected, so it starts even over the bound, and
+     * counts against it until matchEnded is called once it ends
+     */
+    public synchronized void matchResumed() {
+        running++;
+    }
+
+    /**
+     * This record that a match started here or resumed ended, so a waiting one can start
+     */
+    public void matchEnded() {
+        synchronized (this) {
+            running--;
+        }
+        dispatch();
+    }
+
+    /**
+     * This get the number of players waiting
+     */
+    public synchronized int getQueueLength() {
+        return queue.size();
+    }
+
+    /**
+     * This get the number of matches started here or resumed and running
+     */
+    public synchronized int getRunningMatches() {
+        return running;
+    }
+
+    /**
+     * This stop the periodic checks, the matches running are not touched
+     */
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * This make the line telling a waiting player its position
+     */
+    public static String positionLine(int position) {
+        return "You are number " + position + " in the queue for a match\n";
+    }
+
+    /**
+     * This start as many matches as the bound allows, outside the lock
+     */
+    private void dispatch() {
+        List<Runnable> starts = new ArrayList<Runnable>();
+        synchronized (this) {
+            long now = System.nanoTime();
+            long computerAfterNanos = computerAfterMillis * 1000000;
+            Iterator<Map.Entry<S, Waiting>> it = queue.entrySet().iterator();
+            while (running < maxMatches && it.hasNext()) {
+                Map.Entry<S, Waiting> first = it.next();
+                if (queue.size() >= 2) {
+                    it.remove();
+                    Map.Entry<S, Waiting> second = it.next();
+                    it.remove();
+                    metrics.pairing.record(now - first.getValue().joinedNanos);
+                    metrics.pairing.record(now - second.getValue().joinedNanos);
+                    S p1 = first.getKey();
+                    S p2 = second.getKey();
+                    starts.add(() -> host.startMatch(p1, p2));
+                }
+                else if (computerAfterNanos > 0 && now - first.getValue().joinedNanos >= computerAfterNanos) {
+                    it.remove();
+                    metrics.pairing.record(now - first.getValue().joinedNanos);
+                    metrics.computerMatches.increment();
+                    S p = first.getKey();
+                    starts.add(() -> host.startComputerMatch(p));
+                }
+                else {
+                    break;
+                }
+                running++;
+            }
+        }
+        for (Runnable start : starts) {
+            start.run();
+        }
+    }
+
+    /**
+     * This start the matches that can start, e.g. against a computer, and
+     * tell the waiting players whose position changed where they are
+     */
+    private void check() {
+        if (closed) {
+            return;
+        }
+        try {
+            dispatch();
+            List<S> players = new ArrayList<S>();
+            List<Integer> positions = new ArrayList<Integer>();
+            synchronized (this) {
+                long now = System.nanoTime();
+                int position = 0;
+                for (Map.Entry<S, Waiting> e : queue.entrySet()) {
+                    position++;
+                    Waiting w = e.getValue();
+                    if (w.told != position && now - w.joinedNanos >= CHECK_MILLIS * 1000000) {
+                        w.told = position;
+                        players.add(e.getKey());
+                        positions.add(position);
+                    }
+                }
+            }
+            for (int i = 0; i < players.size(); i++) {
+                if (!host.tellPosition(players.get(i), positions.get(i))) {
+                    leave(players.get(i));
+                }
+            }
+        }
+        finally {
+            timer.schedule(this::check, CHECK_MILLIS);
+        }
+    }
+}
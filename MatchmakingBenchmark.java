@@ -0,0 +1,133 @@
+package battleship;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class is a stress test of the Matchmaker: thousands of simulated
+ * players arrive at random (Poisson) times, every match lasts a random
+ * (exponential) time, at most maxMatches run at once, and a few players
+ * give up waiting. It reports how long players waited for their match,
+ * the matches against a computer and the position lines sent.
+ *
+ * Usage: MatchmakingBenchmark [arrivals] [arrivals per second] [max matches] [mean match millis] [computer after millis]
+ */
+public class MatchmakingBenchmark {
+
+    /**
+     * The share of the players who leave the queue before their match starts, if it has not
+     */
+    private static final double LEAVING = 0.01;
+
+    /**
+     * The simulated server: matches are timers ending after a random time
+     */
+    private static class Host implements Matchmaker.Host<Integer> {
+        final long[] joined;
+        final long[] waited;
+        final AtomicInteger started;
+        final AtomicInteger computerMatches;
+        final AtomicInteger positionLines;
+        final ScheduledExecutorService ends;
+        final long meanMatchMillis;
+        Matchmaker<Integer> matchmaker;
+
+        Host(int arrivals, long meanMatchMillis) {
+            this.joined = new long[arrivals];
+            this.waited = new long[arrivals];
+            Arrays.fill(waited, -1);
+            this.started = new AtomicInteger();
+            this.computerMatches = new AtomicInteger();
+            this.positionLines = new AtomicInteger();
+            this.ends = Executors.newScheduledThreadPool(2);
+            this.meanMatchMillis = meanMatchMillis;
+        }
+
+        private void play(int player) {
+            waited[player] = System.nanoTime() - joined[player];
+            started.incrementAndGet();
+        }
+
+        private void end() {
+            long millis = (long) (-Math.log(1 - Math.random()) * meanMatchMillis);
+            ends.schedule(() -> matchmaker.matchEnded(), millis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void startMatch(Integer first, Integer second) {
+            play(first);
+            play(second);
+            end();
+        }
+
+        @Override
+        public void startComputerMatch(Integer player) {
+            play(player);
+            computerMatches.incrementAndGet();
+            end();
+        }
+
+        @Override
+        public boolean tellPosition(Integer player, int position) {
+            positionLines.incrementAndGet();
+            return true;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int arrivals = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        double rate = args.length > 1 ? Double.parseDouble(args[1]) : 2000;
+        int maxMatches = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        long meanMatchMillis = args.length > 3 ? Long.parseLong(args[3]) : 150;
+        long computerAfterMillis = args.length > 4 ? Long.parseLong(args[4]) : 500;
+        Host host = new Host(arrivals, meanMatchMillis);
+        GameMetrics metrics = new GameMetrics();
+        HashedWheelTimer timer = new HashedWheelTimer("matchmaking-benchmark", 10, 512);
+        Matchmaker<Integer> matchmaker = new Matchmaker<Integer>(host, maxMatches, computerAfterMillis, metrics, timer);
+        host.matchmaker = matchmaker;
+        Random random = new Random(42);
+        long start = System.nanoTime();
+        long next = start;
+        for (int i = 0; i < arrivals; i++) {
+            next += (long) (-Math.log(1 - random.nextDouble()) / rate * 1e9);
+            LockSupport.parkNanos(next - System.nanoTime());
+            host.joined[i] = System.nanoTime();
+            matchmaker.join(i);
+            if (random.nextDouble() < LEAVING) { // gives up waiting after up to a second
+                int player = i;
+                host.ends.schedule(() -> matchmaker.leave(player), random.nextInt(1000), TimeUnit.MILLISECONDS);
+            }
+        }
+        long arrived = System.nanoTime() - start;
+        while (matchmaker.getQueueLength() > 0 || matchmaker.getRunningMatches() > 0) {
+            Thread.sleep(10);
+        }
+        host.ends.shutdown();
+        matchmaker.close();
+
+        long[] waits = Arrays.stream(host.waited).filter(w -> w >= 0).sorted().toArray();
+        System.out.println(String.format("arrivals %d in %.2f s (%.0f/s), max matches %d, mean match %d ms, computer after %d ms",
+                arrivals, arrived / 1e9, arrivals / (arrived / 1e9), maxMatches, meanMatchMillis, computerAfterMillis));
+        System.out.println(String.format("players matched %d, left %d, computer matches %d, position lines %d",
+                host.started.get(), arrivals - host.started.get(), host.computerMatches.get(), host.positionLines.get()));
+        System.out.println(String.format("pairing latency ms: p50 %.2f p90 %.2f p99 %.2f p99.9 %.2f max %.2f",
+                percentile(waits, 50), percentile(waits, 90), percentile(waits, 99), percentile(waits, 99.9),
+                waits.length == 0 ? 0 : waits[waits.length - 1] / 1e6));
+    }
+
+    /**
+     * This get a percentile of sorted nanoseconds, in milliseconds
+     */
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int i = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(i, sorted.length - 1))] / 1e6;
+    }
+}
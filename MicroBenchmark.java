@@ -0,0 +1,173 @@
+package battleship;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * This class is a small benchmark harness: it warms an operation up,
+ * then times it and measures the bytes it allocates on the calling thread.
+ */
+public class MicroBenchmark {
+
+    /**
+     * Keeps the results of measured operations alive so the JIT cannot drop them
+     */
+    private static volatile int sink;
+
+    /**
+     * The measurement of one benchmarked operation
+     */
+    public static class Result {
+        public final String name;
+        public final double nanosPerOp;
+        public final double bytesPerOp;
+        public final long ops;
+
+        /**
+         * The parameters the operation was measured with, e.g. board size, in insertion order
+         */
+        public final Map<String, String> params;
+
+        Result(String name, double nanosPerOp, double bytesPerOp, long ops) {
+            this(name, nanosPerOp, bytesPerOp, ops, new LinkedHashMap<String, String>());
+        }
+
+        Result(String name, double nanosPerOp, double bytesPerOp, long ops, Map<String, String> params) {
+            this.name = name;
+            this.nanosPerOp = nanosPerOp;
+            this.bytesPerOp = bytesPerOp;
+            this.ops = ops;
+            this.params = params;
+        }
+
+        /**
+         * This get the same result recorded under the given parameters
+         */
+        public Result withParams(Map<String, String> params) {
+            return new Result(name, nanosPerOp, bytesPerOp, ops, new LinkedHashMap<String, String>(params));
+        }
+
+        /**
+         * This transforms the result to a JSON object laid out like a JMH result,
+         * so the usual JMH result viewers and regression scripts can read it
+         */
+        public String toJson() {
+            StringBuilder ans = new StringBuilder();
+            ans.append("{\"benchmark\":").append(quote(name));
+            ans.append(",\"mode\":\"avgt\",\"measurementIterations\":").append(ops);
+            ans.append(",\"params\":{");
+            String sep = "";
+            for (Map.Entry<String, String> e : params.entrySet()) {
+                ans.append(sep).append(quote(e.getKey())).append(":").append(quote(e.getValue()));
+                sep = ",";
+            }
+            ans.append("},\"primaryMetric\":{\"score\":").append(number(nanosPerOp)).append(",\"scoreUnit\":\"ns/op\"}");
+            ans.append(",\"secondaryMetrics\":{\"gc.alloc.rate.norm\":{\"score\":").append(number(bytesPerOp));
+            ans.append(",\"scoreUnit\":\"B/op\"}}}");
+            return ans.toString();
+        }
+
+        /**
+         * This transforms the result to a report line
+         */
+        @Override
+        public String toString() {
+            return String.format("%-48s %12.1f ns/op %12.1f B/op", name, nanosPerOp, bytesPerOp);
+        }
+    }
+
+    /**
+     * This measure an operation, running it opsPerIteration times per iteration
+     *
+     * @param warmups is the number of iterations run before measuring
+     * @param iterations is the number of measured iterations
+     */
+    public static Result run(String name, int warmups, int iterations, int opsPerIteration, Supplier<Object> op) {
+        for (int i = 0; i < warmups; i++) {
+            loop(op, opsPerIteration);
+        }
+        long bytesBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            loop(op, opsPerIteration);
+        }
+        long elapsed = System.nanoTime() - start;
+        long bytes = allocatedBytes() - bytesBefore;
+        long ops = (long) iterations * opsPerIteration;
+        return new Result(name, (double) elapsed / ops, bytesBefore < 0 ? Double.NaN : (double) bytes / ops, ops);
+    }
+
+    /**
+     * This transforms results to a JSON array
+     */
+    public static String toJson(List<Result> results) {
+        StringBuilder ans = new StringBuilder("[\n");
+        for (int i = 0; i < results.size(); i++) {
+            ans.append("  ").append(results.get(i).toJson()).append(i < results.size() - 1 ? ",\n" : "\n");
+        }
+        ans.append("]\n");
+        return ans.toString();
+    }
+
+    /**
+     * This write results to a JSON file
+     */
+    public static void writeJson(String path, List<Result> results) throws IOException {
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(path), StandardCharsets.UTF_8)) {
+            out.write(toJson(results));
+        }
+    }
+
+    private static String quote(String s) {
+        StringBuilder ans = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                ans.append('\\').append(c);
+            }
+            else if (c < ' ') {
+                ans.append(String.format("\\u%04x", (int) c));
+            }
+            else {
+                ans.append(c);
+            }
+        }
+        return ans.append('"').toString();
+    }
+
+    /**
+     * JSON has no NaN, a measure the JVM could not take is null
+     */
+    private static String number(double d) {
+        return Double.isNaN(d) || Double.isInfinite(d) ? "null" : String.valueOf(d);
+    }
+
+    private static void loop(Supplier<Object> op, int n) {
+        int s = 0;
+        for (int i = 0; i < n; i++) {
+            if (op.get() != null) {
+                s++;
+            }
+        }
+        sink += s;
+    }
+
+    /**
+     * This get the bytes allocated so far by the calling thread, -1 if the JVM cannot tell
+     */
+    public static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
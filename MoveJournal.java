@@ -0,0 +1,358 @@
+package battleship;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class records everything that happens to the two boards of a
+ * match in an append-only file: every ship placed, every shot with its
+ * result, every ship moved and every sonar scan with its radius and
+ * counts, so the match can be audited and replayed (see JournalReplay).
+ * It listens to both boards; scans do not change a board, so players
+ * report them.
+ * Records are collected in a buffer that is written out at the end of
+ * every turn, or when full, and every open journal is forced to disk
+ * once every SYNC_MILLIS by one shared thread instead of on every write.
+ * A journal belongs to one match thread. A match saved in a
+ * SnapshotStore marks every save in its journal, so the journal of a
+ * resumed match goes on from the turn it was saved at, see resume.
+ *
+ * Every record is a short length (of the type and the payload), a type
+ * byte, and the payload; boards are 0 for player A and 1 for player B,
+ * ships are a type index (see MatchSnapshot) and a placement.
+ */
+public class MoveJournal implements AutoCloseable {
+
+    /**
+     * The first record of a journal: magic, version, width, height
+     */
+    public static final byte HEADER = 0;
+
+    /**
+     * A ship placed: board, type, orientation, row, column
+     */
+    public static final byte SHIP_ADDED = 1;
+
+    /**
+     * A shot: board fired at, row, column, type of the ship hit or -1 for a miss, 1 for a new hit
+     */
+    public static final byte FIRE = 2;
+
+    /**
+     * A ship moved: board, type, old orientation, row, column, new orientation, row, column
+     */
+    public static final byte MOVE = 3;
+
+    /**
+     * A sonar scan: board scanned, row, column, radius, squares of each ship type found
+     */
+    public static final byte SCAN = 4;
+
+    /**
+     * The end of the match: the winner, 0 for A and 1 for B
+     */
+    public static final byte END = 5;
+
+    /**
+     * The match was saved, see MatchSnapshot: the turn saved
+     */
+    public static final byte SAVED = 6;
+
+    /**
+     * The first bytes of every journal, "BSJL"
+     */
+    public static final int MAGIC = 0x42534a4c;
+
+    public static final byte VERSION = 2;
+
+    /**
+     * How often the open journals are forced to disk
+     */
+    public static final long SYNC_MILLIS = 1000;
+
+    /**
+     * The journals forced to disk by the sync thread
+     */
+    private static final Set<MoveJournal> OPEN = ConcurrentHashMap.newKeySet();
+
+    private static ScheduledExecutorService syncer;
+
+    private final FileChannel channel;
+
+    /**
+     * The records not yet written to the file
+     */
+    private final ByteBuffer buffer;
+
+    private final int width;
+    private final int height;
+
+    /**
+     * The boards watched, by index
+     */
+    private final Board<?>[] boards;
+
+    /**
+     * The listeners recording the changes of the boards, by index
+     */
+    private final Recorder[] recorders;
+
+    /**
+     * The placement of every ship recorded so far
+     */
+    private final IdentityHashMap<Ship<Character>, PlacementTable.Entry> placements;
+
+    /**
+     * Constructs a journal appending to the file, which starts with a header if new
+     */
+    public MoveJournal(File file, int width, int height) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.buffer = ByteBuffer.allocate(8 * 1024);
+        this.width = width;
+        this.height = height;
+        this.boards = new Board<?>[2];
+        this.recorders = new Recorder[2];
+        this.placements = new IdentityHashMap<Ship<Character>, PlacementTable.Entry>();
+        if (channel.size() == 0) {
+            start(HEADER, 9);
+            buffer.putInt(MAGIC);
+            buffer.put(VERSION);
+            buffer.putShort((short) width);
+            buffer.putShort((short) height);
+        }
+        OPEN.add(this);
+        startSyncer();
+    }
+
+    /**
+     * This reopen the journal of a saved match to go on from the turn it
+     * was saved at: what was recorded after that save, e.g. a turn cut
+     * short when a connection dropped, is cut off, since the match plays
+     * it again. A journal that did not record that save, e.g. a new one,
+     * is appended to as is.
+     *
+     * @param turn is the turn of the snapshot the match resumes from
+     */
+    public static MoveJournal resume(File file, int width, int height, int turn) throws IOException {
+        if (file.exists()) {
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+            long end = -1;
+            while (in.remaining() >= 3) {
+                int length = in.getShort();
+                if (length < 1 || length > in.remaining()) { // the last record was cut short by a crash
+                    break;
+                }
+                int next = in.position() + length;
+                if (in.get() == SAVED && length == 5 && in.getInt() == turn) {
+                    end = next; // the last save of the turn, an earlier resume may have saved it again
+                }
+                in.position(next);
+            }
+            if (end >= 0) {
+                try (FileChannel out = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                    out.truncate(end);
+                }
+            }
+        }
+        return new MoveJournal(file, width, height);
+    }
+
+    private static synchronized void startSyncer() {
+        if (syncer != null) {
+            return;
+        }
+        syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "journal-sync");
+            t.setDaemon(true);
+            return t;
+        });
+        syncer.scheduleWithFixedDelay(() -> {
+            for (MoveJournal j : OPEN) {
+                try {
+                    j.channel.force(false);
+                }
+                catch (IOException e) {
+                    // closed meanwhile
+                }
+            }
+        }, SYNC_MILLIS, SYNC_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * This record every change to a player's board from now on
+     *
+     * @param player is 0 for player A, 1 for player B
+     */
+    public void watch(int player, Board<Character> board) {
+        boards[player] = board;
+        recorders[player] = new Recorder(player);
+        board.addListener(recorders[player]);
+    }
+
+    /**
+     * This stop recording the changes to both boards and write what is pending
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void close() throws IOException {
+        for (int i = 0; i < boards.length; i++) {
+            if (boards[i] != null) {
+                ((Board<Character>) boards[i]).removeListener(recorders[i]);
+            }
+        }
+        OPEN.remove(this);
+        flush();
+        channel.close();
+    }
+
+    /**
+     * This write the records collected so far to the file, e.g. at the end of a turn
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * This record a sonar scan of a watched board
+     *
+     * @param radius is the radius of the scan, see ScanEngine
+     * @param counts is the squares of submarines, destroyers, battleships and carriers found
+     */
+    public void recordScan(Board<Character> scanned, Coordinate center, int radius, int[] counts) {
+        start(SCAN, 1 + 4 + 2 + 2 * counts.length);
+        buffer.put((byte) indexOf(scanned));
+        buffer.putShort((short) center.getRow());
+        buffer.putShort((short) center.getColumn());
+        buffer.putShort((short) radius);
+        for (int c : counts) {
+            buffer.putShort((short) c);
+        }
+    }
+
+    /**
+     * This record that the match was saved, writing it out at once so the
+     * journal has it before the snapshot can be on disk
+     *
+     * @param turn is the turn of the snapshot, see MatchSnapshot
+     */
+    public void recordSaved(int turn) {
+        start(SAVED, 4);
+        buffer.putInt(turn);
+        try {
+            flush();
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Cannot write the move journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * This record the winner of the match
+     *
+     * @param winner is 0 for player A, 1 for player B
+     */
+    public void recordEnd(int winner) {
+        start(END, 1);
+        buffer.put((byte) winner);
+    }
+
+    private int indexOf(Board<?> board) {
+        if (board == boards[0]) {
+            return 0;
+        }
+        if (board == boards[1]) {
+            return 1;
+        }
+        throw new IllegalArgumentException("The board is not watched by this journal");
+    }
+
+    /**
+     * This start a record, writing the buffer out first if it has no room
+     */
+    private void start(byte type, int payload) {
+        if (buffer.remaining() < 3 + payload) {
+            try {
+                flush();
+            }
+            catch (IOException e) {
+                throw new IllegalStateException("Cannot write the move journal: " + e.getMessage());
+            }
+        }
+        buffer.putShort((short) (1 + payload));
+        buffer.put(type);
+    }
+
+    private PlacementTable.Entry placementOf(Ship<Character> ship) {
+        PlacementTable.Entry e = placements.get(ship);
+        if (e == null) {
+            e = PlacementTable.forBoard(width, height).find(ShipTemplate.forName(ship.getName()), ship);
+            if (e == null) {
+                throw new IllegalArgumentException("The " + ship.getName() + " does not have the shape of its type");
+            }
+            placements.put(ship, e);
+        }
+        return e;
+    }
+
+    private void putPlacement(Placement p) {
+        buffer.put((byte) p.getOrientation());
+        buffer.putShort((short) p.getWhere().getRow());
+        buffer.putShort((short) p.getWhere().getColumn());
+    }
+
+    /**
+     * This class records the changes of one board
+     */
+    private class Recorder implements BoardListener<Character> {
+        private final byte board;
+
+        Recorder(int board) {
+            this.board = (byte) board;
+        }
+
+        @Override
+        public void onShipAdded(Ship<Character> ship) {
+            PlacementTable.Entry e = placementOf(ship);
+            start(SHIP_ADDED, 2 + 5);
+            buffer.put(board);
+            buffer.put((byte) MatchSnapshot.typeIndex(ship.getName()));
+            putPlacement(e.placement);
+        }
+
+        @Override
+        public void onFire(Coordinate where, Ship<Character> target, boolean newHit) {
+            start(FIRE, 1 + 4 + 2);
+            buffer.put(board);
+            buffer.putShort((short) where.getRow());
+            buffer.putShort((short) where.getColumn());
+            buffer.put((byte) (target == null ? -1 : MatchSnapshot.typeIndex(target.getName())));
+            buffer.put((byte) (newHit ? 1 : 0));
+        }
+
+        @Override
+        public void onShipMoved(Ship<Character> oldShip, Ship<Character> newShip) {
+            PlacementTable.Entry from = placementOf(oldShip);
+            PlacementTable.Entry to = placementOf(newShip);
+            placements.remove(oldShip);
+            start(MOVE, 2 + 5 + 5);
+            buffer.put(board);
+            buffer.put((byte) MatchSnapshot.typeIndex(oldShip.getName()));
+            putPlacement(from.placement);
+            putPlacement(to.placement);
+        }
+    }
+}
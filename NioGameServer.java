@@ -0,0 +1,522 @@
+package battleship;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class is a selector based game server: a single thread accepts,
+ * reads and writes every client socket, and watches new connections for
+ * the resume line; incoming connections are queued in the Matchmaker,
+ * and each match only runs game logic over in-memory streams. The game
+ * logic (App, TextPlayer) reads its players' input as blocking lines, so
+ * a running match holds one thread of the match pool, waiting on its
+ * NioSession's inbound buffer between lines: one thread per match, not
+ * per player or per socket, and no thread for a connection still in the
+ * queue. The pool is bounded by the match budget, see setMaxMatches.
+ * A client sending faster than its match reads is not read until the
+ * match catches up, see NioSession.
+ */
+public class NioGameServer implements Runnable {
+
+    /**
+     * The size of the buffer used to read from clients
+     */
+    private static final int READ_BUFFER_SIZE = 4096;
+
+    /**
+     * The port the server listens on
+     */
+    private final int port;
+
+    /**
+     * The selector multiplexing all the client channels
+     */
+    private final Selector selector;
+
+    /**
+     * The listening channel
+     */
+    private final ServerSocketChannel serverChannel;
+
+    /**
+     * The sessions that have new output or asked to be closed
+     */
+    private final ConcurrentLinkedQueue<NioSession> pendingWrites;
+
+    /**
+     * The queue starting the matches of incoming connections
+     */
+    private final Matchmaker<NioSession> matchmaker;
+
+    /**
+     * The threads running the matches, at most the match budget; matches
+     * started beyond it, e.g. while the budget is lowered, wait for a thread
+     */
+    private final ThreadPoolExecutor matchExecutor;
+
+    /**
+     * The connections whose time to send the resume line is over, for the selector thread
+     */
+    private final ConcurrentLinkedQueue<NioSession> expiredGreetings;
+
+    /**
+     * The number of matches currently running
+     */
+    private final AtomicInteger activeMatches;
+
+    /**
+     * Whether the server is still running
+     */
+    private volatile boolean running;
+
+    /**
+     * Whether the matches send board changes instead of rendered boards
+     */
+    private final boolean deltaProtocol;
+
+    /**
+     * Where the matches are saved after every turn, null if they are not
+     */
+    private final SnapshotStore store;
+
+    /**
+     * The saved matches waiting for their players to reconnect
+     */
+    private final ResumeRegistry<NioSession> registry;
+
+    /**
+     * The directory where the matches record their moves, null if they do not
+     */
+    private volatile File journalDirectory;
+
+    /**
+     * How long the players of the matches started from now on may take, null if they have all the time
+     */
+    private volatile TurnLimit turnLimit;
+
+    /**
+     * The size of the boards of the matches started from now on
+     */
+    private volatile int boardWidth = App.WIDTH;
+    private volatile int boardHeight = App.HEIGHT;
+
+    /**
+     * The radius of the sonar scans of the players of the matches started from now on
+     */
+    private volatile int scanRadius = ScanEngine.DEFAULT_RADIUS;
+
+    /**
+     * Constructs a server listening on the given port
+     */
+    public NioGameServer(int port) throws IOException {
+        this(port, false);
+    }
+
+    /**
+     * Constructs a server listening on the given port, whose matches use the
+     * delta protocol (see BoardDeltaWriter) if deltaProtocol is true
+     */
+    public NioGameServer(int port, boolean deltaProtocol) throws IOException {
+        this(port, deltaProtocol, null);
+    }
+
+    /**
+     * Constructs a server whose matches are saved after every turn into the
+     * store, if not null, and can be resumed when a connection drops
+     */
+    public NioGameServer(int port, boolean deltaProtocol, SnapshotStore store) throws IOException {
+        this.deltaProtocol = deltaProtocol;
+        this.store = store;
+        this.registry = new ResumeRegistry<NioSession>(store);
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.configureBlocking(false);
+        this.serverChannel.socket().setReuseAddress(true);
+        this.serverChannel.bind(new InetSocketAddress(port), 1024);
+        this.serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        this.port = serverChannel.socket().getLocalPort();
+        this.pendingWrites = new ConcurrentLinkedQueue<NioSession>();
+        this.matchExecutor = new ThreadPoolExecutor(Matchmaker.DEFAULT_MAX_MATCHES, Matchmaker.DEFAULT_MAX_MATCHES,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+        this.matchExecutor.allowCoreThreadTimeOut(true); // threads are made as matches start and end when idle
+        this.expiredGreetings = new ConcurrentLinkedQueue<NioSession>();
+        this.matchmaker = new Matchmaker<NioSession>(new Host());
+        this.activeMatches = new AtomicInteger(0);
+        this.running = true;
+    }
+
+    /**
+     * This get the port the server is actually bound to
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * This get the number of matches currently running
+     */
+    public int getActiveMatches() {
+        return activeMatches.get();
+    }
+
+    /**
+     * This get the queue starting the matches, e.g. to change how long a
+     * player waits for a computer; the match budget is set with setMaxMatches
+     */
+    public Matchmaker<NioSession> getMatchmaker() {
+        return matchmaker;
+    }
+
+    /**
+     * This change the bound of the matches running at once, and of the threads running them
+     */
+    public void setMaxMatches(int maxMatches) {
+        matchmaker.setMaxMatches(maxMatches);
+        if (maxMatches > matchExecutor.getMaximumPoolSize()) { // the core size cannot exceed the maximum
+            matchExecutor.setMaximumPoolSize(maxMatches);
+            matchExecutor.setCorePoolSize(maxMatches);
+        }
+        else {
+            matchExecutor.setCorePoolSize(maxMatches);
+            matchExecutor.setMaximumPoolSize(maxMatches);
+        }
+    }
+
+    /**
+     * This record every move of the matches started from now on in a journal in the directory, see MoveJournal
+     */
+    public void setJournalDirectory(File journalDirectory) {
+        this.journalDirectory = journalDirectory;
+    }
+
+    /**
+     * This time the players of the matches started from now on, see TurnLimit; null for no limit
+     */
+    public void setTurnLimit(TurnLimit turnLimit) {
+        this.turnLimit = turnLimit;
+    }
+
+    /**
+     * This change the size of the boards of the matches started from now on, see Match.setBoardSize
+     */
+    public void setBoardSize(int width, int height) {
+        Match.checkBoardSize(width, height);
+        this.boardWidth = width;
+        this.boardHeight = height;
+    }
+
+    /**
+     * This change the radius of the sonar scans of the players of the matches started from now on, see Match.setScanRadius
+     */
+    public void setScanRadius(int scanRadius) {
+        Match.checkScanRadius(scanRadius);
+        this.scanRadius = scanRadius;
+    }
+
+    /**
+     * This make saved matches, e.g. recovered from the store after a crash,
+     * wait for their players to reconnect
+     */
+    public void offerResumes(Map<Long, byte[]> snapshots) {
+        registry.offerAll(snapshots);
+    }
+
+    /**
+     * This ask the selector thread to write the output of a session, and
+     * to update what it waits for on the channel, see NioSession.interestOps
+     */
+    void requestWrite(NioSession session) {
+        pendingWrites.add(session);
+        selector.wakeup();
+    }
+
+    /**
+     * This stop the server and close the listening channel
+     */
+    public void shutdown() {
+        running = false;
+        matchmaker.close();
+        selector.wakeup();
+    }
+
+    /**
+     * This run the selector loop until the server is shut down
+     */
+    @Override
+    public void run() {
+        ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        try {
+            while (running) {
+                selector.select();
+                processPendingWrites();
+                processExpiredGreetings();
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    NioSession session = (NioSession) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            read(session, readBuffer);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            write(session);
+                        }
+                    }
+                    catch (IOException e) { // connection reset or broken pipe
+                        dropSession(session);
+                    }
+                }
+            }
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+        }
+        finally {
+            try {
+                serverChannel.close();
+                selector.close();
+            }
+            catch (IOException e) {
+                e.printStackTrace();
+            }
+            matchExecutor.shutdownNow();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            channel.socket().setKeepAlive(true); // a client gone without closing is eventually reset
+            NioSession session = new NioSession(channel, this);
+            session.setKey(channel.register(selector, SelectionKey.OP_READ, session));
+            if (registry.isEmpty()) {
+                matchmaker.join(session);
+            }
+            else { // the client may send the resume line, read as it arrives; no thread waits for it
+                session.greeting = HashedWheelTimer.shared().schedule(() -> {
+                    expiredGreetings.add(session);
+                    selector.wakeup();
+                }, ResumeRegistry.GRACE_MILLIS);
+            }
+        }
+    }
+
+    private void processExpiredGreetings() {
+        NioSession session;
+        while ((session = expiredGreetings.poll()) != null) {
+            if (session.greeting != null) {
+                greet(session, true);
+            }
+        }
+    }
+
+    /**
+     * This bring a connection back to its saved match once it sent the
+     * resume line, or queue it for a match once it sent anything else or
+     * its time is over; called by the selector thread
+     */
+    private void greet(NioSession session, boolean timedOut) {
+        String line = session.pollResumeLine();
+        if (line == null && !timedOut) { // wait for the rest of the line
+            return;
+        }
+        session.greeting.cancel();
+        session.greeting = null;
+        if (line == null || line == NioSession.NOT_RESUME) {
+            matchmaker.join(session);
+            return;
+        }
+        try {
+            ResumeRegistry.Resume<NioSession> resume = registry.attach(line, session);
+            if (resume != null) {
+                matchmaker.matchResumed();
+                startMatch(resume.first, resume.second, resume.snapshot);
+            }
+        }
+        catch (IllegalArgumentException e) {
+            new PrintStream(session.getOutputStream(), true).println(e.getMessage());
+            session.close();
+        }
+    }
+
+    private void read(NioSession session, ByteBuffer readBuffer) throws IOException {
+        readBuffer.clear();
+        int n = session.getChannel().read(readBuffer);
+        if (n < 0) { // client closed its side
+            dropSession(session);
+            return;
+        }
+        if (n > 0) {
+            readBuffer.flip();
+            byte[] data = new byte[n];
+            readBuffer.get(data);
+            if (!session.deliver(data)) { // no player sends such a line
+                dropSession(session);
+                return;
+            }
+            if (session.interestOps() != session.getKey().interestOps()) { // the inbound buffer is full
+                session.getKey().interestOps(session.interestOps());
+            }
+            if (session.greeting != null) {
+                greet(session, false);
+            }
+        }
+    }
+
+    private void write(NioSession session) throws IOException {
+        if (session.flushOutbound()) {
+            if (session.isClosing()) {
+                closeSession(session);
+                return;
+            }
+            session.getKey().interestOps(session.interestOps()); // nothing left, stop waiting for writability
+        }
+    }
+
+    private void processPendingWrites() {
+        NioSession session;
+        while ((session = pendingWrites.poll()) != null) {
+            SelectionKey key = session.getKey();
+            if (key == null || !key.isValid()) {
+                continue;
+            }
+            try {
+                write(session);
+                if (key.isValid()) {
+                    key.interestOps(session.interestOps());
+                }
+            }
+            catch (IOException e) {
+                dropSession(session);
+            }
+        }
+    }
+
+    /**
+     * This close a connection that is gone, taking it out of the queue and
+     * of any match waiting to be resumed, so nothing is paired with it
+     */
+    private void dropSession(NioSession session) {
+        matchmaker.leave(session);
+        registry.leave(session);
+        closeSession(session);
+    }
+
+    private void closeSession(NioSession session) {
+        if (session.greeting != null) {
+            session.greeting.cancel();
+            session.greeting = null;
+        }
+        session.endOfInput();
+        session.discardOutput();
+        SelectionKey key = session.getKey();
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            session.getChannel().close();
+        }
+        catch (IOException e) {
+            // already closed
+        }
+    }
+
+    /**
+     * This play a match, or resume it from its snapshot if not null; a
+     * match between a client and a computer if second is null. The
+     * matchmaker counts the match, and is told when it ends
+     */
+    private void startMatch(final NioSession first, final NioSession second, final byte[] snapshot) {
+        activeMatches.incrementAndGet();
+        matchExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Match match = second == null
+                            ? Match.againstComputer(first.getInputStream(), first.getOutputStream(), deltaProtocol, GameMetrics.GLOBAL)
+                            : new Match(first.getInputStream(), first.getOutputStream(),
+                            second.getInputStream(), second.getOutputStream(), deltaProtocol, GameMetrics.GLOBAL,
+                            store, store == null ? null : registry);
+                    match.setJournalDirectory(journalDirectory);
+                    match.setBoardSize(boardWidth, boardHeight);
+                    match.setScanRadius(scanRadius);
+                    TurnLimit limit = turnLimit;
+                    if (limit != null) { // a player out of time reads end of input
+                        match.setTurnLimit(limit, first::endOfInput, second == null ? () -> { } : second::endOfInput);
+                    }
+                    if (snapshot == null) {
+                        match.play();
+                    }
+                    else {
+                        match.resume(snapshot);
+                    }
+                }
+                catch (IOException e) {
+                    // a player left, the match is over
+                }
+                finally {
+                    activeMatches.decrementAndGet();
+                    matchmaker.matchEnded();
+                    first.close();
+                    if (second != null) {
+                        second.close();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * This class starts the matches of the matchmaker and tells the waiting clients their position
+     */
+    private class Host implements Matchmaker.Host<NioSession> {
+        @Override
+        public void startMatch(NioSession first, NioSession second) {
+            NioGameServer.this.startMatch(first, second, null);
+        }
+
+        @Override
+        public void startComputerMatch(NioSession player) {
+            NioGameServer.this.startMatch(player, null, null);
+        }
+
+        @Override
+        public boolean tellPosition(NioSession player, int position) {
+            if (player.isClosing()) {
+                return false;
+            }
+            try {
+                player.getOutputStream().write(Matchmaker.positionLine(position).getBytes(StandardCharsets.US_ASCII));
+                return true;
+            }
+            catch (IOException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,446 @@
+package battleship;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * This class represents one client connection of the NIO game server.
+ * The selector thread is the only one touching the channel: it pushes
+ * received bytes into the inbound buffer and drains the outbound queue,
+ * while the match logic sees plain blocking streams. A match thread
+ * reading input waits on the inbound buffer, never on the socket. The
+ * outbound queue is bounded by an OutboundLimit, and the selector writes
+ * everything queued in one gathering write. The inbound buffer is bounded
+ * too: past MAX_INBOUND bytes the selector stops reading the channel until
+ * the match catches up, and a line longer than MAX_INPUT_LINE ends the
+ * connection.
+ */
+public class NioSession {
+
+    /**
+     * The most bytes received and not yet read by the match before the
+     * selector stops reading the channel, reading again once half are read
+     */
+    static final int MAX_INBOUND = 16 * 1024;
+
+    /**
+     * The longest line a client may send, far more than any answer of a player
+     */
+    static final int MAX_INPUT_LINE = 1024;
+
+    /**
+     * The channel of the client
+     */
+    private final SocketChannel channel;
+
+    /**
+     * The server owning the selector of this session
+     */
+    private final NioGameServer server;
+
+    /**
+     * The bytes received from the client but not yet read by the match
+     */
+    private final ArrayDeque<byte[]> inbound;
+
+    /**
+     * The read offset in the first inbound chunk
+     */
+    private int inboundOffset;
+
+    /**
+     * The number of bytes in the inbound buffer not yet read
+     */
+    private int inboundBytes;
+
+    /**
+     * Whether the selector stopped reading the channel because the inbound buffer is full
+     */
+    private volatile boolean readPaused;
+
+    /**
+     * The length of the last line received so far, used by the selector thread only
+     */
+    private int lineLength;
+
+    /**
+     * The buffers waiting to be written to the client
+     */
+    private final ConcurrentLinkedQueue<ByteBuffer> outbound;
+
+    /**
+     * The bound of the bytes in the outbound queue
+     */
+    private final OutboundLimit outboundLimit;
+
+    /**
+     * The buffers handed to one gathering write, used by the selector thread only
+     */
+    private final ByteBuffer[] gather;
+
+    /**
+     * The stream the match reads player input from
+     */
+    private final InputStream inputStream;
+
+    /**
+     * The stream the match writes player output to
+     */
+    private final OutputStream outputStream;
+
+    /**
+     * The selection key of the channel, set once registered
+     */
+    private SelectionKey key;
+
+    /**
+     * Whether the client has closed its side or the connection failed
+     */
+    private volatile boolean inputClosed;
+
+    /**
+     * Whether the match asked to close the session once output is drained
+     */
+    private volatile boolean closing;
+
+    /**
+     * The end of the time the client has to send the resume line, null
+     * once it sent it or anything else; used by the selector thread only
+     */
+    HashedWheelTimer.Timeout greeting;
+
+    /**
+     * What pollResumeLine returns when the client did not send a resume line
+     */
+    static final String NOT_RESUME = "";
+
+    /**
+     * Constructs a session on an accepted channel
+     */
+    public NioSession(SocketChannel channel, NioGameServer server) {
+        this.channel = channel;
+        this.server = server;
+        this.inbound = new ArrayDeque<byte[]>();
+        this.inboundOffset = 0;
+        this.inboundBytes = 0;
+        this.readPaused = false;
+        this.lineLength = 0;
+        this.outbound = new ConcurrentLinkedQueue<ByteBuffer>();
+        this.outboundLimit = new OutboundLimit();
+        this.gather = new ByteBuffer[16];
+        this.inputStream = new SessionInputStream();
+        this.outputStream = new SessionOutputStream();
+        this.inputClosed = false;
+        this.closing = false;
+    }
+
+    public SocketChannel getChannel() {
+        return channel;
+    }
+
+    public SelectionKey getKey() {
+        return key;
+    }
+
+    public void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    /**
+     * This get the stream of bytes sent by the client
+     */
+    public InputStream getInputStream() {
+        return inputStream;
+    }
+
+    /**
+     * This get the stream of bytes to send to the client
+     */
+    public OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    /**
+     * This check whether the session should be closed by the selector
+     */
+    public boolean isClosing() {
+        return closing;
+    }
+
+    /**
+     * This ask the selector to close the session after pending output is written
+     */
+    public void close() {
+        closing = true;
+        server.requestWrite(this);
+    }
+
+    /**
+     * This add received bytes to the inbound buffer, called by the selector
+     * thread, which stops reading the channel once it is full (see interestOps)
+     *
+     * @return false if the bytes make a line longer than MAX_INPUT_LINE, and were not added
+     */
+    boolean deliver(byte[] data) {
+        for (byte b : data) {
+            lineLength = b == '\n' ? 0 : lineLength + 1;
+            if (lineLength > MAX_INPUT_LINE) {
+                return false;
+            }
+        }
+        synchronized (inbound) {
+            inbound.addLast(data);
+            inboundBytes += data.length;
+            if (inboundBytes >= MAX_INBOUND) {
+                readPaused = true;
+            }
+            inbound.notifyAll();
+        }
+        return true;
+    }
+
+    /**
+     * This count bytes read from the inbound buffer, asking the selector to
+     * read the channel again once half of a full buffer is read; the caller
+     * holds the inbound lock
+     */
+    private void consumed(int n) {
+        inboundBytes -= n;
+        if (readPaused && inboundBytes <= MAX_INBOUND / 2) {
+            readPaused = false;
+            server.requestWrite(this);
+        }
+    }
+
+    /**
+     * This get the operations the selector should wait for on the channel:
+     * reading unless the inbound buffer is full, writing if output is pending
+     */
+    int interestOps() {
+        return (readPaused ? 0 : SelectionKey.OP_READ) | (hasPendingOutput() ? SelectionKey.OP_WRITE : 0);
+    }
+
+    /**
+     * This drop the pending output of a closed connection, called by the selector thread
+     */
+    void discardOutput() {
+        outbound.clear();
+        outboundLimit.close();
+    }
+
+    /**
+     * This give up on a client that stopped reading: the match sees the
+     * input end and the channel is closed without writing what is pending
+     */
+    private void abort() {
+        closing = true;
+        endOfInput();
+        outboundLimit.close();
+        try {
+            channel.close(); // the selector drops the key on its next select
+        }
+        catch (IOException e) {
+            // already closed
+        }
+        server.requestWrite(this);
+    }
+
+    /**
+     * This mark the input as finished, called by the selector thread, or
+     * by a TurnDeadline to wake a match waiting for a player out of time
+     */
+    void endOfInput() {
+        synchronized (inbound) {
+            inputClosed = true;
+            inbound.notifyAll();
+        }
+    }
+
+    /**
+     * This look for the resume line (see ResumeRegistry) at the start of
+     * the input without waiting, taking it if it is complete and leaving
+     * the input untouched otherwise
+     *
+     * @return the line, NOT_RESUME if the client sent anything else or closed its side, null if more input may complete it
+     */
+    String pollResumeLine() {
+        String prefix = ResumeRegistry.PREFIX;
+        synchronized (inbound) {
+            byte[] seen = peekInbound(ResumeRegistry.MAX_LINE);
+            for (int i = 0; i < seen.length; i++) {
+                if (i < prefix.length() && seen[i] != prefix.charAt(i)) { // not a resume line
+                    return NOT_RESUME;
+                }
+                if (seen[i] == '\n') {
+                    skipInbound(i + 1);
+                    return new String(seen, 0, i + 1, StandardCharsets.US_ASCII).trim();
+                }
+            }
+            return seen.length == ResumeRegistry.MAX_LINE || inputClosed ? NOT_RESUME : null;
+        }
+    }
+
+    /**
+     * This copy up to max of the bytes not read yet, without reading them; the caller holds the inbound lock
+     */
+    private byte[] peekInbound(int max) {
+        byte[] seen = new byte[max];
+        int n = 0;
+        int offset = inboundOffset;
+        for (byte[] chunk : inbound) {
+            int take = Math.min(max - n, chunk.length - offset);
+            System.arraycopy(chunk, offset, seen, n, take);
+            n += take;
+            offset = 0;
+            if (n == max) {
+                break;
+            }
+        }
+        return Arrays.copyOf(seen, n);
+    }
+
+    /**
+     * This drop the next n bytes not read yet; the caller holds the inbound lock
+     */
+    private void skipInbound(int n) {
+        while (n > 0) {
+            byte[] chunk = inbound.peekFirst();
+            int take = Math.min(n, chunk.length - inboundOffset);
+            inboundOffset += take;
+            consumed(take);
+            n -= take;
+            if (inboundOffset == chunk.length) {
+                inbound.pollFirst();
+                inboundOffset = 0;
+            }
+        }
+    }
+
+    /**
+     * This check whether there is output waiting to be written
+     */
+    boolean hasPendingOutput() {
+        return !outbound.isEmpty();
+    }
+
+    /**
+     * This write as much pending output as the channel accepts, every
+     * queued buffer in one gathering write, called by the selector thread
+     *
+     * @return true if all pending output has been written
+     */
+    boolean flushOutbound() throws IOException {
+        while (true) {
+            int n = 0;
+            for (ByteBuffer buf : outbound) {
+                gather[n++] = buf;
+                if (n == gather.length) {
+                    break;
+                }
+            }
+            if (n == 0) {
+                return true;
+            }
+            try {
+                channel.write(gather, 0, n);
+                for (int i = 0; i < n; i++) {
+                    if (gather[i].hasRemaining()) { // socket buffer full, wait for OP_WRITE
+                        return false;
+                    }
+                    outbound.poll();
+                    outboundLimit.release(gather[i].capacity());
+                }
+            }
+            finally {
+                Arrays.fill(gather, 0, n, null);
+            }
+        }
+    }
+
+    /**
+     * The input stream the match blocks on, fed by the selector thread
+     */
+    private class SessionInputStream extends InputStream {
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n < 0 ? -1 : (one[0] & 0xff);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            synchronized (inbound) {
+                while (inbound.isEmpty()) {
+                    if (inputClosed) {
+                        return -1;
+                    }
+                    try {
+                        inbound.wait();
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new java.io.InterruptedIOException();
+                    }
+                }
+                byte[] chunk = inbound.peekFirst();
+                int n = Math.min(len, chunk.length - inboundOffset);
+                System.arraycopy(chunk, inboundOffset, b, off, n);
+                inboundOffset += n;
+                consumed(n);
+                if (inboundOffset == chunk.length) { // chunk consumed
+                    inbound.pollFirst();
+                    inboundOffset = 0;
+                }
+                return n;
+            }
+        }
+
+        @Override
+        public int available() {
+            synchronized (inbound) {
+                byte[] chunk = inbound.peekFirst();
+                return chunk == null ? 0 : chunk.length - inboundOffset;
+            }
+        }
+    }
+
+    /**
+     * The output stream the match writes to, drained by the selector thread
+     */
+    private class SessionOutputStream extends OutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0 || closing) {
+                return;
+            }
+            try {
+                outboundLimit.reserve(len);
+            }
+            catch (IOException e) {
+                abort();
+                throw e;
+            }
+            byte[] copy = new byte[len];
+            System.arraycopy(b, off, copy, 0, len);
+            outbound.add(ByteBuffer.wrap(copy));
+            server.requestWrite(NioSession.this);
+        }
+    }
+}
@@ -14,10 +14,25 @@ public class NoCollisionRuleChecker<T> extends PlacementRuleChecker<T> {
      */
     @Override
     protected String checkMyRule(Ship<T> theShip, Board<T> theBoard) {
+        if (theBoard instanceof BitboardBoard) { // one AND per word of the occupancy bitboard
+            if (((BitboardBoard<T>) theBoard).collides(theShip)) {
+                return PlacementViolation.OVERLAP.getMessage();
+            }
+            return null;
+        }
         Iterable<Coordinate> shipSet = theShip.getCoordinates();
+        if (theBoard instanceof OccupancyIndex) { // a cell lookup instead of a scan over the ships
+            OccupancyIndex occupied = (OccupancyIndex) theBoard;
+            for (Coordinate c: shipSet) {
+                if (occupied.isOccupied(c.getRow(), c.getColumn())) {
+                    return PlacementViolation.OVERLAP.getMessage();
+                }
+            }
+            return null;
+        }
         for (Coordinate c: shipSet) {
             if (theBoard.whatIsAtForSelf(c) != null) {
-                return "That placement is invalid: the ship overlaps another ship.";
+                return PlacementViolation.OVERLAP.getMessage();
             }
         }
         return null;
@@ -0,0 +1,15 @@
+package battleship;
+
+/**
+ * This interface is implemented by boards that can tell in O(1) whether
+ * a cell holds a ship, so placement rules need not scan every ship.
+ */
+public interface OccupancyIndex {
+
+    /**
+     * This check whether a ship covers a cell
+     *
+     * @return false for a cell off the board
+     */
+    public boolean isOccupied(int row, int column);
+}
@@ -0,0 +1,109 @@
+package battleship;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * This class bounds the output queued for one client and not yet taken by
+ * its socket. A match writing to a client that stopped reading waits
+ * once HIGH_WATER bytes are pending, and gives up on the client after
+ * STALL_MILLIS, so the opponent's turn is held up for a bounded time and
+ * the queue does not grow without end.
+ */
+public class OutboundLimit {
+
+    /**
+     * The bytes that may be pending before writers wait, many turns of rendered boards
+     */
+    public static final int HIGH_WATER = 256 * 1024;
+
+    /**
+     * How long a writer waits for the client to read before giving up on it
+     */
+    public static final long STALL_MILLIS = 10 * 1000;
+
+    private final int highWater;
+
+    private final long stallMillis;
+
+    /**
+     * The bytes queued and not yet written to the socket
+     */
+    private long pending;
+
+    /**
+     * Whether the connection is closed, so nothing will be released anymore
+     */
+    private boolean closed;
+
+    /**
+     * Constructs a limit of HIGH_WATER bytes, waiting at most STALL_MILLIS
+     */
+    public OutboundLimit() {
+        this(HIGH_WATER, STALL_MILLIS);
+    }
+
+    /**
+     * Constructs a limit of highWater bytes, waiting at most stallMillis
+     */
+    public OutboundLimit(int highWater, long stallMillis) {
+        if (highWater <= 0 || stallMillis <= 0) {
+            throw new IllegalArgumentException("The high water mark and the stall time must be positive, but are "
+                    + highWater + " and " + stallMillis);
+        }
+        this.highWater = highWater;
+        this.stallMillis = stallMillis;
+        this.pending = 0;
+        this.closed = false;
+    }
+
+    /**
+     * This count bytes about to be queued, waiting while the queue is over
+     * the high water mark; a batch larger than the mark waits for an empty queue
+     *
+     * @throws IOException if the client did not read for stallMillis or the connection closed
+     */
+    public synchronized void reserve(int bytes) throws IOException {
+        long deadline = System.currentTimeMillis() + stallMillis;
+        while (!closed && pending > 0 && pending + bytes > highWater) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0) {
+                throw new IOException("The client did not read its output for " + stallMillis + " ms");
+            }
+            try {
+                wait(left);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+        if (closed) {
+            throw new IOException("The connection is closed");
+        }
+        pending += bytes;
+    }
+
+    /**
+     * This count bytes written to the socket, waking the writers waiting for room
+     */
+    public synchronized void release(int bytes) {
+        pending -= bytes;
+        notifyAll();
+    }
+
+    /**
+     * This wake the writers waiting for room, since the connection is gone
+     */
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    /**
+     * This get the bytes queued and not yet written to the socket
+     */
+    public synchronized long getPending() {
+        return pending;
+    }
+}
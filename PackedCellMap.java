@@ -0,0 +1,212 @@
+package battleship;
+
+import java.util.Arrays;
+
+/**
+ * This class maps board cells, as packed coordinates (see
+ * Coordinate.pack), to values. The keys and values are kept in two
+ * arrays with open addressing and linear probing, so an entry costs a
+ * slot of an int array and of a reference array instead of a map node, a
+ * boxed key and a Coordinate; removing shifts the following entries back
+ * instead of leaving tombstones. Null values cannot be stored.
+ */
+public class PackedCellMap<V> {
+
+    /**
+     * The key of an empty slot, the packed coordinate of no cell on a board
+     */
+    private static final int EMPTY = -1;
+
+    /**
+     * The capacity of a new map, a power of two
+     */
+    private static final int MIN_CAPACITY = 16;
+
+    /**
+     * The packed coordinate in every slot, EMPTY if the slot is free
+     */
+    private int[] keys;
+
+    /**
+     * The value of the key in the same slot
+     */
+    private Object[] values;
+
+    /**
+     * The number of entries
+     */
+    private int size;
+
+    /**
+     * The number of entries beyond which the arrays double, half the slots,
+     * so a lookup of a cell not in the map, the usual one, stops after a few slots
+     */
+    private int limit;
+
+    /**
+     * The shift taking a hash to a slot, 32 less the bits of the capacity
+     */
+    private int shift;
+
+    /**
+     * Constructs an empty map
+     */
+    public PackedCellMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new Object[capacity];
+        limit = capacity / 2;
+        shift = 32 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    /**
+     * This get the slot a key is looked for from
+     */
+    private int slotOf(int key) {
+        return (key * 0x9E3779B9) >>> shift; // Fibonacci hashing
+    }
+
+    /**
+     * This find the slot of a key
+     *
+     * @return the slot, -1 if the key is not in the map
+     */
+    private int find(int key) {
+        int mask = keys.length - 1;
+        for (int i = slotOf(key); ; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return i;
+            }
+            if (keys[i] == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * This get the value of a packed coordinate
+     *
+     * @return the value, null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int i = find(key);
+        return i < 0 ? null : (V) values[i];
+    }
+
+    /**
+     * This set the value of a packed coordinate
+     *
+     * @return the value it replaced, null if there was none
+     * @throws IllegalArgumentException if the key is not the packed coordinate of a cell on a board or the value is null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (key < 0 || value == null) {
+            throw new IllegalArgumentException("PackedCellMap's keys must be cells of a board and its values not null, but are "
+                    + key + " and " + value);
+        }
+        int mask = keys.length - 1;
+        int i = slotOf(key);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                Object old = values[i];
+                values[i] = value;
+                return (V) old;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > limit) {
+            grow();
+        }
+        return null;
+    }
+
+    /**
+     * This remove the value of a packed coordinate
+     *
+     * @return the value removed, null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int i = find(key);
+        if (i < 0) {
+            return null;
+        }
+        Object old = values[i];
+        int mask = keys.length - 1;
+        for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) { // move back the entries probed past i
+            int home = slotOf(keys[j]);
+            if (((j - home) & mask) >= ((j - i) & mask)) { // the slot i is on its probe path
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        keys[i] = EMPTY;
+        values[i] = null;
+        size--;
+        return (V) old;
+    }
+
+    /**
+     * This get every key in the map, in no particular order
+     */
+    public int[] keys() {
+        int[] all = new int[size];
+        int n = 0;
+        for (int key : keys) {
+            if (key != EMPTY) {
+                all[n++] = key;
+            }
+        }
+        return all;
+    }
+
+    /**
+     * This remove every entry, keeping the arrays
+     */
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * This double the arrays and put every entry again
+     */
+    private void grow() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != EMPTY) {
+                int i = slotOf(oldKeys[j]);
+                while (keys[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+}
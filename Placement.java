@@ -48,26 +48,18 @@ public class Placement {
      * @throws IllegalArgumentException if the coordinate or orientation is invaild.
      */
     public Placement(String descr) {
-        if (descr.length() != 3) { // descr should be a string of length 3
+        if (descr.length() < 3) { // descr should be a coordinate and an orientation letter
             throw new IllegalArgumentException("That placement is invalid: it does not have the correct format.");
         }
 
-        // check the row coordinate in this placement
-        char row = descr.charAt(0);
-        char rowUp = Character.toUpperCase(row);
-        if (rowUp < 'A' || rowUp > 'Z') {
-            throw new IllegalArgumentException("That placement is invalid: it does not have the correct format.");
+        // check the coordinate in this placement, every letter but the last
+        try {
+            where = new Coordinate(descr.substring(0, descr.length() - 1));
         }
-
-        // check the column coordinate in this placement
-        char column = descr.charAt(1);
-        if (column < '0' || column> '9') {
-            throw new IllegalArgumentException("That placement is invalid: it does not have the correct format.");
+        catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(e.getMessage().replace("That coordinate", "That placement"));
         }
-
-        String coDescr = descr.substring(0, 2); // coordinate letters at index 0 and 1
-        where = new Coordinate(coDescr);
-        char orletter = descr.charAt(2); // orientation letter at index 2
+        char orletter = descr.charAt(descr.length() - 1); // orientation letter at the end
 
         // check the orientation in this placement
         char oUp = Character.toUpperCase(orletter); // turn orientation letter to upper case
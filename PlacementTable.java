@@ -0,0 +1,244 @@
+package battleship;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class lists, for one board size, every placement of every ship
+ * shape: the coordinates of its pieces, the board cells it covers as a
+ * mask and the side of the board it goes off, if it does not fit. Tables
+ * are built once per board size and shape and shared, so making a ship
+ * and checking its placement is a lookup plus a bitwise collision test
+ * instead of building and walking a set of coordinates.
+ * A large board (see SparseBattleShipBoard.isLarge) is not tabled: its
+ * entries are made when asked for, have no mask, since a mask of every
+ * cell would grow with the board, and it has no list of fitting ones.
+ */
+public class PlacementTable {
+
+    /**
+     * The most board sizes whose tables are kept; making one more drops
+     * another, which the boards and ships already using it keep
+     */
+    public static final int MAX_TABLES = 16;
+
+    /**
+     * The tables kept, by board size
+     */
+    private static final ConcurrentHashMap<Long, PlacementTable> TABLES = new ConcurrentHashMap<Long, PlacementTable>();
+
+    /**
+     * One placement of a ship shape; callers must not modify its arrays or mask
+     */
+    public static class Entry {
+        public final ShipTemplate template;
+        public final Placement placement;
+
+        /**
+         * The coordinates of the pieces, in the template's piece order
+         */
+        public final Coordinate[] pieces;
+
+        /**
+         * The cell index (row * width + column) of every piece, -1 for a piece off the board
+         */
+        public final int[] cells;
+
+        /**
+         * The board cells covered by the pieces on the board, null on a large board
+         */
+        public final BitMask mask;
+
+        /**
+         * The side of the board the first piece off the board goes off, null if it fits the board
+         */
+        public final PlacementViolation outOfBounds;
+
+        Entry(ShipTemplate template, Placement placement, Coordinate[] pieces, int[] cells, BitMask mask, PlacementViolation outOfBounds) {
+            this.template = template;
+            this.placement = placement;
+            this.pieces = pieces;
+            this.cells = cells;
+            this.mask = mask;
+            this.outOfBounds = outOfBounds;
+        }
+
+        public boolean fits() {
+            return outOfBounds == null;
+        }
+
+        /**
+         * This check whether the placement overlaps the occupied cells of a board of the table's size
+         *
+         * @throws NullPointerException on a large board, whose entries have no mask
+         */
+        public boolean collides(BitMask occupancy) {
+            return mask.intersects(occupancy);
+        }
+    }
+
+    private final int width;
+    private final int height;
+
+    /**
+     * For every shape, the entries by orientation index and anchor cell
+     */
+    private final ConcurrentHashMap<ShipTemplate, Entry[][]> entries;
+
+    /**
+     * For every shape, the entries that fit the board, by orientation then anchor
+     */
+    private final ConcurrentHashMap<ShipTemplate, List<Entry>> fitting;
+
+    private PlacementTable(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.entries = new ConcurrentHashMap<ShipTemplate, Entry[][]>();
+        this.fitting = new ConcurrentHashMap<ShipTemplate, List<Entry>>();
+    }
+
+    /**
+     * This get the shared table of a board size, making it if it is not kept
+     */
+    public static PlacementTable forBoard(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("PlacementTable's width and height must be positive but is " + width + " by " + height);
+        }
+        long size = ((long) width << 32) | height;
+        PlacementTable table = TABLES.get(size);
+        if (table != null) {
+            return table;
+        }
+        Iterator<Long> kept = TABLES.keySet().iterator();
+        while (TABLES.size() >= MAX_TABLES && kept.hasNext()) { // drop any other size
+            kept.next();
+            kept.remove();
+        }
+        return TABLES.computeIfAbsent(size, k -> new PlacementTable(width, height));
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * This get the entry of a placement of a shape
+     *
+     * @throws IllegalArgumentException if the shape does not accept the orientation
+     */
+    public Entry get(ShipTemplate template, Placement p) {
+        int o = template.orientationIndex(p.getOrientation());
+        if (o < 0) {
+            throw new IllegalArgumentException("Invaild orientation: " + p.getOrientation());
+        }
+        int row = p.getWhere().getRow();
+        int column = p.getWhere().getColumn();
+        if (row < 0 || row >= height || column < 0 || column >= width // anchors off the board are not tabled
+                || SparseBattleShipBoard.isLarge(width, height)) {
+            return makeEntry(template, o, row, column);
+        }
+        return entriesOf(template)[o][row * width + column];
+    }
+
+    /**
+     * This get every placement of a shape that fits the board, by orientation then anchor
+     *
+     * @throws IllegalStateException if the board is large
+     */
+    public List<Entry> fitting(ShipTemplate template) {
+        if (SparseBattleShipBoard.isLarge(width, height)) {
+            throw new IllegalStateException("A " + width + "x" + height + " board is too large to list every placement");
+        }
+        List<Entry> list = fitting.get(template);
+        if (list == null) {
+            ArrayList<Entry> all = new ArrayList<Entry>();
+            for (Entry[] byAnchor : entriesOf(template)) {
+                for (Entry e : byAnchor) {
+                    if (e.fits()) {
+                        all.add(e);
+                    }
+                }
+            }
+            list = Collections.unmodifiableList(all);
+            fitting.putIfAbsent(template, list);
+        }
+        return list;
+    }
+
+    /**
+     * This find the placement of a shape that covers exactly the cells of a ship
+     *
+     * @return the entry, null if no placement of the shape covers the ship
+     */
+    public Entry find(ShipTemplate template, Ship<?> ship) {
+        int minRow = Integer.MAX_VALUE;
+        int minColumn = Integer.MAX_VALUE;
+        for (Coordinate c : ship.getCoordinates()) {
+            minRow = Math.min(minRow, c.getRow());
+            minColumn = Math.min(minColumn, c.getColumn());
+        }
+        char[] orientations = template.getOrientations();
+        for (int o = 0; o < orientations.length; o++) {
+            int rowOffset = Integer.MAX_VALUE;
+            int columnOffset = Integer.MAX_VALUE;
+            for (int i = 0; i < template.size(); i++) { // the anchor is the ship's corner less the shape's
+                rowOffset = Math.min(rowOffset, template.rowOffset(o, i));
+                columnOffset = Math.min(columnOffset, template.columnOffset(o, i));
+            }
+            Entry e = get(template, new Placement(Coordinate.of(minRow - rowOffset, minColumn - columnOffset), orientations[o]));
+            boolean covers = true;
+            for (int i = 0; i < e.pieces.length && covers; i++) {
+                covers = ship.occupiesCoordinates(e.pieces[i]);
+            }
+            if (covers) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    private Entry[][] entriesOf(ShipTemplate template) {
+        Entry[][] table = entries.get(template);
+        if (table == null) { // two threads may both build it, either result is the same
+            char[] orientations = template.getOrientations();
+            table = new Entry[orientations.length][width * height];
+            for (int o = 0; o < orientations.length; o++) {
+                for (int anchor = 0; anchor < width * height; anchor++) {
+                    table[o][anchor] = makeEntry(template, o, anchor / width, anchor % width);
+                }
+            }
+            entries.putIfAbsent(template, table);
+        }
+        return table;
+    }
+
+    private Entry makeEntry(ShipTemplate template, int o, int row, int column) {
+        Placement p = new Placement(Coordinate.of(row, column), template.getOrientations()[o]);
+        Coordinate[] pieces = template.cells(p);
+        int[] cells = new int[pieces.length];
+        BitMask mask = SparseBattleShipBoard.isLarge(width, height) ? null : new BitMask(width * height);
+        PlacementViolation outOfBounds = null;
+        for (int i = 0; i < pieces.length; i++) {
+            PlacementViolation v = PlacementViolation.outOfBounds(pieces[i].getRow(), pieces[i].getColumn(), width, height);
+            if (v != null) {
+                cells[i] = -1;
+                if (outOfBounds == null) { // the checkers report the first piece off the board
+                    outOfBounds = v;
+                }
+                continue;
+            }
+            cells[i] = pieces[i].getRow() * width + pieces[i].getColumn();
+            if (mask != null) {
+                mask.set(cells[i]);
+            }
+        }
+        return new Entry(template, p, pieces, cells, mask, outOfBounds);
+    }
+}
@@ -0,0 +1,49 @@
+package battleship;
+
+/**
+ * This enum lists why a ship cannot be placed, so callers can tell the
+ * reasons apart without comparing message strings. The messages are
+ * what the rule checkers show the player.
+ */
+public enum PlacementViolation {
+    OFF_TOP("That placement is invalid: the ship goes off the top of the board."),
+    OFF_BOTTOM("That placement is invalid: the ship goes off the bottom of the board."),
+    OFF_LEFT("That placement is invalid: the ship goes off the left of the board."),
+    OFF_RIGHT("That placement is invalid: the ship goes off the right of the board."),
+    OVERLAP("That placement is invalid: the ship overlaps another ship."),
+    ADJACENT("That placement is invalid: the ship touches another ship.");
+
+    /**
+     * The message shown to the player
+     */
+    private final String message;
+
+    PlacementViolation(String message) {
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * This check a cell is on a board of the given size
+     *
+     * @return null if it is, the side it goes off otherwise
+     */
+    public static PlacementViolation outOfBounds(int row, int column, int width, int height) {
+        if (row < 0) {
+            return OFF_TOP;
+        }
+        if (row >= height) {
+            return OFF_BOTTOM;
+        }
+        if (column < 0) {
+            return OFF_LEFT;
+        }
+        if (column >= width) {
+            return OFF_RIGHT;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,235 @@
+package battleship;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This class fires where an enemy ship is most likely to be. Every turn
+ * it counts, for every cell not fired at yet, the legal placements of
+ * the ships still afloat that cover it, and fires at the cell covered
+ * most. While a hit has not been explained by a sunk ship (target mode)
+ * only placements through hits count, weighted by the hits they cover.
+ * The placements of every ship shape come from the shared PlacementTable,
+ * so a turn is a pass over a few thousand short int arrays.
+ */
+public class ProbabilityDensityStrategy implements FiringStrategy {
+
+    private static final byte UNKNOWN = 0;
+    private static final byte MISS = 1;
+
+    /**
+     * A hit not yet explained by a sunk ship
+     */
+    private static final byte HIT = 2;
+
+    /**
+     * A hit on a ship known to be sunk
+     */
+    private static final byte SUNK = 3;
+
+    private final int width;
+    private final int height;
+
+    /**
+     * What is known of every cell, by row * width + column
+     */
+    private final byte[] cells;
+
+    /**
+     * The distinct ship types of the enemy fleet
+     */
+    private final String[] types;
+
+    /**
+     * The number of ships of each type still afloat
+     */
+    private final int[] remaining;
+
+    /**
+     * For each type, the cells of each placement that fits on the board
+     */
+    private final int[][][] placements;
+
+    /**
+     * The number of placements covering each cell, rebuilt every turn
+     */
+    private final int[] heat;
+
+    /**
+     * The number of cells in state HIT
+     */
+    private int unexplainedHits;
+
+    /**
+     * Breaks ties between equally likely cells
+     */
+    private final Random random;
+
+    /**
+     * Constructs a strategy against the given fleet on a board of the given size
+     *
+     * @param fleet is the name of every enemy ship, e.g. "Submarine" twice for two submarines
+     * @throws IllegalArgumentException if a ship name has no ShipTemplate
+     */
+    public ProbabilityDensityStrategy(int width, int height, List<String> fleet, long seed) {
+        this.width = width;
+        this.height = height;
+        this.cells = new byte[width * height];
+        this.heat = new int[width * height];
+        ArrayList<String> distinct = new ArrayList<String>();
+        for (String name : fleet) {
+            if (!distinct.contains(name)) {
+                distinct.add(name);
+            }
+        }
+        this.types = distinct.toArray(new String[0]);
+        this.remaining = new int[types.length];
+        this.placements = new int[types.length][][];
+        for (int t = 0; t < types.length; t++) {
+            for (String name : fleet) {
+                if (name.equals(types[t])) {
+                    remaining[t] += 1;
+                }
+            }
+            placements[t] = listPlacements(ShipTemplate.forName(types[t]));
+        }
+        this.unexplainedHits = 0;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * This list the cells of every placement of a ship shape that fits on the board
+     */
+    private int[][] listPlacements(ShipTemplate template) {
+        List<PlacementTable.Entry> fitting = PlacementTable.forBoard(width, height).fitting(template);
+        int[][] all = new int[fitting.size()][];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = fitting.get(i).cells;
+        }
+        return all;
+    }
+
+    @Override
+    public Coordinate nextShot() {
+        int cell = densest(unexplainedHits > 0);
+        if (cell < 0 && unexplainedHits > 0) { // no ship fits the hits, hunt instead
+            cell = densest(false);
+        }
+        if (cell < 0) { // no ship fits anywhere, fire at any cell left
+            for (int i = 0; i < cells.length && cell < 0; i++) {
+                if (cells[i] == UNKNOWN) {
+                    cell = i;
+                }
+            }
+        }
+        if (cell < 0) { // every cell has been fired at
+            cell = random.nextInt(cells.length);
+        }
+        return Coordinate.of(cell / width, cell % width);
+    }
+
+    /**
+     * This count the placements covering every unknown cell and pick the cell covered most
+     *
+     * @param targeting is true to count only the placements through hits
+     * @return the cell, -1 if no placement fits
+     */
+    private int densest(boolean targeting) {
+        Arrays.fill(heat, 0);
+        for (int t = 0; t < types.length; t++) {
+            if (remaining[t] == 0) {
+                continue;
+            }
+            for (int[] p : placements[t]) {
+                int hits = 0;
+                boolean open = true;
+                for (int i = 0; i < p.length && open; i++) {
+                    byte state = cells[p[i]];
+                    open = state != MISS && state != SUNK;
+                    if (state == HIT) {
+                        hits++;
+                    }
+                }
+                if (!open || (targeting && hits == 0)) {
+                    continue;
+                }
+                int weight = remaining[t] * (targeting ? hits * hits : 1); // lines of hits pull hardest
+                for (int cell : p) {
+                    if (cells[cell] == UNKNOWN) {
+                        heat[cell] += weight;
+                    }
+                }
+            }
+        }
+        int best = -1;
+        int ties = 0;
+        for (int cell = 0; cell < heat.length; cell++) {
+            if (heat[cell] == 0) {
+                continue;
+            }
+            if (best < 0 || heat[cell] > heat[best]) {
+                best = cell;
+                ties = 1;
+            }
+            else if (heat[cell] == heat[best] && random.nextInt(++ties) == 0) { // uniform among the ties
+                best = cell;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public void recordShot(Coordinate where, Ship<Character> target) {
+        int row = where.getRow();
+        int column = where.getColumn();
+        if (row < 0 || row >= height || column < 0 || column >= width) {
+            return;
+        }
+        int cell = row * width + column;
+        if (target == null) {
+            if (cells[cell] == HIT) { // the ship has moved away
+                unexplainedHits -= 1;
+            }
+            cells[cell] = MISS;
+            return;
+        }
+        if (cells[cell] == UNKNOWN || cells[cell] == MISS) {
+            cells[cell] = HIT;
+            unexplainedHits += 1;
+        }
+        if (target.isSunk()) {
+            int t = Arrays.asList(types).indexOf(target.getName());
+            if (t >= 0 && remaining[t] > 0) {
+                remaining[t] -= 1;
+                markSunk(t, cell);
+            }
+        }
+    }
+
+    /**
+     * This mark as sunk the hits of a placement of the sunk ship through the cell
+     */
+    private void markSunk(int t, int cell) {
+        for (int[] p : placements[t]) {
+            boolean through = false;
+            boolean allHit = true;
+            for (int i = 0; i < p.length && allHit; i++) {
+                through |= p[i] == cell;
+                allHit = cells[p[i]] == HIT;
+            }
+            if (through && allHit) {
+                for (int c : p) {
+                    cells[c] = SUNK;
+                }
+                unexplainedHits -= p.length;
+                return;
+            }
+        }
+        if (cells[cell] == HIT) { // the hits do not match the shape, the ship must have moved
+            cells[cell] = SUNK;
+            unexplainedHits -= 1;
+        }
+    }
+}
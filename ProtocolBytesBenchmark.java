@@ -0,0 +1,129 @@
+package battleship;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * This class measures the bytes sent to the clients per game and per turn,
+ * with rendered boards and with the delta protocol, by playing the same
+ * scripted game in memory in both modes. It also counts the writes that
+ * reach the connection, each one a send syscall, and estimates the TCP
+ * segments they take with Nagle disabled, one per MSS bytes of every
+ * write. It checks that the delta stream, rendered the way ClientBattle
+ * does, gives back the same text.
+ */
+public class ProtocolBytesBenchmark {
+
+    /**
+     * The placements of the fleet, in the bottom right corner so the sweeping shooter needs a long game
+     */
+    private static final String[] PLACEMENTS = {"s8v", "s9v"};
+
+    /**
+     * The payload of a TCP segment on Ethernet with timestamps
+     */
+    private static final int MSS = 1448;
+
+    /**
+     * The stream of a connection, counting the writes and the segments they take
+     */
+    private static class Connection extends ByteArrayOutputStream {
+        long writes;
+        long segments;
+
+        @Override
+        public synchronized void write(int b) {
+            count(1);
+            super.write(b);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            count(len);
+            super.write(b, off, len);
+        }
+
+        private void count(int len) {
+            writes += 1;
+            segments += (len + MSS - 1) / MSS;
+        }
+    }
+
+    /**
+     * The bytes, writes and segments sent to both clients and the text they saw
+     */
+    private static class Game {
+        long bytes;
+        long writes;
+        long segments;
+        String text1;
+        String text2;
+    }
+
+    /**
+     * This make the input of a human player choosing fire every turn and sweeping the board in row-major order
+     */
+    private static byte[] script() {
+        StringBuilder in = new StringBuilder("1\n");
+        for (String p : PLACEMENTS) {
+            in.append(p).append("\n");
+        }
+        for (int shot = 0; shot < 200; shot++) {
+            in.append("F\n").append((char) ('A' + shot / 10)).append(shot % 10).append("\n");
+        }
+        return in.toString().getBytes();
+    }
+
+    private static Game play(boolean deltaProtocol) throws IOException {
+        Connection out1 = new Connection();
+        Connection out2 = new Connection();
+        new Match(new ByteArrayInputStream(script()), out1, new ByteArrayInputStream(script()), out2, deltaProtocol).play();
+        Game g = new Game();
+        g.bytes = out1.size() + out2.size();
+        g.writes = out1.writes + out2.writes;
+        g.segments = out1.segments + out2.segments;
+        g.text1 = out1.toString();
+        g.text2 = out2.toString();
+        return g;
+    }
+
+    /**
+     * This render a delta stream the way ClientBattle does
+     */
+    private static String decode(String stream) throws IOException {
+        BufferedReader reader = new BufferedReader(new StringReader(stream));
+        BoardDeltaReader boards = new BoardDeltaReader();
+        StringBuilder text = new StringBuilder();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            text.append(boards.read(line));
+        }
+        return text.toString();
+    }
+
+    private static int count(String text, String line) {
+        int n = 0;
+        for (int i = text.indexOf(line); i >= 0; i = text.indexOf(line, i + 1)) {
+            n++;
+        }
+        return n;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Game text = play(false);
+        Game delta = play(true);
+        int turns = count(text.text1 + text.text2, "Please choose a coordinate to fire at:");
+        System.out.println("Turns per game:  " + turns);
+        System.out.println(String.format("%-8s %12s %12s %12s %14s", "mode", "bytes/game", "bytes/turn", "writes/turn", "segments/turn"));
+        for (Game g : new Game[]{text, delta}) {
+            System.out.println(String.format("%-8s %12d %12.1f %12.2f %14.2f", g == text ? "text" : "delta",
+                    g.bytes, (double) g.bytes / turns, (double) g.writes / turns, (double) g.segments / turns));
+        }
+        System.out.println(String.format("Reduction:       %.1fx", (double) text.bytes / delta.bytes));
+        boolean same = decode(delta.text1).equals(text.text1) && decode(delta.text2).equals(text.text2);
+        System.out.println("Delta stream renders the same text: " + same);
+    }
+}
@@ -0,0 +1,203 @@
+package battleship;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * This class lets a match write to a blocking socket without waiting for
+ * the client to read: writes are queued and a task on the executor
+ * writes everything queued in one write. The queue is bounded by an
+ * OutboundLimit; a client that does not read for STALL_MILLIS has its
+ * connection closed, so its match ends instead of hanging.
+ */
+public class QueuedOutputStream extends OutputStream {
+
+    /**
+     * The stream of the socket
+     */
+    private final OutputStream out;
+
+    /**
+     * Where the queue is written from
+     */
+    private final Executor executor;
+
+    /**
+     * What is closed when the client stops reading, e.g. the socket
+     */
+    private final Closeable connection;
+
+    private final OutboundLimit limit;
+
+    /**
+     * The writes not yet handed to the socket
+     */
+    private final ArrayDeque<byte[]> queue;
+
+    /**
+     * Whether a task is writing the queue
+     */
+    private boolean draining;
+
+    /**
+     * The failure of the socket, thrown to the writers from then on
+     */
+    private IOException failure;
+
+    /**
+     * Constructs a stream queueing the writes to out, written from the executor
+     */
+    public QueuedOutputStream(OutputStream out, Executor executor, Closeable connection) {
+        this(out, executor, connection, new OutboundLimit());
+    }
+
+    /**
+     * Constructs a stream queueing the writes to out, bounded by the given limit
+     */
+    public QueuedOutputStream(OutputStream out, Executor executor, Closeable connection, OutboundLimit limit) {
+        this.out = out;
+        this.executor = executor;
+        this.connection = connection;
+        this.limit = limit;
+        this.queue = new ArrayDeque<byte[]>();
+        this.draining = false;
+        this.failure = null;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return;
+        }
+        synchronized (queue) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+        try {
+            limit.reserve(len);
+        }
+        catch (IOException e) {
+            fail(e);
+            throw e;
+        }
+        byte[] copy = new byte[len];
+        System.arraycopy(b, off, copy, 0, len);
+        synchronized (queue) {
+            queue.addLast(copy);
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+        try {
+            executor.execute(this::drain);
+        }
+        catch (RejectedExecutionException e) { // the server is shutting down
+            synchronized (queue) {
+                draining = false;
+            }
+            IOException closed = new IOException("The server is shutting down");
+            fail(closed);
+            throw closed;
+        }
+    }
+
+    /**
+     * This write the queue until it is empty, joining what is queued into one write
+     */
+    private void drain() {
+        while (true) {
+            byte[] batch;
+            synchronized (queue) {
+                if (queue.isEmpty() || failure != null) {
+                    draining = false;
+                    queue.notifyAll();
+                    return;
+                }
+                batch = queue.size() == 1 ? queue.pollFirst() : join();
+            }
+            try {
+                out.write(batch);
+                out.flush();
+                limit.release(batch.length);
+            }
+            catch (IOException e) {
+                fail(e);
+            }
+        }
+    }
+
+    /**
+     * This take everything queued as one array; the caller holds the queue lock
+     */
+    private byte[] join() {
+        int size = 0;
+        for (byte[] chunk : queue) {
+            size += chunk.length;
+        }
+        byte[] all = new byte[size];
+        int at = 0;
+        byte[] chunk;
+        while ((chunk = queue.pollFirst()) != null) {
+            System.arraycopy(chunk, 0, all, at, chunk.length);
+            at += chunk.length;
+        }
+        return all;
+    }
+
+    /**
+     * This drop the queue and close the connection after the socket failed or the client stalled
+     */
+    private void fail(IOException e) {
+        synchronized (queue) {
+            if (failure == null) {
+                failure = e;
+            }
+            queue.clear();
+            queue.notifyAll();
+        }
+        limit.close();
+        try {
+            connection.close();
+        }
+        catch (IOException ignored) {
+            // already closed
+        }
+    }
+
+    /**
+     * This wait, at most STALL_MILLIS, for the queue to be written, then close the socket stream
+     */
+    @Override
+    public void close() throws IOException {
+        long deadline = System.currentTimeMillis() + OutboundLimit.STALL_MILLIS;
+        synchronized (queue) {
+            while (draining) {
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0) {
+                    break;
+                }
+                try {
+                    queue.wait(left);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+        }
+        limit.close();
+        out.close();
+    }
+}
@@ -0,0 +1,136 @@
+package battleship;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This class makes random legal layouts of a fleet, every legal layout
+ * being equally likely. Each ship takes a placement drawn uniformly from
+ * the placements that fit the board (see PlacementTable), and the whole
+ * layout is drawn again as soon as two ships overlap. Rejecting whole
+ * layouts, instead of redrawing only the ship that overlaps, is what
+ * keeps the layouts uniform; the largest ships are drawn first so an
+ * overlap is found early. A generator is not thread safe, use one per
+ * thread.
+ */
+public class RandomFleetGenerator {
+
+    private final int width;
+    private final int height;
+
+    /**
+     * The ship names, in the order the layouts list them
+     */
+    private final String[] fleet;
+
+    /**
+     * For every ship, the placements that fit the board
+     */
+    private final PlacementTable.Entry[][] choices;
+
+    /**
+     * The ship indices, largest ship first
+     */
+    private final Integer[] drawOrder;
+
+    /**
+     * The cells covered by the ships drawn so far
+     */
+    private final BitMask occupancy;
+
+    /**
+     * The number of layouts drawn, kept or not
+     */
+    private long attempts;
+
+    /**
+     * Constructs a generator for the given fleet on a board of the given size
+     *
+     * @param fleet is the name of every ship, e.g. "Submarine" twice for two submarines
+     * @throws IllegalArgumentException if a ship has no ShipTemplate or cannot fit the board
+     */
+    public RandomFleetGenerator(int width, int height, List<String> fleet) {
+        this.width = width;
+        this.height = height;
+        this.fleet = fleet.toArray(new String[0]);
+        PlacementTable table = PlacementTable.forBoard(width, height);
+        this.choices = new PlacementTable.Entry[this.fleet.length][];
+        for (int i = 0; i < this.fleet.length; i++) {
+            choices[i] = table.fitting(ShipTemplate.forName(this.fleet[i])).toArray(new PlacementTable.Entry[0]);
+            if (choices[i].length == 0) {
+                throw new IllegalArgumentException("A " + this.fleet[i] + " does not fit on a " + width + " by " + height + " board");
+            }
+        }
+        this.drawOrder = new Integer[this.fleet.length];
+        for (int i = 0; i < drawOrder.length; i++) {
+            drawOrder[i] = i;
+        }
+        Arrays.sort(drawOrder, (a, b) -> choices[a][0].pieces.length != choices[b][0].pieces.length
+                ? choices[b][0].pieces.length - choices[a][0].pieces.length : a - b);
+        this.occupancy = new BitMask(width * height);
+        this.attempts = 0;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * This get the ship names, in the order the layouts list them
+     */
+    public List<String> getFleet() {
+        return Arrays.asList(fleet.clone());
+    }
+
+    /**
+     * This get the number of layouts drawn so far, including the rejected ones
+     */
+    public long getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * This draw a layout
+     *
+     * @return the placement table entry of every ship, in fleet order
+     * @throws IllegalStateException if no legal layout was found in a million draws, e.g. the fleet is too big for the board
+     */
+    public PlacementTable.Entry[] generateEntries(Random random) {
+        PlacementTable.Entry[] layout = new PlacementTable.Entry[fleet.length];
+        for (int tries = 0; tries < 1000000; tries++) {
+            attempts += 1;
+            occupancy.clearAll();
+            boolean legal = true;
+            for (int k = 0; k < drawOrder.length && legal; k++) {
+                int i = drawOrder[k];
+                PlacementTable.Entry e = choices[i][random.nextInt(choices[i].length)];
+                legal = !e.collides(occupancy);
+                occupancy.or(e.mask);
+                layout[i] = e;
+            }
+            if (legal) {
+                return layout;
+            }
+        }
+        throw new IllegalStateException("No legal layout of " + fleet.length + " ships found on a " + width + " by " + height + " board");
+    }
+
+    /**
+     * This draw a layout
+     *
+     * @return the placement of every ship, in fleet order
+     */
+    public List<Placement> generate(Random random) {
+        ArrayList<Placement> placements = new ArrayList<Placement>();
+        for (PlacementTable.Entry e : generateEntries(random)) {
+            placements.add(e.placement);
+        }
+        return placements;
+    }
+}
@@ -0,0 +1,57 @@
+package battleship;
+
+import java.util.Random;
+
+/**
+ * This class fires at the cells in a random order, never twice at the
+ * same cell until the whole board has been fired at.
+ */
+public class RandomStrategy implements FiringStrategy {
+
+    /**
+     * The cells in firing order, by row * width + column
+     */
+    private final int[] order;
+
+    private final int width;
+
+    private final Random random;
+
+    /**
+     * The number of cells of order already fired at
+     */
+    private int fired;
+
+    /**
+     * Constructs a random order over a board of the given size
+     */
+    public RandomStrategy(int width, int height, long seed) {
+        this.width = width;
+        this.order = new int[width * height];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        this.random = new Random(seed);
+        this.fired = order.length;
+    }
+
+    @Override
+    public Coordinate nextShot() {
+        if (fired == order.length) { // shuffle again for the next round
+            for (int i = order.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int t = order[i];
+                order[i] = order[j];
+                order[j] = t;
+            }
+            fired = 0;
+        }
+        int cell = order[fired++];
+        return Coordinate.of(cell / width, cell % width);
+    }
+
+    @Override
+    public void recordShot(Coordinate where, Ship<Character> target) {
+        // a random order does not look at the results
+    }
+}
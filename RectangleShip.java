@@ -1,7 +1,7 @@
 package battleship;
 
-import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 
 public class RectangleShip<T> extends BasicShip<T> {
 
@@ -11,9 +11,10 @@ public class RectangleShip<T> extends BasicShip<T> {
     private final String name;
 
     /**
-     * This is the top-left corner of the ship
+     * This is the number of columns and rows the ship covers
      */
-    private final Coordinate upperLeft;
+    private final int width;
+    private final int height;
 
     /**
      * This get the name of this Ship, such as "submarine".
@@ -31,7 +32,8 @@ public class RectangleShip<T> extends BasicShip<T> {
     public RectangleShip(String name, Coordinate upperLeft, int width, int height, ShipDisplayInfo<T> shipDisplayInfo, ShipDisplayInfo<T> enemyDisplayInfo) {
         super(makeCoords(upperLeft, width, height), shipDisplayInfo, enemyDisplayInfo);
         this.name = name;
-        this.upperLeft = upperLeft;
+        this.width = width;
+        this.height = height;
     }
 
     /**
@@ -51,19 +53,21 @@ public class RectangleShip<T> extends BasicShip<T> {
     }
 
     /**
-     * This generate the set of coordinates for a rectangle ship
+     * This generate the set of coordinates for a rectangle ship, column by
+     * column, so the pieces of a 1 x n ship are in order of their distance
+     * from the upper left one whichever way it is laid out
      *
      * @param upperLeft is the upper left coordinate of the rectangle ship
      */
     public static HashSet<Coordinate> makeCoords(Coordinate upperLeft, int width, int height) {
-        HashSet<Coordinate> coords = new HashSet<Coordinate>();
+        HashSet<Coordinate> coords = new LinkedHashSet<Coordinate>();
         int upperLeftRow = upperLeft.getRow();
         int upperLeftColumn = upperLeft.getColumn();
         for (int i = 0; i < width; i++) { // go through each row
             for(int j = 0; j < height; j++) { // go through each cloumn
                 int row = upperLeftRow + j;
                 int column = upperLeftColumn + i;
-                Coordinate coord = new Coordinate(row, column); // construct the current coordinate
+                Coordinate coord = Coordinate.of(row, column); // construct the current coordinate
                 coords.add(coord); // set as part of the rectangle
             }
         }
@@ -71,34 +75,23 @@ public class RectangleShip<T> extends BasicShip<T> {
     }
 
     /**
-     * Move all hit coordinates on this ship to a new same-typed ship at the given placement
-     *
-     * @param p is the placement of the new ship
-     * @return a list of coordinates on the new ship that are corresponding to be hit
+     * This lay the ship out at the given placement, long side down for 'V'
+     * and across for 'H'; piece i keeps its distance from the upper left one
      */
     @Override
-    public ArrayList<Coordinate> moveHitCoordinate(Placement p) {
-        ArrayList<Coordinate> hits = new ArrayList<Coordinate>(); // a list to store corresponding hit coordinates on the new ship
-        Iterable<Coordinate> hitCoordinates = this.getCoordinates(); // coordinates of this ship
-        int oldRow = upperLeft.getRow();
-        int oldColumn = upperLeft.getColumn();
-        Coordinate newCoordinate = p.getWhere();
-        int newRow = newCoordinate.getRow();
-        int newColumn = newCoordinate.getColumn();
-        char newOrientation = p.getOrientation();
-        for (Coordinate c : hitCoordinates) { // check every coordinate on this ship
-            if (this.wasHitAt(c)) { // find hit coordinate
-                int row = c.getRow();
-                int column = c.getColumn();
-                int distance = (row - oldRow) + (column - oldColumn);
-                if (newOrientation == 'V') { // get the corresponding hit coordinate when the orientation of new ship is 'V'
-                    hits.add(new Coordinate(newRow + distance, newColumn)); // add hit coordinate
-                }
-                if (newOrientation == 'H') { // get the corresponding hit coordinate when the orientation of new ship is 'H'
-                    hits.add(new Coordinate(newRow, newColumn + distance)); // add hit coordinate
-                }
-            }
+    protected Coordinate[] piecesAt(Placement p) {
+        int shortSide = Math.min(width, height);
+        int longSide = Math.max(width, height);
+        HashSet<Coordinate> coords;
+        if (p.getOrientation() == 'V') {
+            coords = makeCoords(p.getWhere(), shortSide, longSide);
+        }
+        else if (p.getOrientation() == 'H') {
+            coords = makeCoords(p.getWhere(), longSide, shortSide);
+        }
+        else {
+            throw new IllegalArgumentException("Invaild orientation: " + p.getOrientation());
         }
-        return hits; // return a list of hit coordinates on the new ship
+        return coords.toArray(new Coordinate[coords.size()]);
     }
 }
@@ -0,0 +1,130 @@
+package battleship;
+
+import java.util.ArrayList;
+
+/**
+ * This class is the client's copy of a board under the delta protocol:
+ * it only knows the character shown in every cell, which is enough for
+ * a BoardTextView to render it. It has no ships and cannot be played on.
+ */
+public class RemoteBoard implements Board<Character> {
+
+    /**
+     * The width of the newly constructed board
+     */
+    private final int width;
+
+    /**
+     * The height of the newly constructed board
+     */
+    private final int height;
+
+    /**
+     * The character shown in every cell, null for open water
+     */
+    private final Character[] cells;
+
+    /**
+     * The listeners notified of every change to the board
+     */
+    private final BoardListenerList<Character> listeners;
+
+    /**
+     * Constructs an empty RemoteBoard with the specified width and height
+     *
+     * @throws IllegalArgumentException if the width or height are less than or equal to zero.
+     */
+    public RemoteBoard(int w, int h) {
+        if (w <= 0) {
+            throw new IllegalArgumentException("RemoteBoard's width must be positive but is " + w);
+        }
+        if (h <= 0) {
+            throw new IllegalArgumentException("RemoteBoard's height must be positive but is " + h);
+        }
+        this.width = w;
+        this.height = h;
+        this.cells = new Character[w * h];
+        this.listeners = new BoardListenerList<Character>();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * This set the character shown in a cell; listeners get it as a shot
+     * at the cell, so views render that row again
+     *
+     * @throws IllegalArgumentException if the coordinate is off the board
+     */
+    public void setCell(Coordinate where, char shown) {
+        int row = where.getRow();
+        int column = where.getColumn();
+        if (row < 0 || row >= height || column < 0 || column >= width) {
+            throw new IllegalArgumentException("Coordinate " + where + " is off the " + width + "x" + height + " board");
+        }
+        cells[row * width + column] = shown == ' ' ? null : shown;
+        listeners.onFire(where, null, false);
+    }
+
+    /**
+     * This get the character shown in a cell
+     *
+     * @return the character, null for open water or off the board
+     */
+    private Character cellAt(Coordinate where) {
+        int row = where.getRow();
+        int column = where.getColumn();
+        if (row < 0 || row >= height || column < 0 || column >= width) {
+            return null;
+        }
+        return cells[row * width + column];
+    }
+
+    public Character whatIsAtForSelf(Coordinate where) {
+        return cellAt(where);
+    }
+
+    public Character whatIsAtForEnemy(Coordinate where) {
+        return cellAt(where);
+    }
+
+    /**
+     * A remote board has no ships
+     */
+    public ArrayList<Ship<Character>> getShips() {
+        return new ArrayList<Ship<Character>>();
+    }
+
+    public Ship<Character> getShipAt(Coordinate c) {
+        return null;
+    }
+
+    public String tryAddShip(Ship<Character> toAdd) {
+        throw new UnsupportedOperationException("A RemoteBoard only mirrors what the server shows");
+    }
+
+    public Ship<Character> fireAt(Coordinate c) {
+        throw new UnsupportedOperationException("A RemoteBoard only mirrors what the server shows");
+    }
+
+    public void restoreShot(Coordinate where, Ship<Character> shown, boolean miss) {
+        throw new UnsupportedOperationException("A RemoteBoard only mirrors what the server shows");
+    }
+
+    public void moveShip(Ship<Character> toMove, Ship<Character> newShip, Placement p) {
+        throw new UnsupportedOperationException("A RemoteBoard only mirrors what the server shows");
+    }
+
+    public void addListener(BoardListener<Character> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(BoardListener<Character> listener) {
+        listeners.remove(listener);
+    }
+}
@@ -0,0 +1,42 @@
+package battleship;
+
+/**
+ * This class measures the time and the bytes allocated by
+ * displayMyBoardWithEnemyNextToIt, the render every player gets each turn:
+ * rendering every row, rendering the row a shot changed, and nothing changed.
+ */
+public class RenderBenchmark {
+
+    public static void main(String[] args) {
+        V2ShipFactory factory = new V2ShipFactory();
+        Board<Character> mine = new GridBattleShipBoard<Character>(10, 20, 'X');
+        Board<Character> enemy = new GridBattleShipBoard<Character>(10, 20, 'X');
+        BoardBenchmark.placeFleet(mine, factory);
+        BoardBenchmark.placeFleet(enemy, factory);
+        for (int row = 0; row < 20; row++) { // shoot a checkerboard so the enemy view has hits and misses
+            for (int column = row % 2; column < 10; column += 2) {
+                enemy.fireAt(Coordinate.of(row, column));
+            }
+        }
+        BoardTextView myView = new BoardTextView(mine);
+        BoardTextView enemyView = new BoardTextView(enemy);
+        System.out.println(MicroBenchmark.run("displayMyBoardWithEnemyNextToIt, full render", 5000, 20000, 1,
+                () -> {
+                    myView.invalidate(); // every row rendered again, as before the row cache
+                    enemyView.invalidate();
+                    return myView.displayMyBoardWithEnemyNextToIt(enemyView, "Your ocean", "Player B's ocean");
+                }));
+        int[] shot = new int[1];
+        System.out.println(MicroBenchmark.run("displayMyBoardWithEnemyNextToIt, one shot per turn", 5000, 20000, 1,
+                () -> {
+                    int cell = shot[0]++ % 200;
+                    enemy.fireAt(Coordinate.of(cell / 10, cell % 10)); // a turn changes one row of the enemy board
+                    return myView.displayMyBoardWithEnemyNextToIt(enemyView, "Your ocean", "Player B's ocean");
+                }));
+        System.out.println(MicroBenchmark.run("displayMyBoardWithEnemyNextToIt, unchanged", 5000, 20000, 1,
+                () -> myView.displayMyBoardWithEnemyNextToIt(enemyView, "Your ocean", "Player B's ocean")));
+        Coordinate c = Coordinate.of(7, 3);
+        System.out.println(MicroBenchmark.run("Coordinate.hashCode", 100000, 5000000, 1,
+                () -> c.hashCode() == 0 ? null : c));
+    }
+}
@@ -0,0 +1,247 @@
+package battleship;
+
+import java.io.IOException;
+import java.io.PushbackInputStream;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * This class holds the matches waiting for their players to come back,
+ * after the server restarted or a connection dropped, and pairs the
+ * reconnecting clients. A client resumes a match by sending
+ * "@RESUME <match id> <A|B> <token>" as soon as it connects, where the
+ * token is the random one the match gave that seat (see newToken), so
+ * knowing a match id is not enough to take a seat; while any match is
+ * waiting, the servers give every new connection GRACE_MILLIS to send
+ * that line before it is queued for a match. A match nobody came back to
+ * within KEEP_MILLIS is given up.
+ */
+public class ResumeRegistry<S> {
+
+    /**
+     * The start of the line a client sends to resume a match
+     */
+    public static final String PREFIX = "@RESUME ";
+
+    /**
+     * How long a new connection has to send the resume line
+     */
+    public static final long GRACE_MILLIS = 200;
+
+    /**
+     * How long a match waits for its players
+     */
+    public static final long KEEP_MILLIS = 10 * 60 * 1000;
+
+    /**
+     * The longest resume line read, and the bytes readResumeLine may unread
+     */
+    public static final int MAX_LINE = 64;
+
+    /**
+     * The random bytes of a resume token, shown as twice as many hex digits
+     */
+    private static final int TOKEN_BYTES = 12;
+
+    private static final SecureRandom TOKENS = new SecureRandom();
+
+    /**
+     * A match waiting for its players
+     */
+    private static class Waiting<S> {
+        final byte[] snapshot;
+        final long expires;
+        final Object[] players;
+
+        /**
+         * The resume token of every seat
+         */
+        final String[] tokens;
+
+        Waiting(byte[] snapshot, long expires, String[] tokens) {
+            this.snapshot = snapshot;
+            this.expires = expires;
+            this.players = new Object[2];
+            this.tokens = tokens;
+        }
+    }
+
+    /**
+     * A match both players came back to
+     */
+    public static class Resume<S> {
+        public final byte[] snapshot;
+        public final S first;
+        public final S second;
+
+        Resume(byte[] snapshot, S first, S second) {
+            this.snapshot = snapshot;
+            this.first = first;
+            this.second = second;
+        }
+    }
+
+    /**
+     * Where the matches given up are marked as ended, null if none
+     */
+    private final SnapshotStore store;
+
+    private final HashMap<Long, Waiting<S>> waiting;
+
+    /**
+     * Constructs a registry marking the matches given up as ended in the store, which may be null
+     */
+    public ResumeRegistry(SnapshotStore store) {
+        this.store = store;
+        this.waiting = new HashMap<Long, Waiting<S>>();
+    }
+
+    /**
+     * This make a random resume token for a seat of a match
+     */
+    public static String newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        TOKENS.nextBytes(bytes);
+        StringBuilder token = new StringBuilder(2 * TOKEN_BYTES);
+        for (byte b : bytes) {
+            token.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return token.toString();
+    }
+
+    /**
+     * This make a match wait for its players, who must show the resume tokens saved in the snapshot
+     *
+     * @throws IllegalArgumentException if the snapshot cannot be read
+     */
+    public synchronized void offer(long matchId, byte[] snapshot) {
+        String[] tokens = MatchSnapshot.read(snapshot).tokens;
+        waiting.put(matchId, new Waiting<S>(snapshot, System.currentTimeMillis() + KEEP_MILLIS, tokens));
+    }
+
+    /**
+     * This make every match of a map wait for its players; a snapshot
+     * that cannot be read, e.g. of an older version, is marked as ended
+     */
+    public synchronized void offerAll(Map<Long, byte[]> snapshots) {
+        for (Map.Entry<Long, byte[]> e : snapshots.entrySet()) {
+            try {
+                offer(e.getKey(), e.getValue());
+            }
+            catch (IllegalArgumentException ex) {
+                if (store != null) {
+                    store.ended(e.getKey());
+                }
+            }
+        }
+    }
+
+    /**
+     * This check whether no match is waiting, so new connections need no grace period
+     */
+    public synchronized boolean isEmpty() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<Long, Waiting<S>>> it = waiting.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, Waiting<S>> e = it.next();
+            if (e.getValue().expires < now) {
+                it.remove();
+                if (store != null) {
+                    store.ended(e.getKey());
+                }
+            }
+        }
+        return waiting.isEmpty();
+    }
+
+    /**
+     * This bring a player back to a waiting match; a player coming back
+     * twice, e.g. after losing the connection again, replaces the first one
+     *
+     * @param line is the resume line the client sent
+     * @return the match once both players are back, null while the other one is not
+     * @throws IllegalArgumentException if the line is malformed, or no such match is waiting for that seat and token
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized Resume<S> attach(String line, S connection) {
+        String[] parts = line.trim().split(" ");
+        if (parts.length != 4 || !parts[2].matches("[AB]")) {
+            throw new IllegalArgumentException("The resume line must be " + PREFIX + "<match id> <A|B> <token>, but is " + line);
+        }
+        long matchId;
+        try {
+            matchId = Long.parseLong(parts[1]);
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid match id: " + parts[1]);
+        }
+        Waiting<S> w = waiting.get(matchId);
+        int player = parts[2].charAt(0) - 'A';
+        if (w == null || !MessageDigest.isEqual(w.tokens[player].getBytes(StandardCharsets.US_ASCII),
+                parts[3].getBytes(StandardCharsets.US_ASCII))) { // the same answer for a wrong token, so ids cannot be probed
+            throw new IllegalArgumentException("No match " + matchId + " is waiting to be resumed with that token");
+        }
+        w.players[player] = connection;
+        if (w.players[1 - player] == null) {
+            return null;
+        }
+        waiting.remove(matchId);
+        return new Resume<S>(w.snapshot, (S) w.players[0], (S) w.players[1]);
+    }
+
+    /**
+     * This remove a connection that left while its match was waiting
+     */
+    public synchronized void leave(S connection) {
+        for (Waiting<S> w : waiting.values()) {
+            for (int i = 0; i < w.players.length; i++) {
+                if (w.players[i] == connection) {
+                    w.players[i] = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * This read the resume line from a blocking stream whose reads time
+     * out (see Socket.setSoTimeout), leaving the stream untouched if the
+     * client sent anything else or nothing in time
+     *
+     * @param in must be able to unread MAX_LINE bytes
+     * @return the line, null if the client did not send one
+     */
+    public static String readResumeLine(PushbackInputStream in) throws IOException {
+        byte[] line = new byte[MAX_LINE];
+        int n = 0;
+        boolean resume = false;
+        try {
+            while (n < MAX_LINE) {
+                int b = in.read();
+                if (b < 0) {
+                    break;
+                }
+                line[n++] = (byte) b;
+                if (n <= PREFIX.length() && b != PREFIX.charAt(n - 1)) { // not a resume line
+                    break;
+                }
+                if (b == '\n') {
+                    resume = true;
+                    break;
+                }
+            }
+        }
+        catch (SocketTimeoutException e) {
+            // nothing more in time
+        }
+        if (!resume) {
+            in.unread(line, 0, n);
+            return null;
+        }
+        return new String(line, 0, n, StandardCharsets.US_ASCII).trim();
+    }
+}
@@ -0,0 +1,235 @@
+package battleship;
+
+import java.util.Arrays;
+
+/**
+ * This class answers sonar scans of one board without looking at the
+ * ships: it listens to the board and keeps, for every ship type and row,
+ * the prefix sums of the squares that type occupies. A scan covers the
+ * diamond of the cells at most radius steps from its center; the diamond
+ * is precomputed as the half width of each of its rows, so a scan is two
+ * lookups per row and type, and allocates nothing.
+ * A large board (see SparseBattleShipBoard.isLarge) would need prefix
+ * sums of every square, so there the engine keeps the squares of every type in a
+ * list instead, and a scan counts those within radius steps.
+ */
+public class ScanEngine<T> implements BoardListener<T> {
+
+    /**
+     * The radius of the standard sonar scan, a diamond of 25 squares
+     */
+    public static final int DEFAULT_RADIUS = 3;
+
+    /**
+     * The number of ship types counted, in the order of ShipTemplate.TYPES
+     */
+    public static final int TYPE_COUNT = ShipTemplate.TYPES.length;
+
+    private final Board<T> board;
+
+    private final int width;
+
+    private final int height;
+
+    private final int radius;
+
+    /**
+     * The half width of every row of the diamond, from radius rows above the center down
+     */
+    private final int[] stencil;
+
+    /**
+     * The squares of type t in row r before column c are prefix[t][r][c]
+     */
+    private final int[][][] prefix;
+
+    /**
+     * The ship type at every cell, -1 for water or a type not counted
+     */
+    private final byte[] typeAt;
+
+    /**
+     * The packed squares of every type and how many there are, on a sparse board only
+     */
+    private final int[][] squares;
+    private final int[] squareCount;
+
+    /**
+     * This initializes the counts from the ships already on the board,
+     * and listens to the board for every later change
+     *
+     * @throws IllegalArgumentException if the radius is negative
+     */
+    public ScanEngine(Board<T> board, int radius) {
+        if (radius < 0) {
+            throw new IllegalArgumentException("The scan radius cannot be negative, but is " + radius);
+        }
+        this.board = board;
+        this.width = board.getWidth();
+        this.height = board.getHeight();
+        this.radius = radius;
+        this.stencil = new int[2 * radius + 1];
+        for (int i = 0; i < stencil.length; i++) {
+            stencil[i] = radius - Math.abs(i - radius);
+        }
+        if (SparseBattleShipBoard.isLarge(width, height)) {
+            this.prefix = null;
+            this.typeAt = null;
+            this.squares = new int[TYPE_COUNT][16];
+            this.squareCount = new int[TYPE_COUNT];
+        }
+        else {
+            this.prefix = new int[TYPE_COUNT][height][width + 1];
+            this.typeAt = new byte[width * height];
+            Arrays.fill(typeAt, (byte) -1);
+            this.squares = null;
+            this.squareCount = null;
+        }
+        for (Ship<T> ship : board.getShips()) {
+            place(ship, true);
+        }
+        board.addListener(this);
+    }
+
+    /**
+     * This add or remove the squares of a ship and update the prefix sums of its rows
+     */
+    private void place(Ship<T> ship, boolean add) {
+        int t = ShipTemplate.typeIndex(ship.getName()); // -1 for a type not counted
+        if (t < 0) {
+            return;
+        }
+        if (prefix == null) {
+            for (Coordinate c : ship.getCoordinates()) {
+                if (add) {
+                    addSquare(t, c.getPacked());
+                }
+                else {
+                    removeSquare(t, c.getPacked());
+                }
+            }
+            return;
+        }
+        int top = Integer.MAX_VALUE;
+        int bottom = Integer.MIN_VALUE;
+        for (Coordinate c : ship.getCoordinates()) {
+            int row = c.getRow();
+            int column = c.getColumn();
+            if (row < 0 || row >= height || column < 0 || column >= width) { // never on a board that accepted it
+                continue;
+            }
+            typeAt[row * width + column] = (byte) (add ? t : -1);
+            top = Math.min(top, row);
+            bottom = Math.max(bottom, row);
+        }
+        for (int row = top; row <= bottom; row++) {
+            int[] sums = prefix[t][row];
+            for (int column = 0; column < width; column++) {
+                sums[column + 1] = sums[column] + (typeAt[row * width + column] == t ? 1 : 0);
+            }
+        }
+    }
+
+    /**
+     * This add a square to the list of its type on a sparse board
+     */
+    private void addSquare(int t, int packed) {
+        if (squareCount[t] == squares[t].length) {
+            squares[t] = Arrays.copyOf(squares[t], 2 * squares[t].length);
+        }
+        squares[t][squareCount[t]++] = packed;
+    }
+
+    /**
+     * This remove a square from the list of its type on a sparse board
+     */
+    private void removeSquare(int t, int packed) {
+        int[] list = squares[t];
+        for (int i = 0; i < squareCount[t]; i++) {
+            if (list[i] == packed) {
+                list[i] = list[--squareCount[t]];
+                return;
+            }
+        }
+    }
+
+    public Board<T> getBoard() {
+        return board;
+    }
+
+    public int getRadius() {
+        return radius;
+    }
+
+    /**
+     * This count the squares of each ship type in the diamond around a center
+     *
+     * @param counts receives the squares of submarines, destroyers, battleships and carriers
+     * @return counts
+     */
+    public int[] scan(int row, int column, int[] counts) {
+        for (int t = 0; t < TYPE_COUNT; t++) {
+            counts[t] = 0;
+        }
+        if (prefix == null) {
+            for (int t = 0; t < TYPE_COUNT; t++) {
+                int[] list = squares[t];
+                for (int i = 0; i < squareCount[t]; i++) {
+                    int packed = list[i];
+                    if (Math.abs((packed >> 16) - row) + Math.abs((short) packed - column) <= radius) {
+                        counts[t]++;
+                    }
+                }
+            }
+            return counts;
+        }
+        int first = Math.max(0, radius - row); // the stencil rows that are on the board
+        int last = Math.min(stencil.length - 1, radius + height - 1 - row);
+        for (int i = first; i <= last; i++) {
+            int from = Math.max(0, column - stencil[i]);
+            int to = Math.min(width, column + stencil[i] + 1);
+            if (from >= to) {
+                continue;
+            }
+            int r = row - radius + i;
+            for (int t = 0; t < TYPE_COUNT; t++) {
+                int[] sums = prefix[t][r];
+                counts[t] += sums[to] - sums[from];
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * This count the squares of each ship type in the diamond around a center
+     *
+     * @param counts receives the squares of submarines, destroyers, battleships and carriers
+     * @return counts
+     */
+    public int[] scan(Coordinate center, int[] counts) {
+        return scan(center.getRow(), center.getColumn(), counts);
+    }
+
+    /**
+     * This stop listening to the board
+     */
+    public void close() {
+        board.removeListener(this);
+    }
+
+    @Override
+    public void onShipAdded(Ship<T> ship) {
+        place(ship, true);
+    }
+
+    @Override
+    public void onFire(Coordinate where, Ship<T> target, boolean newHit) {
+        // a hit ship still occupies its squares
+    }
+
+    @Override
+    public void onShipMoved(Ship<T> oldShip, Ship<T> newShip) {
+        place(oldShip, false);
+        place(newShip, true);
+    }
+}
@@ -0,0 +1,85 @@
+package battleship;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.util.ArrayList;
+
+/**
+ * This class compares the platform-thread and virtual-thread server modes:
+ * how many idle connections they hold, the heap each parked session costs,
+ * the OS threads they need, and the turn latency of live matches.
+ * Idle clients live in this same JVM, so the heap figure includes the
+ * client side socket of every connection.
+ *
+ * Usage: ServerModeBenchmark [idleConnections] [matches]
+ */
+public class ServerModeBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int idle = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+        int matches = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        for (ThreadedGameServer.Mode mode : ThreadedGameServer.Mode.values()) {
+            if (mode == ThreadedGameServer.Mode.VIRTUAL && !ThreadedGameServer.virtualThreadsSupported()) {
+                System.out.println(mode + ": skipped, virtual threads need Java 21 (running " + System.getProperty("java.version") + ")");
+                continue;
+            }
+            runMode(mode, idle, matches);
+        }
+    }
+
+    private static void runMode(ThreadedGameServer.Mode mode, int idle, int matches) throws Exception {
+        ThreadedGameServer server = new ThreadedGameServer(0, mode);
+        Thread acceptor = new Thread(server, "acceptor-" + mode);
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        long heapBefore = usedHeapAfterGc();
+        int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        // open idle connections: each pair becomes a match parked on readLine()
+        ArrayList<Socket> sockets = new ArrayList<Socket>();
+        try {
+            for (int i = 0; i < idle; i++) {
+                sockets.add(new Socket("localhost", server.getPort()));
+            }
+        }
+        catch (IOException e) {
+            System.out.println(mode + ": stopped opening connections at " + sockets.size() + " (" + e.getMessage() + ")");
+        }
+        int expectedMatches = sockets.size() / 2;
+        long deadline = System.currentTimeMillis() + 30000;
+        while (server.getActiveMatches() < expectedMatches && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        int parked = server.getActiveMatches();
+        long heapAfter = usedHeapAfterGc();
+        int threadsAfter = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        // live matches on top of the idle ones
+        LoadTestClient.Result load = LoadTestClient.runLoad("localhost", server.getPort(), matches);
+
+        System.out.println(mode + ":");
+        System.out.println("  idle connections held: " + sockets.size() + " (" + parked + " parked matches)");
+        System.out.println("  heap per connection:   " + (sockets.isEmpty() ? 0 : (heapAfter - heapBefore) / sockets.size()) + " bytes");
+        System.out.println("  OS threads added:      " + (threadsAfter - threadsBefore));
+        System.out.println("  live matches:          " + load.finished + "/" + load.matches + " at "
+                + String.format("%.1f", load.matchesPerSecond()) + " matches/sec");
+        System.out.println("  turn latency p50/p99:  " + String.format("%.3f", load.latencyMillis(0.50)) + " / "
+                + String.format("%.3f", load.latencyMillis(0.99)) + " ms");
+
+        for (Socket s : sockets) {
+            s.close();
+        }
+        server.shutdown();
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,194 @@
+package battleship;
+
+/**
+ * This class describes the shape of a ship type: for every orientation,
+ * the offset of each piece from the upper left corner of the placement.
+ * Pieces are listed in a canonical order, so piece i of a ship is piece i
+ * of the same ship after it is moved or rotated.
+ */
+public class ShipTemplate {
+
+    /**
+     * A 1x2 rectangle
+     */
+    public static final ShipTemplate SUBMARINE = rectangle("Submarine", 2);
+
+    /**
+     * A 1x3 rectangle
+     */
+    public static final ShipTemplate DESTROYER = rectangle("Destroyer", 3);
+
+    /**
+     * The 'T' shaped battleship, pieces in the order of TShapedShip's ids 1..4
+     */
+    public static final ShipTemplate BATTLESHIP = new ShipTemplate("Battleship", "UDLR".toCharArray(),
+            new int[][]{{0, 1, 1, 1}, {1, 0, 0, 0}, {1, 2, 1, 0}, {1, 0, 1, 2}},
+            new int[][]{{1, 0, 1, 2}, {1, 2, 1, 0}, {0, 1, 1, 1}, {1, 0, 0, 0}});
+
+    /**
+     * The 'Z' shaped carrier, pieces in the order of ZShapedShip's ids 1..7
+     */
+    public static final ShipTemplate CARRIER = new ShipTemplate("Carrier", "UDLR".toCharArray(),
+            new int[][]{{0, 1, 2, 3, 2, 3, 4}, {4, 3, 2, 1, 2, 1, 0}, {1, 1, 1, 1, 0, 0, 0}, {0, 0, 0, 0, 1, 1, 1}},
+            new int[][]{{0, 0, 0, 0, 1, 1, 1}, {1, 1, 1, 1, 0, 0, 0}, {0, 1, 2, 3, 2, 3, 4}, {4, 3, 2, 1, 2, 1, 0}});
+
+    /**
+     * The ship types made by V2ShipFactory, by the index snapshots and
+     * journals write and sonar scans count them at; only append to it
+     */
+    static final ShipTemplate[] TYPES = {SUBMARINE, DESTROYER, BATTLESHIP, CARRIER};
+
+    /**
+     * The letter the enemy sees on a hit of every type, see V2ShipFactory
+     */
+    private static final char[] LETTERS = {'s', 'd', 'b', 'c'};
+
+    /**
+     * The name of the ship type, such as "Submarine"
+     */
+    private final String name;
+
+    /**
+     * The orientation letters this ship type accepts
+     */
+    private final char[] orientations;
+
+    /**
+     * The row offset of every piece, per orientation
+     */
+    private final int[][] rowOffsets;
+
+    /**
+     * The column offset of every piece, per orientation
+     */
+    private final int[][] columnOffsets;
+
+    /**
+     * Constructs a template from the piece offsets of each orientation
+     */
+    public ShipTemplate(String name, char[] orientations, int[][] rowOffsets, int[][] columnOffsets) {
+        this.name = name;
+        this.orientations = orientations;
+        this.rowOffsets = rowOffsets;
+        this.columnOffsets = columnOffsets;
+    }
+
+    /**
+     * This make the template of a 1 x length ship placed 'V' or 'H'
+     */
+    public static ShipTemplate rectangle(String name, int length) {
+        int[][] rows = new int[2][length];
+        int[][] columns = new int[2][length];
+        for (int i = 0; i < length; i++) {
+            rows[0][i] = i; // vertical: going down
+            columns[1][i] = i; // horizontal: going right
+        }
+        return new ShipTemplate(name, "VH".toCharArray(), rows, columns);
+    }
+
+    /**
+     * This get the template of one of the ship types made by V2ShipFactory
+     *
+     * @throws IllegalArgumentException if the name is not a known ship type
+     */
+    public static ShipTemplate forName(String name) {
+        int t = typeIndex(name);
+        if (t < 0) {
+            throw new IllegalArgumentException("Unknown ship type: " + name);
+        }
+        return TYPES[t];
+    }
+
+    /**
+     * This get the index of a ship type in TYPES
+     *
+     * @return the index, -1 if the name is not one of the types
+     */
+    static int typeIndex(String name) {
+        for (int t = 0; t < TYPES.length; t++) {
+            if (TYPES[t].name.equals(name)) {
+                return t;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * This get the index in TYPES of the ship type whose hits the enemy sees as the letter
+     *
+     * @return the index, -1 if no type shows that letter
+     */
+    static int typeIndexOfLetter(char letter) {
+        for (int t = 0; t < LETTERS.length; t++) {
+            if (LETTERS[t] == letter) {
+                return t;
+            }
+        }
+        return -1;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * This get the orientation letters this ship type accepts
+     */
+    public char[] getOrientations() {
+        return orientations.clone();
+    }
+
+    /**
+     * This get the number of pieces of the ship
+     */
+    public int size() {
+        return rowOffsets[0].length;
+    }
+
+    /**
+     * This get the index of an orientation letter
+     *
+     * @return the index, -1 if the ship type does not accept that orientation
+     */
+    public int orientationIndex(char orientation) {
+        for (int i = 0; i < orientations.length; i++) {
+            if (orientations[i] == orientation) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * This get the row offset of a piece in an orientation
+     */
+    public int rowOffset(int orientationIndex, int piece) {
+        return rowOffsets[orientationIndex][piece];
+    }
+
+    /**
+     * This get the column offset of a piece in an orientation
+     */
+    public int columnOffset(int orientationIndex, int piece) {
+        return columnOffsets[orientationIndex][piece];
+    }
+
+    /**
+     * This generate the coordinates of every piece of a ship at the given placement, in piece order
+     *
+     * @throws IllegalArgumentException if the ship type does not accept the orientation
+     */
+    public Coordinate[] cells(Placement p) {
+        int o = orientationIndex(p.getOrientation());
+        if (o < 0) {
+            throw new IllegalArgumentException("Invaild orientation: " + p.getOrientation());
+        }
+        int row = p.getWhere().getRow();
+        int column = p.getWhere().getColumn();
+        Coordinate[] cells = new Coordinate[size()];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = Coordinate.of(row + rowOffsets[o][i], column + columnOffsets[o][i]);
+        }
+        return cells;
+    }
+}
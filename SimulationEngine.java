@@ -0,0 +1,244 @@
+package battleship;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.LongStream;
+
+/**
+ * This class plays ComputerPlayer against ComputerPlayer in memory, with
+ * no sockets and no text: each game places two random fleets and lets
+ * the two firing strategies shoot in turn until a fleet is sunk. Games
+ * run as a parallel stream over their seeds, so every core is used and
+ * every game can be replayed from its seed.
+ *
+ * Usage: SimulationEngine [games]
+ */
+public class SimulationEngine {
+
+    /**
+     * Every ship type made by V2ShipFactory, in the counts of the rules
+     */
+    public static final List<String> FLEET = Collections.unmodifiableList(Arrays.asList(
+            "Submarine", "Submarine", "Destroyer", "Destroyer", "Destroyer",
+            "Battleship", "Battleship", "Battleship", "Carrier", "Carrier"));
+
+    /**
+     * This interface makes the strategy of one player for one game
+     */
+    public interface StrategyFactory {
+        /**
+         * @param fleet is the list of ship names the enemy placed
+         * @param seed is the seed of the game, for strategies using randomness
+         */
+        public FiringStrategy create(int width, int height, List<String> fleet, long seed);
+    }
+
+    /**
+     * The outcome of one game
+     */
+    public static class GameResult {
+        /**
+         * 0 if the first strategy won, 1 if the second did, -1 if nobody sank the other fleet
+         */
+        public final int winner;
+
+        /**
+         * The shots fired by each strategy
+         */
+        public final int[] shots;
+
+        GameResult(int winner, int[] shots) {
+            this.winner = winner;
+            this.shots = shots;
+        }
+    }
+
+    /**
+     * The totals of many games between two strategies
+     */
+    public static class Report {
+        public final String[] names;
+        public long games;
+        public long draws;
+        public final long[] wins;
+
+        /**
+         * The shots fired by each strategy in the games it won
+         */
+        public final long[] shotsToWin;
+        public double seconds;
+
+        Report(String nameA, String nameB) {
+            this.names = new String[]{nameA, nameB};
+            this.wins = new long[2];
+            this.shotsToWin = new long[2];
+        }
+
+        void add(GameResult r) {
+            games += 1;
+            if (r.winner < 0) {
+                draws += 1;
+                return;
+            }
+            wins[r.winner] += 1;
+            shotsToWin[r.winner] += r.shots[r.winner];
+        }
+
+        void merge(Report other) {
+            games += other.games;
+            draws += other.draws;
+            for (int i = 0; i < 2; i++) {
+                wins[i] += other.wins[i];
+                shotsToWin[i] += other.shotsToWin[i];
+            }
+        }
+
+        public double gamesPerSecond() {
+            return games / seconds;
+        }
+
+        public double winRate(int player) {
+            return (double) wins[player] / games;
+        }
+
+        /**
+         * This get the average shots a strategy fired in the games it won
+         */
+        public double averageShotsToWin(int player) {
+            return wins[player] == 0 ? Double.NaN : (double) shotsToWin[player] / wins[player];
+        }
+
+        /**
+         * This transforms the report to a few report lines
+         */
+        @Override
+        public String toString() {
+            StringBuilder ans = new StringBuilder();
+            ans.append(String.format("%d games in %.2f s, %.0f games/s%n", games, seconds, gamesPerSecond()));
+            for (int i = 0; i < 2; i++) {
+                ans.append(String.format("  %-20s win rate %6.2f%%   average shots to win %6.1f%n",
+                        names[i], 100 * winRate(i), averageShotsToWin(i)));
+            }
+            if (draws > 0) {
+                ans.append("  draws ").append(draws).append("\n");
+            }
+            return ans.toString();
+        }
+    }
+
+    private final int width;
+    private final int height;
+    private final List<String> fleet;
+
+    /**
+     * Constructs an engine playing on boards of the given size with the given fleet
+     */
+    public SimulationEngine(int width, int height, List<String> fleet) {
+        this.width = width;
+        this.height = height;
+        this.fleet = fleet;
+    }
+
+    /**
+     * Constructs an engine playing the 10x20 game with every ship type
+     */
+    public SimulationEngine() {
+        this(10, 20, FLEET);
+    }
+
+    /**
+     * This make a computer player with a random fleet on a new board, without any input or output
+     */
+    private ComputerPlayer newPlayer(String name, Random random) {
+        return newPlayer(name, random, null, 0);
+    }
+
+    /**
+     * This make a computer player with a random fleet on a new board, recording the board in the journal if not null
+     */
+    private ComputerPlayer newPlayer(String name, Random random, MoveJournal journal, int index) {
+        V2ShipFactory factory = new BitboardShipFactory(width, height);
+        ComputerPlayer player = new ComputerPlayer(name, new BitboardBoard<Character>(width, height, 'X'), null, null, factory);
+        if (journal != null) {
+            journal.watch(index, player.getBoard());
+        }
+        player.useFleet(fleet);
+        player.placeFleetRandomly(random);
+        return player;
+    }
+
+    /**
+     * This play one game; the seed fixes both fleets and which strategy fires first
+     */
+    public GameResult playGame(StrategyFactory first, StrategyFactory second, long seed) {
+        return playGame(first, second, seed, null);
+    }
+
+    /**
+     * This play one game, recording every placement and shot in the journal if not null
+     */
+    public GameResult playGame(StrategyFactory first, StrategyFactory second, long seed, MoveJournal journal) {
+        Random random = new Random(seed);
+        ComputerPlayer[] players = {newPlayer("A", random, journal, 0), newPlayer("B", random, journal, 1)};
+        players[0].setFiringStrategy(first.create(width, height, fleet, seed));
+        players[1].setFiringStrategy(second.create(width, height, fleet, ~seed));
+        int[] shots = new int[2];
+        int limit = 2 * width * height; // a strategy that has not won by then never will
+        int turn = (int) (seed & 1); // alternate who fires first
+        while (shots[0] < limit || shots[1] < limit) {
+            ComputerPlayer enemy = players[1 - turn];
+            players[turn].fireShot(enemy.getBoard());
+            shots[turn] += 1;
+            if (enemy.checkLose()) {
+                if (journal != null) {
+                    journal.recordEnd(turn);
+                }
+                return new GameResult(turn, shots);
+            }
+            turn = 1 - turn;
+        }
+        return new GameResult(-1, shots);
+    }
+
+    /**
+     * This play the given number of games, seeds 0 to games - 1, in parallel
+     */
+    public Report run(String nameA, StrategyFactory a, String nameB, StrategyFactory b, long games) {
+        long start = System.nanoTime();
+        Report report = LongStream.range(0, games).parallel()
+                .mapToObj(seed -> playGame(a, b, seed))
+                .collect(() -> new Report(nameA, nameB), Report::add, Report::merge);
+        report.seconds = (System.nanoTime() - start) / 1e9;
+        return report;
+    }
+
+    public static void main(String[] args) {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 20000;
+        SimulationEngine engine = new SimulationEngine();
+        StrategyFactory sweep = (w, h, fleet, seed) -> new SweepStrategy(w, h);
+        StrategyFactory random = (w, h, fleet, seed) -> new RandomStrategy(w, h, seed);
+        StrategyFactory density = (w, h, fleet, seed) -> new ProbabilityDensityStrategy(w, h, fleet, seed);
+        engine.run("warmup", density, "warmup", random, Math.min(games, 2000));
+        System.out.print(engine.run("sweep", sweep, "random", random, games));
+        System.out.print(engine.run("density", density, "sweep", sweep, games));
+        System.out.print(engine.run("density", density, "random", random, games));
+        System.out.println(measureMove(engine, density, 0, "first shot"));
+        System.out.println(measureMove(engine, density, 40, "after 40 shots"));
+        System.out.println(measureMove(engine, density, 100, "after 100 shots"));
+    }
+
+    /**
+     * This measure the time a strategy takes to choose a shot, after firing the given number of shots in a game
+     */
+    private static MicroBenchmark.Result measureMove(SimulationEngine engine, StrategyFactory factory, int shots, String label) {
+        ComputerPlayer enemy = engine.newPlayer("B", new Random(42));
+        FiringStrategy strategy = factory.create(engine.width, engine.height, engine.fleet, 42);
+        for (int i = 0; i < shots; i++) {
+            Coordinate c = strategy.nextShot();
+            strategy.recordShot(c, enemy.getBoard().fireAt(c));
+        }
+        return MicroBenchmark.run("nextShot " + label, 2000, 20000, 1, strategy::nextShot);
+    }
+}
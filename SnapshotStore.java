@@ -0,0 +1,297 @@
+package battleship;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class keeps the latest snapshot of every running match in an
+ * append-only file, so the matches can be resumed after the server
+ * crashes. Saving only hands the bytes to a writer thread: the thread
+ * appends whatever is pending in one write and forces it to disk, and a
+ * match saved several times meanwhile is written once, with its latest
+ * snapshot. Records are (length, match id, bytes), a length of -1 marking
+ * a match that ended. On start, recover reads the file back, keeps the
+ * last snapshot of every match that did not end, and rewrites the file
+ * with only those. The writer rewrites it the same way once the records
+ * of earlier snapshots and ended matches take more than the latest ones
+ * and compactBytes, so the file grows with the matches running, not with
+ * the time the server has been up.
+ */
+public class SnapshotStore implements AutoCloseable {
+
+    /**
+     * The pending record of a match that ended
+     */
+    private static final byte[] ENDED = new byte[0];
+
+    /**
+     * The dead bytes the file may hold before it is compacted, unless the live ones are more
+     */
+    public static final long DEFAULT_COMPACT_BYTES = 16 * 1024 * 1024;
+
+    private final File file;
+
+    /**
+     * The record waiting to be written for every match, ENDED for a match that ended
+     */
+    private final ConcurrentHashMap<Long, byte[]> pending;
+
+    /**
+     * The ids given to the matches, above every id found in the file
+     */
+    private final AtomicLong nextMatchId;
+
+    /**
+     * The snapshot in the file of every match that did not end, used by the writer thread
+     */
+    private final LinkedHashMap<Long, byte[]> live;
+
+    /**
+     * The size of the file, and of its records that are the latest of a match that did not end
+     */
+    private long fileBytes;
+    private long liveBytes;
+
+    /**
+     * The dead bytes the file may hold before it is compacted, unless the live ones are more
+     */
+    private final long compactBytes;
+
+    /**
+     * The file records are appended to, open once recovered
+     */
+    private FileChannel channel;
+
+    private Thread writer;
+
+    private volatile boolean closed;
+
+    /**
+     * Constructs a store of snapshots in the given file, created if missing
+     */
+    public SnapshotStore(File file) {
+        this(file, DEFAULT_COMPACT_BYTES);
+    }
+
+    /**
+     * Constructs a store of snapshots in the given file, compacted once
+     * its dead records take more than its live ones and compactBytes
+     */
+    public SnapshotStore(File file, long compactBytes) {
+        if (compactBytes < 0) {
+            throw new IllegalArgumentException("The bytes before a compaction cannot be negative, but are " + compactBytes);
+        }
+        this.file = file;
+        this.pending = new ConcurrentHashMap<Long, byte[]>();
+        this.nextMatchId = new AtomicLong(1);
+        this.live = new LinkedHashMap<Long, byte[]>();
+        this.fileBytes = 0;
+        this.liveBytes = 0;
+        this.compactBytes = compactBytes;
+        this.closed = false;
+    }
+
+    /**
+     * This read the file, keep the latest snapshot of every match that did
+     * not end, compact the file to those and start the writer thread.
+     * A record cut short by a crash ends the file.
+     *
+     * @return the snapshots of the matches to resume, by match id
+     */
+    public synchronized Map<Long, byte[]> recover() throws IOException {
+        if (channel != null) {
+            throw new IllegalStateException("The snapshot store is already recovered");
+        }
+        long maxId = 0;
+        if (file.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                while (true) {
+                    int length = in.readInt();
+                    long matchId = in.readLong();
+                    maxId = Math.max(maxId, matchId);
+                    if (length < 0) {
+                        live.remove(matchId);
+                        continue;
+                    }
+                    byte[] data = new byte[length];
+                    in.readFully(data);
+                    live.remove(matchId); // keep the matches in the order of their last snapshot
+                    live.put(matchId, data);
+                }
+            }
+            catch (EOFException e) {
+                // the end of the file, or a record cut short
+            }
+        }
+        nextMatchId.set(maxId + 1);
+        compact();
+        writer = new Thread(this::writeLoop, "snapshot-writer");
+        writer.setDaemon(true);
+        writer.start();
+        return new LinkedHashMap<Long, byte[]>(live);
+    }
+
+    /**
+     * This rewrite the file with only the live records and reopen it to
+     * append; the file is replaced at once, so a crash leaves either one
+     */
+    private void compact() throws IOException {
+        File compacted = new File(file.getPath() + ".tmp");
+        try (FileChannel out = FileChannel.open(compacted.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Map.Entry<Long, byte[]> e : live.entrySet()) {
+                writeFully(out, record(e.getKey(), e.getValue()));
+            }
+            out.force(false);
+        }
+        Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (channel != null) { // appending to the file replaced until now
+            channel.close();
+        }
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        liveBytes = 0;
+        for (byte[] data : live.values()) {
+            liveBytes += 12 + data.length;
+        }
+        fileBytes = liveBytes;
+    }
+
+    /**
+     * This get the size of the file, e.g. to watch its compaction
+     */
+    public synchronized long getFileBytes() {
+        return fileBytes;
+    }
+
+    /**
+     * This get a new match id
+     */
+    public long nextMatchId() {
+        return nextMatchId.getAndIncrement();
+    }
+
+    /**
+     * This save the latest snapshot of a match, written to the file later
+     */
+    public void save(long matchId, byte[] snapshot) {
+        pending.put(matchId, snapshot);
+        wakeWriter();
+    }
+
+    /**
+     * This record that a match ended, so it is not resumed
+     */
+    public void ended(long matchId) {
+        pending.put(matchId, ENDED);
+        wakeWriter();
+    }
+
+    private void wakeWriter() {
+        synchronized (pending) {
+            pending.notify();
+        }
+    }
+
+    /**
+     * This write the pending records until the store is closed
+     */
+    private void writeLoop() {
+        while (!closed) {
+            synchronized (pending) {
+                while (pending.isEmpty() && !closed) {
+                    try {
+                        pending.wait();
+                    }
+                    catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+            try {
+                flushPending();
+            }
+            catch (IOException e) {
+                System.err.println("Cannot write match snapshots: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * This append every pending record in one write and force it to disk
+     */
+    private synchronized void flushPending() throws IOException {
+        if (channel == null || pending.isEmpty()) {
+            return;
+        }
+        int size = 0;
+        ByteBuffer[] records = new ByteBuffer[pending.size()];
+        int n = 0;
+        Iterator<Map.Entry<Long, byte[]>> it = pending.entrySet().iterator();
+        while (it.hasNext() && n < records.length) {
+            Map.Entry<Long, byte[]> e = it.next();
+            byte[] data = e.getValue();
+            if (!pending.remove(e.getKey(), data)) { // saved again meanwhile, the newer one is written next time
+                continue;
+            }
+            records[n] = record(e.getKey(), data);
+            size += records[n].remaining();
+            n++;
+            byte[] old = data == ENDED ? live.remove(e.getKey()) : live.put(e.getKey(), data);
+            liveBytes += (data == ENDED ? 0 : 12 + data.length) - (old == null ? 0 : 12 + old.length);
+        }
+        ByteBuffer all = ByteBuffer.allocate(size);
+        for (int i = 0; i < n; i++) {
+            all.put(records[i]);
+        }
+        all.flip();
+        writeFully(channel, all);
+        channel.force(false);
+        fileBytes += size;
+        if (fileBytes - liveBytes > Math.max(compactBytes, liveBytes)) {
+            compact();
+        }
+    }
+
+    private static ByteBuffer record(long matchId, byte[] data) {
+        ByteBuffer buf = ByteBuffer.allocate(12 + data.length);
+        buf.putInt(data == ENDED ? -1 : data.length);
+        buf.putLong(matchId);
+        buf.put(data);
+        buf.flip();
+        return buf;
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            out.write(buf);
+        }
+    }
+
+    /**
+     * This write what is pending and close the file
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        wakeWriter();
+        if (channel != null) {
+            flushPending();
+            channel.close();
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package battleship;
+
+import java.util.ArrayList;
+
+/**
+ * This class is a board for large oceans: nothing is kept per cell of
+ * the board, only per piece of a ship and per shot. An index from every
+ * occupied cell to its ship makes lookups, shots and placement checks a
+ * hash lookup, so their cost does not grow with the board or the fleet.
+ * The index and the shots are PackedCellMaps keyed by packed coordinate,
+ * so a shot recorded costs a few array slots, not a boxed map entry.
+ */
+public class SparseBattleShipBoard<T> implements Board<T>, OccupancyIndex {
+
+    /**
+     * The largest board, e.g. 64x64, whose squares the game may keep a
+     * table of; larger ones are played on this board, and the code that
+     * keeps something per square uses a sparse form for them
+     */
+    public static final int LARGE_AREA = 4096;
+
+    private final int width;
+
+    private final int height;
+
+    /**
+     * The ships on the board, in the order they were added
+     */
+    private final ArrayList<Ship<T>> myShips;
+
+    /**
+     * The ship covering every occupied cell
+     */
+    private final PackedCellMap<Ship<T>> shipAt;
+
+    private final PlacementRuleChecker<T> placementChecker;
+
+    /**
+     * What the enemy saw at every cell it fired at: MISS, or the ship it
+     * hit, kept after the ship moves
+     */
+    private final PackedCellMap<Object> shots;
+
+    /**
+     * The value of shots for a miss
+     */
+    private static final Object MISS = new Object();
+
+    /**
+     * The information represents a miss
+     */
+    private final T missInfo;
+
+    /**
+     * The listeners notified of every change to the board
+     */
+    private final BoardListenerList<T> listeners;
+
+    /**
+     * Constructs a board of the given size with the given placement checker
+     *
+     * @throws IllegalArgumentException if the width or height are not positive or too large for a Coordinate
+     */
+    public SparseBattleShipBoard(int w, int h, PlacementRuleChecker<T> placementChecker, T missInfo) {
+        if (w <= 0 || w > Coordinate.MAX_INDEX + 1) {
+            throw new IllegalArgumentException("SparseBattleShipBoard's width must be positive and at most "
+                    + (Coordinate.MAX_INDEX + 1) + " but is " + w);
+        }
+        if (h <= 0 || h > Coordinate.MAX_INDEX + 1) {
+            throw new IllegalArgumentException("SparseBattleShipBoard's height must be positive and at most "
+                    + (Coordinate.MAX_INDEX + 1) + " but is " + h);
+        }
+        this.width = w;
+        this.height = h;
+        this.myShips = new ArrayList<Ship<T>>();
+        this.shipAt = new PackedCellMap<Ship<T>>();
+        this.placementChecker = placementChecker;
+        this.shots = new PackedCellMap<Object>();
+        this.missInfo = missInfo;
+        this.listeners = new BoardListenerList<T>();
+    }
+
+    /**
+     * Constructs a board of the given size checking the in-bounds and no-collision rules
+     */
+    public SparseBattleShipBoard(int w, int h, T missInfo) {
+        this(w, h, new CompiledPlacementChecker<T>(null), missInfo);
+    }
+
+    /**
+     * This check whether a board is larger than LARGE_AREA squares
+     */
+    public static boolean isLarge(int width, int height) {
+        return (long) width * height > LARGE_AREA;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public ArrayList<Ship<T>> getShips() {
+        return myShips;
+    }
+
+    @Override
+    public boolean isOccupied(int row, int column) {
+        if (row < 0 || row >= height || column < 0 || column >= width) {
+            return false;
+        }
+        return shipAt.containsKey(Coordinate.pack(row, column));
+    }
+
+    /**
+     * This index the cells of a ship, or remove them from the index
+     */
+    private void index(Ship<T> ship, boolean add) {
+        for (Coordinate c : ship.getCoordinates()) {
+            if (add) {
+                shipAt.put(c.getPacked(), ship);
+            }
+            else {
+                shipAt.remove(c.getPacked());
+            }
+        }
+    }
+
+    public String tryAddShip(Ship<T> toAdd) {
+        String s = placementChecker.checkPlacement(toAdd, this);
+        if (s != null) {
+            return s;
+        }
+        myShips.add(toAdd);
+        index(toAdd, true);
+        listeners.onShipAdded(toAdd);
+        return null;
+    }
+
+    public T whatIsAtForSelf(Coordinate where) {
+        Ship<T> ship = shipAt.get(where.getPacked());
+        return ship == null ? null : ship.getDisplayInfoAt(where, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    public T whatIsAtForEnemy(Coordinate where) {
+        Object shot = shots.get(where.getPacked());
+        if (shot == MISS) { // if missed record exists, return it
+            return missInfo;
+        }
+        if (shot != null) { // if hit record exists. return it
+            return ((Ship<T>) shot).getDisplayInfoAt(where, false);
+        }
+        Ship<T> ship = shipAt.get(where.getPacked());
+        if (ship == null || ship.wasHitAt(where)) { // a piece hit before its ship moved here is not seen
+            return null;
+        }
+        return ship.getDisplayInfoAt(where, false);
+    }
+
+    public Ship<T> fireAt(Coordinate c) {
+        Ship<T> ship = shipAt.get(c.getPacked());
+        if (ship != null) { // a ship is hit
+            shots.put(c.getPacked(), ship); // replaces a past miss if exists
+            boolean newHit = !ship.wasHitAt(c);
+            ship.recordHitAt(c); // record the hit
+            listeners.onFire(c, ship, newHit);
+            return ship;
+        }
+        shots.put(c.getPacked(), MISS); // no hit, record the miss in place of a past hit
+        listeners.onFire(c, null, false);
+        return null;
+    }
+
+    public Ship<T> getShipAt(Coordinate c) {
+        return shipAt.get(c.getPacked());
+    }
+
+    public void restoreShot(Coordinate where, Ship<T> shown, boolean miss) {
+        if (miss) {
+            shots.put(where.getPacked(), MISS);
+        }
+        else if (shown != null) {
+            shots.put(where.getPacked(), shown);
+        }
+        else {
+            shots.remove(where.getPacked());
+        }
+        listeners.onFire(where, shown, false);
+    }
+
+    @Override
+    public int[] getShotCells() {
+        return shots.keys();
+    }
+
+    public void moveShip(Ship<T> toMove, Ship<T> newShip, Placement p) {
+        int index = myShips.indexOf(toMove);
+        if (index < 0) {
+            throw new IllegalArgumentException("The " + toMove.getName() + " to move is not on this board");
+        }
+        index(toMove, false); // the old location does not collide with the new one
+        String s = placementChecker.checkPlacement(newShip, this);
+        if (s != null) { // invalid placement
+            index(toMove, true);
+            throw new IllegalArgumentException(s);
+        }
+        TemplateShip.moveHits(toMove, newShip, p);
+        myShips.remove(index); // remove the ship to move from the board
+        myShips.add(newShip); // add the new ship to the board
+        index(newShip, true);
+        listeners.onShipMoved(toMove, newShip);
+    }
+
+    public void addListener(BoardListener<T> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(BoardListener<T> listener) {
+        listeners.remove(listener);
+    }
+}
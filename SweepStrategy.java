@@ -0,0 +1,55 @@
+package battleship;
+
+/**
+ * This class fires at every cell in order, from top-left to
+ * bottom-right, starting over once the board is swept.
+ */
+public class SweepStrategy implements FiringStrategy {
+
+    private final int width;
+    private final int height;
+
+    /**
+     * The row of the coordinate to fire at
+     */
+    private int row;
+
+    /**
+     * The column of the coordinate to fire at
+     */
+    private int column;
+
+    /**
+     * Constructs a sweep of a board of the given size
+     */
+    public SweepStrategy(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.row = 0;
+        this.column = 0;
+    }
+
+    @Override
+    public Coordinate nextShot() {
+        Coordinate c = Coordinate.of(row, column);
+        // fire at coordinates on the board in order (from top-left to bottom-right)
+        if (column == width - 1) {
+            column = 0;
+            if (row == height - 1) {
+                row = 0;
+            }
+            else {
+                row += 1;
+            }
+        }
+        else {
+            column += 1;
+        }
+        return c;
+    }
+
+    @Override
+    public void recordShot(Coordinate where, Ship<Character> target) {
+        // a sweep does not look at the results
+    }
+}
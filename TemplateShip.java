@@ -0,0 +1,44 @@
+package battleship;
+
+/**
+ * This interface represents a ship whose pieces are listed in the canonical
+ * order of its shape, so piece i of a ship is piece i of the same ship after
+ * it is moved or rotated. Its hits are a bitmask over those piece indices,
+ * and moving a ship is copying that mask to the ship at the new placement.
+ */
+public interface TemplateShip<T> extends Ship<T> {
+
+    /**
+     * This get the number of pieces of the ship, at most 64
+     */
+    public int getPieceCount();
+
+    /**
+     * This get the hit pieces, bit i set when piece i has been hit
+     */
+    public long getHitPieces();
+
+    /**
+     * This mark as hit every piece whose bit is set, e.g. the hits of the
+     * same ship before it was moved
+     *
+     * @throws IllegalArgumentException if a bit is set past the last piece
+     */
+    public void recordHitPieces(long hitPieces);
+
+    /**
+     * This record on a ship moved to placement p the hits of the ship it
+     * replaces: a copy of the hit mask when both list their pieces in the
+     * same shape's order, otherwise hit by hit
+     */
+    public static <T> void moveHits(Ship<T> toMove, Ship<T> newShip, Placement p) {
+        if (toMove instanceof TemplateShip && newShip instanceof TemplateShip
+                && ((TemplateShip<T>) toMove).getPieceCount() == ((TemplateShip<T>) newShip).getPieceCount()) {
+            ((TemplateShip<T>) newShip).recordHitPieces(((TemplateShip<T>) toMove).getHitPieces());
+            return;
+        }
+        for (Coordinate hit : toMove.moveHitCoordinate(p)) { // record all the hit
+            newShip.recordHitAt(hit);
+        }
+    }
+}
@@ -7,6 +7,7 @@ import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.function.Function;
 
 public class TextPlayer {
@@ -63,7 +64,47 @@ public class TextPlayer {
     /**
      * The status to show whether the player has lost the game
      */
-    public EasyCompletionRules<Character> myStatus;
+    public CompletionRules<Character> myStatus;
+
+    /**
+     * The writer of board changes under the delta protocol, null when the boards are sent in full
+     */
+    protected BoardDeltaWriter deltas;
+
+    /**
+     * Where the player records input waits, renders and rejected inputs
+     */
+    protected GameMetrics metrics;
+
+    /**
+     * Where the player's sonar scans are recorded, null if they are not
+     */
+    protected MoveJournal journal;
+
+    /**
+     * The nanoseconds spent waiting for input so far
+     */
+    private long inputWaitNanos;
+
+    /**
+     * The clock of the player's connection, null if the player has all the time
+     */
+    protected TurnDeadline deadline;
+
+    /**
+     * The radius of the player's sonar scans
+     */
+    protected int scanRadius;
+
+    /**
+     * The counts of the enemy board the player scans, null until the first scan
+     */
+    protected ScanEngine<Character> enemyScan;
+
+    /**
+     * The counts of the last sonar scan, reused by every scan
+     */
+    protected final int[] sonarCounts;
 
     /**
      * This get the name of the player
@@ -97,11 +138,184 @@ public class TextPlayer {
         this.shipFactory = factory;
         this.shipsToPlace = new ArrayList<String>();
         this.shipCreationFns = new HashMap<String, Function<Placement, Ship<Character>>>();
-        this.myStatus = new EasyCompletionRules<>(theBoard);
+        IncrementalCompletionRules<Character> rules = new IncrementalCompletionRules<Character>(theBoard);
+        rules.addSunkListener(ship -> metrics.shipsSunk.increment()); // the metrics of setMetrics, read as the ship sinks
+        this.myStatus = rules;
+        this.deltas = null;
+        this.metrics = GameMetrics.GLOBAL;
+        this.journal = null;
+        this.inputWaitNanos = 0;
+        this.deadline = null;
+        this.scanRadius = ScanEngine.DEFAULT_RADIUS;
+        this.enemyScan = null;
+        this.sonarCounts = new int[ScanEngine.TYPE_COUNT];
         setupShipCreationList();
         setupShipCreationMap();
     }
 
+    /**
+     * This send board changes instead of rendered boards from now on,
+     * for clients that render the boards themselves
+     */
+    public void useDeltaProtocol() {
+        if (deltas == null) {
+            deltas = new BoardDeltaWriter(theBoard, out);
+        }
+    }
+
+    /**
+     * This change where the player records its timings and counts
+     */
+    public void setMetrics(GameMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * This change where the player's sonar scans are recorded, null for nowhere
+     */
+    public void setJournal(MoveJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * This set the clock the player's turns are timed with, null for none
+     */
+    public void setTurnDeadline(TurnDeadline deadline) {
+        this.deadline = deadline;
+    }
+
+    public TurnDeadline getTurnDeadline() {
+        return deadline;
+    }
+
+    /**
+     * This change the radius of the player's sonar scans, for boards larger than the standard one
+     */
+    public void setScanRadius(int scanRadius) {
+        if (scanRadius < 0) {
+            throw new IllegalArgumentException("The scan radius cannot be negative, but is " + scanRadius);
+        }
+        this.scanRadius = scanRadius;
+        if (enemyScan != null) { // built again with the new stencil on the next scan
+            enemyScan.close();
+            enemyScan = null;
+        }
+    }
+
+    /**
+     * This get the scan engine of the enemy board, listening to it from the first scan on
+     */
+    protected ScanEngine<Character> scanEngineFor(Board<Character> enemyBoard) {
+        if (enemyScan == null || enemyScan.getBoard() != enemyBoard) {
+            if (enemyScan != null) {
+                enemyScan.close();
+            }
+            enemyScan = new ScanEngine<Character>(enemyBoard, scanRadius);
+        }
+        return enemyScan;
+    }
+
+    /**
+     * This get the nanoseconds the player has spent waiting for input so far
+     */
+    public long getInputWaitNanos() {
+        return inputWaitNanos;
+    }
+
+    /**
+     * This send the player what is pending, then read one line of input, timing the wait
+     *
+     * @return the line
+     * @throws TurnTimeoutException if the player ran out of time
+     * @throws EOFException if the player left
+     */
+    protected String readLine() throws IOException {
+        out.flush(); // the prompt and everything before it, in one write when the output is batched
+        long start = System.nanoTime();
+        String s = inputReader.readLine();
+        long waited = System.nanoTime() - start;
+        inputWaitNanos += waited;
+        metrics.inputWait.record(waited);
+        if (s == null) {
+            if (deadline != null && deadline.hasExpired()) { // the deadline hung up the input
+                throw new TurnTimeoutException(name);
+            }
+            throw new EOFException("Player " + name + " left");
+        }
+        return s;
+    }
+
+    /**
+     * This tell the player why the input was rejected before asking again
+     */
+    protected void rejectInput(String message) {
+        metrics.invalidInputs.increment();
+        out.println(message);
+    }
+
+    /**
+     * This show my own board to the player
+     */
+    protected void printMyBoard() {
+        if (deltas != null) {
+            deltas.showMyBoard();
+        }
+        else {
+            long start = System.nanoTime();
+            String board = view.displayMyOwnBoard();
+            metrics.render.record(System.nanoTime() - start);
+            out.print(board);
+        }
+    }
+
+    /**
+     * This show whose turn it is, then my board and the enemy board next to each other
+     */
+    protected void printTurn(Board<Character> enemyBoard, BoardTextView enemyView, String enemyName) {
+        if (deltas != null) {
+            deltas.watchEnemy(enemyBoard);
+            deltas.showTurn(name, enemyName);
+            return;
+        }
+        out.println(turnLine(name)); // print my turn prompt
+        String myHeader = "Your ocean";
+        String enemyHeader = oceanHeader(enemyName);
+        long start = System.nanoTime();
+        String boards = view.displayMyBoardWithEnemyNextToIt(enemyView, myHeader, enemyHeader);
+        metrics.render.record(System.nanoTime() - start);
+        out.println(boards); // print the display information of two boards
+    }
+
+    /**
+     * The prompt asking for a coordinate to fire at
+     */
+    public static final String FIRE_PROMPT = "Please choose a coordinate to fire at:";
+
+    /**
+     * This makes the line announcing a player's turn
+     */
+    public static String turnLine(String name) {
+        return "Player " + name + "'s turn:";
+    }
+
+    /**
+     * This makes the header above the board of a player, as the enemy sees it
+     */
+    public static String oceanHeader(String name) {
+        return "Player " + name + "'s ocean";
+    }
+
+    /**
+     * This makes the menu of actions a player can choose from
+     */
+    public static String actionPrompt(String name, int moveCounts, int scanCounts) {
+        return "Possible actions for Player " + name + ":\n\n\n" +
+                "F Fire at a square\n" +
+                "M Move a ship to another square (" + moveCounts +" remaining)\n" +
+                "S Sonar scan (" + scanCounts + " remaining)\n\n\n" +
+                "Player " + name + ", what would you like to do?";
+    }
+
     /**
      * This set up the map of different kinds of ships for creation
      */
@@ -127,7 +341,7 @@ public class TextPlayer {
      */
     public Placement readPlacement(String prompt) throws IOException {
         out.println(prompt);
-        String s = inputReader.readLine();
+        String s = readLine();
         if (s == null) {
             throw new EOFException();
         }
@@ -142,7 +356,7 @@ public class TextPlayer {
         try { p = readPlacement("Player " + name + " where do you want to place a " + shipName + "?"); // read a Placement
         }
         catch (IllegalArgumentException e) { // invalid placement with incorrect input information
-            out.println(e.getMessage()); // print out the message to user
+            rejectInput(e.getMessage()); // print out the message to user
             doOnePlacement(shipName, createFn); // read input again
             return;
         }
@@ -151,24 +365,24 @@ public class TextPlayer {
             s = createFn.apply(p); // create a ship based on the location in that Placement
         }
         catch(IllegalArgumentException e) {
-            out.println(e.getMessage()); // print out the message to user
+            rejectInput(e.getMessage()); // print out the message to user
             doOnePlacement(shipName, createFn); // read input again
             return;
         }
         String res = theBoard.tryAddShip(s); // add that ship to the board
         if (res != null) { // invalid placement that violates placement rules. fail to add ship
-            out.println(res); // print out the message to user
+            rejectInput(res); // print out the message to user
             doOnePlacement(shipName, createFn); // read input again
             return;
         }
-        out.print(view.displayMyOwnBoard()); // print out the board
+        printMyBoard(); // print out the board
     }
 
     /**
      * This generate the make placement phase for players during the battleship game
      */
     public void doPlacementPhase() throws IOException {
-        out.print(view.displayMyOwnBoard()); // the initial empty board
+        printMyBoard(); // the initial empty board
         // the instruction
         out.print("Player " + name + ":"
                 + " you are going to place the following ships (which are all rectangular)."
@@ -195,67 +409,32 @@ public class TextPlayer {
     }
 
     private Coordinate coordinateCheck(String s, Board<Character> board) {
-        int width = board.getWidth();
-        int height = board.getHeight();
-
-        validateInputFormat(s);
-        char rowLetter = extractRowLetter(s);
-        int row = validateAndConvertRow(rowLetter, height);
-        int column = validateAndConvertColumn(s.substring(1), width);
-
-        return new Coordinate(row, column);
-    }
-
-    private void validateInputFormat(String s) {
-        if (s.length() != 2) {
-            throw new IllegalArgumentException("That coordinate is invalid: it does not have the correct format.");
-        }
-    }
-
-    private char extractRowLetter(String s) {
-        char rowLetter = Character.toUpperCase(s.charAt(0));
-        if (rowLetter < 'A' || rowLetter > 'Z') {
-            throw new IllegalArgumentException("That coordinate is invalid: it does not have the correct format.");
-        }
-        return rowLetter;
-    }
-
-    private int validateAndConvertRow(char rowLetter, int height) {
-        int row = rowLetter - 'A';
-        if (row < 0 || row > height - 1) {
+        Coordinate c = new Coordinate(s); // row letters then column digits, e.g. "A0" or "AB123"
+        if (c.getRow() > board.getHeight() - 1 || c.getColumn() > board.getWidth() - 1) {
             throw new IllegalArgumentException("That coordinate is invalid: it is out of the board.");
         }
-        return row;
-    }
-
-    private int validateAndConvertColumn(String columnString, int width) {
-        char columnLetter = columnString.charAt(0);
-        if (columnLetter < '0' || columnLetter > '9') {
-            throw new IllegalArgumentException("That coordinate is invalid: it does not have the correct format.");
-        }
-
-        int column = Integer.parseInt(columnString);
-        if (column > width - 1 || column < 0) {
-            throw new IllegalArgumentException("That coordinate is invalid: it is out of the board.");
-        }
-        return column;
+        return Coordinate.of(c.getRow(), c.getColumn());
     }
 
 
     private Coordinate getFireCoordinate(Board<Character> enemyBoard) throws IOException {
-        String firePrompt = "Please choose a coordinate to fire at:";
         Coordinate c = null;
         // try until the input is a vaild coordinate to fire at
         boolean status = false;
         while(!status) {
             try {
-                out.println(firePrompt);
-                String s = inputReader.readLine();
+                if (deltas != null) {
+                    deltas.showFirePrompt();
+                }
+                else {
+                    out.println(FIRE_PROMPT);
+                }
+                String s = readLine();
                 c = coordinateCheck(s, enemyBoard); // check the validity of coordinate
                 status = true; // valid input
             }
             catch (IllegalArgumentException e) {
-                out.println(e.getMessage()); // print the exception message out
+                rejectInput(e.getMessage()); // print the exception message out
                 continue; // try again
             }
         }
@@ -283,14 +462,43 @@ public class TextPlayer {
      * This perform a one-turn action of a player
      */
     public void playOneTurn(Board<Character> enemyBoard, BoardTextView enemyView, String enemyName) throws IOException {
-        String myTurn = "Player " + name + "'s turn:";
-        out.println(myTurn); // print my turn prompt
-        String myHeader = "Your ocean";
-        String enemyHeader = "Player " + enemyName + "'s ocean";
-        out.println(view.displayMyBoardWithEnemyNextToIt(enemyView, myHeader, enemyHeader)); // print the display information of two boards
+        printTurn(enemyBoard, enemyView, enemyName); // print my turn prompt and the two boards
         doChooseAction(enemyBoard);
     }
 
+    /**
+     * This ask the player which opponent to attack this turn, in a match of more than two players
+     *
+     * @param opponents is the names of the opponents still in the game
+     * @return the index of the opponent chosen
+     */
+    public int chooseTarget(List<String> opponents) throws IOException {
+        StringBuilder prompt = new StringBuilder("Player " + name + ", which player do you want to attack?\n");
+        for (int i = 0; i < opponents.size(); i++) {
+            prompt.append(i + 1).append(". Player ").append(opponents.get(i)).append("\n");
+        }
+        // try until the input is a number or name of an opponent
+        while (true) {
+            out.println(prompt);
+            String s = readLine();
+            try {
+                return targetCheck(s.trim(), opponents);
+            }
+            catch (IllegalArgumentException e) {
+                rejectInput(e.getMessage());
+            }
+        }
+    }
+
+    private int targetCheck(String s, List<String> opponents) {
+        for (int i = 0; i < opponents.size(); i++) {
+            if (s.equals(Integer.toString(i + 1)) || s.equalsIgnoreCase(opponents.get(i))) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("That player is invalid: " + s);
+    }
+
     private Coordinate getScanCoordinate(Board<Character> enemyBoard) throws IOException {
         Coordinate c = null;
         String prompt = "Please choose the center coordinate for sonar scan:";
@@ -299,12 +507,12 @@ public class TextPlayer {
         while(flag) {
             try {
                 out.println(prompt);
-                String s = inputReader.readLine();
+                String s = readLine();
                 c = coordinateCheck(s, enemyBoard); // check the validity of coordinate
                 flag = false; // valid input
             }
             catch (IllegalArgumentException e) {
-                out.println(e.getMessage()); // print the exception message out
+                rejectInput(e.getMessage()); // print the exception message out
                 continue; // try again
             }
         }
@@ -313,86 +521,35 @@ public class TextPlayer {
 
     public void doScan(Board<Character> enemyBoard) throws IOException {
         Coordinate c = getScanCoordinate(enemyBoard);
-        ArrayList<Coordinate> scanCoordinates = generateScanCoordinates(c, enemyBoard);
-        int[] shipCounts = countShipsInScanArea(enemyBoard, scanCoordinates);
+        int[] shipCounts = scanEngineFor(enemyBoard).scan(c, sonarCounts);
+        if (journal != null) {
+            journal.recordScan(enemyBoard, c, scanRadius, shipCounts);
+        }
         String res = generateScanResult(shipCounts);
         out.print(res);
     }
 
-    private ArrayList<Coordinate> generateScanCoordinates(Coordinate center, Board<Character> enemyBoard) {
-        int height = enemyBoard.getHeight();
-        int width = enemyBoard.getWidth();
-        int column = center.getColumn();
-        int row = center.getRow();
-
-        ArrayList<Coordinate> scanCoordinates = new ArrayList<>();
-        for (int j = column - 3; j <= column + 3; j++) {
-            int i = row;
-            if (0 <= i && i <= height - 1 && 0 <= j && j <= width - 1) {
-                scanCoordinates.add(new Coordinate(i, j));
-            }
-        }
-        if (0 <= row + 3 && row + 3 <= height - 1 && 0 <= column && column <= width - 1) {
-            scanCoordinates.add(new Coordinate(row + 3, column));
-        }
-        if (0 <= row - 3 && row - 3 <= height - 1 && 0 <= column && column <= width - 1) {
-            scanCoordinates.add(new Coordinate(row - 3, column));
-        }
-        for (int j = column - 1; j <= column + 1; j++) {
-            int i = row + 2;
-            if (0 <= i && i <= height - 1 && 0 <= j && j <= width - 1) {
-                scanCoordinates.add(new Coordinate(i, j));
-            }
-        }
-        for (int j = column - 1; j <= column + 1; j++) {
-            int i = row - 2;
-            if (0 <= i && i <= height - 1 && 0 <= j && j <= width - 1) {
-                scanCoordinates.add(new Coordinate(i, j));
-            }
-        }
-        for (int j = column - 2; j <= column + 2; j++) {
-            int i = row + 1;
-            if (0 <= i && i <= height - 1 && 0 <= j && j <= width - 1) {
-                scanCoordinates.add(new Coordinate(i, j));
-            }
-        }
-        for (int j = column - 2; j <= column + 2; j++) {
-            int i = row - 1;
-            if (0 <= i && i <= height - 1 && 0 <= j && j <= width - 1) {
-                scanCoordinates.add(new Coordinate(i, j));
-            }
-        }
-
-        return scanCoordinates;
-    }
-
-    private int[] countShipsInScanArea(Board<Character> enemyBoard, ArrayList<Coordinate> scanCoordinates) {
-        int submairneNum = 0;
-        int destroyerNum = 0;
-        int battleshipNum = 0;
-        int carrierNum = 0;
-
-        for (Coordinate scanCoordinate : scanCoordinates) {
-            Ship<Character> ship = enemyBoard.getShipAt(scanCoordinate);
-            if (ship != null) {
-                switch (ship.getName()) {
-                    case "Carrier":
-                        carrierNum += 1;
-                        break;
-                    case "Destroyer":
-                        destroyerNum += 1;
-                        break;
-                    case "Submarine":
-                        submairneNum += 1;
-                        break;
-                    case "Battleship":
-                        battleshipNum += 1;
-                        break;
-                }
-            }
-        }
+    /**
+     * This count the squares of each ship type in the standard sonar area
+     * around a center, for a one-off scan of a board nobody keeps scanning
+     *
+     * @return the squares of submarines, destroyers, battleships and carriers
+     */
+    public static int[] sonarScan(Board<Character> enemyBoard, Coordinate center) {
+        return sonarScan(enemyBoard, center, ScanEngine.DEFAULT_RADIUS);
+    }
 
-        return new int[]{submairneNum, destroyerNum, battleshipNum, carrierNum};
+    /**
+     * This count the squares of each ship type within the radius of a
+     * center, for a one-off scan, e.g. replaying a recorded one
+     *
+     * @return the squares of submarines, destroyers, battleships and carriers
+     * @throws IllegalArgumentException if the radius is negative
+     */
+    public static int[] sonarScan(Board<Character> enemyBoard, Coordinate center, int radius) {
+        ScanEngine<Character> engine = new ScanEngine<Character>(enemyBoard, radius);
+        engine.close();
+        return engine.scan(center, new int[ScanEngine.TYPE_COUNT]);
     }
 
     private String generateScanResult(int[] shipCounts) {
@@ -434,7 +591,7 @@ public class TextPlayer {
         String prompt = "Please choose a ship to move:";
         out.println(prompt);
         Coordinate c = null;
-        String s = inputReader.readLine();
+        String s = readLine();
         c = coordinateCheck(s, theBoard); // check the validity of coordinate
         Ship<Character> ship = theBoard.getShipAt(c);
         if (ship == null) {
@@ -447,7 +604,7 @@ public class TextPlayer {
         String prompt = "Please enter the location to move your ship to:";
         out.println(prompt);
         Placement p = null;
-        String s = inputReader.readLine();
+        String s = readLine();
         p = new Placement(s);
         return p;
     }
@@ -477,22 +634,23 @@ public class TextPlayer {
      * This perform a choose action process of a player
      */
     public void doChooseAction(Board<Character> enemyBoard) throws IOException {
-        String prompt = "Possible actions for Player " + name + ":\n\n\n" +
-                "F Fire at a square\n" +
-                "M Move a ship to another square (" + moveCounts +" remaining)\n" +
-                "S Sonar scan (" + scanCounts + " remaining)\n\n\n" +
-                "Player " + name + ", what would you like to do?";
+        String prompt = actionPrompt(name, moveCounts, scanCounts);
         Character choice = null;
         boolean flag = true;
         while(flag) {
             try {
-                out.println(prompt);
-                String s = inputReader.readLine();
+                if (deltas != null) {
+                    deltas.showActionPrompt(name, moveCounts, scanCounts);
+                }
+                else {
+                    out.println(prompt);
+                }
+                String s = readLine();
                 choice = choiceCheck(s, enemyBoard);
                 flag = false;
             }
             catch (IllegalArgumentException e) {
-                out.println(e.getMessage());
+                rejectInput(e.getMessage());
                 continue;
             }
         }
@@ -506,7 +664,7 @@ public class TextPlayer {
                 moveCounts -= 1;
             }
             catch (IllegalArgumentException e) {
-                out.println(e.getMessage());
+                rejectInput(e.getMessage());
                 doChooseAction(enemyBoard);
                 return;
             }
@@ -0,0 +1,500 @@
+package battleship;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.PushbackInputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class is a thread-per-session game server: every accepted
+ * connection is handled on its own thread until it is queued in the
+ * Matchmaker, and every match runs on a thread of its own with plain
+ * blocking socket streams. A connection that resumed its saved match
+ * (see ResumeRegistry) keeps its thread while the other player is away:
+ * the thread watches the connection, takes it out of the registry if it
+ * drops, and plays the match once the other player is back.
+ * In VIRTUAL mode those threads are Java 21 virtual threads, so parked
+ * readers cost a small heap object instead of an OS thread.
+ */
+public class ThreadedGameServer implements Runnable {
+
+    /**
+     * The kind of thread every session runs on
+     */
+    public enum Mode {
+        PLATFORM, VIRTUAL
+    }
+
+    /**
+     * The listening socket
+     */
+    private final ServerSocket serverSocket;
+
+    /**
+     * The executor creating one thread per session
+     */
+    private final ExecutorService sessionExecutor;
+
+    /**
+     * How often a connection waiting for the other player of its saved match is checked
+     */
+    private static final int WATCH_MILLIS = 50;
+
+    /**
+     * A connection, the stream its input is read from and the queue its output is written through
+     */
+    private static class Client {
+        final Socket socket;
+        final InputStream in;
+        final QueuedOutputStream out;
+
+        /**
+         * The saved match of the client once the other player is back, handed over by that player's thread
+         */
+        final ArrayBlockingQueue<ResumeRegistry.Resume<Client>> resumed;
+
+        Client(Socket socket, InputStream in, QueuedOutputStream out) {
+            this.socket = socket;
+            this.in = in;
+            this.out = out;
+            this.resumed = new ArrayBlockingQueue<ResumeRegistry.Resume<Client>>(1);
+        }
+    }
+
+    /**
+     * The queue starting the matches of incoming connections
+     */
+    private final Matchmaker<Client> matchmaker;
+
+    /**
+     * The number of matches currently running
+     */
+    private final AtomicInteger activeMatches;
+
+    /**
+     * The thread mode of this server
+     */
+    private final Mode mode;
+
+    /**
+     * Whether the matches send board changes instead of rendered boards
+     */
+    private final boolean deltaProtocol;
+
+    /**
+     * Where the matches are saved after every turn, null if they are not
+     */
+    private final SnapshotStore store;
+
+    /**
+     * The saved matches waiting for their players to reconnect
+     */
+    private final ResumeRegistry<Client> registry;
+
+    /**
+     * The lock a player back to a saved match is attached and the match
+     * handed over under, and a waiting player who left is taken out under
+     */
+    private final Object handOver = new Object();
+
+    /**
+     * The directory where the matches record their moves, null if they do not
+     */
+    private volatile File journalDirectory;
+
+    /**
+     * How long the players of the matches started from now on may take, null if they have all the time
+     */
+    private volatile TurnLimit turnLimit;
+
+    /**
+     * The size of the boards of the matches started from now on
+     */
+    private volatile int boardWidth = App.WIDTH;
+    private volatile int boardHeight = App.HEIGHT;
+
+    /**
+     * The radius of the sonar scans of the players of the matches started from now on
+     */
+    private volatile int scanRadius = ScanEngine.DEFAULT_RADIUS;
+
+    /**
+     * Constructs a server listening on the given port with the given thread mode
+     *
+     * @throws IllegalStateException if virtual threads are requested on a JVM older than 21
+     */
+    public ThreadedGameServer(int port, Mode mode) throws IOException {
+        this(port, mode, false);
+    }
+
+    /**
+     * Constructs a server listening on the given port with the given thread mode,
+     * whose matches use the delta protocol (see BoardDeltaWriter) if deltaProtocol is true
+     *
+     * @throws IllegalStateException if virtual threads are requested on a JVM older than 21
+     */
+    public ThreadedGameServer(int port, Mode mode, boolean deltaProtocol) throws IOException {
+        this(port, mode, deltaProtocol, null);
+    }
+
+    /**
+     * Constructs a server whose matches are saved after every turn into the
+     * store, if not null, and can be resumed when a connection drops
+     *
+     * @throws IllegalStateException if virtual threads are requested on a JVM older than 21
+     */
+    public ThreadedGameServer(int port, Mode mode, boolean deltaProtocol, SnapshotStore store) throws IOException {
+        this.mode = mode;
+        this.deltaProtocol = deltaProtocol;
+        this.store = store;
+        this.registry = new ResumeRegistry<Client>(store);
+        this.sessionExecutor = mode == Mode.VIRTUAL ? newVirtualThreadExecutor() : Executors.newCachedThreadPool();
+        this.serverSocket = new ServerSocket(port, 1024);
+        this.matchmaker = new Matchmaker<Client>(new Host());
+        this.activeMatches = new AtomicInteger(0);
+    }
+
+    /**
+     * This check whether the running JVM supports virtual threads
+     */
+    public static boolean virtualThreadsSupported() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        }
+        catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * This create an executor starting a new virtual thread per task.
+     * It is looked up reflectively so the project still compiles for Java 8.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads need Java 21 or later, but running on " + System.getProperty("java.version"));
+        }
+    }
+
+    /**
+     * This get the port the server is actually bound to
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * This get the thread mode of the server
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * This get the number of matches currently running
+     */
+    public int getActiveMatches() {
+        return activeMatches.get();
+    }
+
+    /**
+     * This get the queue starting the matches, e.g. to change its bounds
+     */
+    public Matchmaker<?> getMatchmaker() {
+        return matchmaker;
+    }
+
+    /**
+     * This record every move of the matches started from now on in a journal in the directory, see MoveJournal
+     */
+    public void setJournalDirectory(File journalDirectory) {
+        this.journalDirectory = journalDirectory;
+    }
+
+    /**
+     * This time the players of the matches started from now on, see TurnLimit; null for no limit
+     */
+    public void setTurnLimit(TurnLimit turnLimit) {
+        this.turnLimit = turnLimit;
+    }
+
+    /**
+     * This change the size of the boards of the matches started from now on, see Match.setBoardSize
+     */
+    public void setBoardSize(int width, int height) {
+        Match.checkBoardSize(width, height);
+        this.boardWidth = width;
+        this.boardHeight = height;
+    }
+
+    /**
+     * This change the radius of the sonar scans of the players of the matches started from now on, see Match.setScanRadius
+     */
+    public void setScanRadius(int scanRadius) {
+        Match.checkScanRadius(scanRadius);
+        this.scanRadius = scanRadius;
+    }
+
+    /**
+     * This make saved matches, e.g. recovered from the store after a crash,
+     * wait for their players to reconnect
+     */
+    public void offerResumes(Map<Long, byte[]> snapshots) {
+        registry.offerAll(snapshots);
+    }
+
+    /**
+     * This stop accepting connections and interrupt the running sessions
+     */
+    public void shutdown() throws IOException {
+        matchmaker.close();
+        serverSocket.close();
+        sessionExecutor.shutdownNow();
+    }
+
+    /**
+     * This accept connections until the server is shut down
+     */
+    @Override
+    public void run() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                socket.setKeepAlive(true); // a client gone without closing is eventually reset
+                sessionExecutor.execute(() -> handleSession(socket));
+            }
+            catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * This pair the connection with a waiting one, or bring it back to its
+     * saved match, and play the match on this thread once both players are there
+     */
+    private void handleSession(Socket socket) {
+        ResumeRegistry.Resume<Client> resume;
+        try {
+            QueuedOutputStream out = new QueuedOutputStream(socket.getOutputStream(), sessionExecutor, socket); // a client not reading cannot block the match
+            Client client = new Client(socket, socket.getInputStream(), out);
+            String line = null;
+            if (!registry.isEmpty()) { // give the client a moment to ask for its saved match
+                PushbackInputStream in = new PushbackInputStream(socket.getInputStream(), ResumeRegistry.MAX_LINE);
+                client = new Client(socket, in, out);
+                socket.setSoTimeout((int) ResumeRegistry.GRACE_MILLIS);
+                line = ResumeRegistry.readResumeLine(in);
+                socket.setSoTimeout(0);
+            }
+            if (line == null) { // the match is played on a thread of its own once it starts
+                matchmaker.join(client);
+                return;
+            }
+            synchronized (handOver) {
+                resume = registry.attach(line, client);
+                if (resume != null) { // the thread of the player who waited plays the match, it reads that socket
+                    (resume.first == client ? resume.second : resume.first).resumed.add(resume);
+                    return;
+                }
+            }
+            resume = awaitOtherPlayer(client, (PushbackInputStream) client.in); // read with a resume line, see above
+            if (resume == null) {
+                return;
+            }
+        }
+        catch (IllegalArgumentException e) {
+            try {
+                new PrintStream(socket.getOutputStream(), true).println(e.getMessage());
+            }
+            catch (IOException ignored) {
+                // the client is gone anyway
+            }
+            closeQuietly(socket);
+            return;
+        }
+        catch (IOException e) {
+            closeQuietly(socket);
+            return;
+        }
+        matchmaker.matchResumed();
+        playMatch(resume.first, resume.second, resume.snapshot);
+    }
+
+    /**
+     * This watch the connection of a player back to a saved match until
+     * the other player is back too, taking it out of the registry if it
+     * drops. A client sending input meanwhile is not watched any more, its
+     * input is left for the match.
+     *
+     * @return the match to resume, null if the connection dropped or the match is given up
+     */
+    private ResumeRegistry.Resume<Client> awaitOtherPlayer(Client client, PushbackInputStream in) {
+        ResumeRegistry.Resume<Client> resume = null;
+        long giveUp = System.currentTimeMillis() + ResumeRegistry.KEEP_MILLIS;
+        try {
+            client.socket.setSoTimeout(WATCH_MILLIS);
+            boolean open = true;
+            while (open && (resume = client.resumed.poll()) == null && System.currentTimeMillis() < giveUp) {
+                try {
+                    int b = in.read();
+                    if (b < 0) { // gone, unless the other player came back meanwhile
+                        open = false;
+                    }
+                    else {
+                        in.unread(b);
+                        client.socket.setSoTimeout(0);
+                        resume = client.resumed.poll(giveUp - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+                        break;
+                    }
+                }
+                catch (SocketTimeoutException e) {
+                    // still there
+                }
+            }
+            client.socket.setSoTimeout(0);
+        }
+        catch (IOException | InterruptedException e) {
+            // gone, or the server is shut down
+        }
+        if (resume == null) {
+            synchronized (handOver) {
+                registry.leave(client);
+                resume = client.resumed.poll();
+            }
+        }
+        if (resume == null) {
+            close(client);
+        }
+        return resume;
+    }
+
+    /**
+     * This play a match on this thread, or resume it from its snapshot if
+     * not null; a match between a client and a computer if second is null.
+     * The matchmaker counts the match, and is told when it ends
+     */
+    private void playMatch(Client first, Client second, byte[] snapshot) {
+        activeMatches.incrementAndGet();
+        try {
+            Match match = second == null
+                    ? Match.againstComputer(first.in, first.out, deltaProtocol, GameMetrics.GLOBAL)
+                    : new Match(first.in, first.out, second.in, second.out, deltaProtocol, GameMetrics.GLOBAL,
+                    store, store == null ? null : registry);
+            match.setJournalDirectory(journalDirectory);
+            match.setBoardSize(boardWidth, boardHeight);
+            match.setScanRadius(scanRadius);
+            TurnLimit limit = turnLimit;
+            if (limit != null) { // a player out of time reads end of input
+                match.setTurnLimit(limit, () -> shutdownInput(first.socket),
+                        second == null ? () -> { } : () -> shutdownInput(second.socket));
+            }
+            if (snapshot == null) {
+                match.play();
+            }
+            else {
+                match.resume(snapshot);
+            }
+        }
+        catch (IOException e) {
+            // a player left, the match is over
+        }
+        finally {
+            activeMatches.decrementAndGet();
+            matchmaker.matchEnded();
+            close(first);
+            if (second != null) {
+                close(second);
+            }
+        }
+    }
+
+    /**
+     * This close a connection after its pending output is written
+     */
+    private static void close(Client client) {
+        closeQuietly(client.out);
+        closeQuietly(client.socket);
+    }
+
+    /**
+     * This class starts the matches of the matchmaker, each on a thread of
+     * its own, and tells the waiting clients their position
+     */
+    private class Host implements Matchmaker.Host<Client> {
+        @Override
+        public void startMatch(Client first, Client second) {
+            start(() -> playMatch(first, second, null), first, second);
+        }
+
+        @Override
+        public void startComputerMatch(Client player) {
+            start(() -> playMatch(player, null, null), player, null);
+        }
+
+        private void start(Runnable match, Client first, Client second) {
+            try {
+                sessionExecutor.execute(match);
+            }
+            catch (RejectedExecutionException e) { // the server is shutting down
+                matchmaker.matchEnded();
+                close(first);
+                if (second != null) {
+                    close(second);
+                }
+            }
+        }
+
+        @Override
+        public boolean tellPosition(Client player, int position) {
+            try {
+                player.out.write(Matchmaker.positionLine(position).getBytes(StandardCharsets.US_ASCII));
+                return true;
+            }
+            catch (IOException e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * This end the input of a connection, waking the match reading it
+     */
+    private static void shutdownInput(Socket socket) {
+        try {
+            socket.shutdownInput();
+        }
+        catch (IOException e) {
+            // already closed
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        }
+        catch (IOException e) {
+            // already closed
+        }
+    }
+}
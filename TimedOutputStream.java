@@ -0,0 +1,45 @@
+package battleship;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * This class times every write and flush to a client connection and
+ * counts the bytes written, into GameMetrics.
+ */
+public class TimedOutputStream extends FilterOutputStream {
+
+    private final GameMetrics metrics;
+
+    /**
+     * Constructs a stream timing the writes to out
+     */
+    public TimedOutputStream(OutputStream out, GameMetrics metrics) {
+        super(out);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        long start = System.nanoTime();
+        out.write(b);
+        metrics.socketWrite.record(System.nanoTime() - start);
+        metrics.bytesWritten.increment();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        long start = System.nanoTime();
+        out.write(b, off, len); // FilterOutputStream would write byte by byte
+        metrics.socketWrite.record(System.nanoTime() - start);
+        metrics.bytesWritten.add(len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        long start = System.nanoTime();
+        out.flush();
+        metrics.socketWrite.record(System.nanoTime() - start);
+    }
+}
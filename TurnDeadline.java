@@ -0,0 +1,101 @@
+package battleship;
+
+/**
+ * This class is the clock of one player's connection. It is started when
+ * the player is asked to play and cancelled once the player did; if it
+ * runs out first, the input of the connection is hung up, so the match
+ * blocked reading it wakes up with end of input and, seeing the deadline
+ * expired, throws a TurnTimeoutException instead of an EOFException.
+ * Starting, cancelling and expiring hold the lock of the deadline, so a
+ * timer firing after cancel returned does nothing. The input cannot be
+ * read once hung up, so every clock started after that has expired.
+ * The timers run on the HashedWheelTimer shared by all matches.
+ */
+public class TurnDeadline {
+
+    private final HashedWheelTimer timer;
+
+    /**
+     * What ends the input of the connection, e.g. Socket.shutdownInput
+     */
+    private final Runnable hangUp;
+
+    /**
+     * The running timer, null if none
+     */
+    private HashedWheelTimer.Timeout pending;
+
+    /**
+     * The number of clocks started or cancelled, so only the running one expires
+     */
+    private int clock;
+
+    /**
+     * Whether the running or last clock ran out
+     */
+    private volatile boolean expired;
+
+    /**
+     * Whether the input was hung up
+     */
+    private boolean hungUp;
+
+    /**
+     * Constructs a deadline on the shared timer, hanging up the input when it expires
+     */
+    public TurnDeadline(Runnable hangUp) {
+        this(HashedWheelTimer.shared(), hangUp);
+    }
+
+    /**
+     * Constructs a deadline on the given timer, hanging up the input when it expires
+     */
+    public TurnDeadline(HashedWheelTimer timer, Runnable hangUp) {
+        this.timer = timer;
+        this.hangUp = hangUp;
+        this.pending = null;
+        this.clock = 0;
+        this.expired = false;
+        this.hungUp = false;
+    }
+
+    /**
+     * This give the player millis from now, replacing the running timer if any
+     */
+    public synchronized void start(long millis) {
+        cancel();
+        expired = hungUp;
+        if (!hungUp) {
+            int started = clock;
+            pending = timer.schedule(() -> expire(started), millis);
+        }
+    }
+
+    /**
+     * This stop the running timer, the player answered in time
+     */
+    public synchronized void cancel() {
+        clock++;
+        if (pending != null) {
+            pending.cancel();
+            pending = null;
+        }
+    }
+
+    /**
+     * This check whether the player ran out of time on the running or last clock, so the input was hung up
+     */
+    public boolean hasExpired() {
+        return expired;
+    }
+
+    private synchronized void expire(int started) {
+        if (started != clock) { // cancelled or replaced in time
+            return;
+        }
+        pending = null;
+        expired = true;
+        hungUp = true;
+        hangUp.run();
+    }
+}
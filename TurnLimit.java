@@ -0,0 +1,67 @@
+package battleship;
+
+/**
+ * This class holds how long a player may take to answer, and what
+ * happens when the time is up. Every turn of the attacking phase must be
+ * played within turnMillis; choosing the player type and placing the
+ * ships within setupMillis each. A player who runs out of time during
+ * the attacking phase forfeits the match, or has a computer play the rest
+ * of it; during setup the match is given up.
+ */
+public class TurnLimit {
+
+    /**
+     * What happens to a player who runs out of time during the attacking phase
+     */
+    public enum OnExpiry {
+        FORFEIT, COMPUTER
+    }
+
+    /**
+     * The default time of a turn
+     */
+    public static final long DEFAULT_TURN_MILLIS = 60 * 1000;
+
+    /**
+     * The setup steps take as long as this many turns, there are many ships to place
+     */
+    public static final int SETUP_TURNS = 5;
+
+    private final long turnMillis;
+
+    private final long setupMillis;
+
+    private final OnExpiry onExpiry;
+
+    /**
+     * Constructs a limit of turnMillis per turn and SETUP_TURNS times that per setup step
+     */
+    public TurnLimit(long turnMillis, OnExpiry onExpiry) {
+        this(turnMillis, SETUP_TURNS * turnMillis, onExpiry);
+    }
+
+    /**
+     * Constructs a limit of turnMillis per turn and setupMillis per setup step
+     */
+    public TurnLimit(long turnMillis, long setupMillis, OnExpiry onExpiry) {
+        if (turnMillis <= 0 || setupMillis <= 0) {
+            throw new IllegalArgumentException("The time of a turn and of a setup step must be positive, but are "
+                    + turnMillis + " and " + setupMillis);
+        }
+        this.turnMillis = turnMillis;
+        this.setupMillis = setupMillis;
+        this.onExpiry = onExpiry;
+    }
+
+    public long getTurnMillis() {
+        return turnMillis;
+    }
+
+    public long getSetupMillis() {
+        return setupMillis;
+    }
+
+    public OnExpiry getOnExpiry() {
+        return onExpiry;
+    }
+}
@@ -0,0 +1,74 @@
+package battleship;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * This class collects what a player is sent during a turn (prompts, board
+ * rows, results) in a buffer that is reused from turn to turn, and hands
+ * it to the connection in one write on flush, instead of one small write,
+ * and often one packet, per println. Players flush before waiting for
+ * input and at the end of every turn, see TextPlayer.readLine and App.
+ */
+public class TurnOutputStream extends OutputStream {
+
+    /**
+     * The stream of the connection
+     */
+    private final OutputStream out;
+
+    /**
+     * The bytes written since the last flush
+     */
+    private byte[] buffer;
+
+    private int count;
+
+    /**
+     * Constructs a stream collecting the writes to out until flushed
+     */
+    public TurnOutputStream(OutputStream out) {
+        this.out = out;
+        this.buffer = new byte[4096];
+        this.count = 0;
+    }
+
+    @Override
+    public void write(int b) {
+        ensureRoom(1);
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensureRoom(len);
+        System.arraycopy(b, off, buffer, count, len);
+        count += len;
+    }
+
+    private void ensureRoom(int len) {
+        if (count + len > buffer.length) { // a long turn, keep the larger buffer for the next ones
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + len));
+        }
+    }
+
+    /**
+     * This send everything written since the last flush in one write
+     */
+    @Override
+    public void flush() throws IOException {
+        if (count > 0) {
+            int n = count;
+            count = 0; // the bytes are dropped even if the connection fails
+            out.write(buffer, 0, n);
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        out.close();
+    }
+}
@@ -0,0 +1,25 @@
+package battleship;
+
+import java.io.IOException;
+
+/**
+ * This exception is thrown when a player did not answer before the deadline, see TurnDeadline
+ */
+public class TurnTimeoutException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The name of the player who ran out of time
+     */
+    private final String player;
+
+    public TurnTimeoutException(String player) {
+        super("Player " + player + " ran out of time");
+        this.player = player;
+    }
+
+    public String getPlayer() {
+        return player;
+    }
+}
@@ -0,0 +1,24 @@
+package battleship;
+
+/**
+ * This class runs the cases of every test class of this folder, see Checks
+ */
+public class AllTests {
+
+    public static void main(String[] args) {
+        IncrementalCompletionRulesTest.cases();
+        PackedCellMapTest.cases();
+        MatchSnapshotTest.cases();
+        SnapshotStoreTest.cases();
+        MoveJournalTest.cases();
+        OutboundLimitTest.cases();
+        QueuedOutputStreamTest.cases();
+        HashedWheelTimerTest.cases();
+        TurnDeadlineTest.cases();
+        MatchmakerTest.cases();
+        RandomFleetGeneratorTest.cases();
+        NioGameServerTest.cases();
+        ThreadedGameServerTest.cases();
+        Checks.done();
+    }
+}
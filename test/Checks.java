@@ -0,0 +1,115 @@
+package battleship;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class runs the test cases of this folder without a test library:
+ * every test class lists its cases in a static cases() method, run by
+ * its own main or by AllTests, and a case fails by throwing. The run
+ * prints every case and exits with status 1 if any failed.
+ * Usage: javac -d out *.java test/*.java && java -cp out battleship.AllTests
+ */
+final class Checks {
+
+    /**
+     * This interface is one test case
+     */
+    interface Case {
+        void run() throws Exception;
+    }
+
+    private static int passed = 0;
+
+    private static final List<String> failures = new ArrayList<String>();
+
+    private Checks() {
+    }
+
+    /**
+     * This run a case and record whether it passed
+     */
+    static void test(String name, Case c) {
+        try {
+            c.run();
+            passed++;
+            System.out.println("ok     " + name);
+        }
+        catch (Throwable e) {
+            failures.add(name);
+            System.out.println("FAILED " + name + ": " + e);
+            e.printStackTrace(System.out);
+        }
+    }
+
+    /**
+     * This print how many cases passed and exit with status 1 if one failed
+     */
+    static void done() {
+        System.out.println(passed + " passed, " + failures.size() + " failed" + (failures.isEmpty() ? "" : ": " + failures));
+        if (!failures.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new AssertionError(what);
+        }
+    }
+
+    static void equal(Object expected, Object actual, String what) {
+        if (expected == null ? actual != null : !expected.equals(actual)) {
+            throw new AssertionError(what + ": expected " + expected + " but was " + actual);
+        }
+    }
+
+    static void equal(long expected, long actual, String what) {
+        if (expected != actual) {
+            throw new AssertionError(what + ": expected " + expected + " but was " + actual);
+        }
+    }
+
+    /**
+     * This check that the code throws an exception of the given type
+     */
+    static void fails(Class<? extends Throwable> type, Case c, String what) {
+        try {
+            c.run();
+        }
+        catch (Throwable e) {
+            if (type.isInstance(e)) {
+                return;
+            }
+            throw new AssertionError(what + ": expected " + type.getSimpleName() + " but got " + e, e);
+        }
+        throw new AssertionError(what + ": expected " + type.getSimpleName() + " but nothing was thrown");
+    }
+
+    /**
+     * This describe what a board holds, to compare two boards: every ship
+     * with its pieces and which are hit, and what the enemy sees at every
+     * cell shot at
+     */
+    static String describe(Board<Character> board) {
+        List<String> ships = new ArrayList<String>();
+        for (Ship<Character> ship : board.getShips()) {
+            StringBuilder sb = new StringBuilder(ship.getName());
+            for (Coordinate c : ship.getCoordinates()) {
+                sb.append(' ').append(c).append(ship.wasHitAt(c) ? '*' : '-');
+            }
+            ships.add(sb.toString());
+        }
+        Collections.sort(ships);
+        int[] cells = board.getShotCells();
+        Arrays.sort(cells);
+        StringBuilder shots = new StringBuilder();
+        for (int packed : cells) {
+            Coordinate c = Coordinate.of(packed);
+            shots.append(c).append(board.whatIsAtForEnemy(c)).append(' ');
+        }
+        return board.getWidth() + "x" + board.getHeight() + " " + ships + " shots " + shots;
+    }
+}
@@ -0,0 +1,90 @@
+package battleship;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static battleship.Checks.check;
+import static battleship.Checks.equal;
+import static battleship.Checks.fails;
+import static battleship.Checks.test;
+
+/**
+ * This class checks that HashedWheelTimer runs a task once its delay
+ * passed, never before, and never once cancelled, including delays longer
+ * than a turn of the wheel
+ */
+public class HashedWheelTimerTest {
+
+    private static final long TICK = 10;
+
+    static void cases() {
+        HashedWheelTimer timer = new HashedWheelTimer("test-timer", TICK, 8); // a turn of the wheel is 80 ms
+        test("HashedWheelTimer runs a task once its delay passed", () -> {
+            for (long delay : new long[]{0, 30, 200}) { // 200 ms is more than two turns of the wheel
+                long waited = waitFor(timer, delay);
+                check(waited >= delay, "a task of " + delay + " ms ran after " + waited + " ms");
+                check(waited < delay + 1000, "a task of " + delay + " ms ran only after " + waited + " ms");
+            }
+        });
+        test("HashedWheelTimer never runs a cancelled task", () -> {
+            AtomicBoolean ran = new AtomicBoolean(false);
+            HashedWheelTimer.Timeout early = timer.schedule(() -> ran.set(true), 50);
+            HashedWheelTimer.Timeout late = timer.schedule(() -> ran.set(true), 150); // cancelled on the wheel
+            early.cancel();
+            Thread.sleep(60);
+            late.cancel();
+            check(early.isCancelled() && late.isCancelled(), "the timeouts are not cancelled");
+            waitFor(timer, 250);
+            check(!ran.get(), "a cancelled task ran");
+        });
+        test("HashedWheelTimer runs tasks in the order of their deadlines", () -> {
+            List<Long> order = Collections.synchronizedList(new ArrayList<Long>());
+            CountDownLatch done = new CountDownLatch(3);
+            for (long delay : new long[]{120, 20, 60}) {
+                timer.schedule(() -> {
+                    order.add(delay);
+                    done.countDown();
+                }, delay);
+            }
+            check(done.await(5, TimeUnit.SECONDS), "the tasks did not run");
+            equal("[20, 60, 120]", order.toString(), "order");
+        });
+        test("HashedWheelTimer keeps running after a task threw", () -> {
+            timer.schedule(() -> {
+                throw new IllegalStateException("a failing task, its stack trace is expected");
+            }, 0);
+            waitFor(timer, 30);
+        });
+        test("HashedWheelTimer rejects a tick or wheel that is not positive", () -> {
+            fails(IllegalArgumentException.class, () -> new HashedWheelTimer("bad", 0, 8), "no tick");
+            fails(IllegalArgumentException.class, () -> new HashedWheelTimer("bad", TICK, 0), "no slots");
+        });
+    }
+
+    /**
+     * This schedule a task and wait for it to run
+     *
+     * @return the milliseconds from scheduling it to its run
+     */
+    private static long waitFor(HashedWheelTimer timer, long delay) throws InterruptedException {
+        AtomicLong ranAt = new AtomicLong();
+        CountDownLatch ran = new CountDownLatch(1);
+        long start = System.nanoTime();
+        timer.schedule(() -> {
+            ranAt.set(System.nanoTime());
+            ran.countDown();
+        }, delay);
+        check(ran.await(delay + 5000, TimeUnit.MILLISECONDS), "a task of " + delay + " ms did not run");
+        return (ranAt.get() - start) / 1000000;
+    }
+
+    public static void main(String[] args) {
+        cases();
+        Checks.done();
+    }
+}
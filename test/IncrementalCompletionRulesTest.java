@@ -0,0 +1,45 @@
+package battleship;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static battleship.Checks.check;
+import static battleship.Checks.equal;
+import static battleship.Checks.test;
+
+/**
+ * This class checks that IncrementalCompletionRules tells its listeners
+ * about every ship as its last piece is hit, once, and sees the fleet lost
+ * when the last ship sinks
+ */
+public class IncrementalCompletionRulesTest {
+
+    static void cases() {
+        test("IncrementalCompletionRules pushes every sunk ship once", () -> {
+            V2ShipFactory factory = new V2ShipFactory();
+            Board<Character> board = new BitboardBoard<Character>(10, 20, 'X');
+            board.tryAddShip(factory.makeSubmarine(new Placement("A0H")));
+            IncrementalCompletionRules<Character> rules = new IncrementalCompletionRules<Character>(board);
+            board.tryAddShip(factory.makeDestroyer(new Placement("C0H")));
+            List<String> sunk = new ArrayList<String>();
+            rules.addSunkListener(ship -> sunk.add(ship.getName()));
+            board.fireAt(new Coordinate("A0"));
+            board.fireAt(new Coordinate("J9")); // a miss
+            equal("[]", sunk.toString(), "sunk after a hit");
+            board.fireAt(new Coordinate("A1"));
+            board.fireAt(new Coordinate("A1")); // the same piece again
+            equal("[Submarine]", sunk.toString(), "sunk");
+            equal(1, rules.getUnsunkShips(), "afloat");
+            for (String cell : new String[]{"C0", "C1", "C2"}) {
+                board.fireAt(new Coordinate(cell));
+            }
+            equal("[Submarine, Destroyer]", sunk.toString(), "sunk");
+            check(rules.checkCompletion(), "the fleet is not lost");
+        });
+    }
+
+    public static void main(String[] args) {
+        cases();
+        Checks.done();
+    }
+}
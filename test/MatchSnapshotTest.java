@@ -0,0 +1,79 @@
+package battleship;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import static battleship.Checks.check;
+import static battleship.Checks.describe;
+import static battleship.Checks.equal;
+import static battleship.Checks.fails;
+import static battleship.Checks.test;
+
+/**
+ * This class checks that a match written by MatchSnapshot reads back the
+ * same, on the default board and on boards whose cells, sizes and shot
+ * counts do not fit in a short
+ */
+public class MatchSnapshotTest {
+
+    private static final BufferedReader NO_INPUT = new BufferedReader(new StringReader(""));
+
+    private static final PrintStream NO_OUTPUT = new PrintStream(new ByteArrayOutputStream());
+
+    static void cases() {
+        test("MatchSnapshot round trip on a 10x20 board", () -> roundTrip(10, 20, 60));
+        test("MatchSnapshot round trip on a 200x200 board of 40000 cells", () -> roundTrip(200, 200, 40000));
+        test("MatchSnapshot round trip on a sparse 1000x1000 board", () -> roundTrip(1000, 1000, 3000));
+        test("MatchSnapshot rejects data that is not a snapshot", () -> {
+            fails(IllegalArgumentException.class, () -> MatchSnapshot.read(new byte[]{1, 2, 3}), "garbage");
+            byte[] snapshot = new MatchSnapshot().write(1, new String[]{"a", "b"}, 0, 0, player("A", 10, 20), player("B", 10, 20));
+            fails(IllegalArgumentException.class, () -> MatchSnapshot.read(Arrays.copyOf(snapshot, snapshot.length / 2)), "cut short");
+        });
+    }
+
+    /**
+     * A computer with its ships placed on a board of the given size
+     */
+    private static ComputerPlayer player(String name, int width, int height) {
+        ComputerPlayer player = App.createComputerPlayer(name, NO_INPUT, NO_OUTPUT, new V2ShipFactory(), width, height);
+        player.placeFleet();
+        return player;
+    }
+
+    /**
+     * This play the given number of shots each, then a move, and check the
+     * match reads back with the same ids, tokens, turn and boards
+     */
+    private static void roundTrip(int width, int height, int shots) throws IOException {
+        ComputerPlayer first = player("A", width, height);
+        ComputerPlayer second = player("B", width, height);
+        for (int i = 0; i < shots && !first.checkLose() && !second.checkLose(); i++) {
+            first.fireShot(second.getBoard());
+            second.fireShot(first.getBoard());
+        }
+        first.chooseOneAction(second.getBoard(), 'M');
+        String[] tokens = {ResumeRegistry.newToken(), ResumeRegistry.newToken()};
+
+        byte[] snapshot = new MatchSnapshot().write(42, tokens, 2 * shots, 1, first, second);
+        MatchSnapshot.Saved saved = MatchSnapshot.read(snapshot);
+        equal(42L, saved.matchId, "match id");
+        equal(Arrays.asList(tokens), Arrays.asList(saved.tokens), "tokens");
+        equal(2 * shots, saved.turns, "turns");
+        equal(1, saved.nextPlayer, "next player");
+        TextPlayer[] back = saved.restorePlayers(NO_INPUT, NO_OUTPUT, NO_INPUT, NO_OUTPUT, new V2ShipFactory());
+        equal(describe(first.getBoard()), describe(back[0].getBoard()), "board of A");
+        equal(describe(second.getBoard()), describe(back[1].getBoard()), "board of B");
+        check(back[0] instanceof ComputerPlayer && back[1] instanceof ComputerPlayer, "computers read back as computers");
+        equal(first.moveCounts, back[0].moveCounts, "moves left");
+        equal(first.scanCounts, back[0].scanCounts, "scans left");
+    }
+
+    public static void main(String[] args) {
+        cases();
+        Checks.done();
+    }
+}
@@ -0,0 +1,148 @@
+package battleship;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static battleship.Checks.check;
+import static battleship.Checks.equal;
+import static battleship.Checks.fails;
+import static battleship.Checks.test;
+
+/**
+ * This class checks that the Matchmaker pairs players in arrival order,
+ * keeps the matches running, resumed ones included, within its budget,
+ * forgets players who left, gives a lone player a computer and tells the
+ * waiting players where they are
+ */
+public class MatchmakerTest {
+
+    /**
+     * A host recording what the matchmaker asked of it
+     */
+    private static class Host implements Matchmaker.Host<String> {
+        final List<String> started = Collections.synchronizedList(new ArrayList<String>());
+        final List<String> told = Collections.synchronizedList(new ArrayList<String>());
+
+        /**
+         * The player whose connection is gone, told nothing
+         */
+        volatile String gone;
+
+        @Override
+        public void startMatch(String first, String second) {
+            started.add(first + "-" + second);
+        }
+
+        @Override
+        public void startComputerMatch(String player) {
+            started.add(player + "-computer");
+        }
+
+        @Override
+        public boolean tellPosition(String player, int position) {
+            if (player.equals(gone)) {
+                return false;
+            }
+            told.add(player + "@" + position);
+            return true;
+        }
+    }
+
+    static void cases() {
+        HashedWheelTimer timer = new HashedWheelTimer("test-matchmaker", 10, 64);
+        test("Matchmaker pairs the players in arrival order", () -> {
+            Host host = new Host();
+            Matchmaker<String> matchmaker = new Matchmaker<String>(host, 10, 0, new GameMetrics(), timer);
+            for (String player : new String[]{"a", "b", "c", "d", "e"}) {
+                matchmaker.join(player);
+            }
+            equal("[a-b, c-d]", host.started.toString(), "matches started");
+            equal(2, matchmaker.getRunningMatches(), "running");
+            equal(1, matchmaker.getQueueLength(), "waiting");
+            matchmaker.close();
+        });
+        test("Matchmaker starts a waiting match only once one ends", () -> {
+            Host host = new Host();
+            Matchmaker<String> matchmaker = new Matchmaker<String>(host, 1, 0, new GameMetrics(), timer);
+            for (String player : new String[]{"a", "b", "c", "d"}) {
+                matchmaker.join(player);
+            }
+            equal("[a-b]", host.started.toString(), "matches started within the budget");
+            equal(2, matchmaker.getQueueLength(), "waiting");
+            matchmaker.matchEnded();
+            equal("[a-b, c-d]", host.started.toString(), "matches started once a-b ended");
+            equal(1, matchmaker.getRunningMatches(), "running");
+            matchmaker.setMaxMatches(3);
+            matchmaker.join("e");
+            matchmaker.join("f");
+            equal("[a-b, c-d, e-f]", host.started.toString(), "matches started under a larger budget");
+            fails(IllegalArgumentException.class, () -> matchmaker.setMaxMatches(0), "a budget of 0");
+            matchmaker.close();
+        });
+        test("Matchmaker counts resumed matches against the budget", () -> {
+            Host host = new Host();
+            Matchmaker<String> matchmaker = new Matchmaker<String>(host, 1, 0, new GameMetrics(), timer);
+            matchmaker.matchResumed();
+            matchmaker.join("a");
+            matchmaker.join("b");
+            equal("[]", host.started.toString(), "matches started while the resumed one runs");
+            equal(1, matchmaker.getRunningMatches(), "running");
+            matchmaker.matchEnded();
+            equal("[a-b]", host.started.toString(), "matches started once the resumed one ended");
+            matchmaker.matchResumed(); // the players are back, it runs even over the budget
+            equal(2, matchmaker.getRunningMatches(), "running");
+            matchmaker.close();
+        });
+        test("Matchmaker forgets a player who left the queue", () -> {
+            Host host = new Host();
+            Matchmaker<String> matchmaker = new Matchmaker<String>(host, 10, 0, new GameMetrics(), timer);
+            matchmaker.join("a");
+            matchmaker.leave("a");
+            matchmaker.leave("nobody");
+            matchmaker.join("b");
+            matchmaker.join("c");
+            equal("[b-c]", host.started.toString(), "matches started");
+            equal(0, matchmaker.getQueueLength(), "waiting");
+            matchmaker.close();
+        });
+        test("Matchmaker gives a player left alone a computer", () -> {
+            Host host = new Host();
+            Matchmaker<String> matchmaker = new Matchmaker<String>(host, 10, 50, new GameMetrics(), timer);
+            matchmaker.join("a");
+            equal("[]", host.started.toString(), "matches started at once");
+            long deadline = System.currentTimeMillis() + 5000;
+            while (host.started.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            equal("[a-computer]", host.started.toString(), "matches started");
+            equal(1, matchmaker.getRunningMatches(), "running");
+            matchmaker.close();
+        });
+        test("Matchmaker tells the waiting players their position", () -> {
+            Host host = new Host();
+            Matchmaker<String> matchmaker = new Matchmaker<String>(host, 1, 0, new GameMetrics(), timer);
+            matchmaker.join("a");
+            matchmaker.join("b");
+            host.gone = "d";
+            for (String player : new String[]{"c", "d", "e"}) {
+                matchmaker.join(player);
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (host.told.size() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(3 * Matchmaker.CHECK_MILLIS); // positions are told again only when they change
+            check(host.told.contains("c@1") && host.told.contains("e@3"), "told " + host.told);
+            check(host.told.contains("e@2"), "e was not told it moved up once d was gone: " + host.told);
+            equal(3, host.told.size(), "positions told");
+            equal(2, matchmaker.getQueueLength(), "waiting once d is gone");
+            matchmaker.close();
+        });
+    }
+
+    public static void main(String[] args) {
+        cases();
+        Checks.done();
+    }
+}
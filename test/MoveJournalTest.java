@@ -0,0 +1,205 @@
+package battleship;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import static battleship.Checks.describe;
+import static battleship.Checks.equal;
+import static battleship.Checks.fails;
+import static battleship.Checks.test;
+
+/**
+ * This class checks that JournalReplay rebuilds the boards a MoveJournal
+ * recorded: the ships placed, every shot, move and scan, and the winner
+ */
+public class MoveJournalTest {
+
+    private static final BufferedReader NO_INPUT = new BufferedReader(new StringReader(""));
+
+    private static final PrintStream NO_OUTPUT = new PrintStream(new ByteArrayOutputStream());
+
+    static void cases() {
+        test("JournalReplay rebuilds the boards and winner of a recorded game", () -> {
+            Recorded game = record(1);
+            JournalReplay.Replay replay = JournalReplay.replay(game.journal);
+            equal(describe(game.players[0].getBoard()), describe(replay.boards.get(0)), "board of A");
+            equal(describe(game.players[1].getBoard()), describe(replay.boards.get(1)), "board of B");
+            equal(game.winner, replay.winner, "winner");
+            equal(game.actions, replay.actions, "actions");
+        });
+        test("JournalReplay stops after the given number of actions", () -> {
+            Recorded game = record(2);
+            JournalReplay.Replay replay = JournalReplay.replay(game.journal, 0);
+            equal(0, replay.actions, "actions");
+            equal(0, replay.boards.get(0).getShotCells().length, "shots at A");
+            equal(game.players[0].getBoard().getShips().size(), replay.boards.get(0).getShips().size(), "ships of A");
+            equal(-1, replay.winner, "winner");
+        });
+        test("JournalReplay ignores a last record cut short by a crash", () -> {
+            Recorded game = record(3);
+            byte[] cut = Arrays.copyOf(game.journal, game.journal.length - 1); // into the end record
+            equal(-1, JournalReplay.replay(cut).winner, "winner");
+        });
+        test("JournalReplay reports a journal that does not replay", () -> {
+            Recorded game = record(4);
+            fails(IllegalArgumentException.class, () -> JournalReplay.replay(new byte[]{0, 5, 1, 2, 3, 4, 5}), "not a journal");
+            byte[] tampered = game.journal.clone();
+            tampered[game.firstFireResult] = (byte) (tampered[game.firstFireResult] == -1 ? 0 : -1);
+            fails(IllegalArgumentException.class, () -> JournalReplay.replay(tampered), "a shot result changed");
+        });
+        test("JournalReplay checks a scan with the radius it was made with", () -> {
+            File file = File.createTempFile("battleship", ".journal");
+            file.deleteOnExit();
+            Board<Character> scanned = App.newBoard(10, 20);
+            V2ShipFactory factory = new V2ShipFactory();
+            Coordinate center = Coordinate.of(3, 3);
+            try (MoveJournal journal = new MoveJournal(file, 10, 20)) {
+                journal.watch(0, App.newBoard(10, 20));
+                journal.watch(1, scanned);
+                scanned.tryAddShip(factory.makeSubmarine(new Placement("A0H")));
+                scanned.tryAddShip(factory.makeDestroyer(new Placement("J7V")));
+                journal.recordScan(scanned, center, 1, TextPlayer.sonarScan(scanned, center, 1));
+                journal.recordScan(scanned, center, 8, TextPlayer.sonarScan(scanned, center, 8));
+            }
+            equal(2, JournalReplay.replay(Files.readAllBytes(file.toPath())).actions, "actions");
+            File wrong = File.createTempFile("battleship", ".journal");
+            wrong.deleteOnExit();
+            try (MoveJournal journal = new MoveJournal(wrong, 10, 20)) {
+                journal.watch(0, App.newBoard(10, 20));
+                Board<Character> same = App.newBoard(10, 20);
+                journal.watch(1, same);
+                same.tryAddShip(factory.makeSubmarine(new Placement("A0H")));
+                same.tryAddShip(factory.makeDestroyer(new Placement("J7V")));
+                journal.recordScan(same, center, 1, TextPlayer.sonarScan(same, center, 8));
+            }
+            byte[] wrongRadius = Files.readAllBytes(wrong.toPath());
+            fails(IllegalArgumentException.class, () -> JournalReplay.replay(wrongRadius), "a scan counted with another radius");
+        });
+        test("JournalReplay rebuilds a match resumed from its last save", () -> {
+            File file = File.createTempFile("battleship", ".journal");
+            file.deleteOnExit();
+            MatchSnapshot snapshots = new MatchSnapshot();
+            String[] tokens = {"a", "b"};
+            Random random = new Random(5);
+            TextPlayer[] players = new TextPlayer[2];
+            byte[] saved;
+            try (MoveJournal journal = new MoveJournal(file, 10, 20)) {
+                for (int i = 0; i < 2; i++) {
+                    ComputerPlayer player = App.createComputerPlayer(i == 0 ? "A" : "B", NO_INPUT, NO_OUTPUT, new V2ShipFactory());
+                    journal.watch(i, player.getBoard());
+                    player.placeFleetRandomly(random);
+                    players[i] = player;
+                }
+                journal.recordSaved(0);
+                saved = snapshots.write(7, tokens, 0, 0, players[0], players[1]);
+                for (int turn = 0; turn < 20; turn++) { // saved after every turn, as Match does
+                    ((ComputerPlayer) players[turn % 2]).fireShot(players[1 - turn % 2].getBoard());
+                    journal.flush();
+                    journal.recordSaved(turn + 1);
+                    saved = snapshots.write(7, tokens, turn + 1, 1 - turn % 2, players[0], players[1]);
+                }
+                ((ComputerPlayer) players[0]).fireShot(players[1].getBoard()); // the connection drops before the turn is saved
+            }
+            MatchSnapshot.Saved back = MatchSnapshot.read(saved);
+            players = back.restorePlayers(NO_INPUT, NO_OUTPUT, NO_INPUT, NO_OUTPUT, new V2ShipFactory());
+            int winner = -1;
+            try (MoveJournal journal = MoveJournal.resume(file, 10, 20, back.turns)) {
+                journal.watch(0, players[0].getBoard());
+                journal.watch(1, players[1].getBoard());
+                journal.recordSaved(back.turns);
+                for (int turn = back.nextPlayer; winner < 0; turn = 1 - turn) {
+                    ((ComputerPlayer) players[turn]).fireShot(players[1 - turn].getBoard());
+                    if (players[1 - turn].checkLose()) {
+                        winner = turn;
+                        journal.recordEnd(turn);
+                    }
+                }
+            }
+            JournalReplay.Replay replay = JournalReplay.replay(Files.readAllBytes(file.toPath()));
+            equal(describe(players[0].getBoard()), describe(replay.boards.get(0)), "board of A");
+            equal(describe(players[1].getBoard()), describe(replay.boards.get(1)), "board of B");
+            equal(winner, replay.winner, "winner");
+        });
+    }
+
+    /**
+     * A game recorded in a journal, with its players as they ended
+     */
+    private static class Recorded {
+        ComputerPlayer[] players;
+        byte[] journal;
+        int winner;
+        int actions;
+
+        /**
+         * The offset of the result byte of the first shot in the journal
+         */
+        int firstFireResult;
+    }
+
+    /**
+     * This play a game of two computers with every ship type, with a move
+     * and a sonar scan, recording it in a journal
+     */
+    private static Recorded record(long seed) throws IOException {
+        File file = File.createTempFile("battleship", ".journal");
+        file.deleteOnExit();
+        Recorded game = new Recorded();
+        game.players = new ComputerPlayer[2];
+        Random random = new Random(seed);
+        try (MoveJournal journal = new MoveJournal(file, 10, 20)) {
+            for (int i = 0; i < 2; i++) {
+                game.players[i] = App.createComputerPlayer(i == 0 ? "A" : "B", NO_INPUT, NO_OUTPUT, new V2ShipFactory());
+                journal.watch(i, game.players[i].getBoard());
+                game.players[i].useFleet(SimulationEngine.FLEET);
+                game.players[i].placeFleetRandomly(random);
+            }
+            game.players[0].doMove();
+            Board<Character> scanned = game.players[1].getBoard();
+            Coordinate center = Coordinate.of(10, 5);
+            journal.recordScan(scanned, center, ScanEngine.DEFAULT_RADIUS, TextPlayer.sonarScan(scanned, center));
+            game.actions = 2;
+            game.winner = -1;
+            for (int turn = 0; game.winner < 0; turn = 1 - turn) {
+                ComputerPlayer enemy = game.players[1 - turn];
+                game.players[turn].fireShot(enemy.getBoard());
+                game.actions++;
+                if (enemy.checkLose()) {
+                    game.winner = turn;
+                    journal.recordEnd(turn);
+                }
+            }
+        }
+        game.journal = Files.readAllBytes(file.toPath());
+        game.firstFireResult = firstFireResult(game.journal);
+        return game;
+    }
+
+    /**
+     * This find the result byte of the first shot: records are a short
+     * length then the type, and a shot is the board, row, column and result
+     */
+    private static int firstFireResult(byte[] journal) {
+        int at = 0;
+        while (at + 2 < journal.length) {
+            int length = ((journal[at] & 0xff) << 8) | (journal[at + 1] & 0xff);
+            if (journal[at + 2] == MoveJournal.FIRE) {
+                return at + 2 + 1 + 1 + 2 + 2;
+            }
+            at += 2 + length;
+        }
+        throw new AssertionError("The journal has no shot");
+    }
+
+    public static void main(String[] args) {
+        cases();
+        Checks.done();
+    }
+}
@@ -0,0 +1,85 @@
+package battleship;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static battleship.Checks.check;
+import static battleship.Checks.equal;
+import static battleship.Checks.test;
+
+/**
+ * This class checks that the NIO game server bounds what it keeps of a
+ * client's input: it stops reading a client that sends faster than its
+ * match reads, and ends the connection of one sending an endless line
+ */
+public class NioGameServerTest {
+
+    static void cases() {
+        test("NioGameServer ends the connection of a client sending an endless line", () -> {
+            NioGameServer server = start();
+            try (Socket client = new Socket("localhost", server.getPort())) {
+                client.setSoTimeout(5000);
+                byte[] line = new byte[NioSession.MAX_INPUT_LINE + 1];
+                Arrays.fill(line, (byte) 'x');
+                client.getOutputStream().write(line);
+                InputStream in = client.getInputStream();
+                while (in.read() >= 0) { // the position in the queue, then the end of the stream
+                }
+            }
+            finally {
+                server.shutdown();
+            }
+        });
+        test("NioGameServer stops reading a client its match does not read", () -> {
+            NioGameServer server = start();
+            try (Socket client = new Socket("localhost", server.getPort())) {
+                AtomicLong written = new AtomicLong();
+                Thread writer = new Thread(() -> {
+                    byte[] lines = new byte[4096];
+                    Arrays.fill(lines, (byte) '\n'); // short lines, none read while the client waits for a partner
+                    try {
+                        OutputStream out = client.getOutputStream();
+                        while (true) {
+                            out.write(lines);
+                            written.addAndGet(lines.length);
+                        }
+                    }
+                    catch (java.io.IOException e) {
+                        // the socket closed at the end of the case
+                    }
+                });
+                writer.setDaemon(true);
+                writer.start();
+                Thread.sleep(2000);
+                check(writer.isAlive(), "the writer stopped");
+                long before = written.get();
+                Thread.sleep(500);
+                equal(before, written.get(), "bytes written once the server stopped reading");
+                check(before < 32 * 1024 * 1024, "the server read " + before + " bytes nobody consumed");
+            }
+            finally {
+                server.shutdown();
+            }
+        });
+    }
+
+    /**
+     * This start a server on a free port whose lone players wait for a partner
+     */
+    private static NioGameServer start() throws java.io.IOException {
+        NioGameServer server = new NioGameServer(0);
+        server.getMatchmaker().setComputerAfterMillis(0);
+        Thread selector = new Thread(server, "test-nio-server");
+        selector.setDaemon(true);
+        selector.start();
+        return server;
+    }
+
+    public static void main(String[] args) {
+        cases();
+        Checks.done();
+    }
+}
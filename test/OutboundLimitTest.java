@@ -0,0 +1,88 @@
+package battleship;
+
+import java.io.IOException;
+
+import static battleship.Checks.check;
+import static battleship.Checks.equal;
+import static battleship.Checks.fails;
+import static battleship.Checks.test;
+
+/**
+ * This class checks that OutboundLimit lets writers through under its
+ * high water mark, holds them over it until the client reads, and gives
+ * up on a client that stalls or is gone
+ */
+public class OutboundLimitTest {
+
+    static void cases() {
+        test("OutboundLimit counts the bytes pending under the mark", () -> {
+            OutboundLimit limit = new OutboundLimit(100, 1000);
+            limit.reserve(60);
+            limit.reserve(40);
+            equal(100, limit.getPending(), "pending");
+            limit.release(70);
+            equal(30, limit.getPending(), "pending after a write");
+        });
+        test("OutboundLimit lets a batch over the mark through an empty queue", () -> {
+            OutboundLimit limit = new OutboundLimit(100, 1000);
+            limit.reserve(500);
+            equal(500, limit.getPending(), "pending");
+        });
+        test("OutboundLimit gives up on a client that does not read", () -> {
+            OutboundLimit limit = new OutboundLimit(100, 200);
+            limit.reserve(80);
+            long start = System.nanoTime();
+            fails(IOException.class, () -> limit.reserve(80), "over the mark");
+            long waited = (System.nanoTime() - start) / 1000000;
+            check(waited >= 190, "the writer waited only " + waited + " ms");
+            equal(80, limit.getPending(), "pending");
+        });
+        test("OutboundLimit wakes a writer once the client read", () -> {
+            OutboundLimit limit = new OutboundLimit(100, 10000);
+            limit.reserve(80);
+            Thread reader = new Thread(() -> {
+                sleep(100);
+                limit.release(80);
+            });
+            reader.start();
+            long start = System.nanoTime();
+            limit.reserve(80);
+            long waited = (System.nanoTime() - start) / 1000000;
+            reader.join();
+            check(waited < 5000, "the writer waited " + waited + " ms for room");
+            equal(80, limit.getPending(), "pending");
+        });
+        test("OutboundLimit wakes a writer when the connection closes", () -> {
+            OutboundLimit limit = new OutboundLimit(100, 10000);
+            limit.reserve(80);
+            Thread closer = new Thread(() -> {
+                sleep(100);
+                limit.close();
+            });
+            closer.start();
+            long start = System.nanoTime();
+            fails(IOException.class, () -> limit.reserve(80), "after close");
+            closer.join();
+            check((System.nanoTime() - start) / 1000000 < 5000, "the writer waited for the stall time");
+            fails(IOException.class, () -> limit.reserve(1), "a later write");
+        });
+        test("OutboundLimit rejects a mark or stall time that is not positive", () -> {
+            fails(IllegalArgumentException.class, () -> new OutboundLimit(0, 1000), "no mark");
+            fails(IllegalArgumentException.class, () -> new OutboundLimit(100, 0), "no stall time");
+        });
+    }
+
+    static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static void main(String[] args) {
+        cases();
+        Checks.done();
+    }
+}
@@ -0,0 +1,90 @@
+package battleship;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static battleship.Checks.check;
+import static battleship.Checks.equal;
+import static battleship.Checks.fails;
+import static battleship.Checks.test;
+
+/**
+ * This class checks that a PackedCellMap keeps the same entries as a
+ * HashMap through puts, removes and growth, and rejects what it cannot store
+ */
+public class PackedCellMapTest {
+
+    static void cases() {
+        test("PackedCellMap puts, replaces and removes values", () -> {
+            PackedCellMap<String> map = new PackedCellMap<String>();
+            check(map.isEmpty(), "a new map is not empty");
+            equal(null, map.put(Coordinate.pack(2, 3), "a"), "value replaced by the first put");
+            equal("a", map.put(Coordinate.pack(2, 3), "b"), "value replaced by the second put");
+            equal(1, map.size(), "size");
+            equal("b", map.get(Coordinate.pack(2, 3)), "value");
+            equal(null, map.get(Coordinate.pack(3, 2)), "value of another cell");
+            check(!map.containsKey(Coordinate.pack(3, 2)), "another cell is in the map");
+            equal("b", map.remove(Coordinate.pack(2, 3)), "value removed");
+            equal(null, map.remove(Coordinate.pack(2, 3)), "value removed twice");
+            check(map.isEmpty(), "the map is not empty once its entry is removed");
+        });
+        test("PackedCellMap keeps its entries as it grows", () -> {
+            PackedCellMap<Integer> map = new PackedCellMap<Integer>();
+            for (int r = 0; r < 100; r++) {
+                for (int c = 0; c < 100; c++) {
+                    map.put(Coordinate.pack(r, c), r * 100 + c);
+                }
+            }
+            equal(10000, map.size(), "size");
+            for (int r = 0; r < 100; r++) {
+                for (int c = 0; c < 100; c++) {
+                    equal(Integer.valueOf(r * 100 + c), map.get(Coordinate.pack(r, c)), "value of " + r + "," + c);
+                }
+            }
+            int[] keys = map.keys();
+            Arrays.sort(keys);
+            equal(10000, keys.length, "keys");
+            equal(Coordinate.pack(0, 0), keys[0], "first key");
+            equal(Coordinate.pack(99, 99), keys[keys.length - 1], "last key");
+            map.clear();
+            equal(0, map.size(), "size once cleared");
+            equal(null, map.get(Coordinate.pack(5, 5)), "value once cleared");
+        });
+        test("PackedCellMap finds every entry left after removals", () -> {
+            for (int side : new int[]{4, 40, Coordinate.MAX_INDEX + 1}) { // few cells collide more, the largest board has the largest keys
+                Random random = new Random(side);
+                PackedCellMap<Integer> map = new PackedCellMap<Integer>();
+                Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+                for (int i = 0; i < 20000; i++) {
+                    int key = Coordinate.pack(random.nextInt(Math.min(side, 200)), random.nextInt(side));
+                    if (random.nextInt(3) == 0) {
+                        equal(expected.remove(key), map.remove(key), "value removed at " + key);
+                    }
+                    else {
+                        equal(expected.put(key, i), map.put(key, i), "value replaced at " + key);
+                    }
+                }
+                equal(expected.size(), map.size(), "size on a board of " + side);
+                for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+                    equal(entry.getValue(), map.get(entry.getKey()), "value at " + entry.getKey());
+                }
+                for (int key : map.keys()) {
+                    check(expected.containsKey(key), "the map has the removed key " + key);
+                }
+            }
+        });
+        test("PackedCellMap rejects keys off the board and null values", () -> {
+            PackedCellMap<String> map = new PackedCellMap<String>();
+            fails(IllegalArgumentException.class, () -> map.put(Coordinate.pack(-1, 0), "a"), "a negative row");
+            fails(IllegalArgumentException.class, () -> map.put(Coordinate.pack(0, 0), null), "a null value");
+            equal(0, map.size(), "size");
+        });
+    }
+
+    public static void main(String[] args) {
+        cases();
+        Checks.done();
+    }
+}
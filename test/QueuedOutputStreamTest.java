@@ -0,0 +1,97 @@
+package battleship;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static battleship.Checks.check;
+import static battleship.Checks.equal;
+import static battleship.Checks.fails;
+import static battleship.Checks.test;
+
+/**
+ * This class checks that QueuedOutputStream hands every write to the
+ * socket in order, and that a client that stops reading or a socket that
+ * fails ends the connection instead of blocking the match
+ */
+public class QueuedOutputStreamTest {
+
+    static void cases() {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            test("QueuedOutputStream writes everything in order", () -> {
+                ByteArrayOutputStream socket = new ByteArrayOutputStream();
+                AtomicBoolean closed = new AtomicBoolean(false);
+                QueuedOutputStream out = new QueuedOutputStream(socket, executor, () -> closed.set(true));
+                StringBuilder expected = new StringBuilder();
+                for (int i = 0; i < 1000; i++) {
+                    String line = "turn " + i + "\n";
+                    out.write(line.getBytes(StandardCharsets.US_ASCII));
+                    expected.append(line);
+                }
+                out.close();
+                equal(expected.toString(), new String(socket.toByteArray(), StandardCharsets.US_ASCII), "bytes written");
+                check(!closed.get(), "the connection was closed");
+            });
+            test("QueuedOutputStream ends the connection of a client that stalls", () -> {
+                CountDownLatch reads = new CountDownLatch(1);
+                OutputStream socket = new OutputStream() { // a client that never reads: every write blocks
+                    @Override
+                    public void write(int b) throws IOException {
+                        write(new byte[]{(byte) b}, 0, 1);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        try {
+                            reads.await();
+                        }
+                        catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        throw new IOException("Connection reset");
+                    }
+                };
+                AtomicBoolean closed = new AtomicBoolean(false);
+                QueuedOutputStream out = new QueuedOutputStream(socket, executor, () -> {
+                    closed.set(true);
+                    reads.countDown(); // closing the socket fails the blocked write
+                }, new OutboundLimit(1000, 200));
+                byte[] board = new byte[600];
+                out.write(board); // taken by the blocked socket write
+                long start = System.nanoTime();
+                fails(IOException.class, () -> out.write(board), "writing to a stalled client"); // over the mark
+                check((System.nanoTime() - start) / 1000000 >= 190, "the writer did not wait for the client");
+                check(closed.get(), "the connection was not closed");
+                fails(IOException.class, () -> out.write(board), "writing after the stall");
+            });
+            test("QueuedOutputStream ends the connection when the socket fails", () -> {
+                OutputStream socket = new OutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        throw new IOException("Broken pipe");
+                    }
+                };
+                CountDownLatch closed = new CountDownLatch(1);
+                QueuedOutputStream out = new QueuedOutputStream(socket, executor, closed::countDown);
+                out.write(new byte[10]);
+                check(closed.await(5, TimeUnit.SECONDS), "the connection was not closed");
+                fails(IOException.class, () -> out.write(new byte[10]), "writing after the failure");
+            });
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public static void main(String[] args) {
+        cases();
+        Checks.done();
+    }
+}
@@ -0,0 +1,147 @@
+package battleship;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import static battleship.Checks.check;
+import static battleship.Checks.test;
+
+/**
+ * This class checks that RandomFleetGenerator's layouts are uniform: on a
+ * board small enough to list every legal layout, it draws many layouts
+ * and compares how often each came up with a chi-square test. Placing
+ * ship after ship and redrawing only the one that overlaps, as the
+ * computer used to, is checked the same way to show the test catches a
+ * biased generator.
+ */
+public class RandomFleetGeneratorTest {
+
+    /**
+     * The small fleet of the uniformity test
+     */
+    private static final List<String> SMALL_FLEET = Arrays.asList("Submarine", "Submarine", "Destroyer");
+
+    private static final int WIDTH = 4;
+    private static final int HEIGHT = 4;
+
+    private static final long DRAWS = 400000;
+
+    /**
+     * The largest deviation from the uniform counts accepted, in standard deviations
+     */
+    private static final double MAX_Z = 4;
+
+    /**
+     * This interface draws one layout, as the index of each ship's placement in PlacementTable.fitting
+     */
+    private interface LayoutSource {
+        public int[] draw(Random random);
+    }
+
+    static void cases() {
+        PlacementTable table = PlacementTable.forBoard(WIDTH, HEIGHT);
+        List<List<PlacementTable.Entry>> choices = new ArrayList<List<PlacementTable.Entry>>();
+        for (String name : SMALL_FLEET) {
+            choices.add(table.fitting(ShipTemplate.forName(name)));
+        }
+        HashMap<String, Integer> indexOf = new HashMap<String, Integer>();
+        for (List<PlacementTable.Entry> list : choices) {
+            for (int i = 0; i < list.size(); i++) {
+                indexOf.put(list.get(i).template.getName() + list.get(i).placement, i);
+            }
+        }
+        HashMap<String, Integer> layouts = allLayouts(choices);
+        test("RandomFleetGenerator draws every legal layout equally often", () -> {
+            RandomFleetGenerator generator = new RandomFleetGenerator(WIDTH, HEIGHT, SMALL_FLEET);
+            double z = chiSquareZ(random -> {
+                PlacementTable.Entry[] entries = generator.generateEntries(random);
+                int[] layout = new int[entries.length];
+                for (int i = 0; i < entries.length; i++) {
+                    layout[i] = indexOf.get(entries[i].template.getName() + entries[i].placement);
+                }
+                return layout;
+            }, layouts);
+            check(Math.abs(z) < MAX_Z, "the layouts of " + layouts.size() + " are not uniform, z = " + z);
+        });
+        test("RandomFleetGenerator's uniformity test catches placing ship after ship", () -> {
+            double z = chiSquareZ(random -> {
+                int[] layout = new int[choices.size()];
+                for (int i = 0; i < layout.length; i++) {
+                    do { // redraw only this ship until it fits with the ones before
+                        layout[i] = random.nextInt(choices.get(i).size());
+                    } while (!legal(choices.subList(0, i + 1), Arrays.copyOf(layout, i + 1)));
+                }
+                return layout;
+            }, layouts);
+            check(Math.abs(z) >= MAX_Z, "a biased generator passed, z = " + z);
+        });
+    }
+
+    /**
+     * This check whether placements, as indices in PlacementTable.fitting, overlap
+     */
+    private static boolean legal(List<List<PlacementTable.Entry>> choices, int[] layout) {
+        BitMask occupancy = new BitMask(WIDTH * HEIGHT);
+        for (int i = 0; i < layout.length; i++) {
+            PlacementTable.Entry e = choices.get(i).get(layout[i]);
+            if (e.collides(occupancy)) {
+                return false;
+            }
+            occupancy.or(e.mask);
+        }
+        return true;
+    }
+
+    /**
+     * This list every legal layout of the fleet, each ship trying every placement in turn
+     */
+    private static HashMap<String, Integer> allLayouts(List<List<PlacementTable.Entry>> choices) {
+        HashMap<String, Integer> layouts = new HashMap<String, Integer>();
+        int[] layout = new int[choices.size()];
+        while (true) {
+            if (legal(choices, layout)) {
+                layouts.put(Arrays.toString(layout), layouts.size());
+            }
+            int i = 0; // count through every combination like an odometer
+            while (i < layout.length && ++layout[i] == choices.get(i).size()) {
+                layout[i] = 0;
+                i++;
+            }
+            if (i == layout.length) {
+                return layouts;
+            }
+        }
+    }
+
+    /**
+     * This draw layouts with a fixed seed and test the counts of the legal
+     * layouts against a uniform distribution
+     *
+     * @return how far the chi-square statistic is from its mean, in standard deviations
+     */
+    private static double chiSquareZ(LayoutSource source, HashMap<String, Integer> layouts) {
+        long[] counts = new long[layouts.size()];
+        Random random = new Random(2024);
+        for (long d = 0; d < DRAWS; d++) {
+            int[] layout = source.draw(random);
+            Integer index = layouts.get(Arrays.toString(layout));
+            check(index != null, "drew the illegal layout " + Arrays.toString(layout));
+            counts[index] += 1;
+        }
+        double expected = (double) DRAWS / counts.length;
+        double chi2 = 0;
+        for (long c : counts) {
+            chi2 += (c - expected) * (c - expected) / expected;
+        }
+        int freedom = counts.length - 1;
+        return (chi2 - freedom) / Math.sqrt(2.0 * freedom); // chi-square is close to normal with this many degrees of freedom
+    }
+
+    public static void main(String[] args) {
+        cases();
+        Checks.done();
+    }
+}
@@ -0,0 +1,80 @@
+package battleship;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Map;
+
+import static battleship.Checks.check;
+import static battleship.Checks.equal;
+import static battleship.Checks.test;
+
+/**
+ * This class checks that a SnapshotStore gives back the latest snapshot
+ * of every match that did not end, and keeps its file to about the size
+ * of those while the matches are saved over and over
+ */
+public class SnapshotStoreTest {
+
+    static void cases() {
+        test("SnapshotStore recovers the latest snapshot of the matches running", () -> {
+            File file = File.createTempFile("battleship", ".snapshots");
+            file.deleteOnExit();
+            try (SnapshotStore store = new SnapshotStore(file)) {
+                equal(0, store.recover().size(), "matches in a new file");
+                for (long id = store.nextMatchId(); id <= 3; id = store.nextMatchId()) {
+                    store.save(id, snapshot(id, 1));
+                    store.save(id, snapshot(id, 2));
+                }
+                store.ended(2);
+            }
+            try (SnapshotStore store = new SnapshotStore(file)) {
+                Map<Long, byte[]> live = store.recover();
+                equal("[1, 3]", live.keySet().toString(), "matches to resume");
+                check(Arrays.equals(snapshot(3, 2), live.get(3L)), "the snapshot of match 3 is not its latest");
+                check(store.nextMatchId() > 3, "a match id is given again");
+            }
+        });
+        test("SnapshotStore compacts its file while the matches run", () -> {
+            File file = File.createTempFile("battleship", ".snapshots");
+            file.deleteOnExit();
+            long compactBytes = 4096;
+            try (SnapshotStore store = new SnapshotStore(file, compactBytes)) {
+                store.recover();
+                for (int turn = 0; turn < 5000; turn++) {
+                    store.save(1, snapshot(1, turn));
+                    store.save(2 + turn / 100, snapshot(2, turn)); // a match ends every 100 turns
+                    if (turn % 100 == 99) {
+                        store.ended(2 + turn / 100);
+                    }
+                    if (turn % 10 == 0) {
+                        Thread.sleep(1); // let the writer write
+                    }
+                    long liveBytes = 2 * (12 + 100);
+                    check(file.length() <= liveBytes + Math.max(compactBytes, liveBytes) + 4 * (12 + 100), // and a write not compacted yet
+                            "the file grew to " + file.length() + " bytes at turn " + turn);
+                }
+            }
+            try (SnapshotStore store = new SnapshotStore(file)) {
+                Map<Long, byte[]> live = store.recover();
+                equal("[1]", live.keySet().toString(), "matches to resume");
+                check(Arrays.equals(snapshot(1, 4999), live.get(1L)), "the snapshot of match 1 is not its latest");
+            }
+        });
+    }
+
+    /**
+     * A snapshot of 100 bytes that tells the match and the turn
+     */
+    private static byte[] snapshot(long matchId, int turn) {
+        byte[] data = new byte[100];
+        Arrays.fill(data, (byte) matchId);
+        data[0] = (byte) turn;
+        data[1] = (byte) (turn >> 8);
+        return data;
+    }
+
+    public static void main(String[] args) {
+        cases();
+        Checks.done();
+    }
+}
@@ -0,0 +1,97 @@
+package battleship;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static battleship.Checks.check;
+import static battleship.Checks.equal;
+import static battleship.Checks.test;
+
+/**
+ * This class checks that the thread-per-session game server resumes a
+ * saved match only with players still connected
+ */
+public class ThreadedGameServerTest {
+
+    private static final BufferedReader NO_INPUT = new BufferedReader(new StringReader(""));
+
+    private static final PrintStream NO_OUTPUT = new PrintStream(new ByteArrayOutputStream());
+
+    static void cases() {
+        test("ThreadedGameServer forgets a player who left while the match waited", () -> {
+            ThreadedGameServer server = new ThreadedGameServer(0, ThreadedGameServer.Mode.PLATFORM);
+            Thread acceptor = new Thread(server, "test-threaded-server");
+            acceptor.setDaemon(true);
+            acceptor.start();
+            V2ShipFactory factory = new V2ShipFactory();
+            TextPlayer[] players = new TextPlayer[2];
+            for (int i = 0; i < 2; i++) {
+                players[i] = new TextPlayer(i == 0 ? "A" : "B", App.newBoard(App.WIDTH, App.HEIGHT), NO_INPUT, NO_OUTPUT, factory);
+                players[i].getBoard().tryAddShip(factory.makeSubmarine(new Placement("A0H")));
+            }
+            String[] tokens = {"tokenA", "tokenB"};
+            server.offerResumes(Collections.singletonMap(1L, new MatchSnapshot().write(1, tokens, 2, 0, players[0], players[1])));
+            try {
+                Socket gone = resume(server, "A", tokens[0]);
+                Thread.sleep(300);
+                gone.close();
+                Thread.sleep(300);
+                try (Socket b = resume(server, "B", tokens[1])) {
+                    equal("", readFor(b, 500), "what B got with A gone");
+                    try (Socket a = resume(server, "A", tokens[0])) {
+                        check(readFor(a, 1000).startsWith("Match 1 resumed"), "the match did not resume for A");
+                        check(readFor(b, 1000).startsWith("Match 1 resumed"), "the match did not resume for B");
+                    }
+                }
+            }
+            finally {
+                server.shutdown();
+            }
+        });
+    }
+
+    /**
+     * This connect to the server and ask for match 1 back
+     */
+    private static Socket resume(ThreadedGameServer server, String player, String token) throws java.io.IOException {
+        Socket socket = new Socket("localhost", server.getPort());
+        socket.getOutputStream().write((ResumeRegistry.PREFIX + "1 " + player + " " + token + "\n").getBytes(StandardCharsets.US_ASCII));
+        return socket;
+    }
+
+    /**
+     * This read what the server sends within the given time
+     */
+    private static String readFor(Socket socket, long millis) throws java.io.IOException {
+        ByteArrayOutputStream got = new ByteArrayOutputStream();
+        InputStream in = socket.getInputStream();
+        long end = System.currentTimeMillis() + millis;
+        byte[] buf = new byte[4096];
+        try {
+            for (long left = millis; left > 0; left = end - System.currentTimeMillis()) {
+                socket.setSoTimeout((int) left);
+                int n = in.read(buf);
+                if (n < 0) {
+                    break;
+                }
+                got.write(buf, 0, n);
+            }
+        }
+        catch (SocketTimeoutException e) {
+            // nothing more in time
+        }
+        return new String(got.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    public static void main(String[] args) {
+        cases();
+        Checks.done();
+    }
+}
@@ -0,0 +1,71 @@
+package battleship;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static battleship.Checks.check;
+import static battleship.Checks.equal;
+import static battleship.Checks.test;
+
+/**
+ * This class checks that a TurnDeadline hangs up the input only when the
+ * clock running runs out, and reports whether that clock ran out
+ */
+public class TurnDeadlineTest {
+
+    static void cases() {
+        HashedWheelTimer timer = new HashedWheelTimer("test-deadline", 10, 8);
+        test("TurnDeadline hangs up the input once the player is out of time", () -> {
+            AtomicInteger hangUps = new AtomicInteger();
+            TurnDeadline deadline = new TurnDeadline(timer, hangUps::incrementAndGet);
+            deadline.start(30);
+            Thread.sleep(300);
+            check(deadline.hasExpired(), "the deadline did not expire");
+            equal(1, hangUps.get(), "hang-ups");
+        });
+        test("TurnDeadline leaves the input of a player who answered in time", () -> {
+            AtomicInteger hangUps = new AtomicInteger();
+            TurnDeadline deadline = new TurnDeadline(timer, hangUps::incrementAndGet);
+            for (int turn = 0; turn < 3; turn++) {
+                deadline.start(100);
+                Thread.sleep(20);
+                deadline.cancel();
+            }
+            deadline.start(100);
+            deadline.start(200); // replaces the running clock
+            Thread.sleep(150);
+            deadline.cancel();
+            Thread.sleep(200);
+            check(!deadline.hasExpired(), "the deadline expired");
+            equal(0, hangUps.get(), "hang-ups");
+        });
+        test("TurnDeadline cancelled as its timer fires never hangs up after cancel", () -> {
+            for (int i = 0; i < 50; i++) { // a clock of 0 ms races the cancel
+                AtomicInteger hangUps = new AtomicInteger();
+                TurnDeadline deadline = new TurnDeadline(timer, hangUps::incrementAndGet);
+                deadline.start(0);
+                Thread.sleep(i % 12);
+                deadline.cancel();
+                int seen = hangUps.get();
+                check(seen == (deadline.hasExpired() ? 1 : 0), "expired " + deadline.hasExpired() + " with " + seen + " hang-ups");
+                Thread.sleep(30);
+                equal(seen, hangUps.get(), "hang-ups after cancel");
+            }
+        });
+        test("TurnDeadline stays expired once its input is hung up", () -> {
+            AtomicInteger hangUps = new AtomicInteger();
+            TurnDeadline deadline = new TurnDeadline(timer, hangUps::incrementAndGet);
+            deadline.start(0);
+            Thread.sleep(100);
+            deadline.cancel();
+            deadline.start(10000); // the input cannot be read again
+            check(deadline.hasExpired(), "a clock started after the hang-up has not expired");
+            deadline.cancel();
+            equal(1, hangUps.get(), "hang-ups");
+        });
+    }
+
+    public static void main(String[] args) {
+        cases();
+        Checks.done();
+    }
+}